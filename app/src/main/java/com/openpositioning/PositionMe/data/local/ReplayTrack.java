@@ -0,0 +1,309 @@
+package com.openpositioning.PositionMe.data.local;
+
+import android.util.Log;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replay-ready trajectory stored as primitive columns in a single byte buffer.
+ *
+ * <p>
+ * Every replay point has a timestamp, a PDR position, a heading, a speed and optionally a GNSS
+ * position. They are stored as one column per field (structure of arrays) behind a small header,
+ * in the same layout in memory and on disk. A track built after parsing a trajectory file can be
+ * written to a cache file, which later replays of the same file map into memory with
+ * {@link FileChannel#map} instead of parsing the JSON again. Reading a mapped track creates no
+ * object per point: values are read from the buffer on demand and the operating system pages in
+ * only the parts that are accessed.
+ * </p>
+ *
+ * <p>
+ * The cache file records the length and modification time of the trajectory file it was derived
+ * from, the origin used to convert PDR positions and the hash of the walkways they were snapped to
+ * ({@link com.openpositioning.PositionMe.utils.BuildingRegistry#getWalkwayHash()}), and is
+ * ignored if any of them differs.
+ * </p>
+ *
+ * @see TrajParser which builds and caches tracks.
+ */
+public class ReplayTrack {
+
+    private static final String TAG = "ReplayTrack";
+
+    //region Static variables
+    // File signature "PMRT" and layout version, bump the version when the layout changes
+    private static final int MAGIC = 0x504D5254;
+    // Version 2: PDR positions projected on the local tangent plane instead of 1E-5 degrees/m
+    // Version 3: PDR positions snapped to the walkways of the buildings, with their hash
+    private static final int VERSION = 3;
+    // Extension of the cache files
+    private static final String CACHE_EXTENSION = ".track";
+    // Header: magic, version, source length, source modification time, origin, point count,
+    // walkway hash
+    private static final int HEADER_SIZE = 56;
+    private static final int OFFSET_SOURCE_LENGTH = 8;
+    private static final int OFFSET_SOURCE_MODIFIED = 16;
+    private static final int OFFSET_ORIGIN_LAT = 24;
+    private static final int OFFSET_ORIGIN_LNG = 32;
+    private static final int OFFSET_COUNT = 40;
+    private static final int OFFSET_WALKWAY_HASH = 48;
+    // Bytes per point over all columns: timestamp, 4 coordinates, heading, speed, GNSS flag
+    private static final int POINT_SIZE = 8 + 4 * 8 + 2 * 4 + 1;
+    //endregion
+
+    //region Instance variables
+    private final ByteBuffer buffer;
+    private final int size;
+    // Start of each column in the buffer, in bytes
+    private final int timeOffset;
+    private final int latOffset;
+    private final int lngOffset;
+    private final int gnssLatOffset;
+    private final int gnssLngOffset;
+    private final int orientationOffset;
+    private final int speedOffset;
+    private final int gnssFlagOffset;
+    //endregion
+
+    /**
+     * Private constructor over a buffer in the track layout.
+     *
+     * @param buffer    buffer starting with the header.
+     * @param size      number of points.
+     */
+    private ReplayTrack(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        // 8 byte columns first, so every column is aligned to its element size
+        this.timeOffset = HEADER_SIZE;
+        this.latOffset = timeOffset + 8 * size;
+        this.lngOffset = latOffset + 8 * size;
+        this.gnssLatOffset = lngOffset + 8 * size;
+        this.gnssLngOffset = gnssLatOffset + 8 * size;
+        this.orientationOffset = gnssLngOffset + 8 * size;
+        this.speedOffset = orientationOffset + 4 * size;
+        this.gnssFlagOffset = speedOffset + 4 * size;
+    }
+
+    /**
+     * Creates an empty writable track held in memory, to be filled with {@link #set}.
+     *
+     * @param size  number of points.
+     * @return      the track, with every field zero.
+     */
+    public static ReplayTrack allocate(int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + POINT_SIZE * size)
+                .order(ByteOrder.nativeOrder());
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(OFFSET_COUNT, size);
+        return new ReplayTrack(buffer, size);
+    }
+
+    /**
+     * Get the cache file of a trajectory file.
+     *
+     * @param cacheDir  directory holding the cache files.
+     * @param source    trajectory file.
+     * @return          cache file named after the absolute path of the trajectory file.
+     */
+    public static File cacheFileFor(File cacheDir, File source) {
+        String key = Integer.toHexString(source.getAbsolutePath().hashCode());
+        return new File(cacheDir, source.getName() + "-" + key + CACHE_EXTENSION);
+    }
+
+    /**
+     * Maps a cached track into memory if it is still valid for the given trajectory file, origin
+     * and walkways.
+     *
+     * @param cacheFile     cache file, see {@link #cacheFileFor(File, File)}.
+     * @param source        trajectory file the track must be derived from.
+     * @param originLat     latitude of the origin the track must have been converted with.
+     * @param originLng     longitude of the origin the track must have been converted with.
+     * @param walkwayHash   hash of the walkways the track must have been snapped to.
+     * @return              the mapped track, or null if the cache is missing, stale or unreadable.
+     */
+    public static ReplayTrack open(File cacheFile, File source, double originLat, double originLng,
+                                   long walkwayHash) {
+        if (!cacheFile.isFile() || cacheFile.length() < HEADER_SIZE) return null;
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = file.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.nativeOrder());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getLong(OFFSET_SOURCE_LENGTH) != source.length()
+                    || buffer.getLong(OFFSET_SOURCE_MODIFIED) != source.lastModified()
+                    || Double.compare(buffer.getDouble(OFFSET_ORIGIN_LAT), originLat) != 0
+                    || Double.compare(buffer.getDouble(OFFSET_ORIGIN_LNG), originLng) != 0
+                    || buffer.getLong(OFFSET_WALKWAY_HASH) != walkwayHash) {
+                Log.i(TAG, "Discarding stale replay cache " + cacheFile.getName());
+                return null;
+            }
+            int size = buffer.getInt(OFFSET_COUNT);
+            if (size < 0 || buffer.capacity() != HEADER_SIZE + (long) POINT_SIZE * size) {
+                Log.w(TAG, "Discarding truncated replay cache " + cacheFile.getName());
+                return null;
+            }
+            return new ReplayTrack(buffer, size);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to map replay cache " + cacheFile.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the track to a cache file, stamped with the trajectory file, origin and walkways it
+     * was derived from. The file is written next to the cache file and renamed, so a partially
+     * written cache is never opened.
+     *
+     * @param cacheFile     cache file, see {@link #cacheFileFor(File, File)}.
+     * @param source        trajectory file the track was parsed from.
+     * @param originLat     latitude of the origin used to convert PDR positions.
+     * @param originLng     longitude of the origin used to convert PDR positions.
+     * @param walkwayHash   hash of the walkways PDR positions were snapped to.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(File cacheFile, File source, double originLat, double originLng,
+                        long walkwayHash) throws IOException {
+        buffer.putLong(OFFSET_SOURCE_LENGTH, source.length());
+        buffer.putLong(OFFSET_SOURCE_MODIFIED, source.lastModified());
+        buffer.putDouble(OFFSET_ORIGIN_LAT, originLat);
+        buffer.putDouble(OFFSET_ORIGIN_LNG, originLng);
+        buffer.putLong(OFFSET_WALKWAY_HASH, walkwayHash);
+
+        File parent = cacheFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + parent);
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(0);
+            ByteBuffer data = buffer.duplicate();
+            data.clear();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        if (!temp.renameTo(cacheFile)) {
+            temp.delete();
+            throw new IOException("Cannot replace cache file " + cacheFile);
+        }
+    }
+
+    /**
+     * Sets every field of a point of a track created with {@link #allocate(int)}.
+     *
+     * @param index         index of the point.
+     * @param timestamp     relative timestamp in milliseconds.
+     * @param latitude      latitude of the PDR position in degrees.
+     * @param longitude     longitude of the PDR position in degrees.
+     * @param orientation   heading in degrees.
+     * @param speed         speed in meters per second.
+     * @param hasGnss       true if the point has a GNSS position.
+     * @param gnssLatitude  latitude of the GNSS position in degrees, ignored without GNSS.
+     * @param gnssLongitude longitude of the GNSS position in degrees, ignored without GNSS.
+     */
+    public void set(int index, long timestamp, double latitude, double longitude,
+                    float orientation, float speed,
+                    boolean hasGnss, double gnssLatitude, double gnssLongitude) {
+        buffer.putLong(timeOffset + 8 * index, timestamp);
+        buffer.putDouble(latOffset + 8 * index, latitude);
+        buffer.putDouble(lngOffset + 8 * index, longitude);
+        buffer.putDouble(gnssLatOffset + 8 * index, hasGnss ? gnssLatitude : 0);
+        buffer.putDouble(gnssLngOffset + 8 * index, hasGnss ? gnssLongitude : 0);
+        buffer.putFloat(orientationOffset + 4 * index, orientation);
+        buffer.putFloat(speedOffset + 4 * index, speed);
+        buffer.put(gnssFlagOffset + index, (byte) (hasGnss ? 1 : 0));
+    }
+
+    //region Getters
+
+    /**
+     * Get the number of points of the track.
+     *
+     * @return  number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the track has no point.
+     *
+     * @return  true if empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Get the relative timestamp of a point in milliseconds. */
+    public long getTimestamp(int index) {
+        return buffer.getLong(timeOffset + 8 * index);
+    }
+
+    /** Get the latitude of the PDR position of a point in degrees. */
+    public double getLatitude(int index) {
+        return buffer.getDouble(latOffset + 8 * index);
+    }
+
+    /** Get the longitude of the PDR position of a point in degrees. */
+    public double getLongitude(int index) {
+        return buffer.getDouble(lngOffset + 8 * index);
+    }
+
+    /** Get the heading of a point in degrees. */
+    public float getOrientation(int index) {
+        return buffer.getFloat(orientationOffset + 4 * index);
+    }
+
+    /** Get the speed of a point in meters per second. */
+    public float getSpeed(int index) {
+        return buffer.getFloat(speedOffset + 4 * index);
+    }
+
+    /** Checks if a point has a GNSS position. */
+    public boolean hasGnss(int index) {
+        return buffer.get(gnssFlagOffset + index) != 0;
+    }
+
+    /** Get the latitude of the GNSS position of a point in degrees, 0 without GNSS. */
+    public double getGnssLatitude(int index) {
+        return buffer.getDouble(gnssLatOffset + 8 * index);
+    }
+
+    /** Get the longitude of the GNSS position of a point in degrees, 0 without GNSS. */
+    public double getGnssLongitude(int index) {
+        return buffer.getDouble(gnssLngOffset + 8 * index);
+    }
+
+    /**
+     * Get the PDR position of a point as a map coordinate, created on demand.
+     *
+     * @param index index of the point.
+     * @return      PDR position.
+     */
+    public LatLng getPdrLocation(int index) {
+        return new LatLng(getLatitude(index), getLongitude(index));
+    }
+
+    /**
+     * Get the GNSS position of a point as a map coordinate, created on demand.
+     *
+     * @param index index of the point.
+     * @return      GNSS position, null if the point has none.
+     */
+    public LatLng getGnssLocation(int index) {
+        return hasGnss(index) ? new LatLng(getGnssLatitude(index), getGnssLongitude(index)) : null;
+    }
+
+    //endregion
+}
@@ -4,21 +4,22 @@ import android.content.Context;
 import android.hardware.SensorManager;
 import android.util.Log;
 
-import com.google.android.gms.maps.model.LatLng;
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.openpositioning.PositionMe.presentation.fragment.ReplayFragment;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
+import com.openpositioning.PositionMe.utils.Building;
+import com.openpositioning.PositionMe.utils.BuildingMaps;
+import com.openpositioning.PositionMe.utils.BuildingRegistry;
+import com.openpositioning.PositionMe.utils.EnuProjector;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.WalkwayMatcher;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 
 /**
  * Handles parsing of trajectory data stored in JSON files, combining IMU, PDR, and GNSS data
@@ -27,7 +28,8 @@ import java.util.List;
  * <p>
  * The **TrajParser** is primarily responsible for processing recorded trajectory data and
  * reconstructing motion information, including estimated positions, GNSS coordinates, speed, and orientation.
- * It does this by reading a JSON file containing:
+ * It does this by streaming a JSON file into primitive {@link TrajectoryColumns} with the
+ * {@link TrajectoryReader}, containing:
  * </p>
  * <ul>
  *     <li>IMU (Inertial Measurement Unit) data</li>
@@ -39,8 +41,8 @@ import java.util.List;
  * **Usage in Module 'PositionMe.app.main':**
  * </p>
  * <ul>
- *     <li>**ReplayFragment** - Calls `parseTrajectoryData()` to read recorded trajectory files and process movement.</li>
- *     <li>Stores parsed trajectory data as `ReplayPoint` objects.</li>
+ *     <li>**ReplayFragment** - Calls `loadReplayTrack()` to read recorded trajectory files and process movement.</li>
+ *     <li>Stores parsed trajectory data as a columnar {@link ReplayTrack}, cached on disk.</li>
  *     <li>Provides data for updating map visualizations in `ReplayFragment`.</li>
  * </ul>
  *
@@ -54,203 +56,266 @@ import java.util.List;
 public class TrajParser {
 
     private static final String TAG = "TrajParser";
+    // Number of replay points built between two load listener updates
+    private static final int CHUNK_SIZE = 2000;
+    // Number of characters read between two progress updates
+    private static final int PROGRESS_INTERVAL = 64 * 1024;
+    // Height of a floor outside the known buildings, or in one without a valid height, in meters
+    private static final float DEFAULT_FLOOR_HEIGHT = 4;
 
     /**
-     * Represents a single replay point containing estimated PDR position, GNSS location,
-     * orientation, speed, and timestamp.
+     * Listener informed of the progress of {@link #loadReplayTrack}, called on the loading thread.
      */
-    public static class ReplayPoint {
-        public LatLng pdrLocation;  // PDR-derived location estimate
-        public LatLng gnssLocation; // GNSS location (may be null if unavailable)
-        public float orientation;   // Orientation in degrees
-        public float speed;         // Speed in meters per second
-        public long timestamp;      // Relative timestamp
-
+    public interface LoadListener {
         /**
-         * Constructs a ReplayPoint.
+         * Called while the trajectory file is read.
          *
-         * @param pdrLocation  The pedestrian dead reckoning (PDR) location.
-         * @param gnssLocation The GNSS location, or null if unavailable.
-         * @param orientation  The orientation angle in degrees.
-         * @param speed        The speed in meters per second.
-         * @param timestamp    The timestamp associated with this point.
+         * @param fraction  fraction of the file read so far, between 0 and 1.
          */
-        public ReplayPoint(LatLng pdrLocation, LatLng gnssLocation, float orientation, float speed, long timestamp) {
-            this.pdrLocation = pdrLocation;
-            this.gnssLocation = gnssLocation;
-            this.orientation = orientation;
-            this.speed = speed;
-            this.timestamp = timestamp;
-        }
-    }
-
-    /** Represents an IMU (Inertial Measurement Unit) data record used for orientation calculations. */
-    private static class ImuRecord {
-        public long relativeTimestamp;
-        public float accX, accY, accZ; // Accelerometer values
-        public float gyrX, gyrY, gyrZ; // Gyroscope values
-        public float rotationVectorX, rotationVectorY, rotationVectorZ, rotationVectorW; // Rotation quaternion
-    }
+        void onProgress(float fraction);
 
-    /** Represents a Pedestrian Dead Reckoning (PDR) data record storing position shifts over time. */
-    private static class PdrRecord {
-        public long relativeTimestamp;
-        public float x, y; // Position relative to the starting point
-    }
-
-    /** Represents a GNSS (Global Navigation Satellite System) data record with latitude/longitude. */
-    private static class GnssRecord {
-        public long relativeTimestamp;
-        public double latitude, longitude; // GNSS coordinates
+        /**
+         * Called when points of the track are ready, first in chunks while the track is built and
+         * once more with the final track. Points below {@code count} are not modified afterwards.
+         *
+         * @param track replay track being loaded.
+         * @param count number of leading points of the track that are ready.
+         */
+        void onPoints(ReplayTrack track, int count);
     }
 
     /**
-     * Parses trajectory data from a JSON file and reconstructs a list of replay points.
+     * Loads the replay track of a trajectory file, from its cache if it is still valid.
+     *
+     * <p>
+     * The first replay of a file parses the JSON, aligns the streams and writes the resulting
+     * {@link ReplayTrack} to the cache directory. Later replays of the unchanged file with the same
+     * origin and walkways map the cached columns into memory, which is near instant and creates no
+     * object per point. If the cache cannot be written the parsed track is returned from memory.
+     * </p>
      *
      * <p>
-     * This method processes a trajectory log file, extracting IMU, PDR, and GNSS records,
-     * and uses them to generate **ReplayPoint** objects. Each point contains:
+     * PDR positions inside the buildings of the registry are snapped to the walkways of their
+     * floor, with the floor estimated from the recorded pressure.
+     * </p>
+     *
+     * <p>
+     * This method blocks and must be called from a background thread. Interrupting the thread
+     * cancels the load, in which case an empty track is returned and nothing is cached.
      * </p>
-     * <ul>
-     *     <li>Estimated PDR-based position.</li>
-     *     <li>GNSS location (if available).</li>
-     *     <li>Computed orientation using rotation vectors.</li>
-     *     <li>Speed estimation based on movement data.</li>
-     * </ul>
      *
      * @param filePath  Path to the JSON file containing trajectory data.
-     * @param context   Android application context (used for sensor processing).
+     * @param cacheDir  Directory of the replay caches, eg. {@link Context#getCacheDir()}.
      * @param originLat Latitude of the reference origin.
      * @param originLng Longitude of the reference origin.
-     * @return A list of parsed {@link ReplayPoint} objects.
+     * @param registry  Buildings whose walkways PDR positions are snapped to.
+     * @param listener  Listener informed of the progress, may be null.
+     * @return The replay track, empty if the file cannot be read or the load was cancelled.
      */
-    public static List<ReplayPoint> parseTrajectoryData(String filePath, Context context,
-                                                        double originLat, double originLng) {
-        List<ReplayPoint> result = new ArrayList<>();
+    public static ReplayTrack loadReplayTrack(String filePath, File cacheDir,
+                                              double originLat, double originLng,
+                                              BuildingRegistry registry, LoadListener listener) {
+        File file = new File(filePath);
+        File cacheFile = ReplayTrack.cacheFileFor(cacheDir, file);
+        long walkwayHash = registry.getWalkwayHash();
+        ReplayTrack track = ReplayTrack.open(cacheFile, file, originLat, originLng, walkwayHash);
+        if (track != null) {
+            Log.i(TAG, "Mapped cached replay track: " + track.size() + " points");
+            if (listener != null) listener.onPoints(track, track.size());
+            return track;
+        }
 
+        track = parseReplayTrack(file, originLat, originLng, registry, listener);
+        if (track.isEmpty() || Thread.currentThread().isInterrupted()) {
+            return ReplayTrack.allocate(0);
+        }
+        try {
+            track.writeTo(cacheFile, file, originLat, originLng, walkwayHash);
+            ReplayTrack mapped = ReplayTrack.open(cacheFile, file, originLat, originLng,
+                    walkwayHash);
+            if (mapped != null) track = mapped;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache replay track of " + filePath, e);
+        }
+        if (listener != null) listener.onPoints(track, track.size());
+        return track;
+    }
+
+    /**
+     * Parses a trajectory file into a replay track held in memory.
+     *
+     * @param file      JSON file containing trajectory data.
+     * @param originLat Latitude of the reference origin.
+     * @param originLng Longitude of the reference origin.
+     * @param registry  Buildings whose walkways PDR positions are snapped to.
+     * @param listener  Listener informed of the progress, may be null.
+     * @return The replay track, empty if the file cannot be read or the thread was interrupted.
+     */
+    private static ReplayTrack parseReplayTrack(File file, double originLat, double originLng,
+                                                BuildingRegistry registry, LoadListener listener) {
         try {
-            File file = new File(filePath);
             if (!file.exists()) {
-                Log.e(TAG, "File does NOT exist: " + filePath);
-                return result;
+                Log.e(TAG, "File does NOT exist: " + file.getPath());
+                return ReplayTrack.allocate(0);
             }
             if (!file.canRead()) {
-                Log.e(TAG, "File is NOT readable: " + filePath);
-                return result;
+                Log.e(TAG, "File is NOT readable: " + file.getPath());
+                return ReplayTrack.allocate(0);
             }
 
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            JsonObject root = new JsonParser().parse(br).getAsJsonObject();
-            br.close();
-
-            Log.i(TAG, "Successfully read trajectory file: " + filePath);
-
-            long startTimestamp = root.has("startTimestamp") ? root.get("startTimestamp").getAsLong() : 0;
+            TrajectoryColumns columns;
+            try (Reader reader = new ProgressReader(new BufferedReader(new FileReader(file)),
+                    file.length(), listener)) {
+                columns = TrajectoryReader.readColumns(reader);
+            }
 
-            List<ImuRecord> imuList = parseImuData(root.getAsJsonArray("imuData"));
-            List<PdrRecord> pdrList = parsePdrData(root.getAsJsonArray("pdrData"));
-            List<GnssRecord> gnssList = parseGnssData(root.getAsJsonArray("gnssData"));
+            Log.i(TAG, "Successfully read trajectory file: " + file.getPath());
+            Log.i(TAG, "Parsed data - IMU: " + columns.imuSize + " records, PDR: "
+                    + columns.pdrSize + " records, GNSS: " + columns.gnssSize + " records");
+
+            ReplayTrack track = buildReplayTrack(columns, originLat, originLng, registry,
+                    listener);
+            Log.i(TAG, "Final ReplayPoints count: " + track.size());
+            return track;
+        } catch (InterruptedIOException e) {
+            Log.i(TAG, "Parsing cancelled: " + file.getPath());
+            return ReplayTrack.allocate(0);
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing trajectory file!", e);
+            return ReplayTrack.allocate(0);
+        }
+    }
 
-            Log.i(TAG, "Parsed data - IMU: " + imuList.size() + " records, PDR: "
-                    + pdrList.size() + " records, GNSS: " + gnssList.size() + " records");
+    /**
+     * Aligns the streams of a trajectory into a replay track, with one point per PDR record.
+     *
+     * @param columns   streams of the trajectory, sorted by this method if needed.
+     * @param originLat Latitude of the reference origin.
+     * @param originLng Longitude of the reference origin.
+     * @param registry  Buildings whose walkways PDR positions are snapped to.
+     * @param listener  Listener informed of every completed chunk of points, may be null.
+     * @return The replay track.
+     * @throws InterruptedIOException if the thread is interrupted.
+     */
+    private static ReplayTrack buildReplayTrack(TrajectoryColumns columns,
+                                                double originLat, double originLng,
+                                                BuildingRegistry registry, LoadListener listener)
+            throws InterruptedIOException {
+        // Alignment below relies on every stream being sorted by time
+        columns.sortByTime();
+
+        // Heading column computed in a single pass
+        float[] imuHeadings = new float[columns.imuSize];
+        for (int i = 0; i < columns.imuSize; i++) {
+            imuHeadings[i] = computeOrientationFromRotationVector(columns.rotationX[i],
+                    columns.rotationY[i], columns.rotationZ[i], columns.rotationW[i]);
+        }
 
-            for (int i = 0; i < pdrList.size(); i++) {
-                PdrRecord pdr = pdrList.get(i);
+        // Merge-join every PDR point with its nearest IMU and GNSS records
+        int[] imuIndex = TrajectoryReader.alignNearest(columns.imuTimes, columns.imuSize,
+                columns.pdrTimes, columns.pdrSize);
+        int[] gnssIndex = TrajectoryReader.alignNearest(columns.gnssTimes, columns.gnssSize,
+                columns.pdrTimes, columns.pdrSize);
+
+        // PDR positions are meters east and north of the origin, converted in one batch
+        double[] pdrLat = new double[columns.pdrSize];
+        double[] pdrLng = new double[columns.pdrSize];
+        new EnuProjector(originLat, originLng).toGeodetic(columns.pdrX, columns.pdrY,
+                columns.pdrSize, pdrLat, pdrLng);
+
+        // Snap the positions to the walkways of their floor, floors are counted from the start
+        Building building = registry.find(new GeoPoint(originLat, originLng));
+        float floorHeight = building != null && building.getFloorHeight() > 0
+                ? building.getFloorHeight() : DEFAULT_FLOOR_HEIGHT;
+        int[] floors = TrajectoryReader.estimateFloors(columns, floorHeight);
+        int matched = WalkwayMatcher.matchAll(registry, pdrLat, pdrLng, floors, columns.pdrSize);
+        Log.i(TAG, "Snapped " + matched + " of " + columns.pdrSize + " points to walkways");
+
+        ReplayTrack track = ReplayTrack.allocate(columns.pdrSize);
+        for (int i = 0; i < columns.pdrSize; i++) {
+            float orientationDeg = imuIndex[i] >= 0 ? imuHeadings[imuIndex[i]] : 0f;
+
+            float speed = 0f;
+            if (i > 0) {
+                double dt = (columns.pdrTimes[i] - columns.pdrTimes[i - 1]) / 1000.0;
+                double dx = columns.pdrX[i] - columns.pdrX[i - 1];
+                double dy = columns.pdrY[i] - columns.pdrY[i - 1];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (dt > 0) speed = (float) (distance / dt);
+            }
 
-                ImuRecord closestImu = findClosestImuRecord(imuList, pdr.relativeTimestamp);
-                float orientationDeg = closestImu != null ? computeOrientationFromRotationVector(
-                        closestImu.rotationVectorX,
-                        closestImu.rotationVectorY,
-                        closestImu.rotationVectorZ,
-                        closestImu.rotationVectorW,
-                        context
-                ) : 0f;
+            int g = gnssIndex[i];
+            track.set(i, columns.pdrTimes[i], pdrLat[i], pdrLng[i], orientationDeg, speed,
+                    g >= 0, g >= 0 ? columns.gnssLat[g] : 0, g >= 0 ? columns.gnssLng[g] : 0);
 
-                float speed = 0f;
-                if (i > 0) {
-                    PdrRecord prev = pdrList.get(i - 1);
-                    double dt = (pdr.relativeTimestamp - prev.relativeTimestamp) / 1000.0;
-                    double dx = pdr.x - prev.x;
-                    double dy = pdr.y - prev.y;
-                    double distance = Math.sqrt(dx * dx + dy * dy);
-                    if (dt > 0) speed = (float) (distance / dt);
+            if ((i + 1) % CHUNK_SIZE == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Replay track loading cancelled");
                 }
-
-
-                double lat = originLat + pdr.y * 1E-5;
-                double lng = originLng + pdr.x * 1E-5;
-                LatLng pdrLocation = new LatLng(lat, lng);
-
-                GnssRecord closestGnss = findClosestGnssRecord(gnssList, pdr.relativeTimestamp);
-                LatLng gnssLocation = closestGnss != null ?
-                        new LatLng(closestGnss.latitude, closestGnss.longitude) : null;
-
-                result.add(new ReplayPoint(pdrLocation, gnssLocation, orientationDeg,
-                        0f, pdr.relativeTimestamp));
+                if (listener != null) listener.onPoints(track, i + 1);
             }
+        }
+        return track;
+    }
 
-            Collections.sort(result, Comparator.comparingLong(rp -> rp.timestamp));
-
-            Log.i(TAG, "Final ReplayPoints count: " + result.size());
+    /**
+     * Reader reporting the fraction of a file read to a {@link LoadListener}, and aborting with an
+     * {@link InterruptedIOException} once the reading thread is interrupted.
+     */
+    private static class ProgressReader extends FilterReader {
+        private final long length;
+        private final LoadListener listener;
+        private long read;
+        private long nextReport;
+
+        ProgressReader(Reader in, long length, LoadListener listener) {
+            super(in);
+            this.length = Math.max(1, length);
+            this.listener = listener;
+        }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing trajectory file!", e);
+        @Override
+        public int read() throws IOException {
+            char[] single = new char[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0];
         }
 
-        return result;
-    }
-/** Parses IMU data from JSON. */
-private static List<ImuRecord> parseImuData(JsonArray imuArray) {
-    List<ImuRecord> imuList = new ArrayList<>();
-    if (imuArray == null) return imuList;
-    Gson gson = new Gson();
-    for (int i = 0; i < imuArray.size(); i++) {
-        ImuRecord record = gson.fromJson(imuArray.get(i), ImuRecord.class);
-        imuList.add(record);
-    }
-    return imuList;
-}/** Parses PDR data from JSON. */
-private static List<PdrRecord> parsePdrData(JsonArray pdrArray) {
-    List<PdrRecord> pdrList = new ArrayList<>();
-    if (pdrArray == null) return pdrList;
-    Gson gson = new Gson();
-    for (int i = 0; i < pdrArray.size(); i++) {
-        PdrRecord record = gson.fromJson(pdrArray.get(i), PdrRecord.class);
-        pdrList.add(record);
-    }
-    return pdrList;
-}/** Parses GNSS data from JSON. */
-private static List<GnssRecord> parseGnssData(JsonArray gnssArray) {
-    List<GnssRecord> gnssList = new ArrayList<>();
-    if (gnssArray == null) return gnssList;
-    Gson gson = new Gson();
-    for (int i = 0; i < gnssArray.size(); i++) {
-        GnssRecord record = gson.fromJson(gnssArray.get(i), GnssRecord.class);
-        gnssList.add(record);
+        @Override
+        public int read(char[] buffer, int offset, int count) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Replay track loading cancelled");
+            }
+            int n = super.read(buffer, offset, count);
+            if (n > 0) {
+                read += n;
+                if (listener != null && read >= nextReport) {
+                    // Characters approximate bytes, the file is mostly ASCII
+                    listener.onProgress(Math.min(1f, (float) read / length));
+                    nextReport = read + PROGRESS_INTERVAL;
+                }
+            }
+            return n;
+        }
     }
-    return gnssList;
-}/** Finds the closest IMU record to the given timestamp. */
-private static ImuRecord findClosestImuRecord(List<ImuRecord> imuList, long targetTimestamp) {
-    return imuList.stream().min(Comparator.comparingLong(imu -> Math.abs(imu.relativeTimestamp - targetTimestamp)))
-            .orElse(null);
-
-}/** Finds the closest GNSS record to the given timestamp. */
-private static GnssRecord findClosestGnssRecord(List<GnssRecord> gnssList, long targetTimestamp) {
-    return gnssList.stream().min(Comparator.comparingLong(gnss -> Math.abs(gnss.relativeTimestamp - targetTimestamp)))
-            .orElse(null);
 
-}/** Computes the orientation from a rotation vector. */
-private static float computeOrientationFromRotationVector(float rx, float ry, float rz, float rw, Context context) {
-    float[] rotationVector = new float[]{rx, ry, rz, rw};
-    float[] rotationMatrix = new float[9];
-    float[] orientationAngles = new float[3];
-
-    SensorManager sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
-    SensorManager.getRotationMatrixFromVector(rotationMatrix, rotationVector);
-    SensorManager.getOrientation(rotationMatrix, orientationAngles);
+    /**
+     * Computes the azimuth from a rotation vector quaternion.
+     * Equivalent to {@link SensorManager#getRotationMatrixFromVector(float[], float[])} followed by
+     * {@link SensorManager#getOrientation(float[], float[])}, but only evaluates the two rotation
+     * matrix entries the azimuth depends on.
+     *
+     * @param rx    x component of the rotation vector.
+     * @param ry    y component of the rotation vector.
+     * @param rz    z component of the rotation vector.
+     * @param rw    scalar component of the rotation vector.
+     * @return      azimuth in degrees in the range [0, 360).
+     */
+    private static float computeOrientationFromRotationVector(float rx, float ry, float rz, float rw) {
+        // R[1] and R[4] of the rotation matrix, azimuth = atan2(R[1], R[4])
+        double r1 = 2 * rx * ry - 2 * rz * rw;
+        double r4 = 1 - 2 * rx * rx - 2 * rz * rz;
+        float azimuthDeg = (float) Math.toDegrees(Math.atan2(r1, r4));
+        return azimuthDeg < 0 ? azimuthDeg + 360.0f : azimuthDeg;
+    }
 
-    float azimuthDeg = (float) Math.toDegrees(orientationAngles[0]);
-    return azimuthDeg < 0 ? azimuthDeg + 360.0f : azimuthDeg;
 }
-
-}
\ No newline at end of file
@@ -28,10 +28,8 @@ import androidx.preference.PreferenceManager;
 import com.google.protobuf.util.JsonFormat;
 import com.openpositioning.PositionMe.BuildConfig;
 import com.openpositioning.PositionMe.Traj;
-import com.openpositioning.PositionMe.presentation.fragment.FilesFragment;
-import com.openpositioning.PositionMe.presentation.activity.MainActivity;
-import com.openpositioning.PositionMe.sensors.Observable;
-import com.openpositioning.PositionMe.sensors.Observer;
+import com.openpositioning.PositionMe.sensors.EventBus;
+import com.openpositioning.PositionMe.sensors.Topic;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -41,9 +39,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -70,7 +66,7 @@ import okhttp3.ResponseBody;
  * @author Michal Dvorak
  * @author Mate Stodulka
  */
-public class ServerCommunications implements Observable {
+public class ServerCommunications {
     public static Map<String, JSONObject> downloadRecords = new HashMap<>();
     // Application context for handling permissions and devices
     private final Context context;
@@ -83,7 +79,10 @@ public class ServerCommunications implements Observable {
 
     private String infoResponse;
     private boolean success;
-    private List<Observer> observers;
+
+    // Topics of the upload results and of the responses to the info requests
+    public static final Topic<Boolean> UPLOAD_RESULT = Topic.queued("uploadResult");
+    public static final Topic<String> INFO_RESPONSE = Topic.conflated("infoResponse");
 
     // Static constants necessary for communications
     private static final String userKey = BuildConfig.OPENPOSITIONING_API_KEY;
@@ -104,7 +103,7 @@ public class ServerCommunications implements Observable {
 
     /**
      * Public default constructor of {@link ServerCommunications}. The constructor saves context,
-     * initialises a {@link ConnectivityManager}, {@link Observer} and gets the user preferences.
+     * initialises a {@link ConnectivityManager} and gets the user preferences.
      * Boolean variables storing WiFi and Mobile Data connection status are initialised to false.
      *
      * @param context   application context for handling permissions and devices.
@@ -117,7 +116,6 @@ public class ServerCommunications implements Observable {
         this.isMobileConn = false;
         checkNetworkStatus();
 
-        this.observers = new ArrayList<>();
     }
 
     /**
@@ -194,7 +192,7 @@ public class ServerCommunications implements Observable {
                     // Delete the local file and set success to false
                     //file.delete();
                     success = false;
-                    notifyObservers(1);
+                    EventBus.getDefault().publish(UPLOAD_RESULT, success);
                 }
 
                 private void copyFile(File src, File dst) throws IOException {
@@ -224,7 +222,7 @@ public class ServerCommunications implements Observable {
 
                             System.err.println("POST error response: " + errorBody);
                             success = false;
-                            notifyObservers(1);
+                            EventBus.getDefault().publish(UPLOAD_RESULT, success);
                             throw new IOException("Unexpected code " + response);
                         }
 
@@ -253,17 +251,17 @@ public class ServerCommunications implements Observable {
 
                         // Delete local file and set success to true
                         success = file.delete();
-                        notifyObservers(1);
+                        EventBus.getDefault().publish(UPLOAD_RESULT, success);
                     }
                 }
             });
         }
         else {
             // If the device is not connected to network or allowed to send, do not send trajectory
-            // and notify observers and user
+            // and publish the result
             System.err.println("No uploading allowed right now!");
             success = false;
-            notifyObservers(1);
+            EventBus.getDefault().publish(UPLOAD_RESULT, success);
         }
     }
 
@@ -307,12 +305,12 @@ public class ServerCommunications implements Observable {
         client.newCall(request).enqueue(new okhttp3.Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                // Print error message, set success to false and notify observers
+                // Print error message, set success to false and publish the result
                 e.printStackTrace();
 //                localTrajectory.delete();
                 success = false;
                 System.err.println("UPLOAD: Failure to get response");
-                notifyObservers(1);
+                EventBus.getDefault().publish(UPLOAD_RESULT, success);
                 infoResponse = "Upload failed: " + e.getMessage(); // Store error message
                 new Handler(Looper.getMainLooper()).post(() ->
                         Toast.makeText(context, infoResponse, Toast.LENGTH_SHORT).show()); // show error message to users
@@ -325,7 +323,7 @@ public class ServerCommunications implements Observable {
                         // Print error message, set success to false and throw an exception
                         success = false;
 //                        System.err.println("UPLOAD unsuccessful: " + responseBody.string());
-                        notifyObservers(1);
+                        EventBus.getDefault().publish(UPLOAD_RESULT, success);
 //                        localTrajectory.delete();
                         assert responseBody != null;
                         String errorBody = responseBody.string();
@@ -346,9 +344,9 @@ public class ServerCommunications implements Observable {
                     assert responseBody != null;
                     System.out.println("UPLOAD SUCCESSFUL: " + responseBody.string());
 
-                    // Delete local file, set success to true and notify observers
+                    // Delete local file, set success to true and publish the result
                     success = localTrajectory.delete();
-                    notifyObservers(1);
+                    EventBus.getDefault().publish(UPLOAD_RESULT, success);
                 }
             }
         });
@@ -565,7 +563,7 @@ public class ServerCommunications implements Observable {
 
     /**
      * API request for information about submitted trajectories. If the response is successful,
-     * the {@link ServerCommunications#infoResponse} field is updated and observes notified.
+     * the response is published on {@link #INFO_RESPONSE}.
      *
      */
     public void sendInfoRequest() {
@@ -594,9 +592,9 @@ public class ServerCommunications implements Observable {
                     // Get the requested information from the response body and save it in a string
                     // TODO: add printing to the screen somewhere
                     infoResponse =  responseBody.string();
-                    // Print a message in the console and notify observers
+                    // Print a message in the console and publish the response
                     System.out.println("Response received");
-                    notifyObservers(0);
+                    EventBus.getDefault().publish(INFO_RESPONSE, infoResponse);
                 }
             }
         });
@@ -631,37 +629,4 @@ public class ServerCommunications implements Observable {
         Log.i("ServerCommunications", "APS Data size: " + trajectory.getApsDataCount());
         Log.i("ServerCommunications", "PDR Data size: " + trajectory.getPdrDataCount());
     }
-
-    /**
-     * {@inheritDoc}
-     *
-     * Implement default method from Observable Interface to add new observers to the list of
-     * registered observers.
-     *
-     * @param o Classes which implement the Observer interface to receive updates from the class.
-     */
-    @Override
-    public void registerObserver(Observer o) {
-        this.observers.add(o);
-    }
-
-    /**
-     * {@inheritDoc}
-     *
-     * Method for notifying all registered observers. The observer is notified based on the index
-     * passed to the method.
-     *
-     * @param index Index for identifying the observer to be notified.
-     */
-    @Override
-    public void notifyObservers(int index) {
-        for(Observer o : observers) {
-            if(index == 0 && o instanceof FilesFragment) {
-                o.update(new String[] {infoResponse});
-            }
-            else if (index == 1 && o instanceof MainActivity) {
-                o.update(new Boolean[] {success});
-            }
-        }
-    }
-}
\ No newline at end of file
+}
@@ -30,7 +30,7 @@ import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.data.remote.ServerCommunications;
 import com.openpositioning.PositionMe.presentation.fragment.HomeFragment;
 import com.openpositioning.PositionMe.presentation.fragment.SettingsFragment;
-import com.openpositioning.PositionMe.sensors.Observer;
+import com.openpositioning.PositionMe.sensors.EventBus;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
 import com.openpositioning.PositionMe.utils.PermissionManager;
 
@@ -60,7 +60,7 @@ import java.util.Objects;
  * @author Mate Stodulka
  * @author Virginia Cangelosi
  */
-public class MainActivity extends AppCompatActivity implements Observer {
+public class MainActivity extends AppCompatActivity {
 
 
     //region Instance variables
@@ -70,7 +70,8 @@ public class MainActivity extends AppCompatActivity implements Observer {
 
     private SharedPreferences settings;
     private SensorFusion sensorFusion;
-    private Handler httpResponseHandler;
+    // Subscription to the trajectory upload results
+    private EventBus.Subscription uploadSubscription;
 
     private PermissionManager permissionManager;
 
@@ -84,7 +85,7 @@ public class MainActivity extends AppCompatActivity implements Observer {
      * {@inheritDoc}
      * Forces light mode, sets up the navigation graph, initialises the toolbar with back action on
      * the nav controller, loads the shared preferences and checks for all permissions necessary.
-     * Sets up a Handler for displaying messages from other classes.
+     * Subscribes to the trajectory upload results for displaying messages from other classes.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -136,8 +137,9 @@ public class MainActivity extends AppCompatActivity implements Observer {
                 }
         );
 
-        // Handler for global toasts and popups from other classes
-        this.httpResponseHandler = new Handler();
+        // Global toasts for the uploads of any class, shown on the main thread
+        this.uploadSubscription = EventBus.getDefault().subscribe(
+                ServerCommunications.UPLOAD_RESULT, getMainExecutor(), this::onUploadResult);
     }
 
 
@@ -218,6 +220,7 @@ public class MainActivity extends AppCompatActivity implements Observer {
      */
     @Override
     protected void onDestroy() {
+        uploadSubscription.unsubscribe();
         if (sensorFusion != null) {
 //            sensorFusion.stopListening(); // suspended due to the need to record data with
 //                                             a locked screen or cross activity
@@ -233,8 +236,7 @@ public class MainActivity extends AppCompatActivity implements Observer {
     /**
      * Prepares global resources when all permissions are granted.
      * Resets the permissions tracking boolean in shared preferences, and initialises the
-     * {@link SensorFusion} class with the application context, and registers the main activity to
-     * listen for server responses that SensorFusion receives.
+     * {@link SensorFusion} class with the application context.
      *
      * @see SensorFusion the main data processing class.
      * @see ServerCommunications the communication class sending and recieving data from the server.
@@ -248,7 +250,6 @@ public class MainActivity extends AppCompatActivity implements Observer {
             this.sensorFusion = SensorFusion.getInstance();
             this.sensorFusion.setContext(getApplicationContext());
         }
-        sensorFusion.registerForServerUpdate(this);
     }
 
 
@@ -333,34 +334,18 @@ public class MainActivity extends AppCompatActivity implements Observer {
     //region Global toasts
 
     /**
-     * {@inheritDoc}
-     * Calls the corresponding handler that runs a toast on the Main UI thread.
+     * Displays a toast when {@link ServerCommunications} uploads a trajectory or fails to.
+     * Delivered on the main UI thread.
+     *
+     * @param success   true if the trajectory was uploaded.
      */
-    @Override
-    public void update(Object[] objList) {
-        assert objList[0] instanceof Boolean;
-        if((Boolean) objList[0]) {
-            this.httpResponseHandler.post(displayToastTaskSuccess);
-        }
-        else {
-            this.httpResponseHandler.post(displayToastTaskFailure);
+    private void onUploadResult(boolean success) {
+        if (success) {
+            Toast.makeText(this, "Trajectory uploaded", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "Failed to complete trajectory upload", Toast.LENGTH_SHORT).show();
         }
     }
 
-    /**
-     * Task that displays positive toast on the main UI thread.
-     * Called when {@link ServerCommunications} successfully uploads a trajectory.
-     */
-    private final Runnable displayToastTaskSuccess = () -> Toast.makeText(MainActivity.this,
-            "Trajectory uploaded", Toast.LENGTH_SHORT).show();
-
-    /**
-     * Task that displays negative toast on the main UI thread.
-     * Called when {@link ServerCommunications} fails to upload a trajectory.
-     */
-    private final Runnable displayToastTaskFailure = () -> {
-//            Toast.makeText(MainActivity.this, "Failed to complete trajectory upload", Toast.LENGTH_SHORT).show();
-    };
-
     //endregion
 }
\ No newline at end of file
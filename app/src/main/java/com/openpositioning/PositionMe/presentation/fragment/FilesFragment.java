@@ -19,7 +19,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.data.remote.ServerCommunications;
 import com.openpositioning.PositionMe.presentation.viewitems.TrajDownloadViewHolder;
-import com.openpositioning.PositionMe.sensors.Observer;
+import com.openpositioning.PositionMe.sensors.EventBus;
 import com.openpositioning.PositionMe.presentation.viewitems.TrajDownloadListAdapter;
 
 import org.json.JSONArray;
@@ -43,7 +43,7 @@ import java.util.Map;
  *
  * @author Mate Stodulka
  */
-public class FilesFragment extends Fragment implements Observer {
+public class FilesFragment extends Fragment {
 
     // UI elements
     private RecyclerView filesList;
@@ -52,6 +52,8 @@ public class FilesFragment extends Fragment implements Observer {
 
     // Class handling HTTP communication
     private ServerCommunications serverCommunications;
+    // Subscription to the responses of the info requests
+    private EventBus.Subscription infoSubscription;
 
     /**
      * Default public constructor, empty.
@@ -62,14 +64,25 @@ public class FilesFragment extends Fragment implements Observer {
 
     /**
      * {@inheritDoc}
-     * Initialise the server communication class and register the FilesFragment as an Observer to
-     * receive the async http responses.
+     * Initialise the server communication class and subscribe the FilesFragment to the async
+     * http responses, delivered on the main thread.
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         serverCommunications = new ServerCommunications(getActivity());
-        serverCommunications.registerObserver(this);
+        infoSubscription = EventBus.getDefault().subscribe(ServerCommunications.INFO_RESPONSE,
+                requireContext().getMainExecutor(), this::onInfoResponse);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Stops receiving the http responses.
+     */
+    @Override
+    public void onDestroy() {
+        infoSubscription.unsubscribe();
+        super.onDestroy();
     }
 
     /**
@@ -124,28 +137,18 @@ public class FilesFragment extends Fragment implements Observer {
     }
 
     /**
-     * {@inheritDoc}
-     * Called by {@link ServerCommunications} when the response to the HTTP info request is received.
+     * Called on the main thread when {@link ServerCommunications} receives the response to the
+     * HTTP info request.
      *
-     * @param singletonStringList   a single string wrapped in an object array containing the http
-     *                              response from the server.
+     * @param infoString    the http response from the server.
      */
-    @Override
-    public void update(Object[] singletonStringList) {
-        // Cast input as a string
-        String infoString = (String) singletonStringList[0];
-        // Check if the string is non-null and non-empty before processing
-        if(infoString != null && !infoString.isEmpty()) {
+    private void onInfoResponse(String infoString) {
+        // Check if the string is non-empty before processing
+        if(!infoString.isEmpty()) {
             // Process string
             List<Map<String, String>> entryList = processInfoResponse(infoString);
-            // Start a handler to be able to modify UI elements
-            new Handler(Looper.getMainLooper()).post(new Runnable() {
-                @Override
-                public void run() {
-                    // Update the RecyclerView with data from the server
-                    updateView(entryList);
-                }
-            });
+            // Update the RecyclerView with data from the server
+            updateView(entryList);
         }
     }
 
@@ -1,61 +1,82 @@
 package com.openpositioning.PositionMe.presentation.fragment;
 
+import android.content.Context;
+
 import com.google.android.gms.maps.GoogleMap;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
-import com.google.android.gms.maps.model.BitmapDescriptor;
 
-import com.google.android.gms.maps.model.GroundOverlay;
-import com.google.android.gms.maps.model.GroundOverlayOptions;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
+import com.openpositioning.PositionMe.utils.FloorPlanTileProvider;
+import com.openpositioning.PositionMe.utils.MapImageCache;
 
 public class IndoorMapFragment {
     private GoogleMap mMap;
-    private GroundOverlay[] groundOverlays; // GroundOverlay used to store each layer
+    private final Context context;
+    private final MapImageCache imageCache; // Cache of the floor map tiles
+    private int[] floorResIds; // Floor map of each layer
+    private LatLngBounds[] floorBounds; // Bounds of each layer
+    private TileOverlay tileOverlay; // TileOverlay showing the current floor, created when first shown
+    private FloorPlanTileProvider tileProvider; // Decodes the tiles of the current floor on demand
     private int currentFloor = 0; // Floor by default
 
-    public IndoorMapFragment(GoogleMap map, int floorNumber) {
+    public IndoorMapFragment(GoogleMap map, int floorNumber, Context context) {
         this.mMap = map; // Pass in Google Maps
-        this.groundOverlays = new GroundOverlay[floorNumber]; // Set the number of floors
+        this.context = context.getApplicationContext();
+        this.imageCache = MapImageCache.getInstance(context);
+        // Set the number of floors
+        this.floorResIds = new int[floorNumber];
+        this.floorBounds = new LatLngBounds[floorNumber];
     }
 
-    // Used to add floors
+    // Used to add floors, the floor map is only decoded once the floor is shown
     public void addFloor(int floorIndex, int drawableResId, LatLngBounds bounds) {
-        BitmapDescriptor image = BitmapDescriptorFactory.fromResource(drawableResId);
-        GroundOverlayOptions groundOverlayOptions = new GroundOverlayOptions()
-                .image(image)
-                .positionFromBounds(bounds)
-                .visible(floorIndex == currentFloor)
-                .transparency(0.2f);
-
-        groundOverlays[floorIndex] = mMap.addGroundOverlay(groundOverlayOptions);
+        floorResIds[floorIndex] = drawableResId;
+        floorBounds[floorIndex] = bounds;
+        if (floorIndex == currentFloor) {
+            showFloor(floorIndex);
+        }
     }
 
     // Switch floors and make sure only one floor is displayed
     public void switchFloor(int floorIndex) {
-        if (floorIndex < 0 || floorIndex >= groundOverlays.length) {
+        if (floorIndex < 0 || floorIndex >= floorResIds.length || floorBounds[floorIndex] == null) {
             return; // Prevent index out of bounds
         }
-        // Hide all floors
-        for (GroundOverlay overlay : groundOverlays) {
-            if (overlay != null) {
-                overlay.setVisible(false);
-            }
+        currentFloor = floorIndex;
+        showFloor(floorIndex);
+        // Prepare the floors above and below ahead of the next switch
+        if (floorIndex > 0 && floorBounds[floorIndex - 1] != null) {
+            imageCache.preload(floorResIds[floorIndex - 1]);
         }
-        // Show selected floor
-        GroundOverlay selectedOverlay = groundOverlays[floorIndex];
-        if (selectedOverlay != null) {
-            selectedOverlay.setVisible(true);
+        if (floorIndex < floorResIds.length - 1 && floorBounds[floorIndex + 1] != null) {
+            imageCache.preload(floorResIds[floorIndex + 1]);
         }
-        currentFloor = floorIndex;
     }
 
     // Hide all floors
     public void hideMap() {
-        //Hide all floors
-        for (GroundOverlay overlay : groundOverlays) {
-            if (overlay != null) {
-                overlay.setVisible(false);
-            }
+        if (tileOverlay != null) {
+            tileOverlay.setVisible(false);
+        }
+    }
+
+    // Show a floor on the single overlay shared by all floors, once its floor map is opened
+    // in the background, the previous floor stays shown meanwhile
+    private void showFloor(int floorIndex) {
+        if (tileOverlay == null) {
+            tileProvider = new FloorPlanTileProvider(context, floorResIds[floorIndex], floorBounds[floorIndex]);
+            tileOverlay = mMap.addTileOverlay(new TileOverlayOptions()
+                    .tileProvider(tileProvider)
+                    .transparency(0.2f));
+            return;
         }
+        imageCache.preload(floorResIds[floorIndex], () -> {
+            // Ignore floor maps opened after another floor was shown
+            if (floorIndex != currentFloor) return;
+            tileProvider.setFloorPlan(floorResIds[floorIndex], floorBounds[floorIndex]);
+            tileOverlay.clearTileCache();
+            tileOverlay.setVisible(true);
+        });
     }
 }
@@ -1,7 +1,6 @@
 package com.openpositioning.PositionMe.presentation.fragment;
 
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,17 +16,20 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
+import com.openpositioning.PositionMe.sensors.SensorSnapshot;
 import com.openpositioning.PositionMe.sensors.SensorTypes;
 import com.openpositioning.PositionMe.sensors.Wifi;
+import com.openpositioning.PositionMe.sensors.WifiDataProcessor;
 import com.openpositioning.PositionMe.presentation.viewitems.WifiListAdapter;
+import com.openpositioning.PositionMe.utils.LifecycleSubscription;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * A simple {@link Fragment} subclass. The measurement fragment displays the set of current sensor
- * readings. The values are refreshed periodically, but slower than their internal refresh rate.
- * The refresh time is set by a static constant.
+ * readings. The values are pushed by {@link SensorFusion} and the WiFi scans while the view is
+ * started, so the table is only updated when the readings change, at most about five times a
+ * second.
  *
  * @see HomeFragment the previous fragment in the nav graph.
  * @see SensorFusion the source of all sensor readings.
@@ -36,14 +38,9 @@ import java.util.Map;
  */
 public class MeasurementsFragment extends Fragment {
 
-    // Static constant for refresh time in milliseconds
-    private static final long REFRESH_TIME = 5000;
+    // Minimum interval between two updates of the table, sensor snapshots arrive every 16 ms (ms)
+    private static final long DISPLAY_INTERVAL_MS = 200;
 
-    // Singleton Sensor Fusion class handling all sensor data
-    private SensorFusion sensorFusion;
-
-    // UI Handler
-    private Handler refreshDataHandler;
     // UI elements
     private ConstraintLayout sensorMeasurementList;
     private RecyclerView wifiListView;
@@ -61,28 +58,19 @@ public class MeasurementsFragment extends Fragment {
 
     /**
      * {@inheritDoc}
-     * Obtains the singleton Sensor Fusion instance and initialises the string prefaces for display.
-     * Creates a new handler to periodically refresh data.
-     *
-     * @see SensorFusion handles all sensor data.
+     * Initialises the string prefaces for display.
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        // Get sensor fusion instance
-        sensorFusion = SensorFusion.getInstance();
         // Initialise string prefaces for display
         prefaces =  new int[]{R.string.x, R.string.y, R.string.z};
         gnssPrefaces =  new int[]{R.string.lati, R.string.longi};
-
-        // Create new handler to refresh the UI.
-        this.refreshDataHandler = new Handler();
     }
 
     /**
      * {@inheritDoc}
      * Sets title in the action bar to Sensor Measurements.
-     * Posts the {@link MeasurementsFragment#refreshTableTask} using the Handler.
      */
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -90,34 +78,14 @@ public class MeasurementsFragment extends Fragment {
         // Inflate the layout for this fragment
         View rootView = inflater.inflate(R.layout.fragment_measurements, container, false);
         getActivity().setTitle("Sensor Measurements");
-        this.refreshDataHandler.post(refreshTableTask);
         return rootView;
     }
 
-    /**
-     * {@inheritDoc}
-     * Pauses the data refreshing when the fragment is not in focus.
-     */
-    @Override
-    public void onPause() {
-        refreshDataHandler.removeCallbacks(refreshTableTask);
-        super.onPause();
-    }
-
-    /**
-     * {@inheritDoc}
-     * Restarts the data refresh when the fragment returns to focus.
-     */
-    @Override
-    public void onResume() {
-        refreshDataHandler.postDelayed(refreshTableTask, REFRESH_TIME);
-        super.onResume();
-    }
-
     /**
      * {@inheritDoc}
      * Obtains the constraint layout holding the sensor measurement values. Initialises the Recycler
-     * View for holding WiFi data and registers its Layout Manager.
+     * View for holding WiFi data and registers its Layout Manager. Subscribes to the sensor
+     * snapshots and the WiFi scans while the view is started, the latest ones are shown at once.
      */
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
@@ -125,53 +93,50 @@ public class MeasurementsFragment extends Fragment {
         sensorMeasurementList = (ConstraintLayout) getView().findViewById(R.id.sensorMeasurementList);
         wifiListView = (RecyclerView) getView().findViewById(R.id.wifiList);
         wifiListView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.SENSOR_SNAPSHOT, DISPLAY_INTERVAL_MS, this::showSnapshot);
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                WifiDataProcessor.WIFI_SCAN, this::showWifiScan);
     }
 
     /**
-     * Runnable task containing functionality to update the UI with the relevant sensor data.
-     * Must be run on the UI thread via a Handler. Obtains movement sensor values and the current
-     * WiFi networks from the {@link SensorFusion} instance and updates the UI with the new data
-     * and the string wrappers provided.
+     * Updates the table with the readings of a sensor snapshot, using the string wrappers
+     * provided.
      *
-     * @see SensorFusion class handling all sensors and data processing.
-     * @see Wifi class holding network data.
+     * @param snapshot  latest readings published by {@link SensorFusion}.
      */
-    private final Runnable refreshTableTask = new Runnable() {
-        @Override
-        public void run() {
-            // Get all the values from SensorFusion
-            Map<SensorTypes, float[]> sensorValueMap = sensorFusion.getSensorValueMap();
-            // Loop through UI elements and update the values
-            for(SensorTypes st : SensorTypes.values()) {
-                CardView cardView = (CardView) sensorMeasurementList.getChildAt(st.ordinal());
-                ConstraintLayout currentRow = (ConstraintLayout) cardView.getChildAt(0);
-                float[] values = sensorValueMap.get(st);
-                for (int i = 0; i < values.length; i++) {
-                    String valueString;
-                    // Set string wrapper based on data type.
-                    if(values.length == 1) {
-                        valueString = getString(R.string.level, String.format("%.2f", values[0]));
-                    }
-                    else if(values.length == 2){
-                        if(st == SensorTypes.GNSSLATLONG)
-                            valueString = getString(gnssPrefaces[i], String.format("%.2f", values[i]));
-                        else
-                            valueString = getString(prefaces[i], String.format("%.2f", values[i]));
-                    }
-                    else{
-                        valueString = getString(prefaces[i], String.format("%.2f", values[i]));
-                    }
-                    ((TextView) currentRow.getChildAt(i + 1)).setText(valueString);
+    private void showSnapshot(SensorSnapshot snapshot) {
+        // Loop through UI elements and update the values
+        for(SensorTypes st : SensorTypes.values()) {
+            CardView cardView = (CardView) sensorMeasurementList.getChildAt(st.ordinal());
+            ConstraintLayout currentRow = (ConstraintLayout) cardView.getChildAt(0);
+            int valueCount = st.getValueCount();
+            for (int i = 0; i < valueCount; i++) {
+                float value = snapshot.getValue(st, i);
+                String valueString;
+                // Set string wrapper based on data type.
+                if(valueCount == 1) {
+                    valueString = getString(R.string.level, String.format("%.2f", value));
                 }
+                else if(st == SensorTypes.GNSSLATLONG) {
+                    valueString = getString(gnssPrefaces[i], String.format("%.2f", value));
+                }
+                else{
+                    valueString = getString(prefaces[i], String.format("%.2f", value));
+                }
+                ((TextView) currentRow.getChildAt(i + 1)).setText(valueString);
             }
-            // Get all WiFi values - convert to list of strings
-            List<Wifi> wifiObjects = sensorFusion.getWifiList();
-            // If there are WiFi networks visible, update the recycler view with the data.
-            if(wifiObjects != null) {
-                wifiListView.setAdapter(new WifiListAdapter(getActivity(), wifiObjects));
-            }
-            // Restart the data updater task in REFRESH_TIME milliseconds.
-            refreshDataHandler.postDelayed(refreshTableTask, REFRESH_TIME);
         }
-    };
+    }
+
+    /**
+     * Updates the recycler view with the networks of a WiFi scan.
+     *
+     * @param wifiObjects   access points of the latest scan.
+     *
+     * @see Wifi class holding network data.
+     */
+    private void showWifiScan(List<Wifi> wifiObjects) {
+        wifiListView.setAdapter(new WifiListAdapter(getActivity(), wifiObjects));
+    }
 }
\ No newline at end of file
@@ -6,7 +6,6 @@ import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.CountDownTimer;
-import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -27,8 +26,11 @@ import androidx.preference.PreferenceManager;
 
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.presentation.activity.RecordingActivity;
+import com.openpositioning.PositionMe.sensors.EventBus;
+import com.openpositioning.PositionMe.sensors.FusedPosition;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
 import com.openpositioning.PositionMe.sensors.SensorTypes;
+import com.openpositioning.PositionMe.utils.LifecycleSubscription;
 import com.openpositioning.PositionMe.utils.UtilFunctions;
 import com.google.android.gms.maps.model.LatLng;
 
@@ -47,6 +49,9 @@ import com.google.android.gms.maps.model.LatLng;
  * - Provides UI controls to cancel or complete recording.
  * - Uses {@link TrajectoryMapFragment} to visualize recorded paths.
  * - Manages GNSS tracking and error display.
+ * <p>
+ * The displayed values are pushed by the topics of {@link SensorFusion} while the view is started,
+ * so the screen is only updated when a value changes.
  *
  * @see TrajectoryMapFragment The map fragment displaying the recorded trajectory.
  * @see RecordingActivity The activity managing the recording workflow.
@@ -69,7 +74,6 @@ public class RecordingFragment extends Fragment {
 
     // Sensor & data logic
     private SensorFusion sensorFusion;
-    private Handler refreshDataHandler;
     private CountDownTimer autoStop;
 
     // Distance tracking
@@ -80,15 +84,6 @@ public class RecordingFragment extends Fragment {
     // References to the child map fragment
     private TrajectoryMapFragment trajectoryMapFragment;
 
-    private final Runnable refreshDataTask = new Runnable() {
-        @Override
-        public void run() {
-            updateUIandPosition();
-            // Loop again
-            refreshDataHandler.postDelayed(refreshDataTask, 200);
-        }
-    };
-
     public RecordingFragment() {
         // Required empty public constructor
     }
@@ -99,7 +94,6 @@ public class RecordingFragment extends Fragment {
         this.sensorFusion = SensorFusion.getInstance();
         Context context = requireActivity();
         this.settings = PreferenceManager.getDefaultSharedPreferences(context);
-        this.refreshDataHandler = new Handler();
     }
 
     @Nullable
@@ -129,6 +123,8 @@ public class RecordingFragment extends Fragment {
                     .replace(R.id.trajectoryMapFragmentContainer, trajectoryMapFragment)
                     .commit();
         }
+        // The GNSS error is only shown while GNSS is shown on the map
+        trajectoryMapFragment.setGnssSwitchListener(enabled -> updateGnssError());
 
         // Initialize UI references
         elevation = view.findViewById(R.id.currentElevation);
@@ -184,7 +180,19 @@ public class RecordingFragment extends Fragment {
         // The blinking effect for recIcon
         blinkingRecordingIcon();
 
-        // Start the timed or indefinite UI refresh
+        // Live values, delivered while the view is started
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.PDR_POSITION, this::onPdrPosition);
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.ELEVATION, this::onElevation);
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.FUSED_POSITION, this::onFusedPosition);
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.FLOOR, this::onFloor);
+        LifecycleSubscription.observe(getViewLifecycleOwner(),
+                SensorFusion.GNSS_POSITION, this::onGnssPosition);
+
+        // Start the timer if a maximum recording time is set
         if (this.settings.getBoolean("split_trajectory", false)) {
             // A maximum recording time is set
             long limit = this.settings.getInt("split_duration", 30) * 60000L;
@@ -196,7 +204,6 @@ public class RecordingFragment extends Fragment {
                 @Override
                 public void onTick(long millisUntilFinished) {
                     timeRemaining.incrementProgressBy(1);
-                    updateUIandPosition();
                 }
 
                 @Override
@@ -205,69 +212,88 @@ public class RecordingFragment extends Fragment {
                     ((RecordingActivity) requireActivity()).showCorrectionScreen();
                 }
             }.start();
-        } else {
-            // No set time limit, just keep refreshing
-            refreshDataHandler.post(refreshDataTask);
         }
     }
 
     /**
-     * Update the UI with sensor data and pass map updates to TrajectoryMapFragment.
+     * Adds the distance walked since the previous PDR position to the distance travelled.
+     *
+     * @param pdrPosition   PDR coordinates in meters.
      */
-    private void updateUIandPosition() {
-        float[] pdrValues = sensorFusion.getSensorValueMap().get(SensorTypes.PDR);
-        if (pdrValues == null) return;
-
-        // Distance
-        distance += Math.sqrt(Math.pow(pdrValues[0] - previousPosX, 2)
-                + Math.pow(pdrValues[1] - previousPosY, 2));
+    private void onPdrPosition(float[] pdrPosition) {
+        distance += Math.sqrt(Math.pow(pdrPosition[0] - previousPosX, 2)
+                + Math.pow(pdrPosition[1] - previousPosY, 2));
         distanceTravelled.setText(getString(R.string.meter, String.format("%.2f", distance)));
+        previousPosX = pdrPosition[0];
+        previousPosY = pdrPosition[1];
+    }
 
-        // Elevation
-        float elevationVal = sensorFusion.getElevation();
+    /**
+     * Shows the elevation relative to the start of the recording.
+     *
+     * @param elevationVal  elevation in meters.
+     */
+    private void onElevation(float elevationVal) {
         elevation.setText(getString(R.string.elevation, String.format("%.1f", elevationVal)));
+    }
 
-        // Current location
-        // Convert PDR coordinates to actual LatLng if you have a known starting lat/lon
-        // Or simply pass relative data for the TrajectoryMapFragment to handle
-        // For example:
-        float[] latLngArray = sensorFusion.getGNSSLatitude(true);
-        if (latLngArray != null) {
-            LatLng oldLocation = trajectoryMapFragment.getCurrentLocation(); // or store locally
-            LatLng newLocation = UtilFunctions.calculateNewPos(
-                    oldLocation == null ? new LatLng(latLngArray[0], latLngArray[1]) : oldLocation,
-                    new float[]{ pdrValues[0] - previousPosX, pdrValues[1] - previousPosY }
-            );
-
-            // Pass the location + orientation to the map
-            if (trajectoryMapFragment != null) {
-                trajectoryMapFragment.updateUserLocation(newLocation,
-                        (float) Math.toDegrees(sensorFusion.passOrientation()));
-            }
+    /**
+     * Passes the fused PDR, GNSS and WiFi position to the map, and the floor height of the
+     * building it is in to the floor estimation. The GNSS error is updated for the new position.
+     *
+     * @param fusedPosition position and heading estimated by SensorFusion.
+     */
+    private void onFusedPosition(FusedPosition fusedPosition) {
+        if (trajectoryMapFragment == null) return;
+        trajectoryMapFragment.updateUserLocation(fusedPosition.getPosition(),
+                (float) Math.toDegrees(fusedPosition.getHeading()));
+        updateGnssError();
+        float floorHeight = trajectoryMapFragment.getBuildingFloorHeight();
+        if (floorHeight > 0) {
+            sensorFusion.setFloorHeight(floorHeight);
         }
+    }
 
-        // GNSS logic if you want to show GNSS error, etc.
-        float[] gnss = sensorFusion.getSensorValueMap().get(SensorTypes.GNSSLATLONG);
-        if (gnss != null && trajectoryMapFragment != null) {
-            // If user toggles showing GNSS in the map, call e.g.
-            if (trajectoryMapFragment.isGnssEnabled()) {
-                LatLng gnssLocation = new LatLng(gnss[0], gnss[1]);
-                LatLng currentLoc = trajectoryMapFragment.getCurrentLocation();
-                if (currentLoc != null) {
-                    double errorDist = UtilFunctions.distanceBetweenPoints(currentLoc, gnssLocation);
-                    gnssError.setVisibility(View.VISIBLE);
-                    gnssError.setText(String.format(getString(R.string.gnss_error) + "%.2fm", errorDist));
-                }
-                trajectoryMapFragment.updateGNSS(gnssLocation);
-            } else {
-                gnssError.setVisibility(View.GONE);
-                trajectoryMapFragment.clearGNSS();
-            }
+    /**
+     * Switches the map to the estimated floor.
+     *
+     * @param floor floor estimated from the barometer.
+     */
+    private void onFloor(int floor) {
+        if (trajectoryMapFragment != null) {
+            trajectoryMapFragment.updateFloor(floor);
+        }
+    }
+
+    /**
+     * Shows a GNSS fix and its distance to the current location if GNSS is enabled on the map.
+     *
+     * @param gnssLocation  position of the fix.
+     */
+    private void onGnssPosition(LatLng gnssLocation) {
+        if (trajectoryMapFragment == null) return;
+        if (trajectoryMapFragment.isGnssEnabled()) {
+            trajectoryMapFragment.updateGNSS(gnssLocation);
+        } else {
+            trajectoryMapFragment.clearGNSS();
         }
+        updateGnssError();
+    }
 
-        // Update previous
-        previousPosX = pdrValues[0];
-        previousPosY = pdrValues[1];
+    /**
+     * Shows the distance between the current location and the latest GNSS fix while GNSS is
+     * enabled on the map, hides it otherwise.
+     */
+    private void updateGnssError() {
+        LatLng gnssLocation = EventBus.getDefault().getLatest(SensorFusion.GNSS_POSITION);
+        LatLng currentLoc = trajectoryMapFragment.getCurrentLocation();
+        if (!trajectoryMapFragment.isGnssEnabled() || gnssLocation == null || currentLoc == null) {
+            gnssError.setVisibility(View.GONE);
+            return;
+        }
+        double errorDist = UtilFunctions.distanceBetweenPoints(currentLoc, gnssLocation);
+        gnssError.setVisibility(View.VISIBLE);
+        gnssError.setText(String.format(getString(R.string.gnss_error) + "%.2fm", errorDist));
     }
 
     /**
@@ -281,18 +307,4 @@ public class RecordingFragment extends Fragment {
         blinking.setRepeatMode(Animation.REVERSE);
         recIcon.startAnimation(blinking);
     }
-
-    @Override
-    public void onPause() {
-        super.onPause();
-        refreshDataHandler.removeCallbacks(refreshDataTask);
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        if(!this.settings.getBoolean("split_trajectory", false)) {
-            refreshDataHandler.postDelayed(refreshDataTask, 500);
-        }
-    }
 }
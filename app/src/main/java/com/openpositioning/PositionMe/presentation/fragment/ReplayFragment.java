@@ -1,12 +1,16 @@
 package com.openpositioning.PositionMe.presentation.fragment;
 
+import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.ProgressBar;
 import android.widget.SeekBar;
 
 import androidx.annotation.NonNull;
@@ -17,11 +21,19 @@ import androidx.fragment.app.Fragment;
 import com.google.android.gms.maps.model.LatLng;
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.presentation.activity.ReplayActivity;
+import com.openpositioning.PositionMe.data.local.ReplayTrack;
 import com.openpositioning.PositionMe.data.local.TrajParser;
+import com.openpositioning.PositionMe.utils.BuildingMaps;
+import com.openpositioning.PositionMe.utils.ReplayClock;
 
 import java.io.File;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Sub fragment of Replay Activity. Fragment that replays trajectory data on a map.
@@ -31,10 +43,16 @@ import java.util.List;
  * and provides UI controls for playback, pause, and seek functionalities.
  * <p>
  * Features:
- * - Loads trajectory data from a file and displays it on a map.
- * - Provides playback controls including play, pause, restart, and go to end.
+ * - Loads trajectory data from a file and displays it on a map. The parsed trajectory is cached as
+ *   a memory-mapped {@link ReplayTrack}, so opening the same recording again is near instant.
+ * - Loads on a background thread with a progress indicator. Points are shown as soon as they are
+ *   ready, and the load is cancelled when the view is destroyed.
+ * - Provides playback controls including play, pause, restart, go to end and playback speed.
+ * - Plays back in time with the recorded timestamps, driven by a {@link ReplayClock}, with the
+ *   user position interpolated between recorded points.
  * - Updates the trajectory dynamically as playback progresses.
- * - Allows users to manually seek through the recorded trajectory.
+ * - Allows users to manually seek through the recorded trajectory, using precomputed prefixes of
+ *   the paths so that seeking does not replay the trajectory.
  * - Integrates with {@link TrajectoryMapFragment} for map visualization.
  *
  * @see TrajectoryMapFragment The map fragment displaying the trajectory.
@@ -43,9 +61,11 @@ import java.util.List;
  *
  * @author Shu Gu
  */
-public class ReplayFragment extends Fragment {
+public class ReplayFragment extends Fragment implements ReplayClock.OnFrameListener {
 
     private static final String TAG = "ReplayFragment";
+    // Playback speeds selectable with the speed button
+    private static final float[] PLAYBACK_SPEEDS = {0.5f, 1f, 2f, 4f, 8f, 16f, 32f, 64f};
 
     // GPS start location (received from ReplayActivity)
     private float initialLat = 0f;
@@ -55,19 +75,52 @@ public class ReplayFragment extends Fragment {
 
     // UI Controls
     private TrajectoryMapFragment trajectoryMapFragment;
-    private Button playPauseButton, restartButton, exitButton, goEndButton;
+    private Button playPauseButton, restartButton, exitButton, goEndButton, speedButton;
     private SeekBar playbackSeekBar;
+    private ProgressBar loadingProgress;
+
+    // Background loading of the trajectory
+    private ExecutorService loadExecutor;
+    private Future<?> loadTask;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Incremented on every load and cancellation, results of older loads are ignored
+    private int loadGeneration = 0;
+    // Number of leading points of the track loaded so far
+    private int loadedCount = 0;
 
     // Playback-related
-    private final Handler playbackHandler = new Handler();
-    private final long PLAYBACK_INTERVAL_MS = 500; // milliseconds
-    private List<TrajParser.ReplayPoint> replayData = new ArrayList<>();
+    private ReplayClock replayClock;
+    private int speedIndex = 1;
+    private ReplayTrack replayData = ReplayTrack.allocate(0);
     private int currentIndex = 0;
     private boolean isPlaying = false;
+    // Prefix geometry for seeking, see extendPrefixGeometry()
+    private int[] pathIndices = new int[0];
+    private int pathCount = 0;
+    private int[] pathPrefixCounts = new int[0];
+    private int[] gnssIndices = new int[0];
+    private int gnssCount = 0;
+    private int[] gnssPrefixCounts = new int[0];
+    // Loaded distinct PDR and GNSS points, read from the track on demand
+    private final List<LatLng> pathPoints = new AbstractList<LatLng>() {
+        @Override public LatLng get(int index) { return replayData.getPdrLocation(pathIndices[index]); }
+        @Override public int size() { return pathCount; }
+    };
+    private final List<LatLng> gnssPoints = new AbstractList<LatLng>() {
+        @Override public LatLng get(int index) { return replayData.getGnssLocation(gnssIndices[index]); }
+        @Override public int size() { return gnssCount; }
+    };
+    private int pendingSeekIndex;
+    private boolean seekPosted = false;
+    // Points reached since the previous frame, reused between frames
+    private final List<LatLng> framePathPoints = new ArrayList<>();
+    private final List<LatLng> frameGnssPoints = new ArrayList<>();
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        replayClock = new ReplayClock(this);
+        loadExecutor = Executors.newSingleThreadExecutor();
 
         // Retrieve transferred data from ReplayActivity
         if (getArguments() != null) {
@@ -94,16 +147,6 @@ public class ReplayFragment extends Fragment {
         }
 
         Log.i(TAG, "Trajectory file confirmed to exist and is readable.");
-
-        // Parse the JSON file and prepare replayData using TrajParser
-        replayData = TrajParser.parseTrajectoryData(filePath, requireContext(), initialLat, initialLon);
-
-        // Log the number of parsed points
-        if (replayData != null && !replayData.isEmpty()) {
-            Log.i(TAG, "Trajectory data loaded successfully. Total points: " + replayData.size());
-        } else {
-            Log.e(TAG, "Failed to load trajectory data! replayData is empty or null.");
-        }
     }
 
 
@@ -133,70 +176,69 @@ public class ReplayFragment extends Fragment {
 
 
 
-        // 1) Check if the file contains any GNSS data
-        boolean gnssExists = hasAnyGnssData(replayData);
-
-        if (gnssExists) {
-            showGnssChoiceDialog();
-        } else {
-            // No GNSS data -> automatically use param lat/lon
-            if (initialLat != 0f || initialLon != 0f) {
-                LatLng startPoint = new LatLng(initialLat, initialLon);
-                Log.i(TAG, "Setting initial map position: " + startPoint.toString());
-                trajectoryMapFragment.setInitialCameraPosition(startPoint);
-            }
-        }
-
         // Initialize UI controls
         playPauseButton = view.findViewById(R.id.playPauseButton);
         restartButton   = view.findViewById(R.id.restartButton);
         exitButton      = view.findViewById(R.id.exitButton);
         goEndButton     = view.findViewById(R.id.goEndButton);
+        speedButton     = view.findViewById(R.id.speedButton);
         playbackSeekBar = view.findViewById(R.id.playbackSeekBar);
-
-        // Set SeekBar max value based on replay data
-        if (!replayData.isEmpty()) {
-            playbackSeekBar.setMax(replayData.size() - 1);
-        }
+        loadingProgress = view.findViewById(R.id.replayLoadingProgress);
 
         // Button Listeners
         playPauseButton.setOnClickListener(v -> {
-            if (replayData.isEmpty()) {
+            if (loadedCount == 0) {
                 Log.w(TAG, "Play/Pause button pressed but replayData is empty.");
                 return;
             }
             if (isPlaying) {
                 isPlaying = false;
+                replayClock.pause();
                 playPauseButton.setText("Play");
                 Log.i(TAG, "Playback paused at index: " + currentIndex);
             } else {
                 isPlaying = true;
                 playPauseButton.setText("Pause");
                 Log.i(TAG, "Playback started from index: " + currentIndex);
-                if (currentIndex >= replayData.size()) {
+                if (currentIndex >= loadedCount - 1) {
+                    // Restart from the beginning once the end was reached
                     currentIndex = 0;
+                    updateMapForIndex(0);
                 }
-                playbackHandler.post(playbackRunnable);
+                replayClock.start();
             }
         });
 
+        // Speed button listener, cycles through the playback speeds
+        speedButton.setOnClickListener(v -> {
+            speedIndex = (speedIndex + 1) % PLAYBACK_SPEEDS.length;
+            float speed = PLAYBACK_SPEEDS[speedIndex];
+            replayClock.setSpeed(speed);
+            speedButton.setText(getString(R.string.replay_frag_speed,
+                    speed < 1 ? String.valueOf(speed) : String.valueOf((int) speed)));
+            Log.i(TAG, "Playback speed set to: " + speed);
+        });
+
         // Restart button listener
         restartButton.setOnClickListener(v -> {
-            if (replayData.isEmpty()) return;
+            if (loadedCount == 0) return;
             currentIndex = 0;
             playbackSeekBar.setProgress(0);
             Log.i(TAG, "Restart button pressed. Resetting playback to index 0.");
             updateMapForIndex(0);
+            replayClock.seekTo(replayData.getTimestamp(0));
         });
 
         // Go to End button listener
         goEndButton.setOnClickListener(v -> {
-            if (replayData.isEmpty()) return;
-            currentIndex = replayData.size() - 1;
+            if (loadedCount == 0) return;
+            currentIndex = loadedCount - 1;
             playbackSeekBar.setProgress(currentIndex);
             Log.i(TAG, "Go to End button pressed. Moving to last index: " + currentIndex);
             updateMapForIndex(currentIndex);
             isPlaying = false;
+            replayClock.pause();
+            replayClock.seekTo(replayData.getTimestamp(currentIndex));
             playPauseButton.setText("Play");
         });
 
@@ -217,30 +259,141 @@ public class ReplayFragment extends Fragment {
                 if (fromUser) {
                     Log.i(TAG, "SeekBar moved by user. New index: " + progress);
                     currentIndex = progress;
-                    updateMapForIndex(currentIndex);
+                    replayClock.seekTo(replayData.getTimestamp(currentIndex));
+                    requestSeek(currentIndex);
                 }
             }
             @Override public void onStartTrackingTouch(SeekBar seekBar) {}
             @Override public void onStopTrackingTouch(SeekBar seekBar) {}
         });
 
-        if (!replayData.isEmpty()) {
+        startLoading();
+    }
+
+    /**
+     * Starts loading the trajectory on the background executor. Loaded points are handed to the
+     * main thread in chunks, see {@link #onPointsLoaded}, and the load ends with
+     * {@link #onLoadFinished}.
+     */
+    private void startLoading() {
+        final int generation = ++loadGeneration;
+        final File cacheDir = requireContext().getCacheDir();
+        final Context appContext = requireContext().getApplicationContext();
+        replayData = ReplayTrack.allocate(0);
+        loadedCount = 0;
+        pathCount = 0;
+        gnssCount = 0;
+        currentIndex = 0;
+        lastIndex = -1;
+        loadingProgress.setProgress(0);
+        loadingProgress.setVisibility(View.VISIBLE);
+
+        loadTask = loadExecutor.submit(() -> {
+            // Map the cached track, or parse the JSON file and cache it, using TrajParser
+            ReplayTrack track = TrajParser.loadReplayTrack(filePath, cacheDir, initialLat,
+                    initialLon, BuildingMaps.getRegistry(appContext), new TrajParser.LoadListener() {
+                        private int lastPercent = -1;
+
+                        @Override
+                        public void onProgress(float fraction) {
+                            int percent = (int) (fraction * 100);
+                            if (percent == lastPercent) return;
+                            lastPercent = percent;
+                            postIfCurrent(generation, () -> loadingProgress.setProgress(percent));
+                        }
+
+                        @Override
+                        public void onPoints(ReplayTrack track, int count) {
+                            postIfCurrent(generation, () -> onPointsLoaded(track, count));
+                        }
+                    });
+            postIfCurrent(generation, () -> onLoadFinished(track));
+        });
+    }
+
+    /**
+     * Runs an update on the main thread, unless the load it belongs to was cancelled or replaced.
+     *
+     * @param generation    generation of the load posting the update.
+     * @param update        update to run.
+     */
+    private void postIfCurrent(int generation, Runnable update) {
+        mainHandler.post(() -> {
+            if (generation == loadGeneration) update.run();
+        });
+    }
+
+    /**
+     * Makes newly loaded points available for playback and seeking. The first chunk is shown on
+     * the map right away.
+     *
+     * @param track replay track being loaded.
+     * @param count number of leading points of the track that are ready.
+     */
+    private void onPointsLoaded(ReplayTrack track, int count) {
+        if (count == 0) return;
+        boolean first = loadedCount == 0;
+        replayData = track;
+        extendPrefixGeometry(count);
+        loadedCount = count;
+
+        playbackSeekBar.setMax(count - 1);
+        if (first) {
+            // Timeline of the replay clock follows the recorded timestamps
+            replayClock.setTimeline(track.getTimestamp(0), track.getTimestamp(count - 1));
             updateMapForIndex(0);
+        } else {
+            replayClock.setEndTime(track.getTimestamp(count - 1));
         }
     }
 
+    /**
+     * Called once the whole trajectory is loaded, or the load failed.
+     *
+     * @param track the loaded replay track, empty on failure.
+     */
+    private void onLoadFinished(ReplayTrack track) {
+        loadTask = null;
+        loadingProgress.setVisibility(View.GONE);
+
+        // Log the number of parsed points
+        if (loadedCount == 0) {
+            Log.e(TAG, "Failed to load trajectory data! replayData is empty or null.");
+            return;
+        }
+        Log.i(TAG, "Trajectory data loaded successfully. Total points: " + track.size());
 
+        // Check if the file contains any GNSS data
+        if (hasAnyGnssData(replayData)) {
+            showGnssChoiceDialog();
+        } else {
+            // No GNSS data -> automatically use param lat/lon
+            if (initialLat != 0f || initialLon != 0f) {
+                LatLng startPoint = new LatLng(initialLat, initialLon);
+                Log.i(TAG, "Setting initial map position: " + startPoint.toString());
+                trajectoryMapFragment.setInitialCameraPosition(startPoint);
+            }
+        }
+    }
 
     /**
-     * Checks if any ReplayPoint contains a non-null gnssLocation.
+     * Cancels the current load, if any. Updates it already posted are ignored.
      */
-    private boolean hasAnyGnssData(List<TrajParser.ReplayPoint> data) {
-        for (TrajParser.ReplayPoint point : data) {
-            if (point.gnssLocation != null) {
-                return true;
-            }
+    private void cancelLoading() {
+        loadGeneration++;
+        if (loadTask != null) {
+            loadTask.cancel(true);
+            loadTask = null;
         }
-        return false;
+    }
+
+
+
+    /**
+     * Checks if any replay point has a GNSS location.
+     */
+    private boolean hasAnyGnssData(ReplayTrack data) {
+        return getFirstGnssLocation(data) != null;
     }
 
 
@@ -280,10 +433,10 @@ public class ReplayFragment extends Fragment {
     /**
      * Retrieve the first available GNSS location from the replay data.
      */
-    private LatLng getFirstGnssLocation(List<TrajParser.ReplayPoint> data) {
-        for (TrajParser.ReplayPoint point : data) {
-            if (point.gnssLocation != null) {
-                return new LatLng(replayData.get(0).gnssLocation.latitude, replayData.get(0).gnssLocation.longitude);
+    private LatLng getFirstGnssLocation(ReplayTrack data) {
+        for (int i = 0; i < data.size(); i++) {
+            if (data.hasGnss(i)) {
+                return data.getGnssLocation(i);
             }
         }
         return null; // None found
@@ -291,61 +444,160 @@ public class ReplayFragment extends Fragment {
 
 
     /**
-     * Runnable for playback of trajectory data.
-     * This runnable is called repeatedly to update the map with the next point in the replayData list.
+     * {@inheritDoc}
+     *
+     * Adds all points reached since the previous frame to the map in a single update, and moves
+     * the user marker to the position interpolated at the playback time.
      */
-    private final Runnable playbackRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!isPlaying || replayData.isEmpty()) return;
+    @Override
+    public void onFrame(long playbackTime) {
+        if (loadedCount == 0 || trajectoryMapFragment == null) return;
+
+        // Last recorded point at or before the playback time
+        int index = indexAtTime(playbackTime);
+
+        framePathPoints.clear();
+        frameGnssPoints.clear();
+        for (int i = lastIndex + 1; i <= index; i++) {
+            // Repeated PDR positions between steps are not added to the path
+            if (pathIndices[pathPrefixCounts[i] - 1] == i) {
+                framePathPoints.add(replayData.getPdrLocation(i));
+            }
+            if (replayData.hasGnss(i)) {
+                frameGnssPoints.add(replayData.getGnssLocation(i));
+            }
+        }
 
-            Log.i(TAG, "Playing index: " + currentIndex);
-            updateMapForIndex(currentIndex);
-            currentIndex++;
-            playbackSeekBar.setProgress(currentIndex);
+        // Interpolate position and heading towards the next point
+        long currentTime = replayData.getTimestamp(index);
+        float currentOrientation = replayData.getOrientation(index);
+        LatLng position = replayData.getPdrLocation(index);
+        float orientation = currentOrientation;
+        if (index + 1 < loadedCount && replayData.getTimestamp(index + 1) > currentTime) {
+            float fraction = (float) (playbackTime - currentTime)
+                    / (replayData.getTimestamp(index + 1) - currentTime);
+            position = new LatLng(
+                    position.latitude
+                            + fraction * (replayData.getLatitude(index + 1) - position.latitude),
+                    position.longitude
+                            + fraction * (replayData.getLongitude(index + 1) - position.longitude));
+            // Shortest rotation between the two headings
+            float headingChange = ((replayData.getOrientation(index + 1) - currentOrientation)
+                    % 360 + 540) % 360 - 180;
+            orientation = (currentOrientation + fraction * headingChange + 360) % 360;
+        }
 
-            if (currentIndex < replayData.size()) {
-                playbackHandler.postDelayed(this, PLAYBACK_INTERVAL_MS);
-            } else {
-                Log.i(TAG, "Playback completed. Reached end of data.");
-                isPlaying = false;
-                playPauseButton.setText("Play");
-            }
+        trajectoryMapFragment.updateReplayFrame(framePathPoints, frameGnssPoints, position, orientation);
+
+        if (index != currentIndex) {
+            playbackSeekBar.setProgress(index);
         }
-    };
+        currentIndex = index;
+        lastIndex = index;
+    }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Resets the play button once the end of the recording is reached.
+     */
+    @Override
+    public void onFinished() {
+        Log.i(TAG, "Playback completed. Reached end of data.");
+        isPlaying = false;
+        playPauseButton.setText("Play");
+    }
 
     /**
-     * Update the map with the user location and GNSS location (if available) for the given index.
-     * Clears the map and redraws up to the given index.
+     * Finds the last replay point recorded at or before the given time with a binary search.
      *
-     * @param newIndex
+     * @param time  playback time in milliseconds.
+     * @return      index of the point, 0 if the time is before the first point.
      */
-    private void updateMapForIndex(int newIndex) {
-        if (newIndex < 0 || newIndex >= replayData.size()) return;
-
-        // Detect if user is playing sequentially (lastIndex + 1)
-        // or is skipping around (backwards, or jump forward)
-        boolean isSequentialForward = (newIndex == lastIndex + 1);
-
-        if (!isSequentialForward) {
-            // Clear everything and redraw up to newIndex
-            trajectoryMapFragment.clearMapAndReset();
-            for (int i = 0; i <= newIndex; i++) {
-                TrajParser.ReplayPoint p = replayData.get(i);
-                trajectoryMapFragment.updateUserLocation(p.pdrLocation, p.orientation);
-                if (p.gnssLocation != null) {
-                    trajectoryMapFragment.updateGNSS(p.gnssLocation);
-                }
+    private int indexAtTime(long time) {
+        int low = 0;
+        int high = loadedCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (replayData.getTimestamp(mid) <= time) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+
+    /**
+     * Extends the geometry of every prefix of the replay to newly loaded points: the PDR and GNSS
+     * paths are the lists of distinct consecutive PDR and GNSS points, together with the number of
+     * them reached at each replay point. A prefix is then a view of these lists. Both lists read
+     * the track on demand, only the indices of the points are stored.
+     * <p>
+     * PDR positions only change on steps, so the PDR path has a point per step rather than per
+     * replay point, which keeps the paths drawn on the map small.
+     * </p>
+     *
+     * @param count number of leading points of the track that are loaded.
+     */
+    private void extendPrefixGeometry(int count) {
+        if (gnssPrefixCounts.length < count) {
+            pathPrefixCounts = Arrays.copyOf(pathPrefixCounts, replayData.size());
+            pathIndices = Arrays.copyOf(pathIndices, replayData.size());
+            gnssPrefixCounts = Arrays.copyOf(gnssPrefixCounts, replayData.size());
+            gnssIndices = Arrays.copyOf(gnssIndices, replayData.size());
+        }
+        ReplayTrack track = replayData;
+        for (int i = loadedCount; i < count; i++) {
+            if (pathCount == 0
+                    || track.getLatitude(i) != track.getLatitude(pathIndices[pathCount - 1])
+                    || track.getLongitude(i) != track.getLongitude(pathIndices[pathCount - 1])) {
+                pathIndices[pathCount++] = i;
             }
-        } else {
-            // Normal sequential forward step: add just the new point
-            TrajParser.ReplayPoint p = replayData.get(newIndex);
-            trajectoryMapFragment.updateUserLocation(p.pdrLocation, p.orientation);
-            if (p.gnssLocation != null) {
-                trajectoryMapFragment.updateGNSS(p.gnssLocation);
+            pathPrefixCounts[i] = pathCount;
+            if (track.hasGnss(i) && (gnssCount == 0
+                    || track.getGnssLatitude(i) != track.getGnssLatitude(gnssIndices[gnssCount - 1])
+                    || track.getGnssLongitude(i) != track.getGnssLongitude(gnssIndices[gnssCount - 1]))) {
+                gnssIndices[gnssCount++] = i;
             }
+            gnssPrefixCounts[i] = gnssCount;
         }
+    }
+
+    /**
+     * Requests the map to show the replay state at the given index. Requests are coalesced so the
+     * map is updated at most once per frame while the user drags the SeekBar.
+     *
+     * @param index index of the replay point to seek to.
+     */
+    private void requestSeek(int index) {
+        pendingSeekIndex = index;
+        if (!seekPosted) {
+            seekPosted = true;
+            Choreographer.getInstance().postFrameCallback(seekFrameCallback);
+        }
+    }
+
+    /**
+     * Frame callback applying the latest seek request.
+     */
+    private final Choreographer.FrameCallback seekFrameCallback = frameTimeNanos -> {
+        seekPosted = false;
+        updateMapForIndex(pendingSeekIndex);
+    };
+
+    /**
+     * Update the map with the user location and GNSS location (if available) for the given index.
+     * The paths are set to the precomputed prefixes up to the index, so the cost does not depend
+     * on the previous position and nothing is replayed.
+     *
+     * @param newIndex index of the replay point to show.
+     */
+    private void updateMapForIndex(int newIndex) {
+        if (newIndex < 0 || newIndex >= loadedCount) return;
+
+        trajectoryMapFragment.showReplayPrefix(
+                pathPoints.subList(0, pathPrefixCounts[newIndex]),
+                gnssPoints.subList(0, gnssPrefixCounts[newIndex]),
+                replayData.getPdrLocation(newIndex), replayData.getOrientation(newIndex));
 
         lastIndex = newIndex;
     }
@@ -354,12 +606,24 @@ public class ReplayFragment extends Fragment {
     public void onPause() {
         super.onPause();
         isPlaying = false;
-        playbackHandler.removeCallbacks(playbackRunnable);
+        replayClock.pause();
+        if (playPauseButton != null) {
+            playPauseButton.setText("Play");
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        playbackHandler.removeCallbacks(playbackRunnable);
+        cancelLoading();
+        replayClock.pause();
+        Choreographer.getInstance().removeFrameCallback(seekFrameCallback);
+        seekPosted = false;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        loadExecutor.shutdownNow();
     }
 }
@@ -16,13 +16,15 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.presentation.activity.RecordingActivity;
 import com.openpositioning.PositionMe.presentation.activity.ReplayActivity;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
-import com.openpositioning.PositionMe.utils.NucleusBuildingManager;
+import com.openpositioning.PositionMe.utils.Building;
+import com.openpositioning.PositionMe.utils.BuildingMaps;
 
 /**
  * A simple {@link Fragment} subclass. The startLocation fragment is displayed before the trajectory
@@ -47,7 +49,7 @@ public class StartLocationFragment extends Fragment {
     // Zoom level for the Google map
     private float zoom = 19f;
     // Instance for managing indoor building overlays (if any)
-    private NucleusBuildingManager nucleusBuildingManager;
+    private IndoorMapFragment indoorMapFragment;
     // Dummy variable for floor index
     private int FloorNK;
 
@@ -105,12 +107,15 @@ public class StartLocationFragment extends Fragment {
                 // *** FIX: Clear any existing markers so the start marker isn’t duplicated ***
                 mMap.clear();
 
-                // Create NucleusBuildingManager instance (if needed)
-                nucleusBuildingManager = new NucleusBuildingManager(mMap);
-                nucleusBuildingManager.getIndoorMapManager().hideMap();
-
                 // Add a marker at the current GPS location and move the camera
                 position = new LatLng(startPosition[0], startPosition[1]);
+
+                // Prepare the floor maps of the building at the start position (if any)
+                indoorMapFragment = createIndoorMap(mMap, BuildingMaps.find(requireContext(), position));
+                if (indoorMapFragment != null) {
+                    indoorMapFragment.hideMap();
+                }
+
                 Marker startMarker = mMap.addMarker(new MarkerOptions()
                         .position(position)
                         .title("Start Position")
@@ -198,9 +203,29 @@ public class StartLocationFragment extends Fragment {
      */
     private void switchFloorNU(int floorIndex) {
         FloorNK = floorIndex; // Set the current floor index
-        if (nucleusBuildingManager != null) {
+        if (indoorMapFragment != null) {
             // Call the switchFloor method of the IndoorMapManager to switch to the specified floor
-            nucleusBuildingManager.getIndoorMapManager().switchFloor(floorIndex);
+            indoorMapFragment.switchFloor(floorIndex);
+        }
+    }
+
+    /**
+     * Creates the indoor map of a building with a layer for each of its floor maps.
+     *
+     * @param map      the map to show the floor maps on
+     * @param building the building, may be null
+     * @return the indoor map, null if the building has no floor maps
+     */
+    private IndoorMapFragment createIndoorMap(GoogleMap map, Building building) {
+        if (building == null || !building.hasFloorMaps()) {
+            return null;
+        }
+        int[] floorMaps = BuildingMaps.getFloorMapIds(requireContext(), building);
+        LatLngBounds bounds = BuildingMaps.getMapBounds(building);
+        IndoorMapFragment indoorMap = new IndoorMapFragment(map, floorMaps.length, requireContext());
+        for (int floor = 0; floor < floorMaps.length; floor++) {
+            indoorMap.addFloor(floor, floorMaps[floor], bounds);
         }
+        return indoorMap;
     }
 }
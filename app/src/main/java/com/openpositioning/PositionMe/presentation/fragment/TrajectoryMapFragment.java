@@ -19,8 +19,12 @@ import androidx.fragment.app.Fragment;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.openpositioning.PositionMe.R;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
+import com.openpositioning.PositionMe.utils.Building;
+import com.openpositioning.PositionMe.utils.BuildingMaps;
 import com.openpositioning.PositionMe.utils.IndoorMapManager;
-import com.openpositioning.PositionMe.utils.UtilFunctions;
+import com.openpositioning.PositionMe.utils.MapImageCache;
+import com.openpositioning.PositionMe.utils.MapRenderScheduler;
+import com.openpositioning.PositionMe.utils.PathPolyline;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.SupportMapFragment;
@@ -28,6 +32,7 @@ import com.google.android.gms.maps.model.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -39,8 +44,11 @@ import java.util.List;
  * <p>
  * Key Features:
  * - Displays a Google Map with support for different map types (Hybrid, Normal, Satellite).
- * - Tracks and visualizes user movement using polylines.
+ * - Tracks and visualizes user movement using polylines, simplified to the detail visible at the
+ *   current zoom.
  * - Supports GNSS position updates and visual representation.
+ * - Applies live updates once per display frame, skipping unchanged state, with the camera
+ *   smoothly following the user.
  * - Includes indoor mapping with floor selection and auto-floor adjustments.
  * - Allows user interaction through map controls and UI elements.
  *
@@ -51,24 +59,33 @@ import java.util.List;
  * @author Mate Stodulka
  */
 
-public class TrajectoryMapFragment extends Fragment {
+public class TrajectoryMapFragment extends Fragment implements MapRenderScheduler.Renderer {
+
+    // Duration of the camera animation following the user, about the interval of live updates (ms)
+    private static final int CAMERA_ANIMATION_MS = 250;
+    // Stroke colours of the building outlines, in the order of the buildings asset
+    private static final int[] BUILDING_COLORS = {Color.RED, Color.BLUE, Color.GREEN, Color.YELLOW};
 
     private GoogleMap gMap; // Google Maps instance
     private LatLng currentLocation; // Stores the user's current location
     private Marker orientationMarker; // Marker representing user's heading
     private Marker gnssMarker; // GNSS position marker
-    private Polyline polyline; // Polyline representing user's movement path
+    private PathPolyline polyline; // Polyline representing user's movement path
     private boolean isRed = true; // Tracks whether the polyline color is red
     private boolean isGnssOn = false; // Tracks if GNSS tracking is enabled
+    private Consumer<Boolean> gnssSwitchListener; // Informed when GNSS is toggled, may be null
 
-    private Polyline gnssPolyline; // Polyline for GNSS path
+    private PathPolyline gnssPolyline; // Polyline for GNSS path
     private LatLng lastGnssLocation = null; // Stores the last GNSS location
 
     private LatLng pendingCameraPosition = null; // Stores pending camera movement
     private boolean hasPendingCameraMove = false; // Tracks if camera needs to move
 
     private IndoorMapManager indoorMapManager; // Manages indoor mapping
+    private int estimatedFloor = 0; // Latest floor estimate used by the auto-floor feature
     private SensorFusion sensorFusion;
+    // Coalesces live updates to one map update per frame
+    private final MapRenderScheduler renderScheduler = new MapRenderScheduler(this);
 
 
     // UI
@@ -79,7 +96,8 @@ public class TrajectoryMapFragment extends Fragment {
 
     private com.google.android.material.floatingactionbutton.FloatingActionButton floorUpButton, floorDownButton;
     private Button switchColorButton;
-    private Polygon buildingPolygon;
+    // Outlines of the known buildings
+    private final List<Polygon> buildingPolygons = new ArrayList<>();
 
 
     public TrajectoryMapFragment() {
@@ -149,6 +167,7 @@ public class TrajectoryMapFragment extends Fragment {
                 gnssMarker.remove();
                 gnssMarker = null;
             }
+            if (gnssSwitchListener != null) gnssSwitchListener.accept(isChecked);
         });
 
         // Color switch
@@ -168,11 +187,10 @@ public class TrajectoryMapFragment extends Fragment {
 
         // Floor up/down logic
         autoFloorSwitch.setOnCheckedChangeListener((compoundButton, isChecked) -> {
-
-            //TODO - fix the sensor fusion method to get the elevation (cannot get it from the current method)
-//            float elevationVal = sensorFusion.getElevation();
-//            indoorMapManager.setCurrentFloor((int)(elevationVal/indoorMapManager.getFloorHeight())
-//                    ,true);
+            // Jump to the estimated floor straight away when auto-floor is enabled
+            if (isChecked) {
+                renderFloor(estimatedFloor);
+            }
         });
 
         floorUpButton.setOnClickListener(v -> {
@@ -211,21 +229,34 @@ public class TrajectoryMapFragment extends Fragment {
         map.setMapType(GoogleMap.MAP_TYPE_HYBRID);
 
         // Initialize indoor manager
-        indoorMapManager = new IndoorMapManager(map);
+        indoorMapManager = new IndoorMapManager(map, requireContext());
 
         // Initialize an empty polyline
-        polyline = map.addPolyline(new PolylineOptions()
-                .color(Color.RED)
-                .width(5f)
-                .add() // start empty
-        );
+        polyline = new PathPolyline(map, Color.RED, 5f);
 
         // GNSS path in blue
-        gnssPolyline = map.addPolyline(new PolylineOptions()
-                .color(Color.BLUE)
-                .width(5f)
-                .add() // start empty
-        );
+        gnssPolyline = new PathPolyline(map, Color.BLUE, 5f);
+
+        // Match the detail of the paths to the zoom once the camera settles
+        map.setOnCameraIdleListener(this::updatePathDetail);
+    }
+
+    /**
+     * Selects the level of detail of the paths for the current camera zoom.
+     * <p>
+     *     The paths are only redrawn if the zoom crosses a level of detail, so panning and the
+     *     camera following the user do not touch them.
+     * </p>
+     */
+    private void updatePathDetail() {
+        if (gMap == null) return;
+        CameraPosition camera = gMap.getCameraPosition();
+        if (polyline != null) {
+            polyline.setZoom(camera.target.latitude, camera.zoom);
+        }
+        if (gnssPolyline != null) {
+            gnssPolyline.setZoom(camera.target.latitude, camera.zoom);
+        }
     }
 
 
@@ -281,14 +312,30 @@ public class TrajectoryMapFragment extends Fragment {
     }
 
     /**
-     * Update the user's current location on the map, create or move orientation marker,
-     * and append to polyline if the user actually moved.
+     * Update the user's current location on the map.
+     * <p>
+     *     The update is applied on the next display frame by the {@link MapRenderScheduler},
+     *     together with any other update submitted before it. Only the newest location is shown,
+     *     and nothing is done if neither the location nor the heading changed.
+     * </p>
      *
      * @param newLocation The new location to plot.
      * @param orientation The user’s heading (e.g. from sensor fusion).
      */
     public void updateUserLocation(@NonNull LatLng newLocation, float orientation) {
         if (gMap == null) return;
+        renderScheduler.setUserLocation(newLocation, orientation);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Creates or moves the orientation marker, animates the camera towards the new location and
+     * appends it to the polyline.
+     */
+    @Override
+    public void renderPosition(LatLng newLocation) {
+        if (gMap == null) return;
 
         // Keep track of current location
         LatLng oldLocation = this.currentLocation;
@@ -300,34 +347,150 @@ public class TrajectoryMapFragment extends Fragment {
                     .position(newLocation)
                     .flat(true)
                     .title("Current Position")
-                    .icon(BitmapDescriptorFactory.fromBitmap(
-                            UtilFunctions.getBitmapFromVector(requireContext(),
-                                    R.drawable.ic_baseline_navigation_24)))
+                    .icon(MapImageCache.getInstance(requireContext())
+                            .getIcon(requireContext(), R.drawable.ic_baseline_navigation_24))
             );
             gMap.moveCamera(CameraUpdateFactory.newLatLngZoom(newLocation, 19f));
         } else {
-            // Update marker position + orientation
+            // Update marker position and follow the user smoothly
             orientationMarker.setPosition(newLocation);
-            orientationMarker.setRotation(orientation);
-            // Move camera a bit
-            gMap.moveCamera(CameraUpdateFactory.newLatLng(newLocation));
+            gMap.animateCamera(CameraUpdateFactory.newLatLng(newLocation), CAMERA_ANIMATION_MS, null);
         }
 
         // Extend polyline if movement occurred
         if (oldLocation != null && !oldLocation.equals(newLocation) && polyline != null) {
-            List<LatLng> points = new ArrayList<>(polyline.getPoints());
-            points.add(newLocation);
-            polyline.setPoints(points);
+            polyline.add(newLocation);
         }
 
         // Update indoor map overlay
         if (indoorMapManager != null) {
+            boolean wasIndoorMapSet = indoorMapManager.getIsIndoorMapSet();
             indoorMapManager.setCurrentLocation(newLocation);
             setFloorControlsVisibility(indoorMapManager.getIsIndoorMapSet() ? View.VISIBLE : View.GONE);
+            // Floor changes are only applied once, show the estimated floor on entering a building
+            if (!wasIndoorMapSet && indoorMapManager.getIsIndoorMapSet()) {
+                renderFloor(estimatedFloor);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void renderOrientation(float orientation) {
+        if (orientationMarker != null) {
+            orientationMarker.setRotation(orientation);
+        }
+    }
+
+
+
+    /**
+     * Render one replay frame: append all newly reached points to the paths in a single update,
+     * then move the orientation marker and the camera once.
+     * <p>
+     *     Unlike {@link #updateUserLocation(LatLng, float)}, the marker position is not added to
+     *     the path, so it can be interpolated between recorded points.
+     * </p>
+     * @param pathPoints  Recorded PDR points reached since the previous frame, may be empty.
+     * @param gnssPoints  Recorded GNSS points reached since the previous frame, may be empty.
+     * @param position    Position of the orientation marker.
+     * @param orientation The user's heading in degrees.
+     */
+    public void updateReplayFrame(@NonNull List<LatLng> pathPoints, @NonNull List<LatLng> gnssPoints,
+                                  @NonNull LatLng position, float orientation) {
+        if (gMap == null) return;
+
+        if (polyline != null) {
+            polyline.addAll(pathPoints);
+        }
+
+        if (isGnssOn && !gnssPoints.isEmpty()) {
+            // Only add GNSS points which differ from the previous one
+            List<LatLng> newGnss = new ArrayList<>();
+            for (LatLng gnss : gnssPoints) {
+                if (!gnss.equals(lastGnssLocation)) {
+                    newGnss.add(gnss);
+                    lastGnssLocation = gnss;
+                }
+            }
+            if (gnssMarker == null) {
+                gnssMarker = gMap.addMarker(new MarkerOptions()
+                        .position(lastGnssLocation)
+                        .title("GNSS Position")
+                        .icon(BitmapDescriptorFactory
+                                .defaultMarker(BitmapDescriptorFactory.HUE_AZURE)));
+            } else {
+                gnssMarker.setPosition(lastGnssLocation);
+            }
+            if (gnssPolyline != null) {
+                gnssPolyline.addAll(newGnss);
+            }
+        }
+
+        this.currentLocation = position;
+        if (orientationMarker == null) {
+            orientationMarker = gMap.addMarker(new MarkerOptions()
+                    .position(position)
+                    .flat(true)
+                    .rotation(orientation)
+                    .title("Current Position")
+                    .icon(MapImageCache.getInstance(requireContext())
+                            .getIcon(requireContext(), R.drawable.ic_baseline_navigation_24))
+            );
+            gMap.moveCamera(CameraUpdateFactory.newLatLngZoom(position, 19f));
+        } else {
+            orientationMarker.setPosition(position);
+            orientationMarker.setRotation(orientation);
+            gMap.moveCamera(CameraUpdateFactory.newLatLng(position));
+        }
+
+        if (indoorMapManager != null) {
+            indoorMapManager.setCurrentLocation(position);
+            setFloorControlsVisibility(indoorMapManager.getIsIndoorMapSet() ? View.VISIBLE : View.GONE);
         }
     }
 
+    /**
+     * Replace the replayed paths with precomputed prefixes, eg. when seeking in a replay.
+     * <p>
+     *     The paths are set in a single update each instead of being rebuilt point by point, and
+     *     the orientation marker is moved to the given position.
+     * </p>
+     * @param pathPrefix  PDR points from the start of the recording up to the seek position.
+     * @param gnssPrefix  GNSS points from the start of the recording up to the seek position.
+     * @param position    Position of the orientation marker.
+     * @param orientation The user's heading in degrees.
+     */
+    public void showReplayPrefix(@NonNull List<LatLng> pathPrefix, @NonNull List<LatLng> gnssPrefix,
+                                 @NonNull LatLng position, float orientation) {
+        if (gMap == null) return;
+
+        if (polyline != null) {
+            polyline.showPrefix(pathPrefix);
+        }
+        if (gnssPolyline != null) {
+            gnssPolyline.showPrefix(isGnssOn ? gnssPrefix : new ArrayList<>());
+        }
+        lastGnssLocation = gnssPrefix.isEmpty() ? null : gnssPrefix.get(gnssPrefix.size() - 1);
+        if (isGnssOn && lastGnssLocation != null) {
+            if (gnssMarker == null) {
+                gnssMarker = gMap.addMarker(new MarkerOptions()
+                        .position(lastGnssLocation)
+                        .title("GNSS Position")
+                        .icon(BitmapDescriptorFactory
+                                .defaultMarker(BitmapDescriptorFactory.HUE_AZURE)));
+            } else {
+                gnssMarker.setPosition(lastGnssLocation);
+            }
+        } else {
+            clearGNSS();
+        }
 
+        // Move the marker and camera without adding to the path
+        updateReplayFrame(new ArrayList<>(), new ArrayList<>(), position, orientation);
+    }
 
     /**
      * Set the initial camera position for the map.
@@ -360,11 +523,23 @@ public class TrajectoryMapFragment extends Fragment {
     }
 
     /**
-     * Called when we want to set or update the GNSS marker position
+     * Called when we want to set or update the GNSS marker position.
+     * The update is applied on the next display frame if the position changed.
      */
     public void updateGNSS(@NonNull LatLng gnssLocation) {
         if (gMap == null) return;
         if (!isGnssOn) return;
+        renderScheduler.setGnssLocation(gnssLocation);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Creates or moves the GNSS marker and extends the GNSS path.
+     */
+    @Override
+    public void renderGnss(LatLng gnssLocation) {
+        if (gMap == null || !isGnssOn) return;
 
         if (gnssMarker == null) {
             // Create the GNSS marker for the first time
@@ -380,15 +555,49 @@ public class TrajectoryMapFragment extends Fragment {
 
             // Add a segment to the blue GNSS line, if this is a new location
             if (lastGnssLocation != null && !lastGnssLocation.equals(gnssLocation)) {
-                List<LatLng> gnssPoints = new ArrayList<>(gnssPolyline.getPoints());
-                gnssPoints.add(gnssLocation);
-                gnssPolyline.setPoints(gnssPoints);
+                gnssPolyline.add(gnssLocation);
             }
             lastGnssLocation = gnssLocation;
         }
     }
 
 
+    /**
+     * Update the floor estimate used by the auto-floor feature.
+     * <p>
+     *     If auto-floor is enabled and an indoor map is shown, the indoor map is switched to the
+     *     estimated floor on the next display frame. Repeated calls with an unchanged floor do not
+     *     touch the map.
+     * </p>
+     * @param floor Estimated floor relative to the ground floor.
+     */
+    public void updateFloor(int floor) {
+        this.estimatedFloor = floor;
+        renderScheduler.setFloor(floor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Switches the indoor map to the floor if auto-floor is enabled and an indoor map is shown.
+     */
+    @Override
+    public void renderFloor(int floor) {
+        if (indoorMapManager != null && indoorMapManager.getIsIndoorMapSet()
+                && autoFloorSwitch != null && autoFloorSwitch.isChecked()) {
+            indoorMapManager.setCurrentFloor(floor, true);
+        }
+    }
+
+    /**
+     * Get the floor height of the building whose indoor map is currently shown.
+     * @return The floor height in meters, or 0 if no indoor map is shown.
+     */
+    public float getBuildingFloorHeight() {
+        if (indoorMapManager == null || !indoorMapManager.getIsIndoorMapSet()) return 0f;
+        return indoorMapManager.getFloorHeight();
+    }
+
     /**
      * Remove GNSS marker if user toggles it off
      */
@@ -397,6 +606,7 @@ public class TrajectoryMapFragment extends Fragment {
             gnssMarker.remove();
             gnssMarker = null;
         }
+        renderScheduler.clearGnss();
     }
 
     /**
@@ -406,6 +616,14 @@ public class TrajectoryMapFragment extends Fragment {
         return isGnssOn;
     }
 
+    /**
+     * Sets the listener informed on the main thread when the user toggles GNSS on or off
+     * @param listener receiver of the new state of the GNSS switch, null for none
+     */
+    public void setGnssSwitchListener(Consumer<Boolean> listener) {
+        this.gnssSwitchListener = listener;
+    }
+
     private void setFloorControlsVisibility(int visibility) {
         floorUpButton.setVisibility(visibility);
         floorDownButton.setVisibility(visibility);
@@ -414,12 +632,10 @@ public class TrajectoryMapFragment extends Fragment {
 
     public void clearMapAndReset() {
         if (polyline != null) {
-            polyline.remove();
-            polyline = null;
+            polyline.clear();
         }
         if (gnssPolyline != null) {
-            gnssPolyline.remove();
-            gnssPolyline = null;
+            gnssPolyline.clear();
         }
         if (orientationMarker != null) {
             orientationMarker.remove();
@@ -431,36 +647,25 @@ public class TrajectoryMapFragment extends Fragment {
         }
         lastGnssLocation = null;
         currentLocation  = null;
+        renderScheduler.reset();
+    }
 
-        // Re-create empty polylines with your chosen colors
-        if (gMap != null) {
-            polyline = gMap.addPolyline(new PolylineOptions()
-                    .color(Color.RED)
-                    .width(5f)
-                    .add());
-            gnssPolyline = gMap.addPolyline(new PolylineOptions()
-                    .color(Color.BLUE)
-                    .width(5f)
-                    .add());
-        }
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // Drop updates submitted for a frame that has not been drawn yet
+        renderScheduler.cancel();
     }
 
     /**
-     * Draw the building polygon on the map
+     * Draw the outlines of the known buildings on the map
      * <p>
-     *     The method draws a polygon representing the building on the map.
-     *     The polygon is drawn with specific vertices and colors to represent
-     *     different buildings or areas on the map.
-     *     The method removes the old polygon if it exists and adds the new polygon
-     *     to the map with the specified options.
-     *     The method logs the number of vertices in the polygon for debugging.
-     *     <p>
-     *
-     *    Note: The method uses hard-coded vertices for the building polygon.
-     *
-     *    </p>
+     *     The outlines are read from the building registry, so every building listed in the
+     *     buildings asset is drawn, each with the next colour of {@link #BUILDING_COLORS}.
+     *     The method removes the previous outlines if they exist.
+     * </p>
      *
-     *    See: {@link com.google.android.gms.maps.model.PolygonOptions} The options for the new polygon.
+     *    See: {@link com.openpositioning.PositionMe.utils.BuildingMaps} The registry of the buildings.
      */
     private void drawBuildingPolygon() {
         if (gMap == null) {
@@ -468,73 +673,22 @@ public class TrajectoryMapFragment extends Fragment {
             return;
         }
 
-        // nuclear building polygon vertices
-        LatLng nucleus1 = new LatLng(55.92279538827796, -3.174612147506538);
-        LatLng nucleus2 = new LatLng(55.92278121423647, -3.174107900816096);
-        LatLng nucleus3 = new LatLng(55.92288405733954, -3.173843694667146);
-        LatLng nucleus4 = new LatLng(55.92331786793876, -3.173832892645086);
-        LatLng nucleus5 = new LatLng(55.923337194112555, -3.1746284301397387);
-
-
-        // nkml building polygon vertices
-        LatLng nkml1 = new LatLng(55.9230343434213, -3.1751847990731954);
-        LatLng nkml2 = new LatLng(55.923032840563366, -3.174777103346131);
-        LatLng nkml4 = new LatLng(55.92280139974615, -3.175195527934348);
-        LatLng nkml3 = new LatLng(55.922793885410734, -3.1747958788136867);
-
-        LatLng fjb1 = new LatLng(55.92269205199916, -3.1729563477188774);//left top
-        LatLng fjb2 = new LatLng(55.922822801570994, -3.172594249522305);
-        LatLng fjb3 = new LatLng(55.92223512226413, -3.171921917547244);
-        LatLng fjb4 = new LatLng(55.9221071265519, -3.1722813131202097);
-
-        LatLng faraday1 = new LatLng(55.92242866264128, -3.1719553662011815);
-        LatLng faraday2 = new LatLng(55.9224966752294, -3.1717846714743474);
-        LatLng faraday3 = new LatLng(55.922271383074154, -3.1715191463437162);
-        LatLng faraday4 = new LatLng(55.92220124468304, -3.171705013935158);
-
-
-
-        PolygonOptions buildingPolygonOptions = new PolygonOptions()
-                .add(nucleus1, nucleus2, nucleus3, nucleus4, nucleus5)
-                .strokeColor(Color.RED)    // Red border
-                .strokeWidth(10f)           // Border width
-                //.fillColor(Color.argb(50, 255, 0, 0)) // Semi-transparent red fill
-                .zIndex(1);                // Set a higher zIndex to ensure it appears above other overlays
-
-        // Options for the new polygon
-        PolygonOptions buildingPolygonOptions2 = new PolygonOptions()
-                .add(nkml1, nkml2, nkml3, nkml4, nkml1)
-                .strokeColor(Color.BLUE)    // Blue border
-                .strokeWidth(10f)           // Border width
-               // .fillColor(Color.argb(50, 0, 0, 255)) // Semi-transparent blue fill
-                .zIndex(1);                // Set a higher zIndex to ensure it appears above other overlays
-
-        PolygonOptions buildingPolygonOptions3 = new PolygonOptions()
-                .add(fjb1, fjb2, fjb3, fjb4, fjb1)
-                .strokeColor(Color.GREEN)    // Green border
-                .strokeWidth(10f)           // Border width
-                //.fillColor(Color.argb(50, 0, 255, 0)) // Semi-transparent green fill
-                .zIndex(1);                // Set a higher zIndex to ensure it appears above other overlays
-
-        PolygonOptions buildingPolygonOptions4 = new PolygonOptions()
-                .add(faraday1, faraday2, faraday3, faraday4, faraday1)
-                .strokeColor(Color.YELLOW)    // Yellow border
-                .strokeWidth(10f)           // Border width
-                //.fillColor(Color.argb(50, 255, 255, 0)) // Semi-transparent yellow fill
-                .zIndex(1);                // Set a higher zIndex to ensure it appears above other overlays
-
-
-        // Remove the old polygon if it exists
-        if (buildingPolygon != null) {
-            buildingPolygon.remove();
+        // Remove the old polygons if they exist
+        for (Polygon polygon : buildingPolygons) {
+            polygon.remove();
         }
-
-        // Add the polygon to the map
-        buildingPolygon = gMap.addPolygon(buildingPolygonOptions);
-        gMap.addPolygon(buildingPolygonOptions2);
-        gMap.addPolygon(buildingPolygonOptions3);
-        gMap.addPolygon(buildingPolygonOptions4);
-        Log.d("TrajectoryMapFragment", "Building polygon added, vertex count: " + buildingPolygon.getPoints().size());
+        buildingPolygons.clear();
+
+        List<Building> buildings = BuildingMaps.getRegistry(requireContext()).getBuildings();
+        for (int i = 0; i < buildings.size(); i++) {
+            PolygonOptions options = new PolygonOptions()
+                    .addAll(BuildingMaps.getOutline(buildings.get(i)))
+                    .strokeColor(BUILDING_COLORS[i % BUILDING_COLORS.length])
+                    .strokeWidth(10f)           // Border width
+                    .zIndex(1);                // Set a higher zIndex to ensure it appears above other overlays
+            buildingPolygons.add(gMap.addPolygon(options));
+        }
+        Log.d("TrajectoryMapFragment", "Building polygons added: " + buildingPolygons.size());
     }
 
 
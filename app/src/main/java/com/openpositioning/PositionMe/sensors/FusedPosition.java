@@ -0,0 +1,39 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Immutable position and heading of the user estimated by fusing PDR, GNSS and WiFi positions,
+ * published by {@link SensorFusion} on {@link SensorFusion#FUSED_POSITION}.
+ */
+public final class FusedPosition {
+
+    //region Instance variables
+    private final LatLng position;
+    // Heading in radians relative to north, clockwise
+    private final float heading;
+    //endregion
+
+    /**
+     * Public constructor of the fused position.
+     *
+     * @param position  estimated position of the user.
+     * @param heading   estimated heading in radians relative to north, clockwise.
+     */
+    public FusedPosition(LatLng position, float heading) {
+        this.position = position;
+        this.heading = heading;
+    }
+
+    //region Getters
+
+    public LatLng getPosition() {
+        return position;
+    }
+
+    public float getHeading() {
+        return heading;
+    }
+
+    //endregion
+}
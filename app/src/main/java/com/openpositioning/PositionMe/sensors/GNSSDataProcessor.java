@@ -96,15 +96,27 @@ public class GNSSDataProcessor {
      * manager to the location listener. If permissions are granted but the GPS and cellular
      * networks are disabled it reminds the user via toasts to turn them on.
      */
-    @SuppressLint("MissingPermission")
     public void startLocationUpdates() {
+        startLocationUpdates(0);
+    }
+
+    /**
+     * Request location updates via the GNSS and Cellular networks with a minimum time between
+     * updates, eg. to reduce the update rate while the device is stationary.
+     *
+     * @param minTimeMs minimum time interval between location updates in milliseconds.
+     *
+     * @see #startLocationUpdates() for requesting updates as fast as possible.
+     */
+    @SuppressLint("MissingPermission")
+    public void startLocationUpdates(long minTimeMs) {
         //if (sharedPreferences.getBoolean("location", true)) {
         boolean permissionGranted = checkLocationPermissions();
         if (permissionGranted && locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER) &&
                 locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)){
 
-            locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 0, 0, locationListener);
-            locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 0, 0, locationListener);
+            locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, minTimeMs, 0, locationListener);
+            locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, minTimeMs, 0, locationListener);
         }
         else if(permissionGranted && !locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)){
             Toast.makeText(context, "Open GPS", Toast.LENGTH_LONG).show();
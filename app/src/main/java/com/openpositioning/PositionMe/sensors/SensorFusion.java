@@ -10,7 +10,6 @@ import android.location.Location;
 import android.location.LocationListener;
 import android.os.Build;
 import android.os.PowerManager;
-import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -18,8 +17,14 @@ import androidx.preference.PreferenceManager;
 
 import com.google.android.gms.maps.model.LatLng;
 import com.openpositioning.PositionMe.presentation.activity.MainActivity;
+import com.openpositioning.PositionMe.utils.AndroidClock;
+import com.openpositioning.PositionMe.utils.BuildingMaps;
+import com.openpositioning.PositionMe.utils.Clock;
+import com.openpositioning.PositionMe.utils.ExtendedKalmanFilter;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.MotionMode;
 import com.openpositioning.PositionMe.utils.PathView;
-import com.openpositioning.PositionMe.utils.PdrProcessing;
+import com.openpositioning.PositionMe.utils.PreferencesConfig;
 import com.openpositioning.PositionMe.data.remote.ServerCommunications;
 import com.openpositioning.PositionMe.Traj;
 import com.openpositioning.PositionMe.presentation.fragment.SettingsFragment;
@@ -30,11 +35,8 @@ import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 
 /**
@@ -48,16 +50,25 @@ import java.util.stream.Stream;
  * every device type necessary for data collection. As such, it implements the
  * {@link SensorFusion#onSensorChanged(SensorEvent)} function, and process and records the data
  * provided by the sensor hardware, which are stored in a {@link Traj} object. Data is read
- * continuously but is only saved to the trajectory when recording is enabled.
+ * continuously but is only saved to the trajectory when recording is enabled. The processing
+ * itself is done by a {@link PositioningPipeline}, which does not depend on Android, this class
+ * connects it to the device sensors, the WiFi positioning server and the screens.
  * <p>
  * The class provides a number of setters and getters so that other classes can have access to the
- * sensor data and influence the behaviour of data collection.
+ * sensor data and influence the behaviour of data collection. The live state shown by the screens,
+ * ie. the fused and PDR positions, elevation, floor, GNSS position and sensor snapshot, is also
+ * published on conflated {@link Topic}s of the default {@link EventBus} whenever it changes, so
+ * that screens do not need to poll the getters.
+ * <p>
+ * Recorded sensor data can be fed through the same processing with a {@link SensorReplay}, which
+ * runs its own {@link PositioningPipeline} on a {@link Clock} driven by the recorded timestamps,
+ * independently of the live session.
  *
  * @author Michal Dvorak
  * @author Mate Stodulka
  * @author Virginia Cangelosi
  */
-public class SensorFusion implements SensorEventListener, Observer {
+public class SensorFusion implements SensorEventListener {
 
     // Store the last event timestamps for each sensor type
     private HashMap<Integer, Long> lastEventTimestamps = new HashMap<>();
@@ -73,12 +84,24 @@ public class SensorFusion implements SensorEventListener, Observer {
     private static final SensorFusion sensorFusion = new SensorFusion();
     // Static constant for calculations with milliseconds
     private static final long TIME_CONST = 10;
-    // Coefficient for fusing gyro-based and magnetometer-based orientation
-    public static final float FILTER_COEFFICIENT = 0.96f;
-    //Tuning value for low pass filter
-    private static final float ALPHA = 0.8f;
     // String for creating WiFi fingerprint JSO N object
     private static final String WIFI_FINGERPRINT= "wf";
+    // Sampling period of the IMU sensors while moving and while stationary (microseconds)
+    private static final int IMU_SAMPLING_US = 10000;
+    private static final int STATIONARY_SAMPLING_US = 50000;
+    // Batching latency of the orientation sensors while stationary (microseconds)
+    private static final int STATIONARY_REPORT_LATENCY_US = 1000000;
+    // Minimum time between location updates while stationary (milliseconds)
+    private static final long STATIONARY_GNSS_INTERVAL_MS = 10000;
+    // Minimum time between sensor snapshots published for IMU events, a display frame (milliseconds)
+    private static final long SNAPSHOT_INTERVAL_MS = 16;
+    // Topics of the live state, the PDR position array is never modified once published
+    public static final Topic<FusedPosition> FUSED_POSITION = Topic.conflated("fusedPosition");
+    public static final Topic<float[]> PDR_POSITION = Topic.conflated("pdrPosition");
+    public static final Topic<Float> ELEVATION = Topic.conflated("elevation");
+    public static final Topic<Integer> FLOOR = Topic.conflated("floor");
+    public static final Topic<LatLng> GNSS_POSITION = Topic.conflated("gnssPosition");
+    public static final Topic<SensorSnapshot> SENSOR_SNAPSHOT = Topic.conflated("sensorSnapshot");
     //endregion
 
     //region Instance variables
@@ -108,51 +131,23 @@ public class SensorFusion implements SensorEventListener, Observer {
 
     // Server communication class for sending data
     private ServerCommunications serverCommunications;
-    // Trajectory object containing all data
-    private Traj.Trajectory.Builder trajectory;
-
-    // Settings
-    private boolean saveRecording;
-    private float filter_coefficient;
-    // Variables to help with timed events
-    private long absoluteStartTime;
-    private long bootTime;
-    long lastStepTime = 0;
+    // Source of time of the live session
+    private final Clock clock;
     // Timer object for scheduling data recording
     private Timer storeTrajectoryTimer;
     // Counters for dividing timer to record data every 1 second/ every 5 seconds
     private int counter;
     private int secondCounter;
 
-    // Sensor values
-    private float[] acceleration;
-    private float[] filteredAcc;
-    private float[] gravity;
-    private float[] magneticField;
-    private float[] angularVelocity;
-    private float[] orientation;
-    private float[] rotation;
-    private float pressure;
-    private float light;
-    private float proximity;
-    private float[] R;
-    private int stepCounter ;
-    // Derived values
-    private float elevation;
-    private boolean elevator;
-    // Location values
-    private float latitude;
-    private float longitude;
+    // Processing of the live sensor data, created with the context
+    private PositioningPipeline pipeline;
+    // Latest readings published to other threads, replaced on every change
+    private volatile SensorSnapshot sensorSnapshot = SensorSnapshot.EMPTY;
+    // Floor last published on FLOOR
+    private int publishedFloor = Integer.MIN_VALUE;
     private float[] startLocation;
-    // Wifi values
-    private List<Wifi> wifiList;
-
-
-    // Over time accelerometer magnitude values since last step
-    private List<Double> accelMagnitude;
-
-    // PDR calculation class
-    private PdrProcessing pdrProcessing;
+    // Subscription to the WiFi scans
+    private EventBus.Subscription wifiSubscription;
 
     // Trajectory displaying class
     private PathView pathView;
@@ -167,28 +162,12 @@ public class SensorFusion implements SensorEventListener, Observer {
     private SensorFusion() {
         // Location listener to be used by the GNSS class
         this.locationListener= new myLocationListener();
+        this.clock = new AndroidClock();
         // Timer to store sensor values in the trajectory object
         this.storeTrajectoryTimer = new Timer();
         // Counters to track elements with slower frequency
         this.counter = 0;
         this.secondCounter = 0;
-        // Step count initial value
-        this.stepCounter = 0;
-        // PDR elevation initial values
-        this.elevation = 0;
-        this.elevator = false;
-        // PDR position array
-        this.startLocation = new float[2];
-        // Empty array initialisation
-        this.acceleration = new float[3];
-        this.filteredAcc = new float[3];
-        this.gravity = new float[3];
-        this.magneticField = new float[3];
-        this.angularVelocity = new float[3];
-        this.orientation = new float[3];
-        this.rotation = new float[4];
-        this.rotation[3] = 1.0f;
-        this.R = new float[9];
         // GNSS initial Long-Lat array
         this.startLocation = new float[2];
     }
@@ -233,29 +212,24 @@ public class SensorFusion implements SensorEventListener, Observer {
         this.linearAccelerationSensor = new MovementSensor(context, Sensor.TYPE_LINEAR_ACCELERATION);
         // Listener based devices
         this.wifiProcessor = new WifiDataProcessor(context);
-        wifiProcessor.registerObserver(this);
         this.gnssProcessor = new GNSSDataProcessor(context, locationListener);
         // Create object handling HTTPS communication
         this.serverCommunications = new ServerCommunications(context);
-        // Save absolute and relative start time
-        this.absoluteStartTime = System.currentTimeMillis();
-        this.bootTime = SystemClock.uptimeMillis();
-        // Initialise saveRecording to false
-        this.saveRecording = false;
-
-        // Other initialisations...
-        this.accelMagnitude = new ArrayList<>();
-        this.pdrProcessing = new PdrProcessing(context);
+
+        // Processing of the live data, not recording until startRecording
+        this.pipeline = new PositioningPipeline(clock, new PreferencesConfig(context));
+        this.pipeline.setListener(new PipelineListener());
+        // Fused positions inside known buildings follow the walkways of their floor
+        this.pipeline.setBuildingRegistry(BuildingMaps.getRegistry(context));
+        // Delivered on the publishing thread, in order with the sensor events
+        if (wifiSubscription == null) {
+            this.wifiSubscription = EventBus.getDefault().subscribe(
+                    WifiDataProcessor.WIFI_SCAN, EventBus.DIRECT, this::processWifiScan);
+        }
         this.settings = PreferenceManager.getDefaultSharedPreferences(context);
         this.pathView = new PathView(context, null);
         this.wiFiPositioning = new WiFiPositioning(context);
 
-        if(settings.getBoolean("overwrite_constants", false)) {
-            this.filter_coefficient = Float.parseFloat(settings.getString("accel_filter", "0.96"));
-        } else {
-            this.filter_coefficient = FILTER_COEFFICIENT;
-        }
-
         // Keep app awake during the recording (using stored appContext)
         PowerManager powerManager = (PowerManager) this.appContext.getSystemService(Context.POWER_SERVICE);
         wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MyApp::MyWakelockTag");
@@ -275,7 +249,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     @Override
     public void onSensorChanged(SensorEvent sensorEvent) {
-        long currentTime = System.currentTimeMillis();  // Current time in milliseconds
+        long currentTime = clock.currentTimeMillis();  // Current time in milliseconds
         int sensorType = sensorEvent.sensor.getType();
 
         // Get the previous timestamp for this sensor type
@@ -295,125 +269,86 @@ public class SensorFusion implements SensorEventListener, Observer {
         lastEventTimestamps.put(sensorType, currentTime);
         eventCounts.put(sensorType, eventCounts.getOrDefault(sensorType, 0) + 1);
 
+        pipeline.processSensorValues(sensorType, sensorEvent.timestamp, sensorEvent.values);
+
+        // IMU events are published at most once per display frame, other sensors on every event
+        boolean highRate = sensorType == Sensor.TYPE_ACCELEROMETER
+                || sensorType == Sensor.TYPE_LINEAR_ACCELERATION
+                || sensorType == Sensor.TYPE_GRAVITY
+                || sensorType == Sensor.TYPE_GYROSCOPE
+                || sensorType == Sensor.TYPE_MAGNETIC_FIELD
+                || sensorType == Sensor.TYPE_ROTATION_VECTOR;
+        // The clock can go back when switching between live and replayed data
+        long sinceSnapshot = currentTime - sensorSnapshot.getTimestamp();
+        if (!highRate || sinceSnapshot >= SNAPSHOT_INTERVAL_MS || sinceSnapshot < 0) {
+            publishSensorSnapshot(currentTime);
+        }
+    }
 
+    /**
+     * Publishes the current readings as a new {@link SensorSnapshot}, replacing the previous one
+     * for all readers. Must be called from the processing thread.
+     *
+     * @param time  time of the readings in milliseconds, from the processing clock.
+     */
+    private void publishSensorSnapshot(long time) {
+        this.sensorSnapshot = new SensorSnapshot(sensorSnapshot, time, pipeline.getAcceleration(),
+                pipeline.getGravity(), pipeline.getMagneticField(), pipeline.getAngularVelocity(),
+                pipeline.getLight(), pipeline.getPressure(), pipeline.getProximity(),
+                pipeline.getLatitude(), pipeline.getLongitude(), pipeline.getPdrPosition());
+        EventBus.getDefault().publish(SENSOR_SNAPSHOT, sensorSnapshot);
+    }
 
-        switch (sensorType) {
-            case Sensor.TYPE_ACCELEROMETER:
-                acceleration[0] = sensorEvent.values[0];
-                acceleration[1] = sensorEvent.values[1];
-                acceleration[2] = sensorEvent.values[2];
-                break;
+    /**
+     * Publishes the current fused position on {@link #FUSED_POSITION}, once the fusion filter
+     * has a start location.
+     */
+    private void publishFusedPosition() {
+        LatLng position = getFusedLatLng();
+        if (position == null) return;
+        EventBus.getDefault().publish(FUSED_POSITION,
+                new FusedPosition(position, getFusedHeading()));
+    }
 
-            case Sensor.TYPE_PRESSURE:
-                pressure = (1 - ALPHA) * pressure + ALPHA * sensorEvent.values[0];
-                if (saveRecording) {
-                    this.elevation = pdrProcessing.updateElevation(
-                            SensorManager.getAltitude(SensorManager.PRESSURE_STANDARD_ATMOSPHERE, pressure)
-                    );
-                }
-                break;
-
-            case Sensor.TYPE_GYROSCOPE:
-                angularVelocity[0] = sensorEvent.values[0];
-                angularVelocity[1] = sensorEvent.values[1];
-                angularVelocity[2] = sensorEvent.values[2];
-
-            case Sensor.TYPE_LINEAR_ACCELERATION:
-                filteredAcc[0] = sensorEvent.values[0];
-                filteredAcc[1] = sensorEvent.values[1];
-                filteredAcc[2] = sensorEvent.values[2];
-
-                // Compute magnitude & add to accelMagnitude
-                double accelMagFiltered = Math.sqrt(
-                        Math.pow(filteredAcc[0], 2) +
-                                Math.pow(filteredAcc[1], 2) +
-                                Math.pow(filteredAcc[2], 2)
-                );
-                this.accelMagnitude.add(accelMagFiltered);
-
-//                // Debug logging
-//                Log.v("SensorFusion",
-//                        "Added new linear accel magnitude: " + accelMagFiltered
-//                                + "; accelMagnitude size = " + accelMagnitude.size());
-
-                elevator = pdrProcessing.estimateElevator(gravity, filteredAcc);
-                break;
-
-            case Sensor.TYPE_GRAVITY:
-                gravity[0] = sensorEvent.values[0];
-                gravity[1] = sensorEvent.values[1];
-                gravity[2] = sensorEvent.values[2];
-
-                // Possibly log gravity values if needed
-                //Log.v("SensorFusion", "Gravity: " + Arrays.toString(gravity));
-
-                elevator = pdrProcessing.estimateElevator(gravity, filteredAcc);
-                break;
-
-            case Sensor.TYPE_LIGHT:
-                light = sensorEvent.values[0];
-                break;
-
-            case Sensor.TYPE_PROXIMITY:
-                proximity = sensorEvent.values[0];
-                break;
-
-            case Sensor.TYPE_MAGNETIC_FIELD:
-                magneticField[0] = sensorEvent.values[0];
-                magneticField[1] = sensorEvent.values[1];
-                magneticField[2] = sensorEvent.values[2];
-                break;
-
-            case Sensor.TYPE_ROTATION_VECTOR:
-                this.rotation = sensorEvent.values.clone();
-                float[] rotationVectorDCM = new float[9];
-                SensorManager.getRotationMatrixFromVector(rotationVectorDCM, this.rotation);
-                SensorManager.getOrientation(rotationVectorDCM, this.orientation);
-                break;
-
-            case Sensor.TYPE_STEP_DETECTOR:
-                long stepTime = SystemClock.uptimeMillis() - bootTime;
-
-
-                if (currentTime - lastStepTime < 20) {
-                    Log.e("SensorFusion", "Ignoring step event, too soon after last step event:" + (currentTime - lastStepTime) + " ms");
-                    // Ignore rapid successive step events
-                    break;
-                }
+    /**
+     * Publishes the current elevation on {@link #ELEVATION}, and the current floor on
+     * {@link #FLOOR} if it changed.
+     */
+    private void publishElevation() {
+        EventBus.getDefault().publish(ELEVATION, pipeline.getElevation());
+        int floor = pipeline.getCurrentFloor();
+        if (floor != publishedFloor) {
+            publishedFloor = floor;
+            EventBus.getDefault().publish(FLOOR, floor);
+        }
+    }
 
-                else {
-                    lastStepTime = currentTime;
-                    // Log if accelMagnitude is empty
-                    if (accelMagnitude.isEmpty()) {
-                        Log.e("SensorFusion",
-                                "stepDetection triggered, but accelMagnitude is empty! " +
-                                        "This can cause updatePdr(...) to fail or return bad results.");
-                    } else {
-                        Log.d("SensorFusion",
-                                "stepDetection triggered, accelMagnitude size = " + accelMagnitude.size());
-                    }
-
-                    float[] newCords = this.pdrProcessing.updatePdr(
-                            stepTime,
-                            this.accelMagnitude,
-                            this.orientation[0]
-                    );
-
-                    // Clear the accelMagnitude after using it
-                    this.accelMagnitude.clear();
-
-
-                    if (saveRecording) {
-                        this.pathView.drawTrajectory(newCords);
-                        stepCounter++;
-                        trajectory.addPdrData(Traj.Pdr_Sample.newBuilder()
-                                .setRelativeTimestamp(SystemClock.uptimeMillis() - bootTime)
-                                .setX(newCords[0])
-                                .setY(newCords[1]));
-                    }
-                    break;
-                }
+    /**
+     * Receives the changes of the live {@link PositioningPipeline}, on the sensor thread.
+     * Publishes them to the screens and adapts the sensor rates.
+     */
+    private class PipelineListener implements PositioningPipeline.Listener {
+        @Override
+        public void onStep(float[] pdrPosition) {
+            EventBus.getDefault().publish(PDR_POSITION, pdrPosition);
+            if (pipeline.isRecording()) {
+                pathView.drawTrajectory(pdrPosition);
+            }
+        }
+
+        @Override
+        public void onElevation(float elevation, int floor) {
+            publishElevation();
+        }
 
+        @Override
+        public void onFusedPosition() {
+            publishFusedPosition();
+        }
+
+        @Override
+        public void onLowPowerMode(boolean enabled) {
+            setLowPowerMode(enabled);
         }
     }
 
@@ -425,6 +360,66 @@ public class SensorFusion implements SensorEventListener, Observer {
         for (int sensorType : eventCounts.keySet()) {
             Log.d("SensorFusion", "Sensor " + sensorType + " | Event Count: " + eventCounts.get(sensorType));
         }
+        Log.d("SensorFusion", "Events/min: " + getEventsPerMinute()
+                + " | Wakeups/min: " + getWakeupsPerMinute()
+                + " | Low power: " + pipeline.isLowPowerMode());
+    }
+
+    /**
+     * Resets the event processing statistics, eg. at the start of a stationary measurement.
+     */
+    public void resetEventStatistics() {
+        pipeline.resetEventStatistics();
+    }
+
+    /**
+     * Get the average number of callbacks processed per minute since the statistics were reset.
+     * Includes sensor, location and WiFi callbacks.
+     *
+     * @return  processed events per minute.
+     */
+    public float getEventsPerMinute() {
+        return pipeline.getEventsPerMinute();
+    }
+
+    /**
+     * Get the average number of wakeups per minute since the statistics were reset.
+     *
+     * @return  wakeups per minute.
+     */
+    public float getWakeupsPerMinute() {
+        return pipeline.getWakeupsPerMinute();
+    }
+
+    /**
+     * Switches the device sensors between the full rate and the stationary power saving mode
+     * entered or left by the pipeline. While stationary the IMU sensors are sampled at a lower
+     * rate with the orientation sensors batched, WiFi scans are paused and the location update
+     * rate is lowered. The linear acceleration and step detector sensors are never batched, so
+     * that movement can restore the full rates immediately.
+     *
+     * @param enabled   true to enter the power saving mode, false to restore full rates.
+     */
+    private void setLowPowerMode(boolean enabled) {
+        if (enabled) {
+            registerImuListeners(STATIONARY_SAMPLING_US, STATIONARY_REPORT_LATENCY_US);
+            wifiProcessor.pauseScans();
+            gnssProcessor.startLocationUpdates(STATIONARY_GNSS_INTERVAL_MS);
+        }
+        else {
+            registerImuListeners(IMU_SAMPLING_US, (int) maxReportLatencyNs);
+            wifiProcessor.resumeScans();
+            gnssProcessor.startLocationUpdates();
+        }
+    }
+
+    /**
+     * Checks if the stationary power saving mode is active.
+     *
+     * @return  true if sensor rates are currently lowered, false otherwise.
+     */
+    public boolean isLowPowerMode() {
+        return pipeline.isLowPowerMode();
     }
 
     /**
@@ -439,73 +434,28 @@ public class SensorFusion implements SensorEventListener, Observer {
         @Override
         public void onLocationChanged(@NonNull Location location) {
             //Toast.makeText(context, "Location Changed", Toast.LENGTH_SHORT).show();
-            latitude = (float) location.getLatitude();
-            longitude = (float) location.getLongitude();
-            float altitude = (float) location.getAltitude();
-            float accuracy = (float) location.getAccuracy();
-            float speed = (float) location.getSpeed();
-            String provider = location.getProvider();
-            if(saveRecording) {
-                trajectory.addGnssData(Traj.GNSS_Sample.newBuilder()
-                        .setAccuracy(accuracy)
-                        .setAltitude(altitude)
-                        .setLatitude(latitude)
-                        .setLongitude(longitude)
-                        .setSpeed(speed)
-                        .setProvider(provider)
-                        .setRelativeTimestamp(System.currentTimeMillis()-absoluteStartTime));
-            }
+            pipeline.processLocation(location.getLatitude(), location.getLongitude(),
+                    (float) location.getAltitude(), location.getAccuracy(),
+                    location.getSpeed(), location.getProvider());
+            publishSensorSnapshot(clock.currentTimeMillis());
+            EventBus.getDefault().publish(GNSS_POSITION,
+                    new LatLng(location.getLatitude(), location.getLongitude()));
         }
     }
 
     /**
-     * {@inheritDoc}
+     * Processes a completed WiFi scan published by {@link WifiDataProcessor}, and requests a
+     * position for it from the WiFi positioning server.
      *
-     * Receives updates from {@link WifiDataProcessor}.
+     * @param scan  access points of the scan, not modified.
      *
      * @see WifiDataProcessor object for wifi scanning.
      */
-    @Override
-    public void update(Object[] wifiList) {
-        // Save newest wifi values to local variable
-        this.wifiList = Stream.of(wifiList).map(o -> (Wifi) o).collect(Collectors.toList());
-
-        if(this.saveRecording) {
-            Traj.WiFi_Sample.Builder wifiData = Traj.WiFi_Sample.newBuilder()
-                    .setRelativeTimestamp(SystemClock.uptimeMillis()-bootTime);
-            for (Wifi data : this.wifiList) {
-                wifiData.addMacScans(Traj.Mac_Scan.newBuilder()
-                        .setRelativeTimestamp(SystemClock.uptimeMillis() - bootTime)
-                        .setMac(data.getBssid()).setRssi(data.getLevel()));
-            }
-            // Adding WiFi data to Trajectory
-            this.trajectory.addWifiData(wifiData);
-        }
-        createWifiPositioningRequest();
+    public void processWifiScan(List<Wifi> scan) {
+        pipeline.processWifiScan(scan);
+        createWifiPositionRequestCallback();
     }
 
-    /**
-     * Function to create a request to obtain a wifi location for the obtained wifi fingerprint
-     *
-     */
-    private void createWifiPositioningRequest(){
-        // Try catch block to catch any errors and prevent app crashing
-        try {
-            // Creating a JSON object to store the WiFi access points
-            JSONObject wifiAccessPoints=new JSONObject();
-            for (Wifi data : this.wifiList){
-                wifiAccessPoints.put(String.valueOf(data.getBssid()), data.getLevel());
-            }
-            // Creating POST Request
-            JSONObject wifiFingerPrint = new JSONObject();
-            wifiFingerPrint.put(WIFI_FINGERPRINT, wifiAccessPoints);
-            this.wiFiPositioning.request(wifiFingerPrint);
-        } catch (JSONException e) {
-            // Catching error while making JSON object, to prevent crashes
-            // Error log to keep record of errors (for secure programming and maintainability)
-            Log.e("jsonErrors","Error creating json object"+e.toString());
-        }
-    }
     // Callback Example Function
     /**
      * Function to create a request to obtain a wifi location for the obtained wifi fingerprint
@@ -515,7 +465,7 @@ public class SensorFusion implements SensorEventListener, Observer {
         try {
             // Creating a JSON object to store the WiFi access points
             JSONObject wifiAccessPoints=new JSONObject();
-            for (Wifi data : this.wifiList){
+            for (Wifi data : pipeline.getWifiList()){
                 wifiAccessPoints.put(String.valueOf(data.getBssid()), data.getLevel());
             }
             // Creating POST Request
@@ -524,7 +474,8 @@ public class SensorFusion implements SensorEventListener, Observer {
             this.wiFiPositioning.request(wifiFingerPrint, new WiFiPositioning.VolleyCallback() {
                 @Override
                 public void onSuccess(LatLng wifiLocation, int floor) {
-                    // Handle the success response
+                    // Correct the fused position with the WiFi fix
+                    pipeline.processWifiPosition(wifiLocation.latitude, wifiLocation.longitude);
                 }
 
                 @Override
@@ -547,6 +498,26 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     public LatLng getLatLngWifiPositioning(){return this.wiFiPositioning.getWifiLocation();}
 
+    /**
+     * Method to get the user position estimated by fusing PDR, GNSS and WiFi positions in the
+     * {@link ExtendedKalmanFilter}.
+     *
+     * @return {@link LatLng} of the fused position, null if no recording has been started.
+     */
+    public LatLng getFusedLatLng() {
+        GeoPoint position = pipeline.getFusedPosition();
+        return position == null ? null : new LatLng(position.latitude, position.longitude);
+    }
+
+    /**
+     * Method to get the user heading estimated by the {@link ExtendedKalmanFilter}.
+     *
+     * @return heading in radians relative to north, clockwise, matching {@link #passOrientation()}.
+     */
+    public float getFusedHeading() {
+        return pipeline.getFusedHeading();
+    }
+
     /**
      * Method to get current floor the user is at, obtained using WiFiPositioning
      * @see WiFiPositioning for WiFi positioning
@@ -637,8 +608,8 @@ public class SensorFusion implements SensorEventListener, Observer {
     public float[] getGNSSLatitude(boolean start) {
         float [] latLong = new float[2];
         if(!start) {
-            latLong[0] = latitude;
-            latLong[1] = longitude;
+            latLong[0] = (float) pipeline.getLatitude();
+            latLong[1] = (float) pipeline.getLongitude();
         }
         else{
             latLong = startLocation;
@@ -646,6 +617,15 @@ public class SensorFusion implements SensorEventListener, Observer {
         return latLong;
     }
 
+    /**
+     * Getter function for the latest GNSS position in double precision.
+     *
+     * @return {@link LatLng} of the last location fix, (0, 0) before the first fix.
+     */
+    public LatLng getGnssLatLng() {
+        return new LatLng(pipeline.getLatitude(), pipeline.getLongitude());
+    }
+
     /**
      * Setter function for core location data.
      *
@@ -653,6 +633,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     public void setStartGNSSLatitude(float[] startPosition){
         startLocation = startPosition;
+        pipeline.setStartLocation(startPosition[0], startPosition[1]);
     }
 
 
@@ -672,7 +653,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @return average step count of total PDR.
      */
     public float passAverageStepLength(){
-        return pdrProcessing.getAverageStepLength();
+        return pipeline.getAverageStepLength();
     }
 
     /**
@@ -682,29 +663,21 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @return orientation of device.
      */
     public float passOrientation(){
-        return orientation[0];
+        return pipeline.getOrientation()[0];
     }
 
     /**
      * Return most recent sensor readings.
      *
-     * Collects all most recent readings from movement and location sensors, packages them in a map
-     * that is indexed by {@link SensorTypes} and makes it accessible for other classes.
+     * The readings of movement and location sensors are published as an immutable snapshot, which
+     * can be read from any thread without locking. Readings of the IMU sensors are published at
+     * most every {@link #SNAPSHOT_INTERVAL_MS}, with the next event after that interval, other
+     * readings as soon as they change. Every snapshot is also published on {@link #SENSOR_SNAPSHOT}.
      *
-     * @return  Map of <code>SensorTypes</code> to float array of most recent values.
+     * @return  the latest {@link SensorSnapshot}, {@link SensorSnapshot#EMPTY} before any reading.
      */
-    public Map<SensorTypes, float[]> getSensorValueMap() {
-        Map<SensorTypes, float[]> sensorValueMap = new HashMap<>();
-        sensorValueMap.put(SensorTypes.ACCELEROMETER, acceleration);
-        sensorValueMap.put(SensorTypes.GRAVITY, gravity);
-        sensorValueMap.put(SensorTypes.MAGNETICFIELD, magneticField);
-        sensorValueMap.put(SensorTypes.GYRO, angularVelocity);
-        sensorValueMap.put(SensorTypes.LIGHT, new float[]{light});
-        sensorValueMap.put(SensorTypes.PRESSURE, new float[]{pressure});
-        sensorValueMap.put(SensorTypes.PROXIMITY, new float[]{proximity});
-        sensorValueMap.put(SensorTypes.GNSSLATLONG, getGNSSLatitude(false));
-        sensorValueMap.put(SensorTypes.PDR, pdrProcessing.getPDRMovement());
-        return sensorValueMap;
+    public SensorSnapshot getSensorSnapshot() {
+        return sensorSnapshot;
     }
 
     /**
@@ -714,7 +687,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @return  list of Wifi objects.
      */
     public List<Wifi> getWifiList() {
-        return this.wifiList;
+        return pipeline.getWifiList();
     }
 
     /**
@@ -734,26 +707,33 @@ public class SensorFusion implements SensorEventListener, Observer {
     }
 
     /**
-     * Registers the caller observer to receive updates from the server instance.
-     * Necessary when classes want to act on a trajectory being successfully or unsuccessfully send
-     * to the server. This grants access to observing the {@link ServerCommunications} instance
-     * used by the SensorFusion class.
+     * Get the estimated elevation value in meters calculated by the PDR class.
+     * Elevation is relative to the starting position.
      *
-     * @param observer  Instance implementing {@link Observer} class who wants to be notified of
-     *                  events relating to sending and receiving trajectories.
+     * @return  float of the estimated elevation in meters.
      */
-    public void registerForServerUpdate(Observer observer) {
-        serverCommunications.registerObserver(observer);
+    public float getElevation() {
+        return pipeline.getElevation();
     }
 
     /**
-     * Get the estimated elevation value in meters calculated by the PDR class.
-     * Elevation is relative to the starting position.
+     * Get the current floor estimated by the PDR class from the barometer, relative to the floor
+     * where the recording started.
      *
-     * @return  float of the estimated elevation in meters.
+     * @return  current floor number.
      */
-    public float getElevation() {
-        return this.elevation;
+    public int getCurrentFloor() {
+        return pipeline.getCurrentFloor();
+    }
+
+    /**
+     * Set the floor height of the building the user is currently in, used by the PDR class to
+     * estimate floor changes.
+     *
+     * @param floorHeight   height of a floor in meters.
+     */
+    public void setFloorHeight(float floorHeight) {
+        pipeline.setFloorHeight(floorHeight);
     }
 
     /**
@@ -762,7 +742,16 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @return  true if the PDR estimates the user is in an elevator, false otherwise.
      */
     public boolean getElevator() {
-        return this.elevator;
+        return pipeline.getMotionMode() == MotionMode.ELEVATOR;
+    }
+
+    /**
+     * Get the motion mode estimated by the PDR class from windowed IMU, barometer and step data.
+     *
+     * @return  the current {@link MotionMode}.
+     */
+    public MotionMode getMotionMode() {
+        return pipeline.getMotionMode();
     }
 
     /**
@@ -772,7 +761,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     public int getHoldMode(){
         int proximityThreshold = 1, lightThreshold = 100; //holdMode: by ear=1, not by ear =0
-        if(proximity<proximityThreshold && light>lightThreshold) { //unit cm
+        if(pipeline.getProximity()<proximityThreshold && pipeline.getLight()>lightThreshold) { //unit cm
             return 1;
         }
         else{
@@ -795,20 +784,39 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @see GNSSDataProcessor handles location data.
      */
     public void resumeListening() {
-        accelerometerSensor.sensorManager.registerListener(this, accelerometerSensor.sensor, 10000, (int) maxReportLatencyNs);
-        accelerometerSensor.sensorManager.registerListener(this, linearAccelerationSensor.sensor, 10000, (int) maxReportLatencyNs);
-        accelerometerSensor.sensorManager.registerListener(this, gravitySensor.sensor, 10000, (int) maxReportLatencyNs);
+        // Always resume at full rate, the stationary detector lowers it again if needed
+        pipeline.resetStationaryState();
+        registerImuListeners(IMU_SAMPLING_US, (int) maxReportLatencyNs);
         barometerSensor.sensorManager.registerListener(this, barometerSensor.sensor, (int) 1e6);
-        gyroscopeSensor.sensorManager.registerListener(this, gyroscopeSensor.sensor, 10000, (int) maxReportLatencyNs);
         lightSensor.sensorManager.registerListener(this, lightSensor.sensor, (int) 1e6);
         proximitySensor.sensorManager.registerListener(this, proximitySensor.sensor, (int) 1e6);
-        magnetometerSensor.sensorManager.registerListener(this, magnetometerSensor.sensor, 10000, (int) maxReportLatencyNs);
         stepDetectionSensor.sensorManager.registerListener(this, stepDetectionSensor.sensor, SensorManager.SENSOR_DELAY_NORMAL);
         rotationSensor.sensorManager.registerListener(this, rotationSensor.sensor, (int) 1e6);
         wifiProcessor.startListening();
         gnssProcessor.startLocationUpdates();
     }
 
+    /**
+     * Registers the IMU listeners with the given sampling period. The sensors are unregistered
+     * first, as registering an already registered listener does not change its rate. The linear
+     * acceleration is never batched as it drives the stationary detector.
+     *
+     * @param samplingUs    sampling period in microseconds.
+     * @param latencyUs     maximum batching latency of the other IMU sensors in microseconds.
+     */
+    private void registerImuListeners(int samplingUs, int latencyUs) {
+        accelerometerSensor.sensorManager.unregisterListener(this, accelerometerSensor.sensor);
+        accelerometerSensor.sensorManager.unregisterListener(this, linearAccelerationSensor.sensor);
+        accelerometerSensor.sensorManager.unregisterListener(this, gravitySensor.sensor);
+        gyroscopeSensor.sensorManager.unregisterListener(this, gyroscopeSensor.sensor);
+        magnetometerSensor.sensorManager.unregisterListener(this, magnetometerSensor.sensor);
+        accelerometerSensor.sensorManager.registerListener(this, accelerometerSensor.sensor, samplingUs, latencyUs);
+        accelerometerSensor.sensorManager.registerListener(this, linearAccelerationSensor.sensor, samplingUs, 0);
+        accelerometerSensor.sensorManager.registerListener(this, gravitySensor.sensor, samplingUs, latencyUs);
+        gyroscopeSensor.sensorManager.registerListener(this, gyroscopeSensor.sensor, samplingUs, latencyUs);
+        magnetometerSensor.sensorManager.registerListener(this, magnetometerSensor.sensor, samplingUs, latencyUs);
+    }
+
     /**
      * Un-registers all device listeners and pauses data collection.
      *
@@ -819,7 +827,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      * @see GNSSDataProcessor handles location data.
      */
     public void stopListening() {
-        if(!saveRecording) {
+        if(!pipeline.isRecording()) {
             // Unregister sensor-manager based devices
             accelerometerSensor.sensorManager.unregisterListener(this);
             barometerSensor.sensorManager.unregisterListener(this);
@@ -859,30 +867,24 @@ public class SensorFusion implements SensorEventListener, Observer {
         }
         wakeLock.acquire(31 * 60 * 1000L /*31 minutes*/);
 
-        this.saveRecording = true;
-        this.stepCounter = 0;
-        this.absoluteStartTime = System.currentTimeMillis();
-        this.bootTime = SystemClock.uptimeMillis();
         // Protobuf trajectory class for sending sensor data to restful API
-        this.trajectory = Traj.Trajectory.newBuilder()
+        pipeline.startRecording()
                 .setAndroidVersion(Build.VERSION.RELEASE)
-                .setStartTimestamp(absoluteStartTime)
                 .setAccelerometerInfo(createInfoBuilder(accelerometerSensor))
                 .setGyroscopeInfo(createInfoBuilder(gyroscopeSensor))
                 .setMagnetometerInfo(createInfoBuilder(magnetometerSensor))
                 .setBarometerInfo(createInfoBuilder(barometerSensor))
                 .setLightSensorInfo(createInfoBuilder(lightSensor));
-
-
+        // The PDR position is reset
+        publishSensorSnapshot(clock.currentTimeMillis());
+        EventBus.getDefault().publish(PDR_POSITION, pipeline.getPdrPosition());
+        // Elevation and floor are relative to the start of the recording
+        this.publishedFloor = Integer.MIN_VALUE;
+        publishElevation();
+        publishFusedPosition();
 
         this.storeTrajectoryTimer = new Timer();
         this.storeTrajectoryTimer.schedule(new storeDataInTrajectory(), 0, TIME_CONST);
-        this.pdrProcessing.resetPDR();
-        if(settings.getBoolean("overwrite_constants", false)) {
-            this.filter_coefficient = Float.parseFloat(settings.getString("accel_filter", "0.96"));
-        } else {
-            this.filter_coefficient = FILTER_COEFFICIENT;
-        }
     }
 
     /**
@@ -896,8 +898,8 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     public void stopRecording() {
         // Only cancel if we are running
-        if(this.saveRecording) {
-            this.saveRecording = false;
+        if(pipeline.isRecording()) {
+            pipeline.stopRecording();
             storeTrajectoryTimer.cancel();
         }
         if(wakeLock.isHeld()) {
@@ -916,7 +918,7 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     public void sendTrajectoryToCloud() {
         // Build object
-        Traj.Trajectory sentTrajectory = trajectory.build();
+        Traj.Trajectory sentTrajectory = pipeline.getTrajectory().build();
         // Pass object to communications object
         this.serverCommunications.sendTrajectory(sentTrajectory);
     }
@@ -948,9 +950,15 @@ public class SensorFusion implements SensorEventListener, Observer {
      */
     private class storeDataInTrajectory extends TimerTask {
         public void run() {
+            Traj.Trajectory.Builder trajectory = pipeline.getTrajectory();
+            long relativeTime = pipeline.getRelativeTime();
+            float[] acceleration = pipeline.getAcceleration();
+            float[] angularVelocity = pipeline.getAngularVelocity();
+            float[] rotation = pipeline.getRotation();
+            float[] magneticField = pipeline.getMagneticField();
             // Store IMU and magnetometer data in Trajectory class
             trajectory.addImuData(Traj.Motion_Sample.newBuilder()
-                    .setRelativeTimestamp(SystemClock.uptimeMillis()-bootTime)
+                    .setRelativeTimestamp(relativeTime)
                     .setAccX(acceleration[0])
                     .setAccY(acceleration[1])
                     .setAccZ(acceleration[2])
@@ -962,16 +970,16 @@ public class SensorFusion implements SensorEventListener, Observer {
                     .setRotationVectorY(rotation[1])
                     .setRotationVectorZ(rotation[2])
                     .setRotationVectorW(rotation[3])
-                    .setStepCount(stepCounter))
+                    .setStepCount(pipeline.getStepCount()))
                     .addPositionData(Traj.Position_Sample.newBuilder()
                             .setMagX(magneticField[0])
                             .setMagY(magneticField[1])
                             .setMagZ(magneticField[2])
-                            .setRelativeTimestamp(SystemClock.uptimeMillis()-bootTime))
+                            .setRelativeTimestamp(relativeTime))
 //                    .addGnssData(Traj.GNSS_Sample.newBuilder()
 //                            .setLatitude(latitude)
 //                            .setLongitude(longitude)
-//                            .setRelativeTimestamp(SystemClock.uptimeMillis()-bootTime))
+//                            .setRelativeTimestamp(clock.uptimeMillis()-bootTime))
             ;
 
             // Divide timer with a counter for storing data every 1 second
@@ -980,11 +988,11 @@ public class SensorFusion implements SensorEventListener, Observer {
                 // Store pressure and light data
                 if (barometerSensor.sensor != null) {
                     trajectory.addPressureData(Traj.Pressure_Sample.newBuilder()
-                                    .setPressure(pressure)
-                                    .setRelativeTimestamp(SystemClock.uptimeMillis() - bootTime))
+                                    .setPressure(pipeline.getPressure())
+                                    .setRelativeTimestamp(relativeTime))
                             .addLightData(Traj.Light_Sample.newBuilder()
-                                    .setLight(light)
-                                    .setRelativeTimestamp(SystemClock.uptimeMillis() - bootTime)
+                                    .setLight(pipeline.getLight())
+                                    .setRelativeTimestamp(relativeTime)
                                     .build());
                 }
 
@@ -0,0 +1,110 @@
+package com.openpositioning.PositionMe.sensors;
+
+/**
+ * Immutable set of the most recent readings of every {@link SensorTypes}, published by
+ * {@link SensorFusion}.
+ * <p>
+ * The processing thread creates a new snapshot when readings change and publishes it through a
+ * single volatile reference, readers on any thread get a consistent set of values taken at the same
+ * time without locking. The values are copied once on creation and are only accessible one at a
+ * time, so reading allocates nothing. The version increases with every published snapshot, a reader
+ * can compare it with the version it last showed to skip unchanged readings.
+ *
+ * @see SensorFusion#getSensorSnapshot() to get the latest snapshot.
+ * @see SensorFusion#SENSOR_SNAPSHOT to be notified of new snapshots.
+ */
+public final class SensorSnapshot {
+
+    //region Static variables
+    // Offset of the values of every sensor type in the value array, by ordinal
+    private static final int[] OFFSETS = new int[SensorTypes.values().length];
+    // Total number of values
+    private static final int VALUE_COUNT;
+    static {
+        int offset = 0;
+        for (SensorTypes type : SensorTypes.values()) {
+            OFFSETS[type.ordinal()] = offset;
+            offset += type.getValueCount();
+        }
+        VALUE_COUNT = offset;
+    }
+    // Snapshot before any reading, every value zero
+    public static final SensorSnapshot EMPTY = new SensorSnapshot();
+    //endregion
+
+    //region Instance variables
+    private final long version;
+    // Time of the snapshot in milliseconds, from the clock of SensorFusion
+    private final long timestamp;
+    private final float[] values;
+    //endregion
+
+    /**
+     * Private constructor of the empty snapshot.
+     */
+    private SensorSnapshot() {
+        this.version = 0;
+        this.timestamp = 0;
+        this.values = new float[VALUE_COUNT];
+    }
+
+    /**
+     * Creates a snapshot, copying the readings.
+     *
+     * @param previous          snapshot replaced by this one.
+     * @param timestamp         time of the snapshot in milliseconds.
+     * @param acceleration      accelerometer x, y and z values.
+     * @param gravity           gravity x, y and z values.
+     * @param magneticField     magnetometer x, y and z values.
+     * @param angularVelocity   gyroscope x, y and z values.
+     * @param light             light level.
+     * @param pressure          filtered pressure.
+     * @param proximity         proximity distance.
+     * @param latitude          latitude of the last location fix in degrees.
+     * @param longitude         longitude of the last location fix in degrees.
+     * @param pdrPosition       PDR x and y coordinates in meters.
+     */
+    SensorSnapshot(SensorSnapshot previous, long timestamp, float[] acceleration, float[] gravity,
+                   float[] magneticField, float[] angularVelocity, float light, float pressure,
+                   float proximity, double latitude, double longitude, float[] pdrPosition) {
+        this.version = previous.version + 1;
+        this.timestamp = timestamp;
+        this.values = new float[VALUE_COUNT];
+        System.arraycopy(acceleration, 0, values, OFFSETS[SensorTypes.ACCELEROMETER.ordinal()], 3);
+        System.arraycopy(gravity, 0, values, OFFSETS[SensorTypes.GRAVITY.ordinal()], 3);
+        System.arraycopy(magneticField, 0, values, OFFSETS[SensorTypes.MAGNETICFIELD.ordinal()], 3);
+        System.arraycopy(angularVelocity, 0, values, OFFSETS[SensorTypes.GYRO.ordinal()], 3);
+        values[OFFSETS[SensorTypes.LIGHT.ordinal()]] = light;
+        values[OFFSETS[SensorTypes.PRESSURE.ordinal()]] = pressure;
+        values[OFFSETS[SensorTypes.PROXIMITY.ordinal()]] = proximity;
+        values[OFFSETS[SensorTypes.GNSSLATLONG.ordinal()]] = (float) latitude;
+        values[OFFSETS[SensorTypes.GNSSLATLONG.ordinal()] + 1] = (float) longitude;
+        System.arraycopy(pdrPosition, 0, values, OFFSETS[SensorTypes.PDR.ordinal()], 2);
+    }
+
+    /**
+     * Get a value of a sensor type.
+     *
+     * @param type  sensor type.
+     * @param index index of the value, below {@link SensorTypes#getValueCount()}.
+     * @return      the value at the time of the snapshot.
+     */
+    public float getValue(SensorTypes type, int index) {
+        if (index < 0 || index >= type.getValueCount()) {
+            throw new IndexOutOfBoundsException(type + " has no value " + index);
+        }
+        return values[OFFSETS[type.ordinal()] + index];
+    }
+
+    //region Getters
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    //endregion
+}
@@ -7,18 +7,35 @@ import com.openpositioning.PositionMe.presentation.fragment.MeasurementsFragment
  *
  * Simplified version of default Android Sensor.TYPE, with the order matching the table layout for
  * the {@link MeasurementsFragment}. Includes virtual sensors and other
- * data providing devices as well as derived data.
+ * data providing devices as well as derived data. Every type has a fixed number of values, eg. one
+ * per axis.
  *
  * @author Mate Stodulka
  */
 public enum SensorTypes {
-    ACCELEROMETER,
-    GRAVITY,
-    MAGNETICFIELD,
-    GYRO,
-    LIGHT,
-    PRESSURE,
-    PROXIMITY,
-    GNSSLATLONG,
-    PDR;
+    ACCELEROMETER(3),
+    GRAVITY(3),
+    MAGNETICFIELD(3),
+    GYRO(3),
+    LIGHT(1),
+    PRESSURE(1),
+    PROXIMITY(1),
+    GNSSLATLONG(2),
+    PDR(2);
+
+    // Number of values of the sensor type
+    private final int valueCount;
+
+    SensorTypes(int valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * Get the number of values of the sensor type.
+     *
+     * @return  number of values, eg. 3 for a sensor with x, y and z axes.
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
 }
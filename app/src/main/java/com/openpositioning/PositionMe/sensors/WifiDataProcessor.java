@@ -16,6 +16,7 @@ import android.widget.Toast;
 import androidx.core.app.ActivityCompat;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -24,10 +25,9 @@ import java.util.TimerTask;
  * It implements the wifi scanning and broadcasting design to identify a list of nearby Wi-Fis as
  * well as collecting information about the current Wi-Fi connection.
  * <p>
- * The class implements {@link Observable} for informing {@link Observer} classes of updated
- * variables. As such, it implements the {@link WifiDataProcessor#notifyObservers(int idx)} function and
- * the {@link WifiDataProcessor#registerObserver(Observer o)} function to add new users which will
- * be notified of new changes.
+ * Every completed scan is published as an unmodifiable list of {@link Wifi} on the
+ * {@link #WIFI_SCAN} topic of the default {@link EventBus}. The topic is conflated, a subscriber
+ * that falls behind only receives the latest scan.
  * <p>
  * The class ensures all required permissions are granted before enabling the Wi-Fi. The class will
  * periodically start a wifi scan as determined by {@link SensorFusion}. When a broadcast is
@@ -38,30 +38,28 @@ import java.util.TimerTask;
  * @author Mate Stodulka
  * @author Virginia Cangelosi
  */
-public class WifiDataProcessor implements Observable {
+public class WifiDataProcessor {
 
     //Time over which a new scan will be initiated
     private static final long scanInterval = 5000;
+    // Topic of the completed scans
+    public static final Topic<List<Wifi>> WIFI_SCAN = Topic.conflated("wifiScan");
 
     // Application context for handling permissions and WifiManager instances
     private final Context context;
     // Locations manager to enable access to Wifi data via the android system
     private final WifiManager wifiManager;
 
-    //List of nearby networks
-    private Wifi[] wifiData;
-
-    //List of observers to be notified when changes are detected
-    private ArrayList<Observer> observers;
-
     // Timer object
     private Timer scanWifiDataTimer;
+    // Periodic scans paused while the device is stationary
+    private boolean scansPaused;
 
     /**
      * Public default constructor of the WifiDataProcessor class.
      * The constructor saves the context, checks for permissions to use the location services,
      * creates an instance of the shared preferences to access settings using the context,
-     * initialises the wifi manager, and creates a timer object and list of observers. It checks if
+     * initialises the wifi manager, and creates a timer object. It checks if
      * wifi is enabled and enables wifi scans every 5seconds. It also informs the user to disable
      * wifi throttling if the device implements it.
      *
@@ -78,7 +76,6 @@ public class WifiDataProcessor implements Observable {
         boolean permissionsGranted = checkWifiPermissions();
         this.wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
         this.scanWifiDataTimer = new Timer();
-        this.observers = new ArrayList<>();
 
         // Decreapted method after API 29
         // Turn on wifi if it is currently disabled
@@ -105,8 +102,8 @@ public class WifiDataProcessor implements Observable {
         /**
          * Updates the list of nearby wifis when the broadcast is received.
          * Ensures wifi scans are not enabled if permissions are not granted. The list of wifis is
-         * then passed to store the Mac Address and strength and observers of the WifiDataProcessor
-         * class are notified of the updated wifi list.
+         * then passed to store the Mac Address and strength and the updated wifi list is published
+         * on {@link #WIFI_SCAN}.
          *
          *
          * @param context           Application Context to be used for permissions and device accesses.
@@ -127,19 +124,20 @@ public class WifiDataProcessor implements Observable {
             context.unregisterReceiver(this);
 
             //Loop though each item in wifi list
-            wifiData = new Wifi[wifiScanList.size()];
+            List<Wifi> wifiData = new ArrayList<>(wifiScanList.size());
             for(int i = 0; i < wifiScanList.size(); i++) {
-                wifiData[i] = new Wifi();
+                Wifi wifi = new Wifi();
                 //Convert String mac address to an integer
                 String wifiMacAddress = wifiScanList.get(i).BSSID;
                 long intMacAddress = convertBssidToLong(wifiMacAddress);
                 //store mac address and rssi of wifi
-                wifiData[i].setBssid(intMacAddress);
-                wifiData[i].setLevel(wifiScanList.get(i).level);
+                wifi.setBssid(intMacAddress);
+                wifi.setLevel(wifiScanList.get(i).level);
+                wifiData.add(wifi);
             }
 
-            //Notify observers of change in wifiData variable
-            notifyObservers(0);
+            //Publish the new list of wifis
+            EventBus.getDefault().publish(WIFI_SCAN, Collections.unmodifiableList(wifiData));
         }
     };
 
@@ -225,6 +223,7 @@ public class WifiDataProcessor implements Observable {
      * The method declares a new timer instance to schedule a scan for nearby wifis every 5 seconds.
      */
     public void startListening() {
+        this.scansPaused = false;
         this.scanWifiDataTimer = new Timer();
         this.scanWifiDataTimer.scheduleAtFixedRate(new scheduledWifiScan(), 0, scanInterval);
     }
@@ -237,6 +236,27 @@ public class WifiDataProcessor implements Observable {
     public void stopListening() {
         context.unregisterReceiver(wifiScanReceiver);
         this.scanWifiDataTimer.cancel();
+        this.scansPaused = false;
+    }
+
+    /**
+     * Pause the periodic wifi scans without unregistering the broadcast receiver, eg. while the
+     * device is stationary and the scan results would not change.
+     */
+    public void pauseScans() {
+        if(!scansPaused) {
+            this.scanWifiDataTimer.cancel();
+            this.scansPaused = true;
+        }
+    }
+
+    /**
+     * Resume periodic wifi scans paused by {@link #pauseScans()}, starting with an immediate scan.
+     */
+    public void resumeScans() {
+        if(scansPaused) {
+            startListening();
+        }
     }
 
     /**
@@ -258,28 +278,6 @@ public class WifiDataProcessor implements Observable {
         }
     }
 
-    /**
-     * Implement default method from Observable Interface to add new observers to the class.
-     *
-     * @param o     Classes which implement the Observer interface to receive updates from the class.
-     */
-    @Override
-    public void registerObserver(Observer o) {
-        observers.add(o);
-    }
-
-    /**
-     * Implement default method from Observable Interface to add notify observers to the class.
-     * Changes to the wifiData variable are passed to observers of the class.
-     * @param idx     Unused.
-     */
-    @Override
-    public void notifyObservers(int idx) {
-        for(Observer o : observers) {
-            o.update(wifiData);
-        }
-    }
-
     /**
      * Class to schedule wifi scans.
      *
@@ -0,0 +1,27 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.os.SystemClock;
+
+/**
+ * {@link Clock} reading the system clocks of the device, used for live processing.
+ */
+public class AndroidClock implements Clock {
+
+    /** {@inheritDoc} */
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+}
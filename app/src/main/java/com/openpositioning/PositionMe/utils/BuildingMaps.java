@@ -0,0 +1,125 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access to the buildings bundled with the application in {@link #ASSET}, and conversion of their
+ * data to map types.
+ * <p>
+ * Adding a building only requires adding it to the asset, and its floor map images to the
+ * drawable resources under the names listed in the asset.
+ *
+ * @see BuildingRegistry for the format of the asset and the building lookup.
+ * @see IndoorMapManager which shows the floor maps of the building the user is in.
+ */
+public final class BuildingMaps {
+
+    private static final String TAG = "BuildingMaps";
+
+    //region Static variables
+    // Asset describing the buildings
+    public static final String ASSET = "buildings.json";
+    private static BuildingRegistry registry;
+    // Drawable resources of the floor maps of every building, resolved on first use
+    private static final Map<Building, int[]> floorMapIds = new ConcurrentHashMap<>();
+    //endregion
+
+    private BuildingMaps() {}
+
+    /**
+     * Get the registry of the bundled buildings, reading the asset on first use.
+     *
+     * @param context   any context of the application.
+     * @return          the registry, empty if the asset could not be read.
+     */
+    public static synchronized BuildingRegistry getRegistry(Context context) {
+        if (registry == null) {
+            try (Reader reader = new InputStreamReader(
+                    context.getAssets().open(ASSET), StandardCharsets.UTF_8)) {
+                registry = BuildingRegistry.read(reader);
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                Log.e(TAG, "Could not read buildings from " + ASSET, e);
+                registry = new BuildingRegistry(Collections.emptyList());
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Finds the building containing a map position.
+     *
+     * @param context   any context of the application.
+     * @param position  position to locate, may be null.
+     * @return          the building containing the position, null if there is none.
+     */
+    public static Building find(Context context, LatLng position) {
+        if (position == null) return null;
+        return getRegistry(context).find(new GeoPoint(position.latitude, position.longitude));
+    }
+
+    /**
+     * Get the drawable resources of the floor maps of a building, from the lowest floor.
+     *
+     * @param context   any context of the application.
+     * @param building  building with floor maps.
+     * @return          resource IDs of the floor maps, 0 for images missing from the resources.
+     */
+    public static int[] getFloorMapIds(Context context, Building building) {
+        int[] ids = floorMapIds.get(building);
+        if (ids == null) {
+            List<String> names = building.getFloorMaps();
+            ids = new int[names.size()];
+            for (int i = 0; i < ids.length; i++) {
+                // Looked up by name so that buildings can be added without code changes
+                ids[i] = context.getResources().getIdentifier(
+                        names.get(i), "drawable", context.getPackageName());
+                if (ids[i] == 0) Log.e(TAG, "Missing floor map " + names.get(i));
+            }
+            floorMapIds.put(building, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Get the rectangle the floor maps of a building are drawn over.
+     *
+     * @param building  building with floor maps.
+     * @return          bounds of the floor maps on the map.
+     */
+    public static LatLngBounds getMapBounds(Building building) {
+        return new LatLngBounds(toLatLng(building.getMapSouthWest()), toLatLng(building.getMapNorthEast()));
+    }
+
+    /**
+     * Get the outline of a building as map coordinates.
+     *
+     * @param building  building to draw.
+     * @return          new list of the outline points, without repeating the first point.
+     */
+    public static List<LatLng> getOutline(Building building) {
+        List<LatLng> outline = new ArrayList<>(building.getOutline().size() + 1);
+        for (GeoPoint point : building.getOutline()) {
+            outline.add(toLatLng(point));
+        }
+        return outline;
+    }
+
+    /** Converts a {@link GeoPoint} to map coordinates. */
+    private static LatLng toLatLng(GeoPoint point) {
+        return new LatLng(point.latitude, point.longitude);
+    }
+}
@@ -0,0 +1,208 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves an indoor floor plan as map tiles for a {@link com.google.android.gms.maps.model.TileOverlay}.
+ * <p>
+ * The floor plan is stretched over its bounds in the map projection, as a ground overlay would
+ * be. For every requested tile only the region of the image under the tile is decoded, sampled
+ * down to the tile resolution when zoomed out, so memory follows what is on screen rather than
+ * the size of the image, and the plan stays as sharp as the source image when zoomed in. Tiles
+ * are cached per zoom level in the {@link MapImageCache}.
+ * <p>
+ * The shown floor plan can be changed with {@link #setFloorPlan(int, LatLngBounds)}, after which
+ * the tile cache of the overlay must be cleared. Tiles are requested by the map on background
+ * threads. Every change starts a new generation of the floor plan, and a tile rendered for an
+ * earlier generation is not delivered, so a tile in flight during the change cannot put the
+ * previous floor back into the cleared overlay.
+ */
+public class FloorPlanTileProvider implements TileProvider {
+
+    //region Static variables
+    // Size of a tile in density independent pixels
+    private static final int TILE_SIZE_DP = 256;
+    //endregion
+
+    /**
+     * Floor plan and its bounds in normalised map projection coordinates, replaced as a whole so
+     * that a tile is rendered from a consistent state.
+     */
+    private static class FloorPlan {
+        final int generation;
+        final int resourceId;
+        final double left;
+        final double top;
+        final double right;
+        final double bottom;
+
+        FloorPlan(int generation, int resourceId, LatLngBounds bounds) {
+            this.generation = generation;
+            this.resourceId = resourceId;
+            this.left = projectX(bounds.southwest.longitude);
+            this.top = projectY(bounds.northeast.latitude);
+            this.right = projectX(bounds.northeast.longitude);
+            this.bottom = projectY(bounds.southwest.latitude);
+        }
+    }
+
+    //region Instance variables
+    private final MapImageCache imageCache;
+    // Size of a tile in pixels
+    private final int tileSize;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private volatile FloorPlan floorPlan;
+    // Generation of the floor plan served, incremented on every change
+    private final AtomicInteger generation = new AtomicInteger();
+    //endregion
+
+    /**
+     * Creates a provider serving a floor plan.
+     *
+     * @param context       context used to read the floor plans.
+     * @param resourceId    drawable resource of the floor plan.
+     * @param bounds        bounds of the floor plan on the map.
+     */
+    public FloorPlanTileProvider(Context context, int resourceId, LatLngBounds bounds) {
+        this.imageCache = MapImageCache.getInstance(context);
+        // Tiles at the screen resolution, the map draws tiles at a fixed size in dp
+        float density = Math.min(2f, context.getResources().getDisplayMetrics().density);
+        this.tileSize = Math.round(TILE_SIZE_DP * Math.max(1f, density));
+        setFloorPlan(resourceId, bounds);
+    }
+
+    /**
+     * Changes the floor plan served. The tile cache of the overlay must be cleared afterwards.
+     *
+     * @param resourceId    drawable resource of the floor plan.
+     * @param bounds        bounds of the floor plan on the map.
+     */
+    public void setFloorPlan(int resourceId, LatLngBounds bounds) {
+        this.floorPlan = new FloorPlan(generation.incrementAndGet(), resourceId, bounds);
+        imageCache.preload(resourceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Renders the region of the floor plan under the tile, transparent where the plan does not
+     * cover the tile. Returns null, so that the map requests the tile again, if the floor plan
+     * changed or its decoder was recycled while the tile was rendered.
+     */
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        FloorPlan plan = floorPlan;
+        double scale = 1 << zoom;
+        // Tile in normalised projection coordinates, clipped to the floor plan
+        double left = Math.max(x / scale, plan.left);
+        double top = Math.max(y / scale, plan.top);
+        double right = Math.min((x + 1) / scale, plan.right);
+        double bottom = Math.min((y + 1) / scale, plan.bottom);
+        if (left >= right || top >= bottom) return NO_TILE;
+
+        byte[] cached = imageCache.getTile(plan.resourceId, x, y, zoom);
+        if (cached != null) return deliver(plan, cached);
+
+        BitmapRegionDecoder decoder = imageCache.getRegionDecoder(plan.resourceId);
+        if (decoder == null) return NO_TILE;
+        int width;
+        int height;
+        synchronized (decoder) {
+            // Recycled by the cache in the meantime, the map requests the tile again
+            if (decoder.isRecycled()) return null;
+            width = decoder.getWidth();
+            height = decoder.getHeight();
+        }
+        double pixelsX = width / (plan.right - plan.left);
+        double pixelsY = height / (plan.bottom - plan.top);
+        Rect source = new Rect(
+                clamp((int) Math.floor((left - plan.left) * pixelsX), width),
+                clamp((int) Math.floor((top - plan.top) * pixelsY), height),
+                clamp((int) Math.ceil((right - plan.left) * pixelsX), width),
+                clamp((int) Math.ceil((bottom - plan.top) * pixelsY), height));
+        if (source.isEmpty()) return NO_TILE;
+        // Destination of the decoded pixels in the tile, at the bounds of the source pixels
+        double tilePixels = scale * tileSize;
+        RectF destination = new RectF(
+                (float) ((plan.left + source.left / pixelsX) * tilePixels - x * tileSize),
+                (float) ((plan.top + source.top / pixelsY) * tilePixels - y * tileSize),
+                (float) ((plan.left + source.right / pixelsX) * tilePixels - x * tileSize),
+                (float) ((plan.top + source.bottom / pixelsY) * tilePixels - y * tileSize));
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateSampleSize(source.width() / destination.width());
+        Bitmap region;
+        synchronized (decoder) {
+            if (decoder.isRecycled()) return null;
+            region = decoder.decodeRegion(source, options);
+        }
+        if (region == null) return NO_TILE;
+
+        Bitmap tile = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+        new Canvas(tile).drawBitmap(region, null, destination, paint);
+        region.recycle();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        tile.compress(Bitmap.CompressFormat.PNG, 100, stream);
+        tile.recycle();
+        byte[] data = stream.toByteArray();
+        imageCache.putTile(plan.resourceId, x, y, zoom, data);
+        return deliver(plan, data);
+    }
+
+    /**
+     * Wraps a rendered tile unless it belongs to a floor plan generation that was replaced.
+     *
+     * @param plan  floor plan the tile was rendered from.
+     * @param data  the encoded tile.
+     * @return      the tile, null if the floor plan changed in the meantime.
+     */
+    private Tile deliver(FloorPlan plan, byte[] data) {
+        if (plan.generation != generation.get()) return null;
+        return new Tile(tileSize, tileSize, data);
+    }
+
+    /**
+     * Calculates the largest power of two sample size not exceeding the ratio of source pixels to
+     * tile pixels, so zoomed out tiles decode no more pixels than they show.
+     *
+     * @param pixelRatio    source pixels per tile pixel.
+     * @return              sample size for {@link BitmapFactory.Options#inSampleSize}.
+     */
+    private static int calculateSampleSize(double pixelRatio) {
+        int sampleSize = 1;
+        while (sampleSize * 2 <= pixelRatio) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /** Clamps a pixel coordinate to the image. */
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size, value));
+    }
+
+    /** Projects a longitude to the normalised x coordinate of the map, from 0 to 1. */
+    private static double projectX(double longitude) {
+        return (longitude + 180) / 360;
+    }
+
+    /** Projects a latitude to the normalised y coordinate of the map, from 0 at the top to 1. */
+    private static double projectY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+}
@@ -1,66 +1,56 @@
 package com.openpositioning.PositionMe.utils;
 
+import android.content.Context;
 import android.graphics.Color;
 import android.util.Log;
 
 import com.google.android.gms.maps.GoogleMap;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
-import com.google.android.gms.maps.model.GroundOverlay;
-import com.google.android.gms.maps.model.GroundOverlayOptions;
 import com.google.android.gms.maps.model.LatLng;
-import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.PolylineOptions;
-import com.openpositioning.PositionMe.R;
+import com.google.android.gms.maps.model.TileOverlay;
+import com.google.android.gms.maps.model.TileOverlayOptions;
 
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Class used to manage indoor floor map overlays
  * Currently used by RecordingFragment
- * @see BuildingPolygon Describes the bounds of buildings and the methods to check if point is
- * in the building
+ * @see BuildingMaps Provides the buildings with indoor maps and their floor maps
  * @author Arun Gopalakrishnan
  */
 public class IndoorMapManager {
     // To store the map instance
     private GoogleMap gMap;
-    //Stores the overlay of the indoor maps
-    private GroundOverlay groundOverlay;
+    // Context used to read the floor maps
+    private final Context context;
+    // Cache of the floor map tiles
+    private final MapImageCache imageCache;
+    //Stores the overlay of the indoor maps and the provider of its tiles
+    private TileOverlay tileOverlay;
+    private FloorPlanTileProvider tileProvider;
     // Stores the current Location of user
     private LatLng currentLocation;
+    // Building the user is in, null if not in a known building
+    private Building currentBuilding;
+    // Building whose indoor map is shown and its floor maps, from the lowest floor
+    private Building mapBuilding;
+    private int[] floorMaps;
     // Stores if indoor map overlay is currently set
     private boolean isIndoorMapSet=false;
     //Stores the current floor in building
     private int currentFloor;
     // Floor height of current building
     private float floorHeight;
-    //Images of the Nucleus Building and Library indoor floor maps
-    private final List<Integer> NUCLEUS_MAPS =Arrays.asList(
-            R.drawable.nucleuslg, R.drawable.nucleusg, R.drawable.nucleus1,
-            R.drawable.nucleus2,R.drawable.nucleus3);
-    private final List<Integer> LIBRARY_MAPS =Arrays.asList(
-            R.drawable.libraryg, R.drawable.library1, R.drawable.library2,
-            R.drawable.library3);
-    // South-west and north east Bounds of Nucleus building and library to set the Overlay
-    LatLngBounds NUCLEUS=new LatLngBounds(
-            BuildingPolygon.NUCLEUS_SW,
-            BuildingPolygon.NUCLEUS_NE
-    );
-    LatLngBounds LIBRARY=new LatLngBounds(
-            BuildingPolygon.LIBRARY_SW,
-            BuildingPolygon.LIBRARY_NE
-    );
-    //Average Floor Heights of the Buildings
-    public static final float NUCLEUS_FLOOR_HEIGHT=4.2F;
-    public static final float LIBRARY_FLOOR_HEIGHT=3.6F;
 
     /**
      * Constructor to set the map instance
      * @param map The map on which the indoor floor map overlays are set
+     * @param context Context used to load the floor maps
      */
-    public IndoorMapManager(GoogleMap map){
+    public IndoorMapManager(GoogleMap map, Context context){
         this.gMap=map;
+        this.context=context.getApplicationContext();
+        this.imageCache=MapImageCache.getInstance(context);
     }
 
     /**
@@ -70,6 +60,8 @@ public class IndoorMapManager {
      */
     public void setCurrentLocation(LatLng currentLocation){
         this.currentLocation=currentLocation;
+        // Single lookup per update, the building is reused by the floor changes
+        this.currentBuilding=BuildingMaps.find(context, currentLocation);
         setBuildingOverlay();
     }
 
@@ -96,26 +88,59 @@ public class IndoorMapManager {
      * @param autoFloor flag if function called by auto-floor feature
      */
     public void setCurrentFloor(int newFloor, boolean autoFloor) {
-        if (BuildingPolygon.inNucleus(currentLocation)){
-            //Special case for nucleus when auto-floor is being used
-            if (autoFloor) {
-                // If nucleus add bias floor as lower-ground floor referred to as floor 0
-                newFloor += 1;
-            }
-            // If within bounds and different from floor map currently being shown
-             if (newFloor>=0 && newFloor<NUCLEUS_MAPS.size() && newFloor!=this.currentFloor) {
-                 groundOverlay.setImage(BitmapDescriptorFactory.fromResource(NUCLEUS_MAPS.get(newFloor)));
-                 this.currentFloor=newFloor;
-             }
+        if (!isIndoorMapSet || currentBuilding!=mapBuilding) return;
+        if (autoFloor) {
+            // Auto-floor is relative to the ground floor, offset by the floors below it
+            // (eg. the lower-ground floor of the Nucleus is floor 0)
+            newFloor += mapBuilding.getGroundFloor();
         }
-        else if (BuildingPolygon.inLibrary(currentLocation)){
-            // If within bounds and different from floor map currently being shown
-            if (newFloor>=0 && newFloor<LIBRARY_MAPS.size() && newFloor!=this.currentFloor) {
-                groundOverlay.setImage(BitmapDescriptorFactory.fromResource(LIBRARY_MAPS.get(newFloor)));
-                this.currentFloor=newFloor;
-            }
+        // If within bounds and different from floor map currently being shown
+        if (newFloor>=0 && newFloor<floorMaps.length && newFloor!=this.currentFloor) {
+            this.currentFloor=newFloor;
+            showFloorMap(newFloor);
         }
+    }
+
+    /**
+     * Shows the floor map of a floor on the overlay, and prepares the maps of the floors above and
+     * below in the background so that the next floor change does not wait for them. The previous
+     * floor map stays shown until the new one is opened in the background.
+     * @param floor Index of the floor in the floor maps, already set as the current floor
+     */
+    private void showFloorMap(int floor) {
+        FloorPlanTileProvider provider=tileProvider;
+        imageCache.preload(floorMaps[floor], () -> {
+            // Ignore floor maps opened after another floor or building was shown
+            if (!isIndoorMapSet || provider!=tileProvider || floor!=currentFloor) return;
+            provider.setFloorPlan(floorMaps[floor], BuildingMaps.getMapBounds(mapBuilding));
+            tileOverlay.clearTileCache();
+        });
+        preloadAdjacentFloors(floor);
+    }
+
+    /**
+     * Adds the overlay of the current building's floor maps at its ground floor, tiles are
+     * decoded as the map requests them.
+     */
+    private void addBuildingOverlay() {
+        mapBuilding=currentBuilding;
+        floorMaps=BuildingMaps.getFloorMapIds(context, mapBuilding);
+        currentFloor=mapBuilding.getGroundFloor();
+        floorHeight=mapBuilding.getFloorHeight();
+        tileProvider=new FloorPlanTileProvider(context, floorMaps[currentFloor],
+                BuildingMaps.getMapBounds(mapBuilding));
+        tileOverlay=gMap.addTileOverlay(new TileOverlayOptions().tileProvider(tileProvider));
+        isIndoorMapSet=true;
+        preloadAdjacentFloors(currentFloor);
+    }
 
+    /**
+     * Prepares the floor maps of the floors above and below in the background.
+     * @param floor Index of the floor in the floor maps
+     */
+    private void preloadAdjacentFloors(int floor) {
+        if (floor > 0) imageCache.preload(floorMaps[floor - 1]);
+        if (floor < floorMaps.length - 1) imageCache.preload(floorMaps[floor + 1]);
     }
 
     /**
@@ -134,38 +159,24 @@ public class IndoorMapManager {
 
     /**
      * Sets the map overlay for the building if user's current
-     * location is in building and is not already set
-     * Removes the overlay if user no longer in building
+     * location is in building with floor maps and is not already set
+     * Removes the overlay if user no longer in that building
      */
     private void setBuildingOverlay() {
         // Try catch block to prevent fatal crashes
         try {
-            // Setting overlay if in Nucleus and not already set
-            if (BuildingPolygon.inNucleus(currentLocation) && !isIndoorMapSet) {
-                    groundOverlay = gMap.addGroundOverlay(new GroundOverlayOptions()
-                            .image(BitmapDescriptorFactory.fromResource(R.drawable.nucleusg))
-                            .positionFromBounds(NUCLEUS));
-                    isIndoorMapSet = true;
-                    // Nucleus has an LG floor so G floor is at index 1
-                    currentFloor=1;
-                    floorHeight=NUCLEUS_FLOOR_HEIGHT;
-            }
-            // Setting overlay if in Library and not already set
-            else if (BuildingPolygon.inLibrary(currentLocation) && !isIndoorMapSet) {
-                    groundOverlay = gMap.addGroundOverlay(new GroundOverlayOptions()
-                            .image(BitmapDescriptorFactory.fromResource(R.drawable.libraryg))
-                            .positionFromBounds(LIBRARY));
-                    isIndoorMapSet = true;
-                    currentFloor=0;
-                    floorHeight=LIBRARY_FLOOR_HEIGHT;
-            }
-            // Removing overlay if user no longer in area with indoor maps available
-            else if (!BuildingPolygon.inLibrary(currentLocation) &&
-                    !BuildingPolygon.inNucleus(currentLocation)&& isIndoorMapSet){
-                groundOverlay.remove();
+            boolean hasIndoorMap = currentBuilding!=null && currentBuilding.hasFloorMaps();
+            // Removing overlay if user no longer in the building whose map is shown
+            if (isIndoorMapSet && currentBuilding!=mapBuilding) {
+                tileOverlay.remove();
                 isIndoorMapSet = false;
+                mapBuilding = null;
                 currentFloor=0;
-            }   
+            }
+            // Setting overlay if in a building with indoor maps and not already set
+            if (hasIndoorMap && !isIndoorMapSet) {
+                addBuildingOverlay();
+            }
         } catch (Exception ex) {
             Log.e("Error with overlay, Exception:", ex.toString());
         }
@@ -176,18 +187,13 @@ public class IndoorMapManager {
      * along the building's boundaries.
      */
     public void setIndicationOfIndoorMap(){
-        //Indicator for Nucleus Building
-        List<LatLng> points=BuildingPolygon.NUCLEUS_POLYGON;
-        // Closing Boundary
-        points.add(BuildingPolygon.NUCLEUS_POLYGON.get(0));
-        gMap.addPolyline(new PolylineOptions().color(Color.GREEN)
-                .addAll(points));
-
-        // Indicator for the Library Building
-        points=BuildingPolygon.LIBRARY_POLYGON;
-        // Closing Boundary
-        points.add(BuildingPolygon.LIBRARY_POLYGON.get(0));
-        gMap.addPolyline(new PolylineOptions().color(Color.GREEN)
-                .addAll(points));
+        for (Building building : BuildingMaps.getRegistry(context).getBuildings()) {
+            if (!building.hasFloorMaps()) continue;
+            List<LatLng> points=BuildingMaps.getOutline(building);
+            // Closing Boundary
+            points.add(points.get(0));
+            gMap.addPolyline(new PolylineOptions().color(Color.GREEN)
+                    .addAll(points));
+        }
     }
 }
@@ -0,0 +1,144 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.openpositioning.PositionMe.sensors.EventBus;
+import com.openpositioning.PositionMe.sensors.Topic;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Subscription to a {@link Topic} of the default {@link EventBus} that follows the lifecycle of a
+ * screen.
+ * <p>
+ * Events are delivered on the main thread while the owner is started, so a hidden screen receives
+ * nothing and costs nothing. When the owner is started again, conflated topics first deliver their
+ * latest event, so the screen is up to date without polling. The subscription ends with the owner.
+ * <p>
+ * Screens showing a topic published faster than they can be read can cap the display rate with a
+ * minimum interval. Events arriving within the interval replace each other on the publishing
+ * thread, and only the latest one is posted to the main thread once the interval has elapsed.
+ *
+ * @param <T>   type of the events.
+ */
+public final class LifecycleSubscription<T> implements DefaultLifecycleObserver {
+
+    //region Static variables
+    // Delivers the events on the main thread
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_THREAD = MAIN_HANDLER::post;
+    //endregion
+
+    //region Instance variables
+    private final Topic<T> topic;
+    private final Consumer<? super T> consumer;
+    // Minimum interval between two deliveries (milliseconds), zero for every event
+    private final long minIntervalMs;
+    // Subscription to the bus, null while the owner is stopped
+    private EventBus.Subscription subscription;
+
+    // Throttled delivery: latest event not yet delivered and the time of the last delivery
+    private final Runnable deliverTask = this::deliverPending;
+    private T pending;
+    private boolean hasPending;
+    private long lastDeliveryMs;
+    //endregion
+
+    /**
+     * Private constructor, see {@link #observe}.
+     */
+    private LifecycleSubscription(Topic<T> topic, long minIntervalMs, Consumer<? super T> consumer) {
+        this.topic = topic;
+        this.minIntervalMs = minIntervalMs;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Delivers the events of a topic on the main thread while a lifecycle owner is started. Must
+     * be called from the main thread, eg. in {@code onViewCreated} with the view lifecycle owner.
+     *
+     * @param owner     owner of the lifecycle, eg. a fragment's view lifecycle owner.
+     * @param topic     topic of the events.
+     * @param consumer  receiver of the events, called on the main thread.
+     * @param <T>       type of the events.
+     */
+    public static <T> void observe(LifecycleOwner owner, Topic<T> topic,
+                                   Consumer<? super T> consumer) {
+        observe(owner, topic, 0, consumer);
+    }
+
+    /**
+     * Delivers the events of a topic on the main thread while a lifecycle owner is started, at
+     * most once per interval. The latest event of an interval is always delivered, so the screen
+     * ends up showing the last one published. Must be called from the main thread.
+     *
+     * @param owner         owner of the lifecycle, eg. a fragment's view lifecycle owner.
+     * @param topic         topic of the events.
+     * @param minIntervalMs minimum interval between two deliveries in milliseconds.
+     * @param consumer      receiver of the events, called on the main thread.
+     * @param <T>           type of the events.
+     */
+    public static <T> void observe(LifecycleOwner owner, Topic<T> topic, long minIntervalMs,
+                                   Consumer<? super T> consumer) {
+        owner.getLifecycle().addObserver(new LifecycleSubscription<>(topic, minIntervalMs, consumer));
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        if (minIntervalMs <= 0) {
+            subscription = EventBus.getDefault().subscribe(topic, MAIN_THREAD, consumer);
+        } else {
+            subscription = EventBus.getDefault().subscribe(topic, EventBus.DIRECT, this::throttle);
+        }
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        subscription.unsubscribe();
+        subscription = null;
+        MAIN_HANDLER.removeCallbacks(deliverTask);
+        synchronized (this) {
+            pending = null;
+            hasPending = false;
+        }
+    }
+
+    /**
+     * Keeps the latest event on the publishing thread, and schedules its delivery at the end of
+     * the interval if none is scheduled yet.
+     */
+    private synchronized void throttle(T event) {
+        pending = event;
+        if (hasPending) return;
+        hasPending = true;
+        long delay = lastDeliveryMs + minIntervalMs - SystemClock.uptimeMillis();
+        MAIN_HANDLER.postDelayed(deliverTask, Math.max(0, delay));
+    }
+
+    /**
+     * Delivers the latest event of the interval on the main thread.
+     */
+    private void deliverPending() {
+        T event;
+        synchronized (this) {
+            if (!hasPending) return;
+            event = pending;
+            pending = null;
+            hasPending = false;
+            lastDeliveryMs = SystemClock.uptimeMillis();
+        }
+        if (subscription != null) consumer.accept(event);
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().removeObserver(this);
+    }
+}
@@ -0,0 +1,269 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.BitmapRegionDecoder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of the images drawn on the map: indoor floor plan tiles and marker icons.
+ * <p>
+ * Floor plans are never decoded whole. A {@link BitmapRegionDecoder} is opened once per floor
+ * plan, and {@link FloorPlanTileProvider} decodes from it only the regions covered by the map
+ * tiles requested. The rendered tiles are kept encoded in an LRU cache limited to a fraction of
+ * the heap, keyed by floor plan, zoom level and tile coordinates, so panning back or switching
+ * back to a recently shown floor does not decode again. Decoders of the floors likely to be shown
+ * next can be opened ahead of time on a background thread with {@link #preload(int...)}.
+ * <p>
+ * At most {@link #MAX_DECODERS} decoders are kept open, enough for the floor shown, the floors
+ * above and below it and the floor switched from. The least recently used decoder is recycled when
+ * another one is opened, and every decoder and tile is released when the system reports low
+ * memory or the app is hidden, see {@link #onTrimMemory(int)}. A decoder returned before it was
+ * recycled reports {@link BitmapRegionDecoder#isRecycled()}, checked while synchronized on it.
+ * <p>
+ * Opening a decoder reads the resource while holding the lock of the decoders, so the main thread
+ * never opens one: it calls {@link #preload(int, Runnable)}, which opens the decoder on the
+ * background thread and posts its callback back to the main thread once the decoder is ready.
+ * <p>
+ * Marker icons drawn from vector resources are rasterised once and shared by all markers, they
+ * must be requested from the main thread once the map is initialised.
+ *
+ * @see IndoorMapManager which shows the floor plans.
+ */
+public class MapImageCache implements ComponentCallbacks2 {
+
+    private static final String TAG = "MapImageCache";
+
+    //region Static variables
+    // Part of the heap used for floor plan tiles
+    private static final int HEAP_FRACTION = 16;
+    // Number of region decoders kept open
+    private static final int MAX_DECODERS = 4;
+    private static MapImageCache instance;
+    //endregion
+
+    //region Instance variables
+    private final Resources resources;
+    // Encoded floor plan tiles by floor plan, zoom and coordinates, sized in bytes
+    private final LruCache<String, byte[]> tiles;
+    // Region decoders of the floor plans by resource ID, opened on first use
+    private final LruCache<Integer, BitmapRegionDecoder> decoders;
+    // Guards opening decoders, so a floor plan being preloaded is not opened twice
+    private final Object openLock = new Object();
+    // Descriptors of the marker icons, never evicted
+    private final Map<Integer, BitmapDescriptor> icons = new ConcurrentHashMap<>();
+    private final ExecutorService preloadExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    //endregion
+
+    /**
+     * Private constructor of the singleton.
+     *
+     * @param context   application context.
+     */
+    private MapImageCache(Context context) {
+        this.resources = context.getResources();
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / HEAP_FRACTION);
+        this.tiles = new LruCache<String, byte[]>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, byte[] value) {
+                return value.length;
+            }
+        };
+        this.decoders = new LruCache<Integer, BitmapRegionDecoder>(MAX_DECODERS) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, BitmapRegionDecoder oldValue,
+                                        BitmapRegionDecoder newValue) {
+                // Waits for a tile being decoded from it
+                synchronized (oldValue) {
+                    oldValue.recycle();
+                }
+            }
+        };
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Get the shared instance of the cache.
+     *
+     * @param context   any context of the application.
+     * @return          the cache.
+     */
+    public static synchronized MapImageCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MapImageCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Get the region decoder of a floor plan, opening it if needed. Blocks while the floor plan is
+     * opened, so it must be called from a background thread, eg. a tile thread of the map. Decoding
+     * a region must be synchronized on the decoder, and check that it was not recycled since.
+     *
+     * @param resourceId    drawable resource of the floor plan.
+     * @return              the decoder, null if the resource could not be read.
+     * @throws IllegalStateException if called from the main thread.
+     */
+    public BitmapRegionDecoder getRegionDecoder(int resourceId) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("Floor plans must not be opened on the main thread");
+        }
+        BitmapRegionDecoder decoder = decoders.get(resourceId);
+        if (decoder != null) return decoder;
+        synchronized (openLock) {
+            decoder = decoders.get(resourceId);
+            if (decoder == null) {
+                long start = SystemClock.elapsedRealtime();
+                // The raw resource is read, so the image is not scaled to the screen density
+                try (InputStream stream = resources.openRawResource(resourceId)) {
+                    decoder = newRegionDecoder(stream);
+                    decoders.put(resourceId, decoder);
+                    Log.d(TAG, "Opened floor plan " + resourceId + " in "
+                            + (SystemClock.elapsedRealtime() - start) + " ms");
+                } catch (IOException | Resources.NotFoundException e) {
+                    Log.e(TAG, "Could not open floor plan " + resourceId, e);
+                }
+            }
+            return decoder;
+        }
+    }
+
+    /**
+     * Get a cached floor plan tile.
+     *
+     * @param resourceId    drawable resource of the floor plan.
+     * @param x             x coordinate of the tile.
+     * @param y             y coordinate of the tile.
+     * @param zoom          zoom level of the tile.
+     * @return              the encoded tile, null if it is not cached.
+     */
+    public byte[] getTile(int resourceId, int x, int y, int zoom) {
+        return tiles.get(tileKey(resourceId, x, y, zoom));
+    }
+
+    /**
+     * Stores a rendered floor plan tile.
+     *
+     * @param resourceId    drawable resource of the floor plan.
+     * @param x             x coordinate of the tile.
+     * @param y             y coordinate of the tile.
+     * @param zoom          zoom level of the tile.
+     * @param data          the encoded tile.
+     */
+    public void putTile(int resourceId, int x, int y, int zoom, byte[] data) {
+        tiles.put(tileKey(resourceId, x, y, zoom), data);
+    }
+
+    /**
+     * Opens the region decoders of floor plans on a background thread so that their first tiles
+     * are rendered without reading the resource.
+     *
+     * @param resourceIds   drawable resources of the floor plans.
+     */
+    public void preload(int... resourceIds) {
+        for (int resourceId : resourceIds) {
+            if (decoders.get(resourceId) == null) {
+                preloadExecutor.execute(() -> getRegionDecoder(resourceId));
+            }
+        }
+    }
+
+    /**
+     * Opens the region decoder of a floor plan on a background thread and then runs a callback on
+     * the main thread, eg. to switch the overlay to the floor plan once its tiles can be rendered.
+     * Must be called from the main thread.
+     *
+     * @param resourceId    drawable resource of the floor plan.
+     * @param onReady       callback run on the main thread once the decoder is open or could not be
+     *                      opened, at once if it is already open.
+     */
+    public void preload(int resourceId, Runnable onReady) {
+        if (decoders.get(resourceId) != null) {
+            onReady.run();
+            return;
+        }
+        preloadExecutor.execute(() -> {
+            getRegionDecoder(resourceId);
+            mainHandler.post(onReady);
+        });
+    }
+
+    /**
+     * Get the descriptor of a marker icon drawn from a vector resource, shared by every marker.
+     *
+     * @param context       context to load the drawable with.
+     * @param resourceId    vector drawable resource.
+     * @return              descriptor of the rasterised icon.
+     */
+    public BitmapDescriptor getIcon(Context context, int resourceId) {
+        BitmapDescriptor icon = icons.get(resourceId);
+        if (icon == null) {
+            icon = BitmapDescriptorFactory.fromBitmap(
+                    UtilFunctions.getBitmapFromVector(context, resourceId));
+            icons.put(resourceId, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Releases every decoder and tile when memory runs low or the app is no longer visible. They
+     * are opened and rendered again when the map requests tiles.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // Recycling waits for tiles being decoded, so not on the main thread
+            preloadExecutor.execute(decoders::evictAll);
+            tiles.evictAll();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {}
+
+    /**
+     * Opens a region decoder on an image stream, with the factory of the running API level.
+     *
+     * @param stream    stream of the encoded image.
+     * @return          the decoder.
+     * @throws IOException if the image cannot be decoded.
+     */
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newRegionDecoder(InputStream stream) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(stream);
+        }
+        // The shareable flag is ignored since API 21, the only form before API 31
+        return BitmapRegionDecoder.newInstance(stream, false);
+    }
+
+    /** Key of a tile in the tile cache. */
+    private static String tileKey(int resourceId, int x, int y, int zoom) {
+        return resourceId + "/" + zoom + "/" + x + "/" + y;
+    }
+}
@@ -0,0 +1,186 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.view.Choreographer;
+
+import com.google.android.gms.maps.model.LatLng;
+
+/**
+ * Coalesces live map updates and applies them once per display frame.
+ * <p>
+ * Producers submit the newest user position, heading, GNSS position and floor at any rate. The
+ * scheduler only keeps the latest value of each, and on the next {@link Choreographer} frame
+ * passes to the {@link Renderer} only the values that differ from those applied last. Updates
+ * submitted between two frames therefore cost a single map update, and unchanged state costs none.
+ * <p>
+ * The scheduler must be used from the main thread.
+ *
+ * @see ReplayClock for the frame driven replay of recordings.
+ */
+public class MapRenderScheduler implements Choreographer.FrameCallback {
+
+    //region Static variables
+    // Smallest heading change applied to the map in degrees
+    private static final float ORIENTATION_EPSILON = 0.5f;
+    // Marker for a floor that was never submitted
+    private static final int NO_FLOOR = Integer.MIN_VALUE;
+    //endregion
+
+    /**
+     * Applies the changed state to the map, called on a frame with only the changed values.
+     */
+    public interface Renderer {
+        /**
+         * Moves the user to a new position.
+         *
+         * @param position  new position of the user.
+         */
+        void renderPosition(LatLng position);
+
+        /**
+         * Rotates the user marker to a new heading.
+         *
+         * @param orientation   new heading in degrees.
+         */
+        void renderOrientation(float orientation);
+
+        /**
+         * Moves the GNSS marker to a new position.
+         *
+         * @param gnssPosition  new GNSS position.
+         */
+        void renderGnss(LatLng gnssPosition);
+
+        /**
+         * Switches to a new estimated floor.
+         *
+         * @param floor estimated floor relative to the ground floor.
+         */
+        void renderFloor(int floor);
+    }
+
+    //region Instance variables
+    private final Renderer renderer;
+    private final Choreographer choreographer;
+    private boolean framePosted;
+    // Newest submitted state
+    private LatLng position;
+    private float orientation;
+    private LatLng gnssPosition;
+    private int floor = NO_FLOOR;
+    // State last applied by the renderer
+    private LatLng renderedPosition;
+    private float renderedOrientation = Float.NaN;
+    private LatLng renderedGnss;
+    private int renderedFloor = NO_FLOOR;
+    //endregion
+
+    /**
+     * Public constructor of the scheduler.
+     *
+     * @param renderer  renderer applying the changes to the map.
+     */
+    public MapRenderScheduler(Renderer renderer) {
+        this.renderer = renderer;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Submits the newest user position and heading.
+     *
+     * @param position      position of the user.
+     * @param orientation   heading in degrees.
+     */
+    public void setUserLocation(LatLng position, float orientation) {
+        this.position = position;
+        this.orientation = orientation;
+        requestFrame();
+    }
+
+    /**
+     * Submits the newest GNSS position.
+     *
+     * @param gnssPosition  GNSS position.
+     */
+    public void setGnssLocation(LatLng gnssPosition) {
+        this.gnssPosition = gnssPosition;
+        requestFrame();
+    }
+
+    /**
+     * Submits the newest floor estimate.
+     *
+     * @param floor estimated floor relative to the ground floor.
+     */
+    public void setFloor(int floor) {
+        this.floor = floor;
+        requestFrame();
+    }
+
+    /**
+     * Forgets the GNSS position, eg. after the GNSS marker was removed, so that the next submitted
+     * position is applied even if it did not change.
+     */
+    public void clearGnss() {
+        gnssPosition = null;
+        renderedGnss = null;
+    }
+
+    /**
+     * Forgets all submitted and applied state and cancels a pending frame, eg. after the map was
+     * cleared.
+     */
+    public void reset() {
+        cancel();
+        position = null;
+        renderedPosition = null;
+        renderedOrientation = Float.NaN;
+        clearGnss();
+        floor = NO_FLOOR;
+        renderedFloor = NO_FLOOR;
+    }
+
+    /**
+     * Cancels a pending frame, submitted state is applied on the next request.
+     */
+    public void cancel() {
+        if (framePosted) {
+            choreographer.removeFrameCallback(this);
+            framePosted = false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Passes the state changed since the previous frame to the renderer.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        framePosted = false;
+        if (position != null && !position.equals(renderedPosition)) {
+            renderedPosition = position;
+            renderer.renderPosition(position);
+        }
+        // Written to also hold before the first heading, while the applied heading is NaN
+        if (position != null && !(Math.abs(orientation - renderedOrientation) < ORIENTATION_EPSILON)) {
+            renderedOrientation = orientation;
+            renderer.renderOrientation(orientation);
+        }
+        if (floor != renderedFloor) {
+            renderedFloor = floor;
+            renderer.renderFloor(floor);
+        }
+        if (gnssPosition != null && !gnssPosition.equals(renderedGnss)) {
+            renderedGnss = gnssPosition;
+            renderer.renderGnss(gnssPosition);
+        }
+    }
+
+    /** Posts a frame callback unless one is already pending. */
+    private void requestFrame() {
+        if (!framePosted) {
+            framePosted = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+}
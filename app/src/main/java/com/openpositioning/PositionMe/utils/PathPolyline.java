@@ -0,0 +1,243 @@
+package com.openpositioning.PositionMe.utils;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Path drawn on the map with a level of detail matching the camera zoom.
+ * <p>
+ * The points of the path are kept in a {@link SimplifiedPath}, which simplifies them incrementally
+ * at several tolerances. The polyline shows the coarsest simplification that is still exact to a
+ * pixel at the current zoom, so the map receives far fewer vertices than the path has points,
+ * without visible loss. The vertex count stays bounded however long the path gets: a tier holds
+ * at most {@link SimplifiedPath#MAX_TIER_SIZE} points, and a path too winding for that is drawn
+ * with a tolerance above a pixel rather than with more vertices.
+ * <p>
+ * Only a prefix of the points may be shown, eg. when seeking backwards in a replay. Points which
+ * are shown again later are not simplified again.
+ * <p>
+ * The line is split in chunks of {@link #CHUNK_SIZE} segments. Full chunks are frozen in
+ * polylines that are not updated again, and only the last, "hot", polyline is updated when points
+ * are added. An update therefore sends a bounded number of vertices to the map instead of the whole
+ * path, and appending costs amortized O(1). All chunks are only redrawn when the level of detail
+ * changes, including when the shown tier goes over its vertex budget and is coarsened.
+ *
+ * @see com.openpositioning.PositionMe.presentation.fragment.TrajectoryMapFragment which draws the
+ * PDR and GNSS paths.
+ */
+public class PathPolyline {
+
+    //region Static variables
+    // Ground resolution of the map at zoom level 0 on the equator, in meters per pixel
+    private static final double EQUATOR_METERS_PER_PIXEL = 156543.03392;
+    // Number of segments of a frozen chunk
+    private static final int CHUNK_SIZE = 128;
+    //endregion
+
+    //region Instance variables
+    private final GoogleMap map;
+    private int color;
+    private final float width;
+    // Polylines of the full chunks, consecutive chunks share their end points
+    private final List<Polyline> frozenChunks = new ArrayList<>();
+    // Polyline of the last chunk, from the end of the frozen chunks to the end of the path
+    private Polyline hotChunk;
+    private final SimplifiedPath path = new SimplifiedPath();
+    // Number of leading points of the path that are shown
+    private int visibleCount;
+    // Simplification tier currently shown, and its tolerance when the chunks were drawn
+    private int tier;
+    private double renderedTolerance;
+    // Points of the shown tier, read from the path on demand
+    private final List<LatLng> tierPoints = new AbstractList<LatLng>() {
+        @Override
+        public LatLng get(int position) {
+            int index = path.getTierIndex(tier, visibleCount, position);
+            return new LatLng(path.getLatitude(index), path.getLongitude(index));
+        }
+
+        @Override
+        public int size() {
+            return path.getTierSize(tier, visibleCount);
+        }
+    };
+    //endregion
+
+    /**
+     * Creates an empty path on the map.
+     *
+     * @param map   map to draw on.
+     * @param color color of the line.
+     * @param width width of the line in pixels.
+     */
+    public PathPolyline(GoogleMap map, int color, float width) {
+        this.map = map;
+        this.color = color;
+        this.width = width;
+        this.hotChunk = addChunk();
+    }
+
+    /**
+     * Appends a point at the end of the shown path.
+     *
+     * @param point new point.
+     */
+    public void add(LatLng point) {
+        append(point);
+        render();
+    }
+
+    /**
+     * Appends points at the end of the shown path in a single map update.
+     *
+     * @param points    new points, may be empty.
+     */
+    public void addAll(List<LatLng> points) {
+        if (points.isEmpty()) return;
+        for (int i = 0; i < points.size(); i++) {
+            append(points.get(i));
+        }
+        render();
+    }
+
+    /**
+     * Shows a prefix of a path. Points already known from a longer prefix of the same path are
+     * reused, others are appended.
+     *
+     * @param prefix    leading points of the path.
+     */
+    public void showPrefix(List<LatLng> prefix) {
+        int known = Math.min(prefix.size(), path.size());
+        if (known > 0 && !matches(known - 1, prefix.get(known - 1))) {
+            // Not a prefix of the same path, start over
+            path.clear();
+            removeFrozenChunks();
+        }
+        for (int i = path.size(); i < prefix.size(); i++) {
+            LatLng point = prefix.get(i);
+            path.add(point.latitude, point.longitude);
+        }
+        visibleCount = prefix.size();
+        render();
+    }
+
+    /**
+     * Selects the level of detail for the camera zoom, updating the map only if it changes.
+     *
+     * @param latitude  latitude of the camera target in degrees.
+     * @param zoom      zoom level of the camera.
+     */
+    public void setZoom(double latitude, float zoom) {
+        double metersPerPixel = EQUATOR_METERS_PER_PIXEL * Math.cos(Math.toRadians(latitude))
+                / Math.pow(2, zoom);
+        int newTier = path.selectTier(metersPerPixel);
+        if (newTier != tier) {
+            tier = newTier;
+            removeFrozenChunks();
+            render();
+        }
+    }
+
+    /**
+     * Sets the color of the line.
+     *
+     * @param color color of the line.
+     */
+    public void setColor(int color) {
+        this.color = color;
+        for (Polyline chunk : frozenChunks) {
+            chunk.setColor(color);
+        }
+        hotChunk.setColor(color);
+    }
+
+    /**
+     * Removes every point of the path.
+     */
+    public void clear() {
+        path.clear();
+        visibleCount = 0;
+        removeFrozenChunks();
+        render();
+    }
+
+    /**
+     * Removes the line from the map, the path cannot be used afterwards.
+     */
+    public void remove() {
+        removeFrozenChunks();
+        hotChunk.remove();
+    }
+
+    /**
+     * Appends a point after the shown points, reusing the next known point if it is the same.
+     *
+     * @param point new point.
+     */
+    private void append(LatLng point) {
+        if (visibleCount < path.size() && !matches(visibleCount, point)) {
+            path.truncate(visibleCount);
+        }
+        if (visibleCount == path.size()) {
+            path.add(point.latitude, point.longitude);
+        }
+        visibleCount++;
+    }
+
+    /** Checks if a point of the path has the given coordinates. */
+    private boolean matches(int index, LatLng point) {
+        return path.getLatitude(index) == point.latitude && path.getLongitude(index) == point.longitude;
+    }
+
+    /**
+     * Sends the points of the shown tier to the map.
+     * <p>
+     * Frozen chunks reaching the last point are released, since the last point moves as the path
+     * grows, and the hot chunk is frozen as long as it holds a full chunk of kept points. Only the
+     * hot chunk is then updated.
+     * </p>
+     */
+    private void render() {
+        if (path.getTolerance(tier) != renderedTolerance) {
+            // The tier was simplified again, its kept points changed
+            removeFrozenChunks();
+            renderedTolerance = path.getTolerance(tier);
+        }
+        int size = tierPoints.size();
+        while (!frozenChunks.isEmpty() && frozenChunks.size() * CHUNK_SIZE >= size - 1) {
+            frozenChunks.remove(frozenChunks.size() - 1).remove();
+        }
+        while ((frozenChunks.size() + 1) * CHUNK_SIZE < size - 1) {
+            int start = frozenChunks.size() * CHUNK_SIZE;
+            hotChunk.setPoints(tierPoints.subList(start, start + CHUNK_SIZE + 1));
+            frozenChunks.add(hotChunk);
+            hotChunk = addChunk();
+        }
+        hotChunk.setPoints(tierPoints.subList(Math.min(frozenChunks.size() * CHUNK_SIZE, size), size));
+    }
+
+    /**
+     * Removes the frozen chunks from the map, eg. when the shown points change.
+     */
+    private void removeFrozenChunks() {
+        for (Polyline chunk : frozenChunks) {
+            chunk.remove();
+        }
+        frozenChunks.clear();
+    }
+
+    /**
+     * Adds an empty chunk polyline to the map.
+     *
+     * @return  the polyline, styled as the path.
+     */
+    private Polyline addChunk() {
+        return map.addPolyline(new PolylineOptions().color(color).width(width));
+    }
+}
@@ -11,8 +11,7 @@ import android.view.View;
 import com.openpositioning.PositionMe.presentation.fragment.CorrectionFragment;
 import com.openpositioning.PositionMe.sensors.SensorFusion;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 
 /**
  * This View class displays the path taken in the UI.
@@ -21,6 +20,11 @@ import java.util.Collections;
  * The coordinates are scaled and centered in {@link PathView#scaleTrajectory()} to fill the
  * device's screen. The scaling ratio is passed to the {@link CorrectionFragment} for calculating
  * the Google Maps zoom ratio.
+ * <p>
+ * Coordinates are kept in meters in primitive arrays, with their bounds updated as they are
+ * added, so adding a step costs O(1). They are never rescaled: the scaling ratio is applied as a
+ * canvas transformation when drawing, and the {@link Path} in meters is extended with the new
+ * steps only, so redrawing does not rebuild it.
  *
  * @author Michal Dvorak
  * @author Virginia Cangelosi
@@ -28,23 +32,29 @@ import java.util.Collections;
 public class PathView extends View {
     // Set up drawing colour
     private final int paintColor = Color.BLUE;
+    // Width of the path on screen in pixels
+    private static final float STROKE_WIDTH = 5;
+    // Initial capacity of the coordinate arrays
+    private static final int INITIAL_CAPACITY = 256;
     // Defines paint and canvas
     private Paint drawPaint;
-    // Path of straight lines
-    private Path path = new Path();
-    // Array lists of integers to store coordinates
-    private static ArrayList<Float> xCoords = new ArrayList<Float>();
-    private static ArrayList<Float> yCoords = new ArrayList<Float>();
+    // Path of straight lines in meters, extended with the coordinates added since the last draw
+    private final Path path = new Path();
+    // Number of coordinates already added to the path
+    private int pathCount;
+    // Coordinates in meters, y pointing down, shared by the view drawing and the view recording
+    private static final Object lock = new Object();
+    private static float[] xCoords = new float[INITIAL_CAPACITY];
+    private static float[] yCoords = new float[INITIAL_CAPACITY];
+    private static int count;
+    // Bounds of the coordinates, including the origin
+    private static float minX, maxX, minY, maxY;
     // Scaling ratio for multiplying PDR coordinates to fill the screen size
     private static float scalingRatio;
     // Instantiate correction fragment for passing it the scaling ratio
     private CorrectionFragment correctionFragment = new CorrectionFragment();
-    // Boolean flag to avoid rescaling trajectory when view is redrawn
-    private static boolean firstTimeOnDraw = true;
-    //Variable to only draw when the variable is true
+    //Variable to only compute the scaling ratio when the variable is true
     private static boolean draw = true;
-    //Variable to only draw when the variable is true
-    private static boolean reDraw = false;
 
     /**
      * Public default constructor for PathView. The constructor initialises the view with a context
@@ -71,7 +81,7 @@ public class PathView extends View {
         // Enable anti-aliasing to smooth out the edges of the lines
         drawPaint.setAntiAlias(true);
         // Set the width of path
-        drawPaint.setStrokeWidth(5);
+        drawPaint.setStrokeWidth(STROKE_WIDTH);
         // Set the style of path to be drawn
         drawPaint.setStyle(Paint.Style.STROKE);
         // Set the type of join to use between line segments
@@ -83,83 +93,47 @@ public class PathView extends View {
     /**
      * {@inheritDoc}
      *
-     * Method drawing the created path with our paint.
+     * Method drawing the created path with our paint, scaled around the center of the view.
      *
      * @param canvas The canvas on which the path will be drawn
      */
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        //If drawing for first time scale trajectory to fit screen
-        if(this.draw){
+        synchronized (lock) {
             // If there are no coordinates, don't draw anything
-            if (xCoords.size() == 0)
+            if (count == 0)
                 return;
 
-            //Scale trajectory to fit screen
-            scaleTrajectory();
-
-            // Start a new path at the center of the view
-            path.moveTo(getWidth()/2, getHeight()/2);
-
-            // Draw line between last point and this point
-            for (int i = 1; i < xCoords.size(); i++) {
-                path.lineTo(xCoords.get(i), yCoords.get(i));
-            }
-
-            //Draw path
-            canvas.drawPath(path, drawPaint);
-
-            //Ensure path not redrawn
-            draw = false;
-
-        }
-        //If redrawing due to scaling of the average step length
-        else if(reDraw){
-            // If there are no coordinates, don't draw anything
-            if (xCoords.size() == 0)
-                return;
-
-            //Clear old path
-            path.reset();
-
-            // Iterate over all coordinates, shifting to the center and scaling then returning to original location
-            for (int i = 0; i < xCoords.size(); i++) {
-                float newXCoord = (xCoords.get(i) - getWidth()/2) * scalingRatio + getWidth()/2;
-                xCoords.set(i, newXCoord);
-                float newYCoord = (yCoords.get(i) - getHeight()/2) * scalingRatio + getHeight()/2;
-                yCoords.set(i, newYCoord);
+            //If drawing for first time scale trajectory to fit screen
+            if (draw) {
+                scaleTrajectory();
+                draw = false;
             }
 
-            // Start a new path at the center of the view
-            path.moveTo(getWidth()/2, getHeight()/2);
-
-            // Draw line between last point and this point
-            for (int i = 1; i < xCoords.size(); i++) {
-                path.lineTo(xCoords.get(i), yCoords.get(i));
+            // Start a new path at the origin if the coordinates were cleared
+            if (pathCount == 0 || pathCount > count) {
+                path.reset();
+                path.moveTo(0, 0);
+                pathCount = 0;
             }
-
-            canvas.drawPath(path, drawPaint);
-
-            //Ensure path not redrawn when screen is resized
-            reDraw = false;
-        }
-        else{
-
-            // If there are no coordinates, don't draw anything
-            if (xCoords.size() == 0)
-                return;
-
-            // Start a new path at the center of the view
-            path.moveTo(getWidth()/2, getHeight()/2);
-
-            // Draw line between last point and this point
-            for (int i = 1; i < xCoords.size(); i++) {
-                path.lineTo(xCoords.get(i), yCoords.get(i));
+            // Draw line between last point and the new points
+            for (int i = pathCount; i < count; i++) {
+                path.lineTo(xCoords[i], yCoords[i]);
             }
-
-            canvas.drawPath(path, drawPaint);
+            pathCount = count;
         }
+        // Nothing to draw on a view without size
+        if (scalingRatio <= 0)
+            return;
+
+        // Shift to the center and scale, keeping the stroke width constant on screen
+        canvas.save();
+        canvas.translate(getWidth() / 2f, getHeight() / 2f);
+        canvas.scale(scalingRatio, scalingRatio);
+        drawPaint.setStrokeWidth(STROKE_WIDTH / scalingRatio);
+        canvas.drawPath(path, drawPaint);
+        canvas.restore();
     }
 
     /**
@@ -169,28 +143,35 @@ public class PathView extends View {
      * @param newCords An array containing the newly calculated coordinates to be added.
      */
     public void drawTrajectory(float[] newCords) {
-        // Add x coordinates
-        xCoords.add(newCords[0]);
-        // Negate the y coordinate and add it to the yCoords list, since screen coordinates
-        // start from top to bottom
-        yCoords.add(-newCords[1]);
+        synchronized (lock) {
+            if (count == xCoords.length) {
+                xCoords = Arrays.copyOf(xCoords, count * 2);
+                yCoords = Arrays.copyOf(yCoords, count * 2);
+            }
+            float x = newCords[0];
+            // Negate the y coordinate, since screen coordinates start from top to bottom
+            float y = -newCords[1];
+            xCoords[count] = x;
+            yCoords[count] = y;
+            count++;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
     }
 
     /**
      * Method used for scaling PDR coordinates to fill the screen.
-     * Center of the view is used as the origin, scaling ratio is calculated for the path to fit
-     * the screen with margins included.
+     * Center of the view is used as the origin, scaling ratio is calculated from the bounds of
+     * the coordinates for the path to fit the screen with margins included.
      */
     private void scaleTrajectory() {
-        // Get the center coordinates of the view
-        int centerX = getWidth() / 2;
-        int centerY = getHeight() / 2;
-
         // Calculate the scaling that would be required in each direction
-        float xRightRange = (getWidth() / 2) / (Math.abs(Collections.max(xCoords)));
-        float xLeftRange = (getWidth() / 2) / (Math.abs(Collections.min(xCoords)));
-        float yTopRange = (getHeight() / 2) / (Math.abs(Collections.max(yCoords)));
-        float yBottomRange = (getHeight() / 2) / (Math.abs(Collections.min(yCoords)));
+        float xRightRange = (getWidth() / 2) / Math.abs(maxX);
+        float xLeftRange = (getWidth() / 2) / Math.abs(minX);
+        float yTopRange = (getHeight() / 2) / Math.abs(maxY);
+        float yBottomRange = (getHeight() / 2) / Math.abs(minY);
 
         // Take the minimum scaling ratio to ensure all points fit within the view
         float minRatio = Math.min(Math.min(xRightRange, xLeftRange), Math.min(yTopRange, yBottomRange));
@@ -206,42 +187,37 @@ public class PathView extends View {
 
         // Set the scaling ratio for the correction fragment for setting Google Maps zoom
         correctionFragment.setScalingRatio(scalingRatio);
-
-        // Iterate over all coordinates, shifting to the center and scaling
-        for (int i = 0; i < xCoords.size(); i++) {
-            float newXCoord = xCoords.get(i) * scalingRatio + centerX;
-            xCoords.set(i, newXCoord);
-            float newYCoord = yCoords.get(i) * scalingRatio + centerY;
-            yCoords.set(i, newYCoord);
-        }
     }
 
     /**
-     * Method called when PathView is detached from its window. {@link PathView#xCoords} and
-     * {@link PathView#yCoords} are cleared so that path can start from 0 for next recording.
+     * Method called when PathView is detached from its window. The coordinates and their bounds
+     * are cleared so that path can start from 0 for next recording.
      */
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        // Reset trajectory
-        xCoords.clear();
-        yCoords.clear();
-        //New recording so must scale trajectory
-        draw = true;
+        synchronized (lock) {
+            // Reset trajectory
+            count = 0;
+            minX = maxX = minY = maxY = 0;
+            //New recording so must scale trajectory
+            draw = true;
+        }
+        path.reset();
+        pathCount = 0;
     }
 
     /**
      * Redraw trajectory to rescale the path.
-     * Called by {@link CorrectionFragment} through {@link SensorFusion} to reset the scaling ratio
-     * which will resize the path. It enables the redraw flag so new path is drawn.
+     * Called by {@link CorrectionFragment} through {@link SensorFusion} to rescale the path by a
+     * ratio, applied to the scaling of the canvas on the next draw.
      *
-     * @param newScale
+     * @param newScale ratio multiplying the current scale of the path.
      */
     public void redraw(float newScale){
-        //Set scaling ratio based on user input
-        scalingRatio = newScale;
-        //Enable redrawing of path
-        reDraw = true;
+        synchronized (lock) {
+            scalingRatio *= newScale;
+        }
     }
 
 }
@@ -0,0 +1,48 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+
+/**
+ * {@link Config} backed by the default shared preferences of the application, which hold the
+ * values of the settings screen.
+ */
+public class PreferencesConfig implements Config {
+
+    private final SharedPreferences settings;
+
+    /**
+     * Public constructor reading the default shared preferences.
+     *
+     * @param context   application context for accessing the preferences.
+     */
+    public PreferencesConfig(Context context) {
+        this.settings = PreferenceManager.getDefaultSharedPreferences(context);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return settings.getBoolean(key, defaultValue);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return settings.getInt(key, defaultValue);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getString(String key, String defaultValue) {
+        return settings.getString(key, defaultValue);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void putInt(String key, int value) {
+        settings.edit().putInt(key, value).apply();
+    }
+}
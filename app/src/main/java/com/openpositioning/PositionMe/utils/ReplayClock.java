@@ -0,0 +1,183 @@
+package com.openpositioning.PositionMe.utils;
+
+import android.view.Choreographer;
+
+import com.openpositioning.PositionMe.presentation.fragment.ReplayFragment;
+
+/**
+ * Playback clock for replaying recorded trajectories in real time or faster.
+ * <p>
+ * The clock advances a playback time, on the timeline of the recorded relative timestamps, by the
+ * elapsed time between display frames multiplied by the playback speed. It is driven by
+ * {@link Choreographer} frame callbacks, so the listener is called exactly once per rendered frame
+ * regardless of the density of the recorded data, and not at all while paused.
+ * <p>
+ * The clock must be used from the main thread.
+ *
+ * @see ReplayFragment the fragment rendering the replay.
+ */
+public class ReplayClock implements Choreographer.FrameCallback {
+
+    //region Static variables
+    // Supported playback speed range
+    public static final float MIN_SPEED = 0.5f;
+    public static final float MAX_SPEED = 64f;
+    // Longest frame interval taken into account, avoids jumps after the app was in background (ms)
+    private static final double MAX_FRAME_INTERVAL_MS = 100;
+    //endregion
+
+    /**
+     * Listener called on every frame while the clock is running.
+     */
+    public interface OnFrameListener {
+        /**
+         * Called once per frame with the current playback time.
+         *
+         * @param playbackTime  current position on the recorded timeline in milliseconds.
+         */
+        void onFrame(long playbackTime);
+
+        /**
+         * Called once when the playback time reaches the end of the timeline.
+         */
+        void onFinished();
+    }
+
+    //region Instance variables
+    private final OnFrameListener listener;
+    private final Choreographer choreographer;
+    // Timeline bounds in milliseconds
+    private long startTime;
+    private long endTime;
+    // Current position on the timeline, kept fractional so slow speeds do not stall
+    private double playbackTime;
+    private float speed;
+    private boolean running;
+    // Time of the previous frame in nanoseconds, negative before the first frame
+    private long lastFrameNanos;
+    //endregion
+
+    /**
+     * Public constructor of the replay clock.
+     *
+     * @param listener  listener called on every frame.
+     */
+    public ReplayClock(OnFrameListener listener) {
+        this.listener = listener;
+        this.choreographer = Choreographer.getInstance();
+        this.speed = 1f;
+        this.lastFrameNanos = -1;
+    }
+
+    /**
+     * Sets the timeline of the recording and moves the playback time to its start.
+     *
+     * @param startTime timestamp of the first recorded point in milliseconds.
+     * @param endTime   timestamp of the last recorded point in milliseconds.
+     */
+    public void setTimeline(long startTime, long endTime) {
+        this.startTime = startTime;
+        this.endTime = Math.max(startTime, endTime);
+        this.playbackTime = startTime;
+    }
+
+    /**
+     * Moves the end of the timeline, keeping the playback time, eg. while a recording is loading.
+     *
+     * @param endTime   timestamp of the last recorded point in milliseconds.
+     */
+    public void setEndTime(long endTime) {
+        this.endTime = Math.max(startTime, endTime);
+        this.playbackTime = Math.min(playbackTime, this.endTime);
+    }
+
+    /**
+     * Starts or resumes playback from the current playback time, restarting from the beginning of
+     * the timeline if the end was reached.
+     */
+    public void start() {
+        if (running) return;
+        if (playbackTime >= endTime) {
+            playbackTime = startTime;
+        }
+        running = true;
+        lastFrameNanos = -1;
+        choreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Pauses playback, keeping the current playback time.
+     */
+    public void pause() {
+        running = false;
+        choreographer.removeFrameCallback(this);
+    }
+
+    /**
+     * Moves the playback time, eg. when the user seeks. Does not trigger a frame.
+     *
+     * @param time  new playback time in milliseconds, clamped to the timeline.
+     */
+    public void seekTo(long time) {
+        playbackTime = Math.max(startTime, Math.min(endTime, time));
+    }
+
+    /**
+     * Sets the playback speed.
+     *
+     * @param speed multiple of real time, clamped to [{@link #MIN_SPEED}, {@link #MAX_SPEED}].
+     */
+    public void setSpeed(float speed) {
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Advances the playback time by the scaled frame interval and notifies the listener.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) return;
+        if (lastFrameNanos >= 0) {
+            double frameMs = Math.min((frameTimeNanos - lastFrameNanos) / 1e6, MAX_FRAME_INTERVAL_MS);
+            playbackTime = Math.min(endTime, playbackTime + frameMs * speed);
+        }
+        lastFrameNanos = frameTimeNanos;
+
+        listener.onFrame(getPlaybackTime());
+        if (playbackTime >= endTime) {
+            running = false;
+            listener.onFinished();
+        } else {
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Get the current playback time.
+     *
+     * @return  position on the recorded timeline in milliseconds.
+     */
+    public long getPlaybackTime() {
+        return (long) playbackTime;
+    }
+
+    /**
+     * Get the current playback speed.
+     *
+     * @return  multiple of real time.
+     */
+    public float getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Checks if the clock is currently running.
+     *
+     * @return  true if playing, false if paused or finished.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -15,8 +15,6 @@ import com.openpositioning.PositionMe.presentation.fragment.RecordingFragment;
  * @see RecordingFragment Currently used by RecordingFragment
  */
 public class UtilFunctions {
-    // Constant 1degree of latitiude/longitude (in m)
-    private static final int  DEGREE_IN_M=111111;
     /**
      * Simple function to calculate the angle between two close points
      * @param pointA Starting point
@@ -29,50 +27,20 @@ public class UtilFunctions {
                 (pointB.longitude- pointA.longitude)*Math.cos(Math.toRadians(pointA.latitude))));
     }
 
-    /**
-     * Calculate new coordinates based on net distance moved in PDR
-     * (as per WGS84 datum)
-     * @param initialLocation Current Location of user
-     * @param pdrMoved Amount of movement along X and Y
-     * @return new Coordinates based on the movement
-     */
-    public static LatLng calculateNewPos(LatLng initialLocation,float[] pdrMoved){
-        // Changes Euclidean movement into maps latitude and longitude as per WGS84 datum
-        double newLatitude=initialLocation.latitude+(pdrMoved[1]/(DEGREE_IN_M));
-        double newLongitude=initialLocation.longitude+(pdrMoved[0]/(DEGREE_IN_M))
-                *Math.cos(Math.toRadians(initialLocation.latitude));
-        return new LatLng(newLatitude, newLongitude);
-    }
-    /**
-     * Converts a degree value of Latitude into meters
-     * (as per WGS84 datum)
-     * @param degreeVal Value in degrees to convert to meters
-     * @return double corresponding to the value in meters.
-     */
-    public static double degreesToMetersLat(double degreeVal) {
-        return degreeVal*DEGREE_IN_M;
-    }
-    /**
-     * Converts a degree value of Longitude into meters
-     * (as per WGS84 datum)
-     * @param degreeVal Value in degrees to convert to meters
-     * @param latitude the latitude of the current position
-     * @return double corresponding to the value in meters.
-     */
-    public static double degreesToMetersLng(double degreeVal, double latitude) {
-        return degreeVal*DEGREE_IN_M/Math.cos(Math.toRadians(latitude));
-    }
-
     /**
      * Calculates the distance between two LatLng points A and B (in meters)
-     * (Note: approximation: for short distances)
+     * (Note: approximation: for short distances, on the tangent plane at A)
      * @param pointA initial point
      * @param pointB final point
      * @return the distance between the two points
+     * @see EnuProjector for conversions between coordinates and meters
      */
     public static double distanceBetweenPoints(LatLng pointA, LatLng pointB){
-        return  Math.sqrt(Math.pow(degreesToMetersLat(pointA.latitude-pointB.latitude),2) +
-                Math.pow(degreesToMetersLng(pointA.longitude-pointB.longitude,pointA.latitude),2));
+        double north = (pointB.latitude - pointA.latitude)
+                * EnuProjector.metersPerDegreeLatitude(pointA.latitude);
+        double east = (pointB.longitude - pointA.longitude)
+                * EnuProjector.metersPerDegreeLongitude(pointA.latitude);
+        return Math.sqrt(north * north + east * east);
     }
 
     /**
@@ -0,0 +1,76 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.utils.CircularFloatBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of the {@link CircularFloatBuffer} holding the recent sensor values, on a full
+ * buffer as during a recording.
+ * <p>
+ * The sequence numbers of the buffer are ints that only grow, so the buffer is recreated for every
+ * iteration and iterations are kept short enough not to overflow them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+public class CircularFloatBufferBenchmark {
+
+    // Buffer sizes, from the motion mode window to the longest elevation history
+    @Param({"4", "64", "1024"})
+    public int capacity;
+
+    private CircularFloatBuffer buffer;
+    private float value;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        buffer = new CircularFloatBuffer(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffer.putNewest(i);
+        }
+    }
+
+    /**
+     * Replaces the oldest value, the operation done for every sensor event.
+     */
+    @Benchmark
+    public boolean putNewest() {
+        value += 1f;
+        return buffer.putNewest(value);
+    }
+
+    /**
+     * Removes the oldest value and adds it back, keeping the buffer full.
+     */
+    @Benchmark
+    public Optional<Float> getOldestAndPut() {
+        Optional<Float> oldest = buffer.getOldest();
+        buffer.putNewest(oldest.orElse(0f));
+        return oldest;
+    }
+
+    /**
+     * Copies the content in order, as done to compute statistics over the window.
+     */
+    @Benchmark
+    public List<Float> getListCopy() {
+        return buffer.getListCopy();
+    }
+}
@@ -0,0 +1,90 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decoding of the indoor floor plans shown by MapImageCache, whole or as a single region.
+ * <p>
+ * The PNGs are read from the drawable folder of the app and held in memory, so that the file
+ * system is not measured. They are decoded with ImageIO on the host JVM: the timings are not those
+ * of BitmapFactory on a device, but compare the cost of a whole plan with the cost of a region.
+ * PNG is not tiled, so a region still decodes the rows above it. Run with the gc profiler of JMH
+ * to read the memory allocated per decode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FloorPlanDecodeBenchmark {
+
+    //region Static variables
+    // Drawable folder of the app, relative to the core module
+    private static final String DRAWABLE_DIR = "../app/src/main/res/drawable";
+    // Side of a decoded region in pixels
+    private static final int REGION_SIZE = 512;
+    //endregion
+
+    // Floor plan resource, the smallest and the largest plan of each building
+    @Param({"library1.png", "libraryg.png", "nucleus1.png", "nucleuslg.png"})
+    public String plan;
+
+    private byte[] png;
+    private Rectangle region;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = new File(System.getProperty("floorPlanDir", DRAWABLE_DIR), plan);
+        png = Files.readAllBytes(file.toPath());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        // Region in the middle of the plan, where the rows above it must be decoded too
+        region = new Rectangle((image.getWidth() - REGION_SIZE) / 2,
+                (image.getHeight() - REGION_SIZE) / 2, REGION_SIZE, REGION_SIZE);
+    }
+
+    /**
+     * Decodes the whole floor plan, as a full bitmap decode does.
+     */
+    @Benchmark
+    public BufferedImage decodeWholePlan() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    /**
+     * Decodes a region of the floor plan, as a region decoder serving a map tile does.
+     */
+    @Benchmark
+    public BufferedImage decodeRegion() throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(new ByteArrayInputStream(png))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(region);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.utils.EnuProjector;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.MapMatcher;
+import com.openpositioning.PositionMe.utils.WalkableGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map matching of positions to the walkable graph of a floor, live at every step and in batch for
+ * the replay of a recording.
+ * <p>
+ * The floor is a synthetic grid of corridors, denser than the bundled buildings, and the positions
+ * are a walk along the corridors with the drift and noise of PDR.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapMatcherBenchmark {
+
+    //region Static variables
+    // Corridors of the floor in each direction, and spacing between them in meters
+    private static final int CORRIDORS = 20;
+    private static final double SPACING = 8.0;
+    // Steps of the walk, ten minutes at the cadence of SyntheticTrajectory
+    private static final int STEPS = 1200;
+    private static final double STEP_LENGTH = 0.7;
+    //endregion
+
+    //region Instance variables
+    private WalkableGraph graph;
+    private MapMatcher matcher;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] outLatitudes;
+    private double[] outLongitudes;
+    private final double[] matched = new double[2];
+    private int index;
+    //endregion
+
+    @Setup
+    public void setUp() {
+        EnuProjector projector = new EnuProjector(
+                SyntheticTrajectory.ORIGIN_LAT, SyntheticTrajectory.ORIGIN_LNG);
+        List<GeoPoint> nodes = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        for (int row = 0; row < CORRIDORS; row++) {
+            for (int column = 0; column < CORRIDORS; column++) {
+                nodes.add(new GeoPoint(projector.toLatitude(row * SPACING),
+                        projector.toLongitude(column * SPACING)));
+                int node = row * CORRIDORS + column;
+                if (column > 0) edges.add(new int[] {node - 1, node});
+                if (row > 0) edges.add(new int[] {node - CORRIDORS, node});
+            }
+        }
+        graph = new WalkableGraph(nodes, edges);
+        matcher = new MapMatcher(graph);
+
+        // Walk east then north along the corridors, turning at every other crossing
+        Random random = new Random(42);
+        latitudes = new double[STEPS];
+        longitudes = new double[STEPS];
+        double east = 0, north = 0;
+        double driftEast = 0, driftNorth = 0;
+        for (int i = 0; i < STEPS; i++) {
+            boolean eastward = ((int) (i * STEP_LENGTH / (2 * SPACING))) % 2 == 0;
+            if (eastward) east += STEP_LENGTH; else north += STEP_LENGTH;
+            east %= (CORRIDORS - 1) * SPACING;
+            north %= (CORRIDORS - 1) * SPACING;
+            driftEast += 0.02 * random.nextGaussian();
+            driftNorth += 0.02 * random.nextGaussian();
+            latitudes[i] = projector.toLatitude(north + driftNorth + 0.5 * random.nextGaussian());
+            longitudes[i] = projector.toLongitude(east + driftEast + 0.5 * random.nextGaussian());
+        }
+        outLatitudes = new double[STEPS];
+        outLongitudes = new double[STEPS];
+    }
+
+    /**
+     * Live matching of the next step of the walk.
+     */
+    @Benchmark
+    public double liveStep() {
+        int i = index++ % STEPS;
+        matcher.match(latitudes[i], longitudes[i], matched);
+        return matched[0];
+    }
+
+    /**
+     * Batch matching of the whole walk.
+     */
+    @Benchmark
+    public int batchRecording() {
+        return matcher.matchAll(latitudes, longitudes, STEPS, outLatitudes, outLongitudes);
+    }
+}
@@ -0,0 +1,134 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.utils.Building;
+import com.openpositioning.PositionMe.utils.BuildingRegistry;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.PointInPolygon;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building containment checks done for every position update on the map, with the outlines of
+ * the bundled buildings.
+ * <p>
+ * The ray casting kernel of {@link PointInPolygon} is measured alone, and through the grid index
+ * of a {@link BuildingRegistry} holding the bundled buildings among hundreds of others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PointInPolygonBenchmark {
+
+    //region Static variables
+    // Bundled outlines: north-east, south-east, south-west and north-west corners
+    private static final List<GeoPoint> NUCLEUS_POLYGON = Arrays.asList(
+            new GeoPoint(55.92332001571212, -3.1738768212979593),
+            new GeoPoint(55.92282257022002, -3.1738768212979593),
+            new GeoPoint(55.92282257022002, -3.1745956532857647),
+            new GeoPoint(55.92332001571212, -3.1745956532857647));
+    private static final List<GeoPoint> LIBRARY_POLYGON = Arrays.asList(
+            new GeoPoint(55.92306692576906, -3.174771893078224),
+            new GeoPoint(55.92281045664704, -3.174771893078224),
+            new GeoPoint(55.92281045664704, -3.175184089079065),
+            new GeoPoint(55.92306692576906, -3.175184089079065));
+    // Number of synthetic buildings of the registry, on a grid around the campus
+    private static final int REGISTRY_BUILDINGS = 400;
+    // Number of distinct query points, a power of two for cheap wrapping
+    private static final int POINTS = 1024;
+    //endregion
+
+    //region Instance variables
+    // Query points scattered over the campus, about half inside one of the buildings
+    private GeoPoint[] points;
+    private int index;
+    private BuildingRegistry registry;
+    //endregion
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        points = new GeoPoint[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = new GeoPoint(
+                    55.9226 + 0.0010 * random.nextDouble(),
+                    -3.1756 + 0.0020 * random.nextDouble());
+        }
+
+        List<Building> buildings = new ArrayList<>();
+        buildings.add(building("Nucleus", NUCLEUS_POLYGON));
+        buildings.add(building("Library", LIBRARY_POLYGON));
+        // 50m squares every 100m, skipping the campus
+        int side = (int) Math.ceil(Math.sqrt(REGISTRY_BUILDINGS));
+        for (int i = 0; buildings.size() < REGISTRY_BUILDINGS + 2; i++) {
+            double latitude = 55.9126 + 0.0009 * (i / side);
+            double longitude = -3.1956 + 0.0016 * (i % side);
+            if (Math.abs(latitude - 55.923) < 0.002 && Math.abs(longitude + 3.1745) < 0.003) continue;
+            buildings.add(building("Building " + i, Arrays.asList(
+                    new GeoPoint(latitude + 0.00045, longitude + 0.0008),
+                    new GeoPoint(latitude, longitude + 0.0008),
+                    new GeoPoint(latitude, longitude),
+                    new GeoPoint(latitude + 0.00045, longitude))));
+        }
+        registry = new BuildingRegistry(buildings);
+    }
+
+    /**
+     * Containment in the Nucleus outline.
+     */
+    @Benchmark
+    public boolean nucleus() {
+        return PointInPolygon.contains(nextPoint(), NUCLEUS_POLYGON);
+    }
+
+    /**
+     * Containment in the Library outline.
+     */
+    @Benchmark
+    public boolean library() {
+        return PointInPolygon.contains(nextPoint(), LIBRARY_POLYGON);
+    }
+
+
+    /**
+     * Building lookup of a position, checking the buildings in turn as the indoor map used to.
+     */
+    @Benchmark
+    public int buildingLookup() {
+        GeoPoint point = nextPoint();
+        if (PointInPolygon.contains(point, NUCLEUS_POLYGON)) return 1;
+        if (PointInPolygon.contains(point, LIBRARY_POLYGON)) return 2;
+        return 0;
+    }
+
+    /**
+     * Building lookup of a position through the registry index.
+     */
+    @Benchmark
+    public Building registryLookup() {
+        return registry.find(nextPoint());
+    }
+
+    /** Creates a building without floor maps. */
+    private static Building building(String name, List<GeoPoint> outline) {
+        return new Building(name, outline, Collections.emptyList(), 0, 4f, null, null,
+                Collections.emptyList());
+    }
+
+    /** Get the next query point. */
+    private GeoPoint nextPoint() {
+        return points[index++ & (POINTS - 1)];
+    }
+}
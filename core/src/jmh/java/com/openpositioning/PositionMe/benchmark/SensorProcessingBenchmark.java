@@ -0,0 +1,131 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.utils.ExtendedKalmanFilter;
+import com.openpositioning.PositionMe.utils.FixedConfig;
+import com.openpositioning.PositionMe.utils.MotionMode;
+import com.openpositioning.PositionMe.utils.MotionModeClassifier;
+import com.openpositioning.PositionMe.utils.PdrProcessing;
+import com.openpositioning.PositionMe.utils.StationaryDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of processing a single sensor event, for the work SensorFusion does on the sensor thread
+ * for each event type.
+ * <p>
+ * The processing objects are long lived, as in a recording, and fed a repeating window of
+ * synthetic walking data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SensorProcessingBenchmark {
+
+    //region Static variables
+    // Number of distinct acceleration samples, a power of two for cheap wrapping
+    private static final int SAMPLES = 4096;
+    // Acceleration samples between two steps
+    private static final int SAMPLES_PER_STEP =
+            (int) (SyntheticTrajectory.STEP_INTERVAL_MS / SyntheticTrajectory.IMU_INTERVAL_MS);
+    private static final float[] GRAVITY = {0f, 0f, 9.81f};
+    //endregion
+
+    //region Instance variables
+    private PdrProcessing pdrProcessing;
+    private MotionModeClassifier classifier;
+    private StationaryDetector stationaryDetector;
+    private ExtendedKalmanFilter filter;
+    private float[][] acceleration;
+    // Magnitudes of the acceleration between two steps, as accumulated by SensorFusion
+    private List<Double> stepMagnitudes;
+    private int index;
+    private long time;
+    private float heading;
+    //endregion
+
+    @Setup
+    public void setUp() {
+        pdrProcessing = new PdrProcessing(new FixedConfig());
+        classifier = new MotionModeClassifier(4, 0.18f);
+        stationaryDetector = new StationaryDetector();
+        filter = new ExtendedKalmanFilter();
+        filter.reset(0, 0, 0);
+
+        acceleration = SyntheticTrajectory.walkingAcceleration(SAMPLES);
+        stepMagnitudes = new ArrayList<>(SAMPLES_PER_STEP);
+        for (int i = 0; i < SAMPLES_PER_STEP; i++) {
+            float[] acc = acceleration[i];
+            stepMagnitudes.add(Math.sqrt(acc[0] * acc[0] + acc[1] * acc[1] + acc[2] * acc[2]));
+        }
+        // Past the start elevation setup, so every pressure event is filtered
+        for (int i = 0; i < 3; i++) {
+            pdrProcessing.updateElevation(i * SyntheticTrajectory.PRESSURE_INTERVAL_MS, 60f);
+        }
+    }
+
+    /**
+     * Linear acceleration event: motion mode classification and stationary detection.
+     */
+    @Benchmark
+    public boolean accelerationEvent() {
+        float[] acc = nextAcceleration();
+        MotionMode mode = pdrProcessing.updateMotionMode(time, GRAVITY, acc);
+        return stationaryDetector.update(time, mode,
+                pdrProcessing.getMotionModeClassifier().getAccelerationVariance(), acc);
+    }
+
+    /**
+     * Motion mode classification alone, which replaced the elevator estimation of the
+     * acceleration window.
+     */
+    @Benchmark
+    public MotionMode motionModeClassification() {
+        return classifier.addAccelerationSample(time, GRAVITY, nextAcceleration());
+    }
+
+    /**
+     * Step detector event: Weiberg step length estimation and PDR position update.
+     */
+    @Benchmark
+    public float[] stepEvent() {
+        time += SyntheticTrajectory.STEP_INTERVAL_MS;
+        heading += 0.01f;
+        return pdrProcessing.updatePdr(time, stepMagnitudes, heading);
+    }
+
+    /**
+     * Step detector event followed by the fusion filter prediction and heading update.
+     */
+    @Benchmark
+    public float fusedStepEvent() {
+        float[] position = stepEvent();
+        filter.predict(pdrProcessing.getAverageStepLength(), 0.01f);
+        filter.updateHeading((float) (Math.PI / 2 - heading));
+        return position[0] + filter.getX();
+    }
+
+    /**
+     * Pressure event: height filtering and floor tracking.
+     */
+    @Benchmark
+    public float pressureEvent() {
+        time += SyntheticTrajectory.PRESSURE_INTERVAL_MS;
+        return pdrProcessing.updateElevation(time, 60f + 0.05f * acceleration[index++ & (SAMPLES - 1)][0]);
+    }
+
+    /** Get the next acceleration sample, advancing the time by one IMU interval. */
+    private float[] nextAcceleration() {
+        time += SyntheticTrajectory.IMU_INTERVAL_MS;
+        return acceleration[index++ & (SAMPLES - 1)];
+    }
+}
@@ -0,0 +1,186 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.Traj;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic sensor data with the rates and shape of a walking recording, shared by
+ * the benchmarks so that every run measures the same input.
+ */
+final class SyntheticTrajectory {
+
+    //region Static variables
+    // Sensor rates of a recording, matching the intervals used by SensorFusion
+    static final long IMU_INTERVAL_MS = 10;
+    static final long PRESSURE_INTERVAL_MS = 1000;
+    static final long GNSS_INTERVAL_MS = 1000;
+    static final long WIFI_INTERVAL_MS = 5000;
+    // Walking cadence and step length
+    static final long STEP_INTERVAL_MS = 500;
+    private static final float STEP_LENGTH = 0.7f;
+    // Origin of the recordings, on the Nucleus building
+    static final double ORIGIN_LAT = 55.9230;
+    static final double ORIGIN_LNG = -3.1742;
+    // Access points seen in each WiFi scan
+    private static final int SCAN_SIZE = 20;
+    private static final long SEED = 42;
+    //endregion
+
+    private SyntheticTrajectory() {}
+
+    /**
+     * Generates linear acceleration samples of a walk, a vertical bounce at the step frequency
+     * with sensor noise.
+     *
+     * @param count number of samples, at {@link #IMU_INTERVAL_MS}.
+     * @return      samples in m/s^2, one x, y, z triple per sample.
+     */
+    static float[][] walkingAcceleration(int count) {
+        Random random = new Random(SEED);
+        float[][] acc = new float[count][3];
+        for (int i = 0; i < count; i++) {
+            double phase = 2 * Math.PI * i * IMU_INTERVAL_MS / STEP_INTERVAL_MS;
+            acc[i][0] = (float) (0.3 * random.nextGaussian());
+            acc[i][1] = (float) (0.5 * Math.sin(phase) + 0.3 * random.nextGaussian());
+            acc[i][2] = (float) (2.5 * Math.sin(phase) + 0.3 * random.nextGaussian());
+        }
+        return acc;
+    }
+
+    /**
+     * Generates a complete trajectory message with the sample rates of a recording.
+     *
+     * @param minutes   duration of the recording.
+     * @return          the trajectory, with IMU, magnetometer, pressure, light, PDR, GNSS and WiFi
+     *                  samples.
+     */
+    static Traj.Trajectory trajectory(int minutes) {
+        Random random = new Random(SEED);
+        long duration = minutes * 60_000L;
+        Traj.Trajectory.Builder builder = Traj.Trajectory.newBuilder()
+                .setAndroidVersion("14")
+                .setStartTimestamp(1_700_000_000_000L);
+
+        float[][] walk = walk(duration);
+        float[][] acc = walkingAcceleration((int) (duration / IMU_INTERVAL_MS));
+        for (int i = 0; i < acc.length; i++) {
+            long time = i * IMU_INTERVAL_MS;
+            double heading = headingAt(time);
+            builder.addImuData(Traj.Motion_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setAccX(acc[i][0]).setAccY(acc[i][1]).setAccZ(acc[i][2] + 9.81f)
+                    .setGyrX((float) (0.01 * random.nextGaussian()))
+                    .setGyrY((float) (0.01 * random.nextGaussian()))
+                    .setGyrZ((float) (0.01 * random.nextGaussian()))
+                    .setRotationVectorX(0).setRotationVectorY(0)
+                    .setRotationVectorZ((float) Math.sin(heading / 2))
+                    .setRotationVectorW((float) Math.cos(heading / 2))
+                    .setStepCount((int) (time / STEP_INTERVAL_MS)));
+            builder.addPositionData(Traj.Position_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setMagX(20 + (float) random.nextGaussian())
+                    .setMagY(-5 + (float) random.nextGaussian())
+                    .setMagZ(-40 + (float) random.nextGaussian()));
+        }
+        for (long time = 0; time < duration; time += PRESSURE_INTERVAL_MS) {
+            builder.addPressureData(Traj.Pressure_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setPressure(1013.25f + 0.05f * (float) random.nextGaussian()));
+            builder.addLightData(Traj.Light_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setLight(300 + 10 * (float) random.nextGaussian()));
+        }
+        for (long time = 0; time < duration; time += STEP_INTERVAL_MS) {
+            float[] position = walk[(int) (time / STEP_INTERVAL_MS)];
+            builder.addPdrData(Traj.Pdr_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setX(position[0]).setY(position[1]));
+        }
+        for (long time = 0; time < duration; time += GNSS_INTERVAL_MS) {
+            float[] position = walk[(int) (time / STEP_INTERVAL_MS)];
+            builder.addGnssData(Traj.GNSS_Sample.newBuilder()
+                    .setRelativeTimestamp(time)
+                    .setLatitude((float) (ORIGIN_LAT + position[1] * 1E-5 + 2E-5 * random.nextGaussian()))
+                    .setLongitude((float) (ORIGIN_LNG + position[0] * 1E-5 + 2E-5 * random.nextGaussian()))
+                    .setAltitude(60).setAccuracy(8).setSpeed(1.4f)
+                    .setProvider("fused"));
+        }
+        for (long time = 0; time < duration; time += WIFI_INTERVAL_MS) {
+            Traj.WiFi_Sample.Builder scan = Traj.WiFi_Sample.newBuilder().setRelativeTimestamp(time);
+            for (int ap = 0; ap < SCAN_SIZE; ap++) {
+                scan.addMacScans(Traj.Mac_Scan.newBuilder()
+                        .setRelativeTimestamp(time)
+                        .setMac(0x00_1A_2B_3C_4D_00L + ap)
+                        .setRssi(-40 - random.nextInt(50)));
+            }
+            builder.addWifiData(scan);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates a trajectory document in the JSON format of downloaded trajectories, limited to
+     * the fields read for replay.
+     *
+     * @param minutes   duration of the recording.
+     * @return          the JSON document.
+     */
+    static String trajectoryJson(int minutes) {
+        long duration = minutes * 60_000L;
+        float[][] walk = walk(duration);
+        StringBuilder json = new StringBuilder(256 * (int) (duration / IMU_INTERVAL_MS));
+        json.append("{\"startTimestamp\":\"1700000000000\",\"imuData\":[");
+        for (long time = 0; time < duration; time += IMU_INTERVAL_MS) {
+            double heading = headingAt(time);
+            if (time > 0) json.append(',');
+            json.append("{\"relativeTimestamp\":\"").append(time)
+                    .append("\",\"accX\":0.1,\"accY\":0.2,\"accZ\":9.8")
+                    .append(",\"rotationVectorZ\":").append((float) Math.sin(heading / 2))
+                    .append(",\"rotationVectorW\":").append((float) Math.cos(heading / 2))
+                    .append(",\"stepCount\":").append(time / STEP_INTERVAL_MS)
+                    .append('}');
+        }
+        json.append("],\"pdrData\":[");
+        for (long time = 0; time < duration; time += STEP_INTERVAL_MS) {
+            float[] position = walk[(int) (time / STEP_INTERVAL_MS)];
+            if (time > 0) json.append(',');
+            json.append("{\"relativeTimestamp\":\"").append(time)
+                    .append("\",\"x\":").append(position[0])
+                    .append(",\"y\":").append(position[1])
+                    .append('}');
+        }
+        json.append("],\"gnssData\":[");
+        for (long time = 0; time < duration; time += GNSS_INTERVAL_MS) {
+            float[] position = walk[(int) (time / STEP_INTERVAL_MS)];
+            if (time > 0) json.append(',');
+            json.append("{\"relativeTimestamp\":\"").append(time)
+                    .append("\",\"latitude\":").append(ORIGIN_LAT + position[1] * 1E-5)
+                    .append(",\"longitude\":").append(ORIGIN_LNG + position[0] * 1E-5)
+                    .append(",\"accuracy\":8,\"provider\":\"fused\"}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /** Heading of the walk in radians, turning by 90 degrees every 30 seconds. */
+    private static double headingAt(long time) {
+        return (time / 30_000) * Math.PI / 2;
+    }
+
+    /**
+     * Integrates the PDR positions of the walk step by step.
+     *
+     * @param duration  duration of the walk in milliseconds.
+     * @return          x and y in meters at every {@link #STEP_INTERVAL_MS}, starting at zero.
+     */
+    private static float[][] walk(long duration) {
+        float[][] positions = new float[(int) (duration / STEP_INTERVAL_MS) + 1][2];
+        for (int step = 1; step < positions.length; step++) {
+            double heading = headingAt(step * STEP_INTERVAL_MS);
+            positions[step][0] = positions[step - 1][0] + STEP_LENGTH * (float) Math.sin(heading);
+            positions[step][1] = positions[step - 1][1] + STEP_LENGTH * (float) Math.cos(heading);
+        }
+        return positions;
+    }
+}
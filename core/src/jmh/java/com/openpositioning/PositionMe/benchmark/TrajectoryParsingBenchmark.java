@@ -0,0 +1,60 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.openpositioning.PositionMe.data.local.TrajectoryColumns;
+import com.openpositioning.PositionMe.data.local.TrajectoryReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and alignment of downloaded trajectory files, the work done by TrajParser before a
+ * replay can start. The document is held in memory so that the file system is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrajectoryParsingBenchmark {
+
+    // Length of the recording in minutes
+    @Param({"1", "10", "30"})
+    public int minutes;
+
+    private String json;
+    private TrajectoryColumns columns;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = SyntheticTrajectory.trajectoryJson(minutes);
+        columns = TrajectoryReader.readColumns(new StringReader(json));
+    }
+
+    /**
+     * Streams the JSON document into columns.
+     */
+    @Benchmark
+    public TrajectoryColumns readColumns() throws IOException {
+        return TrajectoryReader.readColumns(new StringReader(json));
+    }
+
+    /**
+     * Aligns the PDR and GNSS streams with the IMU timestamps.
+     */
+    @Benchmark
+    public int alignStreams() {
+        int[] pdr = TrajectoryReader.alignNearest(columns.pdrTimes, columns.pdrSize,
+                columns.imuTimes, columns.imuSize);
+        int[] gnss = TrajectoryReader.alignNearest(columns.gnssTimes, columns.gnssSize,
+                columns.imuTimes, columns.imuSize);
+        return pdr.length + gnss.length;
+    }
+}
@@ -0,0 +1,54 @@
+package com.openpositioning.PositionMe.benchmark;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.openpositioning.PositionMe.Traj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of trajectory messages of realistic recording lengths, as done when a
+ * recording is stopped and sent to the server, and when a binary trajectory is replayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrajectoryProtobufBenchmark {
+
+    // Length of the recording in minutes
+    @Param({"1", "10", "30"})
+    public int minutes;
+
+    private Traj.Trajectory trajectory;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        trajectory = SyntheticTrajectory.trajectory(minutes);
+        encoded = trajectory.toByteArray();
+    }
+
+    /**
+     * Serialises the trajectory to the wire format.
+     */
+    @Benchmark
+    public byte[] encode() {
+        return trajectory.toByteArray();
+    }
+
+    /**
+     * Parses the trajectory from the wire format.
+     */
+    @Benchmark
+    public Traj.Trajectory decode() throws InvalidProtocolBufferException {
+        return Traj.Trajectory.parseFrom(encoded);
+    }
+}
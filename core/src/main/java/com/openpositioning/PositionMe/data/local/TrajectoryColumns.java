@@ -0,0 +1,209 @@
+package com.openpositioning.PositionMe.data.local;
+
+import java.util.Arrays;
+
+/**
+ * Columnar in-memory representation of the streams of a recorded trajectory needed for replay.
+ *
+ * <p>
+ * Each stream (IMU, PDR, GNSS and pressure) is stored as a set of parallel primitive arrays and a size, so a
+ * recording costs a few bytes per sample instead of one object (and its boxed fields) per sample.
+ * The arrays grow geometrically while parsing and may be longer than the size of their stream,
+ * only the first {@code size} entries are valid.
+ * </p>
+ *
+ * @see TrajectoryReader which fills the columns from a trajectory file.
+ */
+public class TrajectoryColumns {
+
+    // Initial capacity of the columns
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Absolute start time of the recording in milliseconds
+    public long startTimestamp;
+
+    // IMU stream: relative timestamps and rotation vector quaternions
+    public int imuSize;
+    public long[] imuTimes = new long[INITIAL_CAPACITY];
+    public float[] rotationX = new float[INITIAL_CAPACITY];
+    public float[] rotationY = new float[INITIAL_CAPACITY];
+    public float[] rotationZ = new float[INITIAL_CAPACITY];
+    public float[] rotationW = new float[INITIAL_CAPACITY];
+
+    // PDR stream: relative timestamps and position relative to the start in meters
+    public int pdrSize;
+    public long[] pdrTimes = new long[INITIAL_CAPACITY];
+    public float[] pdrX = new float[INITIAL_CAPACITY];
+    public float[] pdrY = new float[INITIAL_CAPACITY];
+
+    // GNSS stream: relative timestamps and coordinates in degrees
+    public int gnssSize;
+    public long[] gnssTimes = new long[INITIAL_CAPACITY];
+    public double[] gnssLat = new double[INITIAL_CAPACITY];
+    public double[] gnssLng = new double[INITIAL_CAPACITY];
+
+    // Pressure stream: relative timestamps and pressure in mbar
+    public int pressureSize;
+    public long[] pressureTimes = new long[INITIAL_CAPACITY];
+    public float[] pressures = new float[INITIAL_CAPACITY];
+
+    /**
+     * Appends an IMU sample.
+     *
+     * @param time  relative timestamp in milliseconds.
+     * @param x     x component of the rotation vector.
+     * @param y     y component of the rotation vector.
+     * @param z     z component of the rotation vector.
+     * @param w     scalar component of the rotation vector.
+     */
+    public void addImu(long time, float x, float y, float z, float w) {
+        if (imuSize == imuTimes.length) {
+            int capacity = imuSize * 2;
+            imuTimes = Arrays.copyOf(imuTimes, capacity);
+            rotationX = Arrays.copyOf(rotationX, capacity);
+            rotationY = Arrays.copyOf(rotationY, capacity);
+            rotationZ = Arrays.copyOf(rotationZ, capacity);
+            rotationW = Arrays.copyOf(rotationW, capacity);
+        }
+        imuTimes[imuSize] = time;
+        rotationX[imuSize] = x;
+        rotationY[imuSize] = y;
+        rotationZ[imuSize] = z;
+        rotationW[imuSize] = w;
+        imuSize++;
+    }
+
+    /**
+     * Appends a PDR sample.
+     *
+     * @param time  relative timestamp in milliseconds.
+     * @param x     east position relative to the start in meters.
+     * @param y     north position relative to the start in meters.
+     */
+    public void addPdr(long time, float x, float y) {
+        if (pdrSize == pdrTimes.length) {
+            int capacity = pdrSize * 2;
+            pdrTimes = Arrays.copyOf(pdrTimes, capacity);
+            pdrX = Arrays.copyOf(pdrX, capacity);
+            pdrY = Arrays.copyOf(pdrY, capacity);
+        }
+        pdrTimes[pdrSize] = time;
+        pdrX[pdrSize] = x;
+        pdrY[pdrSize] = y;
+        pdrSize++;
+    }
+
+    /**
+     * Appends a GNSS sample.
+     *
+     * @param time      relative timestamp in milliseconds.
+     * @param latitude  latitude in degrees.
+     * @param longitude longitude in degrees.
+     */
+    public void addGnss(long time, double latitude, double longitude) {
+        if (gnssSize == gnssTimes.length) {
+            int capacity = gnssSize * 2;
+            gnssTimes = Arrays.copyOf(gnssTimes, capacity);
+            gnssLat = Arrays.copyOf(gnssLat, capacity);
+            gnssLng = Arrays.copyOf(gnssLng, capacity);
+        }
+        gnssTimes[gnssSize] = time;
+        gnssLat[gnssSize] = latitude;
+        gnssLng[gnssSize] = longitude;
+        gnssSize++;
+    }
+
+    /**
+     * Appends a pressure sample.
+     *
+     * @param time      relative timestamp in milliseconds.
+     * @param pressure  pressure in mbar.
+     */
+    public void addPressure(long time, float pressure) {
+        if (pressureSize == pressureTimes.length) {
+            int capacity = pressureSize * 2;
+            pressureTimes = Arrays.copyOf(pressureTimes, capacity);
+            pressures = Arrays.copyOf(pressures, capacity);
+        }
+        pressureTimes[pressureSize] = time;
+        pressures[pressureSize] = pressure;
+        pressureSize++;
+    }
+
+    /**
+     * Sorts every stream by timestamp, unless it is already sorted as is the case for recordings
+     * made by the app. The check is a single linear pass per stream.
+     */
+    public void sortByTime() {
+        int[] order = sortedOrder(imuTimes, imuSize);
+        if (order != null) {
+            imuTimes = permute(imuTimes, order);
+            rotationX = permute(rotationX, order);
+            rotationY = permute(rotationY, order);
+            rotationZ = permute(rotationZ, order);
+            rotationW = permute(rotationW, order);
+        }
+        order = sortedOrder(pdrTimes, pdrSize);
+        if (order != null) {
+            pdrTimes = permute(pdrTimes, order);
+            pdrX = permute(pdrX, order);
+            pdrY = permute(pdrY, order);
+        }
+        order = sortedOrder(gnssTimes, gnssSize);
+        if (order != null) {
+            gnssTimes = permute(gnssTimes, order);
+            gnssLat = permute(gnssLat, order);
+            gnssLng = permute(gnssLng, order);
+        }
+        order = sortedOrder(pressureTimes, pressureSize);
+        if (order != null) {
+            pressureTimes = permute(pressureTimes, order);
+            pressures = permute(pressures, order);
+        }
+    }
+
+    /**
+     * Computes the stable sorting order of a timestamp column.
+     *
+     * @param times column of timestamps.
+     * @param size  number of valid entries.
+     * @return      indices in sorted order, or null if the column is already sorted.
+     */
+    private static int[] sortedOrder(long[] times, int size) {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = times[i] >= times[i - 1];
+        }
+        if (sorted) return null;
+
+        // Sort (timestamp, index) pairs, ties keep their recorded order
+        long[][] pairs = new long[size][];
+        for (int i = 0; i < size; i++) {
+            pairs[i] = new long[] {times[i], i};
+        }
+        Arrays.sort(pairs, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) pairs[i][1];
+        }
+        return order;
+    }
+
+    private static long[] permute(long[] column, int[] order) {
+        long[] result = new long[column.length];
+        for (int i = 0; i < order.length; i++) result[i] = column[order[i]];
+        return result;
+    }
+
+    private static float[] permute(float[] column, int[] order) {
+        float[] result = new float[column.length];
+        for (int i = 0; i < order.length; i++) result[i] = column[order[i]];
+        return result;
+    }
+
+    private static double[] permute(double[] column, int[] order) {
+        double[] result = new double[column.length];
+        for (int i = 0; i < order.length; i++) result[i] = column[order[i]];
+        return result;
+    }
+}
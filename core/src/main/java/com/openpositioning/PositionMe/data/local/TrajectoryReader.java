@@ -0,0 +1,249 @@
+package com.openpositioning.PositionMe.data.local;
+
+import com.google.gson.stream.JsonReader;
+import com.openpositioning.PositionMe.utils.BarometricFloorTracker;
+import com.openpositioning.PositionMe.utils.SensorMath;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads and aligns the streams of recorded trajectories stored as JSON.
+ *
+ * <p>
+ * The reading and alignment do not depend on Android, the conversion of the aligned streams to
+ * map coordinates for replay is done by TrajParser in the application.
+ * </p>
+ *
+ * @see TrajectoryColumns the columnar representation of the streams.
+ */
+public final class TrajectoryReader {
+
+    // Smoothing horizon of the height filter in seconds, as used live by PdrProcessing
+    private static final int ELEVATION_SECONDS = 4;
+
+    private TrajectoryReader() {}
+
+    /**
+     * Reads the IMU, PDR, GNSS and pressure streams of a trajectory JSON document into primitive columns.
+     *
+     * <p>
+     * The document is read with a streaming {@link JsonReader}: no tree is built and no object is
+     * created per record, so apart from the columns themselves memory use is constant. Fields and
+     * streams not needed for replay (eg. WiFi scans) are skipped without being materialised.
+     * Timestamps written as strings by the protobuf JSON printer are accepted.
+     * </p>
+     *
+     * @param reader    reader positioned at the start of the JSON document.
+     * @return          the columns of the trajectory, in file order.
+     * @throws IOException if the document cannot be read or is malformed.
+     */
+    public static TrajectoryColumns readColumns(Reader reader) throws IOException {
+        TrajectoryColumns columns = new TrajectoryColumns();
+        JsonReader json = new JsonReader(reader);
+        json.setLenient(true);
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "startTimestamp":
+                    columns.startTimestamp = json.nextLong();
+                    break;
+                case "imuData":
+                    readImuData(json, columns);
+                    break;
+                case "pdrData":
+                    readPdrData(json, columns);
+                    break;
+                case "gnssData":
+                    readGnssData(json, columns);
+                    break;
+                case "pressureData":
+                    readPressureData(json, columns);
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        return columns;
+    }
+
+    /** Streams the IMU array into the timestamp and quaternion columns. */
+    private static void readImuData(JsonReader json, TrajectoryColumns columns) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long time = 0;
+            float x = 0, y = 0, z = 0, w = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "relativeTimestamp": time = json.nextLong(); break;
+                    case "rotationVectorX": x = (float) json.nextDouble(); break;
+                    case "rotationVectorY": y = (float) json.nextDouble(); break;
+                    case "rotationVectorZ": z = (float) json.nextDouble(); break;
+                    case "rotationVectorW": w = (float) json.nextDouble(); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+            columns.addImu(time, x, y, z, w);
+        }
+        json.endArray();
+    }
+
+    /** Streams the PDR array into the timestamp and position columns. */
+    private static void readPdrData(JsonReader json, TrajectoryColumns columns) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long time = 0;
+            float x = 0, y = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "relativeTimestamp": time = json.nextLong(); break;
+                    case "x": x = (float) json.nextDouble(); break;
+                    case "y": y = (float) json.nextDouble(); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+            columns.addPdr(time, x, y);
+        }
+        json.endArray();
+    }
+
+    /** Streams the GNSS array into the timestamp and coordinate columns. */
+    private static void readGnssData(JsonReader json, TrajectoryColumns columns) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long time = 0;
+            double latitude = 0, longitude = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "relativeTimestamp": time = json.nextLong(); break;
+                    case "latitude": latitude = json.nextDouble(); break;
+                    case "longitude": longitude = json.nextDouble(); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+            columns.addGnss(time, latitude, longitude);
+        }
+        json.endArray();
+    }
+
+    /** Streams the pressure array into the timestamp and pressure columns. */
+    private static void readPressureData(JsonReader json, TrajectoryColumns columns)
+            throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            long time = 0;
+            float pressure = 0;
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "relativeTimestamp": time = json.nextLong(); break;
+                    case "pressure": pressure = (float) json.nextDouble(); break;
+                    default: json.skipValue();
+                }
+            }
+            json.endObject();
+            columns.addPressure(time, pressure);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Estimates the floor of every PDR point from the pressure stream, relative to the floor the
+     * recording started on. The barometric heights are filtered as during the recording: the
+     * start height is the median of the first three samples, the later ones are smoothed by a
+     * {@link BarometricFloorTracker}.
+     *
+     * @param columns       streams of the trajectory, sorted by time.
+     * @param floorHeight   height of a floor in meters.
+     * @return              floor of every PDR point, zero everywhere if there is no pressure.
+     */
+    public static int[] estimateFloors(TrajectoryColumns columns, float floorHeight) {
+        int[] floors = new int[columns.pdrSize];
+        if (columns.pressureSize < 3) return floors;
+
+        float[] altitudes = new float[columns.pressureSize];
+        for (int i = 0; i < columns.pressureSize; i++) {
+            altitudes[i] = SensorMath.getAltitude(SensorMath.PRESSURE_STANDARD_ATMOSPHERE,
+                    columns.pressures[i]);
+        }
+        float[] start = Arrays.copyOf(altitudes, 3);
+        Arrays.sort(start);
+        BarometricFloorTracker tracker = new BarometricFloorTracker(ELEVATION_SECONDS, floorHeight);
+        tracker.reset(start[1]);
+        int[] pressureFloors = new int[columns.pressureSize];
+        for (int i = 3; i < columns.pressureSize; i++) {
+            tracker.update(columns.pressureTimes[i], altitudes[i]);
+            pressureFloors[i] = tracker.getCurrentFloor();
+        }
+
+        int[] pressureIndex = alignNearest(columns.pressureTimes, columns.pressureSize,
+                columns.pdrTimes, columns.pdrSize);
+        for (int i = 0; i < columns.pdrSize; i++) {
+            floors[i] = pressureFloors[pressureIndex[i]];
+        }
+        return floors;
+    }
+
+    /**
+     * Finds for each target timestamp the index of the nearest source timestamp.
+     * Both arrays must be sorted in ascending order. The source is traversed once for all targets
+     * (merge-join), so the cost is O(N + M) instead of a full search for every target.
+     *
+     * @param sourceTimes   sorted timestamps to search in.
+     * @param sourceSize    number of valid entries in the source array.
+     * @param targetTimes   sorted timestamps to align.
+     * @param targetSize    number of valid entries in the target array.
+     * @return              array of source indices, one per target, -1 if the source is empty.
+     */
+    public static int[] alignNearest(long[] sourceTimes, int sourceSize,
+                                     long[] targetTimes, int targetSize) {
+        int[] aligned = new int[targetSize];
+        int j = 0;
+        for (int i = 0; i < targetSize; i++) {
+            if (sourceSize == 0) {
+                aligned[i] = -1;
+                continue;
+            }
+            long target = targetTimes[i];
+            // Advance while the next source entry is at least as close to the target
+            while (j + 1 < sourceSize
+                    && Math.abs(sourceTimes[j + 1] - target) <= Math.abs(sourceTimes[j] - target)) {
+                j++;
+            }
+            aligned[i] = j;
+        }
+        return aligned;
+    }
+
+    /**
+     * Finds the index of the timestamp nearest to the target with a binary search.
+     *
+     * @param times     timestamps sorted in ascending order.
+     * @param size      number of valid entries in the array.
+     * @param target    timestamp to search for.
+     * @return          index of the nearest timestamp, -1 if the array is empty.
+     */
+    public static int findNearest(long[] times, int size, long target) {
+        if (size == 0) return -1;
+        int low = 0;
+        int high = size - 1;
+        // Find the first entry not before the target
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        if (low > 0 && target - times[low - 1] <= times[low] - target) {
+            return low - 1;
+        }
+        return low;
+    }
+}
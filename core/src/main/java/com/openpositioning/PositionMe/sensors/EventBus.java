@@ -0,0 +1,164 @@
+package com.openpositioning.PositionMe.sensors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Publish-subscribe bus delivering typed events of a {@link Topic} to their subscribers.
+ * <p>
+ * Every topic has its own copy-on-write list of subscribers, so publishing never locks and
+ * subscribers can be added or removed from any thread, including during a delivery. Every
+ * subscriber has its own {@link Executor}: {@link #DIRECT} delivers on the publishing thread before
+ * {@link #publish} returns, an executor of the main thread or of a background thread delivers
+ * there without blocking the publisher. Events of a conflated topic waiting for a subscriber are
+ * replaced by newer ones, so a slow subscriber receives the latest event and never piles up work.
+ * The bus also keeps the latest event of every conflated topic and delivers it to new subscribers,
+ * so a screen subscribing to a state shows it at once instead of waiting for its next change.
+ * <p>
+ * Publishers declare their topics as constants, and publish on the shared {@link #getDefault()}
+ * bus.
+ */
+public final class EventBus {
+
+    //region Static variables
+    // Delivers events on the publishing thread
+    public static final Executor DIRECT = Runnable::run;
+    private static final EventBus defaultBus = new EventBus();
+    //endregion
+
+    //region Instance variables
+    // Subscribers of every topic with at least one subscription
+    private final Map<Topic<?>, List<Subscriber<?>>> subscribers = new ConcurrentHashMap<>();
+    // Latest event of every conflated topic published at least once
+    private final Map<Topic<?>, Object> latestEvents = new ConcurrentHashMap<>();
+    //endregion
+
+    /**
+     * Get the bus shared by the application.
+     *
+     * @return  the default bus.
+     */
+    public static EventBus getDefault() {
+        return defaultBus;
+    }
+
+    /**
+     * Subscribes to the events of a topic. Subscribers of a conflated topic first receive its
+     * latest event, if any was published.
+     *
+     * @param topic     topic of the events.
+     * @param executor  executor running the deliveries, eg. {@link #DIRECT} or the main thread.
+     * @param consumer  receiver of the events.
+     * @param <T>       type of the events.
+     * @return          the subscription, to cancel when the events are no longer needed.
+     */
+    public <T> Subscription subscribe(Topic<T> topic, Executor executor, Consumer<? super T> consumer) {
+        Subscriber<T> subscriber = new Subscriber<>(this, topic, executor, consumer);
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(subscriber);
+        T latest = getLatest(topic);
+        if (latest != null) subscriber.deliverLatest(latest);
+        return subscriber;
+    }
+
+    /**
+     * Get the latest event published on a conflated topic.
+     *
+     * @param topic conflated topic of the event.
+     * @param <T>   type of the event.
+     * @return      the latest event, null if none was published or the topic is not conflated.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getLatest(Topic<T> topic) {
+        return (T) latestEvents.get(topic);
+    }
+
+    /**
+     * Publishes an event to the current subscribers of its topic.
+     *
+     * @param topic topic of the event.
+     * @param event the event, not null.
+     * @param <T>   type of the event.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void publish(Topic<T> topic, T event) {
+        if (event == null) throw new NullPointerException("Null event on " + topic);
+        if (topic.isConflated()) latestEvents.put(topic, event);
+        List<Subscriber<?>> topicSubscribers = subscribers.get(topic);
+        if (topicSubscribers == null) return;
+        for (Subscriber<?> subscriber : topicSubscribers) {
+            ((Subscriber<T>) subscriber).deliver(event);
+        }
+    }
+
+    /**
+     * Subscription to a topic, cancelled with {@link #unsubscribe()}.
+     */
+    public interface Subscription {
+        /**
+         * Stops the deliveries of the subscription, including the deliveries already scheduled on
+         * its executor. Can be called more than once.
+         */
+        void unsubscribe();
+    }
+
+    /**
+     * Subscriber of a topic and its pending conflated event.
+     *
+     * @param <T>   type of the events.
+     */
+    private static final class Subscriber<T> implements Subscription, Runnable {
+        private final EventBus bus;
+        private final Topic<T> topic;
+        private final Executor executor;
+        private final Consumer<? super T> consumer;
+        // Latest event not delivered yet, for conflated topics
+        private final AtomicReference<T> pending = new AtomicReference<>();
+        private volatile boolean active = true;
+
+        Subscriber(EventBus bus, Topic<T> topic, Executor executor, Consumer<? super T> consumer) {
+            this.bus = bus;
+            this.topic = topic;
+            this.executor = executor;
+            this.consumer = consumer;
+        }
+
+        /** Schedules the delivery of an event. */
+        void deliver(T event) {
+            if (!topic.isConflated()) {
+                executor.execute(() -> {
+                    if (active) consumer.accept(event);
+                });
+            } else if (pending.getAndSet(event) == null) {
+                // No delivery scheduled yet, otherwise the scheduled one takes the new event
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Schedules the delivery of the latest event to a new subscriber, unless an event published
+         * since the subscription is already pending.
+         */
+        void deliverLatest(T event) {
+            if (pending.compareAndSet(null, event)) executor.execute(this);
+        }
+
+        /** Delivers the pending conflated event. */
+        @Override
+        public void run() {
+            T event = pending.getAndSet(null);
+            if (event != null && active) consumer.accept(event);
+        }
+
+        @Override
+        public void unsubscribe() {
+            active = false;
+            List<Subscriber<?>> topicSubscribers = bus.subscribers.get(topic);
+            if (topicSubscribers != null) topicSubscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,731 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.openpositioning.PositionMe.Traj;
+import com.openpositioning.PositionMe.utils.BuildingRegistry;
+import com.openpositioning.PositionMe.utils.Clock;
+import com.openpositioning.PositionMe.utils.Config;
+import com.openpositioning.PositionMe.utils.EnuProjector;
+import com.openpositioning.PositionMe.utils.ExtendedKalmanFilter;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.MotionMode;
+import com.openpositioning.PositionMe.utils.PdrProcessing;
+import com.openpositioning.PositionMe.utils.SensorMath;
+import com.openpositioning.PositionMe.utils.StationaryDetector;
+import com.openpositioning.PositionMe.utils.WalkwayMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processing of sensor events, location fixes and WiFi scans into PDR, elevation and fused
+ * positions, independent of the Android SDK.
+ * <p>
+ * A pipeline holds the complete processing state of one session. SensorFusion feeds a pipeline
+ * with the events of the device sensors, and a {@link SensorReplay} feeds its own pipeline with the
+ * samples of a recording, so that replays never touch the live session. Time is read from the
+ * {@link Clock} given at construction.
+ * <p>
+ * While recording, the PDR, GNSS and WiFi samples are written to a new trajectory, the other
+ * streams are sampled by the owner of the pipeline. Changes that are not a direct result of a
+ * call, eg. a step or a new elevation, are reported to the {@link Listener}.
+ * <p>
+ * Once the known buildings are set with {@link #setBuildingRegistry(BuildingRegistry)}, the fused
+ * position is matched to the walkways of the current floor at every step, and the matched
+ * position corrects the fusion filter, so that the estimate follows the corridors.
+ */
+public class PositioningPipeline {
+
+    //region Static variables
+    // Sensor types, same values as the constants of android.hardware.Sensor
+    public static final int TYPE_ACCELEROMETER = 1;
+    public static final int TYPE_MAGNETIC_FIELD = 2;
+    public static final int TYPE_GYROSCOPE = 4;
+    public static final int TYPE_LIGHT = 5;
+    public static final int TYPE_PRESSURE = 6;
+    public static final int TYPE_PROXIMITY = 8;
+    public static final int TYPE_GRAVITY = 9;
+    public static final int TYPE_LINEAR_ACCELERATION = 10;
+    public static final int TYPE_ROTATION_VECTOR = 11;
+    public static final int TYPE_STEP_DETECTOR = 18;
+    //Tuning value for low pass filter
+    private static final float ALPHA = 0.8f;
+    // Number of acceleration magnitudes kept for the next step while stationary
+    private static final int STATIONARY_ACCEL_SAMPLES = 20;
+    // Events closer than this are assumed to be delivered in the same wakeup (milliseconds)
+    private static final long WAKEUP_GAP_MS = 2;
+    // Step detector events closer than this are assumed to be duplicates (milliseconds)
+    private static final long STEP_DEBOUNCE_MS = 20;
+    // Receives no changes
+    private static final Listener NO_LISTENER = new Listener() {};
+    //endregion
+
+    //region Instance variables
+    private final Clock clock;
+    private Listener listener = NO_LISTENER;
+    // Ignore step events following the previous one too closely
+    private boolean stepDebounce = true;
+
+    // Recording state
+    private boolean recording;
+    private Traj.Trajectory.Builder trajectory;
+    private long absoluteStartTime;
+    private long bootTime;
+    private long lastStepTime;
+    private int stepCounter;
+
+    // Sensor values
+    private final float[] acceleration = new float[3];
+    private final float[] filteredAcc = new float[3];
+    private final float[] gravity = new float[3];
+    private final float[] magneticField = new float[3];
+    private final float[] angularVelocity = new float[3];
+    private final float[] orientation = new float[3];
+    private final float[] rotationMatrix = new float[9];
+    private float[] rotation = {0, 0, 0, 1};
+    private float pressure;
+    private float light;
+    private float proximity;
+    // PDR coordinates at the last step in meters, never modified once set
+    private float[] pdrPosition = new float[2];
+    // Derived values
+    private float elevation;
+    // Location values, kept in double precision
+    private double latitude;
+    private double longitude;
+    // Latest WiFi scan
+    private List<Wifi> wifiList;
+    // Over time accelerometer magnitude values since last step
+    private final List<Double> accelMagnitude = new ArrayList<>();
+
+    // PDR calculation class
+    private final PdrProcessing pdrProcessing;
+    // Fusion of PDR, GNSS and WiFi positions
+    private final ExtendedKalmanFilter fusionFilter = new ExtendedKalmanFilter();
+    // Local east-north plane anchored at the start location, for the fusion filter
+    private EnuProjector startProjector = new EnuProjector(0, 0);
+    // PDR position and heading at the last step, used to derive the filter inputs
+    private float lastPdrX;
+    private float lastPdrY;
+    private float lastStepHeading;
+    // Matcher of the fused position to the walkways of the known buildings, null if unknown
+    private WalkwayMatcher walkwayMatcher;
+    private final double[] matchedPosition = new double[2];
+
+    // Stationary gating of sensor rates, WiFi scans and PDR accumulation
+    private final StationaryDetector stationaryDetector = new StationaryDetector();
+    private boolean lowPowerMode;
+    // Event processing statistics for measuring the power saving
+    private long statsStartTime;
+    private long lastEventTime;
+    private int processedEvents;
+    private int wakeups;
+    //endregion
+
+    /**
+     * Receiver of the changes of a {@link PositioningPipeline}, called on the processing thread.
+     */
+    public interface Listener {
+        /**
+         * Called when a step was detected.
+         *
+         * @param pdrPosition   new PDR coordinates in meters, never modified afterwards.
+         */
+        default void onStep(float[] pdrPosition) {}
+
+        /**
+         * Called when the elevation was updated from the barometer while recording.
+         *
+         * @param elevation elevation in meters relative to the start of the recording.
+         * @param floor     floor relative to the start of the recording.
+         */
+        default void onElevation(float elevation, int floor) {}
+
+        /**
+         * Called when the fused position or heading changed, see
+         * {@link PositioningPipeline#getFusedPosition()}.
+         */
+        default void onFusedPosition() {}
+
+        /**
+         * Called when the stationary power saving mode is entered or left, so that the sensor
+         * rates can be changed.
+         *
+         * @param enabled   true if the device became stationary.
+         */
+        default void onLowPowerMode(boolean enabled) {}
+    }
+
+    /**
+     * Public constructor of the pipeline.
+     *
+     * @param clock     source of time, the device clocks or the recorded time of a replay.
+     * @param config    user settings of the PDR.
+     */
+    public PositioningPipeline(Clock clock, Config config) {
+        this.clock = clock;
+        this.pdrProcessing = new PdrProcessing(config);
+        this.absoluteStartTime = clock.currentTimeMillis();
+        this.bootTime = clock.uptimeMillis();
+    }
+
+    /**
+     * Sets the receiver of the changes.
+     *
+     * @param listener  listener called on the processing thread, null for none.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener == null ? NO_LISTENER : listener;
+    }
+
+    /**
+     * Enables or disables ignoring step events closer than {@link #STEP_DEBOUNCE_MS} to the
+     * previous one. Device step detectors occasionally report a step twice, but every step of a
+     * recording must be replayed, including several steps stored with the same timestamp.
+     *
+     * @param enabled   true to ignore rapid successive step events, the default.
+     */
+    public void setStepDebounce(boolean enabled) {
+        this.stepDebounce = enabled;
+    }
+
+    //region Sensor processing
+
+    /**
+     * Processes the values of a sensor event.
+     *
+     * @param sensorType    sensor type, one of the TYPE constants.
+     * @param timestampNs   event timestamp in nanoseconds.
+     * @param values        event values, not modified.
+     */
+    public void processSensorValues(int sensorType, long timestampNs, float[] values) {
+        long currentTime = clock.currentTimeMillis();
+        countProcessedEvent();
+
+        switch (sensorType) {
+            case TYPE_ACCELEROMETER:
+                acceleration[0] = values[0];
+                acceleration[1] = values[1];
+                acceleration[2] = values[2];
+                break;
+
+            case TYPE_PRESSURE:
+                pressure = (1 - ALPHA) * pressure + ALPHA * values[0];
+                if (recording) {
+                    this.elevation = pdrProcessing.updateElevation(timestampNs / 1000000,
+                            SensorMath.getAltitude(SensorMath.PRESSURE_STANDARD_ATMOSPHERE, pressure));
+                    listener.onElevation(elevation, pdrProcessing.getCurrentFloor());
+                }
+                break;
+
+            case TYPE_GYROSCOPE:
+                angularVelocity[0] = values[0];
+                angularVelocity[1] = values[1];
+                angularVelocity[2] = values[2];
+                break;
+
+            case TYPE_LINEAR_ACCELERATION:
+                filteredAcc[0] = values[0];
+                filteredAcc[1] = values[1];
+                filteredAcc[2] = values[2];
+
+                // Window features for the motion mode, classified once per hop
+                long sampleTime = timestampNs / 1000000;
+                MotionMode mode = pdrProcessing.updateMotionMode(sampleTime, gravity, filteredAcc);
+                if (stationaryDetector.update(sampleTime, mode,
+                        pdrProcessing.getMotionModeClassifier().getAccelerationVariance(), filteredAcc)) {
+                    setLowPowerMode(stationaryDetector.isStationary());
+                }
+
+                double accelMagFiltered = Math.sqrt(filteredAcc[0] * filteredAcc[0]
+                        + filteredAcc[1] * filteredAcc[1] + filteredAcc[2] * filteredAcc[2]);
+                // While stationary only the most recent values are kept for the next step
+                if (lowPowerMode && accelMagnitude.size() >= STATIONARY_ACCEL_SAMPLES) {
+                    accelMagnitude.remove(0);
+                }
+                accelMagnitude.add(accelMagFiltered);
+                break;
+
+            case TYPE_GRAVITY:
+                gravity[0] = values[0];
+                gravity[1] = values[1];
+                gravity[2] = values[2];
+                break;
+
+            case TYPE_LIGHT:
+                light = values[0];
+                break;
+
+            case TYPE_PROXIMITY:
+                proximity = values[0];
+                break;
+
+            case TYPE_MAGNETIC_FIELD:
+                magneticField[0] = values[0];
+                magneticField[1] = values[1];
+                magneticField[2] = values[2];
+                break;
+
+            case TYPE_ROTATION_VECTOR:
+                this.rotation = values.clone();
+                SensorMath.getRotationMatrixFromVector(rotationMatrix, rotation);
+                SensorMath.getOrientation(rotationMatrix, orientation);
+                break;
+
+            case TYPE_STEP_DETECTOR:
+                if (stepDebounce && currentTime - lastStepTime < STEP_DEBOUNCE_MS) {
+                    // Ignore rapid successive step events
+                    break;
+                }
+                lastStepTime = currentTime;
+                processStep();
+                break;
+        }
+    }
+
+    /**
+     * Updates the PDR position with a detected step, and the fused position while recording.
+     */
+    private void processStep() {
+        // Restore full rates as soon as the user starts walking
+        if (stationaryDetector.onStep()) {
+            setLowPowerMode(false);
+        }
+        long stepTime = clock.uptimeMillis() - bootTime;
+        float[] newCords = pdrProcessing.updatePdr(stepTime, accelMagnitude, orientation[0]);
+        accelMagnitude.clear();
+        this.pdrPosition = newCords;
+        listener.onStep(newCords);
+
+        if (recording) {
+            updateFusionStep(newCords);
+            stepCounter++;
+            trajectory.addPdrData(Traj.Pdr_Sample.newBuilder()
+                    .setRelativeTimestamp(stepTime)
+                    .setX(newCords[0])
+                    .setY(newCords[1]));
+        }
+    }
+
+    /**
+     * Propagates the fusion filter by one step using the PDR displacement since the last step,
+     * and corrects its heading with the current orientation.
+     *
+     * @param pdrPosition   current PDR coordinates in meters.
+     */
+    private void updateFusionStep(float[] pdrPosition) {
+        // Steps detected while in an elevator come from handling the phone, not from walking
+        float stepLength = getMotionMode() == MotionMode.ELEVATOR ? 0
+                : (float) Math.hypot(pdrPosition[0] - lastPdrX, pdrPosition[1] - lastPdrY);
+        lastPdrX = pdrPosition[0];
+        lastPdrY = pdrPosition[1];
+        // Same convention as the PDR, zero rad is east
+        float heading = (float) (Math.PI / 2 - orientation[0]);
+        float headingChange = (float) ExtendedKalmanFilter.wrapAngle(heading - lastStepHeading);
+        lastStepHeading = heading;
+
+        fusionFilter.predict(stepLength, headingChange);
+        fusionFilter.updateHeading(heading);
+        matchToWalkways();
+        listener.onFusedPosition();
+    }
+
+    /**
+     * Corrects the fusion filter with the fused position matched to the walkways of the current
+     * floor, if the position is in a known building with walkways on that floor.
+     */
+    private void matchToWalkways() {
+        if (walkwayMatcher == null) return;
+        double lat = startProjector.toLatitude(fusionFilter.getY());
+        double lng = startProjector.toLongitude(fusionFilter.getX());
+        if (walkwayMatcher.match(lat, lng, pdrProcessing.getCurrentFloor(), matchedPosition)) {
+            fusionFilter.updateMapMatch(startProjector.toEast(matchedPosition[1]),
+                    startProjector.toNorth(matchedPosition[0]));
+        }
+    }
+
+    /**
+     * Processes a location fix.
+     *
+     * @param lat       latitude in degrees.
+     * @param lng       longitude in degrees.
+     * @param altitude  altitude in meters.
+     * @param accuracy  horizontal accuracy in meters.
+     * @param speed     speed in meters per second.
+     * @param provider  name of the location provider, may be null.
+     */
+    public void processLocation(double lat, double lng, float altitude, float accuracy,
+                                float speed, String provider) {
+        countProcessedEvent();
+        this.latitude = lat;
+        this.longitude = lng;
+        if (recording) {
+            // Correct the fused position with the fix, weighted by its accuracy
+            fusionFilter.updateGnss(startProjector.toEast(lng), startProjector.toNorth(lat), accuracy);
+            listener.onFusedPosition();
+            trajectory.addGnssData(Traj.GNSS_Sample.newBuilder()
+                    .setAccuracy(accuracy)
+                    .setAltitude(altitude)
+                    .setLatitude((float) lat)
+                    .setLongitude((float) lng)
+                    .setSpeed(speed)
+                    .setProvider(provider == null ? "" : provider)
+                    .setRelativeTimestamp(clock.currentTimeMillis() - absoluteStartTime));
+        }
+    }
+
+    /**
+     * Processes a completed WiFi scan.
+     *
+     * @param scan  access points of the scan, not modified.
+     */
+    public void processWifiScan(List<Wifi> scan) {
+        countProcessedEvent();
+        this.wifiList = scan;
+        if (recording) {
+            long time = clock.uptimeMillis() - bootTime;
+            Traj.WiFi_Sample.Builder wifiData = Traj.WiFi_Sample.newBuilder()
+                    .setRelativeTimestamp(time);
+            for (Wifi data : scan) {
+                wifiData.addMacScans(Traj.Mac_Scan.newBuilder()
+                        .setRelativeTimestamp(time)
+                        .setMac(data.getBssid()).setRssi(data.getLevel()));
+            }
+            trajectory.addWifiData(wifiData);
+        }
+    }
+
+    /**
+     * Corrects the fused position with a position estimated from a WiFi scan, eg. by the WiFi
+     * positioning server. Ignored when not recording.
+     *
+     * @param lat   latitude in degrees.
+     * @param lng   longitude in degrees.
+     */
+    public void processWifiPosition(double lat, double lng) {
+        if (!recording) return;
+        fusionFilter.updateWifi(startProjector.toEast(lng), startProjector.toNorth(lat));
+        listener.onFusedPosition();
+    }
+
+    //endregion
+
+    //region Power saving
+
+    /**
+     * Counts a processed callback for the event statistics. Callbacks delivered within
+     * {@link #WAKEUP_GAP_MS} of the previous one are counted as part of the same wakeup, eg. a
+     * batch of sensor events.
+     */
+    private void countProcessedEvent() {
+        long now = clock.elapsedRealtime();
+        if (statsStartTime == 0) {
+            statsStartTime = now;
+        }
+        if (now - lastEventTime > WAKEUP_GAP_MS) {
+            wakeups++;
+        }
+        lastEventTime = now;
+        processedEvents++;
+    }
+
+    /**
+     * Resets the event processing statistics, eg. at the start of a stationary measurement.
+     */
+    public void resetEventStatistics() {
+        this.statsStartTime = 0;
+        this.lastEventTime = 0;
+        this.processedEvents = 0;
+        this.wakeups = 0;
+    }
+
+    /**
+     * Get the average number of callbacks processed per minute since the statistics were reset.
+     * Includes sensor, location and WiFi callbacks.
+     *
+     * @return  processed events per minute.
+     */
+    public float getEventsPerMinute() {
+        long elapsed = clock.elapsedRealtime() - statsStartTime;
+        return statsStartTime == 0 || elapsed <= 0 ? 0 : processedEvents * 60000f / elapsed;
+    }
+
+    /**
+     * Get the average number of wakeups per minute since the statistics were reset.
+     *
+     * @return  wakeups per minute.
+     */
+    public float getWakeupsPerMinute() {
+        long elapsed = clock.elapsedRealtime() - statsStartTime;
+        return statsStartTime == 0 || elapsed <= 0 ? 0 : wakeups * 60000f / elapsed;
+    }
+
+    /**
+     * Switches between the full rate and the stationary power saving mode, and reports the change
+     * to the listener.
+     *
+     * @param enabled   true to enter the power saving mode, false to restore full rates.
+     */
+    private void setLowPowerMode(boolean enabled) {
+        if (enabled == lowPowerMode) return;
+        this.lowPowerMode = enabled;
+        listener.onLowPowerMode(enabled);
+    }
+
+    /**
+     * Forgets the stationary state without reporting it, eg. when the sensors are registered
+     * again at full rate.
+     */
+    public void resetStationaryState() {
+        this.stationaryDetector.reset();
+        this.lowPowerMode = false;
+    }
+
+    /**
+     * Checks if the stationary power saving mode is active.
+     *
+     * @return  true if sensor rates should currently be lowered, false otherwise.
+     */
+    public boolean isLowPowerMode() {
+        return lowPowerMode;
+    }
+
+    //endregion
+
+    //region Start/Stop
+
+    /**
+     * Resets the recording state and starts writing the PDR, GNSS and WiFi samples to a new
+     * trajectory. The fused position starts at the start location with the current heading.
+     *
+     * @return  the new trajectory, for adding the samples of the other streams.
+     */
+    public Traj.Trajectory.Builder startRecording() {
+        this.recording = true;
+        this.stepCounter = 0;
+        this.lastStepTime = 0;
+        this.absoluteStartTime = clock.currentTimeMillis();
+        this.bootTime = clock.uptimeMillis();
+        this.trajectory = Traj.Trajectory.newBuilder().setStartTimestamp(absoluteStartTime);
+
+        pdrProcessing.resetPDR();
+        this.pdrPosition = new float[2];
+        // Elevation and floor are relative to the start of the recording
+        this.elevation = 0;
+        this.lastPdrX = 0;
+        this.lastPdrY = 0;
+        this.lastStepHeading = (float) (Math.PI / 2 - orientation[0]);
+        fusionFilter.reset(0, 0, lastStepHeading);
+        if (walkwayMatcher != null) walkwayMatcher.reset();
+        return trajectory;
+    }
+
+    /**
+     * Stops writing samples to the trajectory.
+     *
+     * @return  the recorded trajectory, null if no recording was started.
+     */
+    public Traj.Trajectory stopRecording() {
+        this.recording = false;
+        return trajectory == null ? null : trajectory.build();
+    }
+
+    /**
+     * Checks if samples are written to the trajectory.
+     *
+     * @return  true between {@link #startRecording()} and {@link #stopRecording()}.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Sets the start location of the recording, the origin of the fused position.
+     *
+     * @param lat   latitude in degrees.
+     * @param lng   longitude in degrees.
+     */
+    public void setStartLocation(double lat, double lng) {
+        this.startProjector = new EnuProjector(lat, lng);
+        listener.onFusedPosition();
+    }
+
+    //endregion
+
+    //region Getters/Setters
+
+    /**
+     * Get the trajectory being recorded.
+     *
+     * @return  the trajectory, null before the first recording.
+     */
+    public Traj.Trajectory.Builder getTrajectory() {
+        return trajectory;
+    }
+
+    /**
+     * Get the time since the start of the recording, as used for the relative timestamps of the
+     * trajectory samples.
+     *
+     * @return  relative time in milliseconds.
+     */
+    public long getRelativeTime() {
+        return clock.uptimeMillis() - bootTime;
+    }
+
+    /**
+     * Get the position estimated by fusing PDR, GNSS and WiFi positions.
+     *
+     * @return  the fused position, null if no recording has been started.
+     */
+    public GeoPoint getFusedPosition() {
+        if (!fusionFilter.isInitialised()) return null;
+        return new GeoPoint(startProjector.toLatitude(fusionFilter.getY()),
+                startProjector.toLongitude(fusionFilter.getX()));
+    }
+
+    /**
+     * Get the heading estimated by the fusion filter.
+     *
+     * @return  heading in radians relative to north, clockwise, the azimuth before any recording.
+     */
+    public float getFusedHeading() {
+        if (!fusionFilter.isInitialised()) return orientation[0];
+        return (float) ExtendedKalmanFilter.wrapAngle(Math.PI / 2 - fusionFilter.getHeading());
+    }
+
+    /**
+     * Get the PDR coordinates at the last step.
+     *
+     * @return  x and y in meters, never modified afterwards.
+     */
+    public float[] getPdrPosition() {
+        return pdrPosition;
+    }
+
+    /**
+     * Get the number of steps recorded since the start of the recording.
+     *
+     * @return  step count.
+     */
+    public int getStepCount() {
+        return stepCounter;
+    }
+
+    /**
+     * Get the elevation relative to the start of the recording.
+     *
+     * @return  elevation in meters.
+     */
+    public float getElevation() {
+        return elevation;
+    }
+
+    /**
+     * Get the floor estimated from the barometer, relative to the start of the recording.
+     *
+     * @return  current floor number.
+     */
+    public int getCurrentFloor() {
+        return pdrProcessing.getCurrentFloor();
+    }
+
+    /**
+     * Sets the known buildings, whose walkways the fused position is matched to at every step.
+     *
+     * @param registry  the known buildings, null to stop matching.
+     */
+    public void setBuildingRegistry(BuildingRegistry registry) {
+        this.walkwayMatcher = registry == null ? null : new WalkwayMatcher(registry);
+    }
+
+    /**
+     * Set the floor height of the building the user is currently in.
+     *
+     * @param floorHeight   height of a floor in meters.
+     */
+    public void setFloorHeight(float floorHeight) {
+        pdrProcessing.setFloorHeight(floorHeight);
+    }
+
+    /**
+     * Get the average step length of the PDR.
+     *
+     * @return  average step length in meters.
+     */
+    public float getAverageStepLength() {
+        return pdrProcessing.getAverageStepLength();
+    }
+
+    /**
+     * Get the motion mode estimated from windowed IMU, barometer and step data.
+     *
+     * @return  the current {@link MotionMode}.
+     */
+    public MotionMode getMotionMode() {
+        return pdrProcessing.getMotionMode();
+    }
+
+    /**
+     * The sensor value arrays below are updated in place by the processing, they must only be
+     * read and are not copied for speed.
+     */
+    public float[] getAcceleration() {
+        return acceleration;
+    }
+
+    public float[] getGravity() {
+        return gravity;
+    }
+
+    public float[] getMagneticField() {
+        return magneticField;
+    }
+
+    public float[] getAngularVelocity() {
+        return angularVelocity;
+    }
+
+    public float[] getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Get the latest rotation vector.
+     *
+     * @return  x, y, z and w components of the rotation quaternion.
+     */
+    public float[] getRotation() {
+        return rotation;
+    }
+
+    public float getPressure() {
+        return pressure;
+    }
+
+    public float getLight() {
+        return light;
+    }
+
+    public float getProximity() {
+        return proximity;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Get the latest WiFi scan.
+     *
+     * @return  access points of the scan, null before the first scan.
+     */
+    public List<Wifi> getWifiList() {
+        return wifiList;
+    }
+
+    //endregion
+}
@@ -0,0 +1,269 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.google.protobuf.util.JsonFormat;
+import com.openpositioning.PositionMe.Traj;
+import com.openpositioning.PositionMe.utils.Config;
+import com.openpositioning.PositionMe.utils.ManualClock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds the sensor data of a recorded trajectory through the {@link PositioningPipeline} used for
+ * live data.
+ * <p>
+ * The IMU, magnetometer, pressure, light, GNSS and WiFi samples of the recording are merged in
+ * timestamp order and passed to the same entry points as the device sensors:
+ * {@link PositioningPipeline#processSensorValues}, {@link PositioningPipeline#processLocation} and
+ * {@link PositioningPipeline#processWifiScan}. Every replay runs on a new pipeline with a
+ * {@link ManualClock} set to the timestamp of every sample before it is processed, so a replay is
+ * deterministic, runs as fast as the processing allows and never affects the live session.
+ * <p>
+ * Recordings store raw acceleration only: the gravity and linear acceleration sensors are derived
+ * with the low pass filter of the Android documentation, and a step detector event is generated
+ * for every increment of the recorded step count. The step debounce of the pipeline is disabled,
+ * so that steps recorded with equal timestamps are all replayed.
+ */
+public class SensorReplay {
+
+    //region Static variables
+    // Low pass coefficient for separating gravity from the acceleration
+    private static final float GRAVITY_ALPHA = 0.8f;
+    // Streams of the recording, in the order used for samples with equal timestamps
+    private static final int STREAM_IMU = 0;
+    private static final int STREAM_MAGNETOMETER = 1;
+    private static final int STREAM_PRESSURE = 2;
+    private static final int STREAM_LIGHT = 3;
+    private static final int STREAM_GNSS = 4;
+    private static final int STREAM_WIFI = 5;
+    private static final int STREAM_COUNT = 6;
+    //endregion
+
+    //region Instance variables
+    private final Traj.Trajectory trajectory;
+    // Derived gravity, reused between samples
+    private final float[] gravity = new float[3];
+    private boolean gravityInitialised;
+    //endregion
+
+    /**
+     * Public constructor of the replay.
+     *
+     * @param trajectory    recorded trajectory to replay.
+     */
+    public SensorReplay(Traj.Trajectory trajectory) {
+        this.trajectory = trajectory;
+    }
+
+    /**
+     * Reads a recorded trajectory, either in the binary protobuf format sent to the server or in
+     * the JSON format of downloaded trajectories.
+     *
+     * @param file  trajectory file.
+     * @return      replay of the trajectory.
+     * @throws IOException if the file cannot be read or parsed.
+     */
+    public static SensorReplay fromFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a recorded trajectory from a stream, either in the binary protobuf format or in the
+     * JSON format. The stream is not closed.
+     *
+     * @param stream    stream positioned at the start of the trajectory.
+     * @return          replay of the trajectory.
+     * @throws IOException if the stream cannot be read or parsed.
+     */
+    public static SensorReplay read(InputStream stream) throws IOException {
+        InputStream in = new BufferedInputStream(stream);
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+        if (first == '{') {
+            Traj.Trajectory.Builder builder = Traj.Trajectory.newBuilder();
+            JsonFormat.parser().merge(
+                    new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), builder);
+            return new SensorReplay(builder.build());
+        }
+        return new SensorReplay(Traj.Trajectory.parseFrom(in));
+    }
+
+    /**
+     * Replays the whole recording through a new pipeline, as fast as possible.
+     *
+     * @param config    user settings of the PDR.
+     * @return          trajectory recorded by the pipeline from the replayed data, with the PDR,
+     *                  GNSS and WiFi samples it produced, eg. to compare the PDR output with the
+     *                  original recording.
+     */
+    public Traj.Trajectory replay(Config config) {
+        return replay(config, null);
+    }
+
+    /**
+     * Replays the whole recording through a new pipeline, as fast as possible, reporting the
+     * changes of the pipeline while it runs.
+     *
+     * @param config    user settings of the PDR.
+     * @param listener  receiver of the changes of the pipeline, may be null.
+     * @return          trajectory recorded by the pipeline from the replayed data.
+     */
+    public Traj.Trajectory replay(Config config, PositioningPipeline.Listener listener) {
+        ManualClock clock = new ManualClock(trajectory.getStartTimestamp());
+        PositioningPipeline pipeline = new PositioningPipeline(clock, config);
+        pipeline.setStepDebounce(false);
+        pipeline.setListener(listener);
+        pipeline.startRecording();
+        if (trajectory.getGnssDataCount() > 0) {
+            Traj.GNSS_Sample first = trajectory.getGnssData(0);
+            pipeline.setStartLocation(first.getLatitude(), first.getLongitude());
+        }
+        gravityInitialised = false;
+        int lastStepCount = trajectory.getImuDataCount() > 0
+                ? trajectory.getImuData(0).getStepCount() : 0;
+
+        // Merge the streams by timestamp, each stream is assumed sorted
+        int[] next = new int[STREAM_COUNT];
+        while (true) {
+            int stream = -1;
+            long time = Long.MAX_VALUE;
+            for (int s = 0; s < STREAM_COUNT; s++) {
+                if (next[s] < streamSize(s)) {
+                    long t = timestampOf(s, next[s]);
+                    if (t < time) {
+                        time = t;
+                        stream = s;
+                    }
+                }
+            }
+            if (stream < 0) break;
+            int index = next[stream]++;
+
+            clock.setTime(time);
+            long timestampNs = time * 1000000;
+            switch (stream) {
+                case STREAM_IMU:
+                    lastStepCount = replayImu(pipeline, trajectory.getImuData(index),
+                            timestampNs, lastStepCount);
+                    break;
+                case STREAM_MAGNETOMETER:
+                    Traj.Position_Sample mag = trajectory.getPositionData(index);
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_MAGNETIC_FIELD, timestampNs,
+                            new float[] {mag.getMagX(), mag.getMagY(), mag.getMagZ()});
+                    break;
+                case STREAM_PRESSURE:
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_PRESSURE, timestampNs,
+                            new float[] {trajectory.getPressureData(index).getPressure()});
+                    break;
+                case STREAM_LIGHT:
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_LIGHT, timestampNs,
+                            new float[] {trajectory.getLightData(index).getLight()});
+                    break;
+                case STREAM_GNSS:
+                    Traj.GNSS_Sample gnss = trajectory.getGnssData(index);
+                    pipeline.processLocation(gnss.getLatitude(), gnss.getLongitude(),
+                            gnss.getAltitude(), gnss.getAccuracy(), gnss.getSpeed(),
+                            gnss.getProvider());
+                    break;
+                case STREAM_WIFI:
+                    pipeline.processWifiScan(toWifiList(trajectory.getWifiData(index)));
+                    break;
+            }
+        }
+        return pipeline.stopRecording();
+    }
+
+    /**
+     * Replays an IMU sample as the events of the accelerometer, gravity, linear acceleration,
+     * gyroscope, rotation vector and step detector sensors.
+     *
+     * @param pipeline      pipeline to feed.
+     * @param sample        recorded IMU sample.
+     * @param timestampNs   timestamp of the events in nanoseconds.
+     * @param lastStepCount step count of the previous sample.
+     * @return              step count of this sample.
+     */
+    private int replayImu(PositioningPipeline pipeline, Traj.Motion_Sample sample, long timestampNs,
+                          int lastStepCount) {
+        float[] acc = {sample.getAccX(), sample.getAccY(), sample.getAccZ()};
+        if (!gravityInitialised) {
+            System.arraycopy(acc, 0, gravity, 0, 3);
+            gravityInitialised = true;
+        }
+        float[] linear = new float[3];
+        for (int i = 0; i < 3; i++) {
+            gravity[i] = GRAVITY_ALPHA * gravity[i] + (1 - GRAVITY_ALPHA) * acc[i];
+            linear[i] = acc[i] - gravity[i];
+        }
+
+        pipeline.processSensorValues(PositioningPipeline.TYPE_ACCELEROMETER, timestampNs, acc);
+        pipeline.processSensorValues(PositioningPipeline.TYPE_GRAVITY, timestampNs, gravity.clone());
+        pipeline.processSensorValues(PositioningPipeline.TYPE_LINEAR_ACCELERATION, timestampNs, linear);
+        pipeline.processSensorValues(PositioningPipeline.TYPE_GYROSCOPE, timestampNs,
+                new float[] {sample.getGyrX(), sample.getGyrY(), sample.getGyrZ()});
+        pipeline.processSensorValues(PositioningPipeline.TYPE_ROTATION_VECTOR, timestampNs,
+                new float[] {sample.getRotationVectorX(), sample.getRotationVectorY(),
+                        sample.getRotationVectorZ(), sample.getRotationVectorW()});
+
+        for (int step = lastStepCount; step < sample.getStepCount(); step++) {
+            pipeline.processSensorValues(PositioningPipeline.TYPE_STEP_DETECTOR, timestampNs,
+                    new float[] {1f});
+        }
+        return Math.max(lastStepCount, sample.getStepCount());
+    }
+
+    /**
+     * Converts a recorded WiFi scan to the objects published by the WiFi scanner.
+     *
+     * @param sample    recorded WiFi scan.
+     * @return          list of {@link Wifi} objects with BSSID and level set.
+     */
+    private static List<Wifi> toWifiList(Traj.WiFi_Sample sample) {
+        List<Wifi> wifiList = new ArrayList<>(sample.getMacScansCount());
+        for (int i = 0; i < sample.getMacScansCount(); i++) {
+            Traj.Mac_Scan scan = sample.getMacScans(i);
+            Wifi wifi = new Wifi();
+            wifi.setBssid(scan.getMac());
+            wifi.setLevel(scan.getRssi());
+            wifiList.add(wifi);
+        }
+        return wifiList;
+    }
+
+    /** Get the number of samples of a stream. */
+    private int streamSize(int stream) {
+        switch (stream) {
+            case STREAM_IMU: return trajectory.getImuDataCount();
+            case STREAM_MAGNETOMETER: return trajectory.getPositionDataCount();
+            case STREAM_PRESSURE: return trajectory.getPressureDataCount();
+            case STREAM_LIGHT: return trajectory.getLightDataCount();
+            case STREAM_GNSS: return trajectory.getGnssDataCount();
+            case STREAM_WIFI: return trajectory.getWifiDataCount();
+            default: return 0;
+        }
+    }
+
+    /** Get the relative timestamp of a sample of a stream in milliseconds. */
+    private long timestampOf(int stream, int index) {
+        switch (stream) {
+            case STREAM_IMU: return trajectory.getImuData(index).getRelativeTimestamp();
+            case STREAM_MAGNETOMETER: return trajectory.getPositionData(index).getRelativeTimestamp();
+            case STREAM_PRESSURE: return trajectory.getPressureData(index).getRelativeTimestamp();
+            case STREAM_LIGHT: return trajectory.getLightData(index).getRelativeTimestamp();
+            case STREAM_GNSS: return trajectory.getGnssData(index).getRelativeTimestamp();
+            case STREAM_WIFI: return trajectory.getWifiData(index).getRelativeTimestamp();
+            default: return Long.MAX_VALUE;
+        }
+    }
+}
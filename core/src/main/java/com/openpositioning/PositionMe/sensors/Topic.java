@@ -0,0 +1,68 @@
+package com.openpositioning.PositionMe.sensors;
+
+/**
+ * Typed key of the events published on an {@link EventBus}.
+ * <p>
+ * Topics are compared by identity, they are declared once as constants by the class publishing
+ * their events. Events of a conflated topic describe a state, eg. the latest WiFi scan, so a
+ * subscriber that has not received an event yet only needs the latest one; events of other topics
+ * are all delivered in order.
+ *
+ * @param <T>   type of the events of the topic.
+ */
+public final class Topic<T> {
+
+    //region Instance variables
+    private final String name;
+    // Only the latest pending event is delivered
+    private final boolean conflated;
+    //endregion
+
+    /**
+     * Private constructor, see {@link #conflated(String)} and {@link #queued(String)}.
+     */
+    private Topic(String name, boolean conflated) {
+        this.name = name;
+        this.conflated = conflated;
+    }
+
+    /**
+     * Creates a topic whose subscribers only receive the latest event published since their last
+     * delivery, for state updates that can be published faster than they are consumed.
+     *
+     * @param name  name of the topic, for debugging.
+     * @param <T>   type of the events of the topic.
+     * @return      the topic.
+     */
+    public static <T> Topic<T> conflated(String name) {
+        return new Topic<>(name, true);
+    }
+
+    /**
+     * Creates a topic whose subscribers receive every event in order.
+     *
+     * @param name  name of the topic, for debugging.
+     * @param <T>   type of the events of the topic.
+     * @return      the topic.
+     */
+    public static <T> Topic<T> queued(String name) {
+        return new Topic<>(name, false);
+    }
+
+    //region Getters
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isConflated() {
+        return conflated;
+    }
+
+    //endregion
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
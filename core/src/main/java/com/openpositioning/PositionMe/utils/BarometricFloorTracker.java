@@ -0,0 +1,183 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Incremental barometric height filter and floor state machine.
+ * <p>
+ * Barometric altitudes are smoothed with a constant-velocity Kalman filter, whose state is the
+ * height and the vertical rate. Each measurement costs a fixed number of operations regardless of
+ * the smoothing horizon, and the vertical rate is available to other consumers (eg. motion mode
+ * estimation).
+ * <p>
+ * The floor is derived from the filtered height relative to the reference (start) height with
+ * hysteresis: the floor only changes once the height is well within the band of a different floor,
+ * so noise around the boundary between two floors cannot cause repeated floor changes.
+ *
+ * @see PdrProcessing the owner of the tracker.
+ */
+public class BarometricFloorTracker {
+
+    //region Static variables
+    // Standard deviation of a barometric altitude measurement (m)
+    private static final double MEASUREMENT_STD = 0.3;
+    // Fraction of the floor height added on each side of the boundary between two floors
+    private static final float HYSTERESIS = 0.2f;
+    // Expected time between two measurements if no timestamp difference is available (s)
+    private static final double DEFAULT_PERIOD = 1.0;
+    // Maximum time between measurements before the filter is re-initialised (s)
+    private static final double MAX_PERIOD = 10.0;
+    //endregion
+
+    //region Instance variables
+    // Filter state, absolute height (m) and vertical rate (m/s)
+    private double height;
+    private double rate;
+    // Symmetric 2x2 covariance matrix
+    private double p00, p01, p11;
+    // Spectral density of the vertical acceleration driving the process noise
+    private final double accelerationVariance;
+    // Timestamp of the last measurement in milliseconds
+    private long lastTimestamp;
+    private boolean initialised;
+
+    // Floor state machine
+    private float referenceHeight;
+    private float floorHeight;
+    private int currentFloor;
+    //endregion
+
+    /**
+     * Public constructor of the floor tracker.
+     * The smoothing horizon sets the process noise, so that a constant vertical acceleration
+     * moving the height by one measurement standard deviation over the horizon is tracked.
+     *
+     * @param smoothingSeconds  smoothing horizon of the height filter in seconds.
+     * @param floorHeight       initial height of a floor in meters.
+     */
+    public BarometricFloorTracker(float smoothingSeconds, float floorHeight) {
+        double horizon = Math.max(smoothingSeconds, 1);
+        double accelerationStd = 2 * MEASUREMENT_STD / (horizon * horizon);
+        this.accelerationVariance = accelerationStd * accelerationStd;
+        this.floorHeight = floorHeight;
+        this.initialised = false;
+        this.currentFloor = 0;
+    }
+
+    /**
+     * Resets the tracker, setting the reference height for floor zero.
+     *
+     * @param referenceHeight   absolute height of floor zero in meters.
+     */
+    public void reset(float referenceHeight) {
+        this.referenceHeight = referenceHeight;
+        this.height = referenceHeight;
+        this.rate = 0;
+        this.p00 = MEASUREMENT_STD * MEASUREMENT_STD;
+        this.p01 = 0;
+        this.p11 = 0.5;
+        this.initialised = false;
+        this.currentFloor = 0;
+    }
+
+    /**
+     * Incorporates a new barometric altitude and updates the floor state.
+     *
+     * @param timestamp absolute time of the measurement in milliseconds.
+     * @param altitude  barometric altitude in meters.
+     * @return          true if the floor changed with this measurement, false otherwise.
+     */
+    public boolean update(long timestamp, float altitude) {
+        double dt = initialised ? (timestamp - lastTimestamp) / 1000.0 : DEFAULT_PERIOD;
+        lastTimestamp = timestamp;
+        if (!initialised || dt > MAX_PERIOD) {
+            // First measurement or long gap, start from the measured height
+            height = altitude;
+            rate = 0;
+            initialised = true;
+            return updateFloor();
+        }
+        if (dt <= 0) dt = DEFAULT_PERIOD;
+
+        // Predict: P = F * P * F^T + Q for the constant velocity model
+        height += rate * dt;
+        double q = accelerationVariance;
+        double n00 = p00 + 2 * dt * p01 + dt * dt * p11 + q * dt * dt * dt / 3;
+        double n01 = p01 + dt * p11 + q * dt * dt / 2;
+        double n11 = p11 + q * dt;
+
+        // Update with the altitude measurement
+        double innovation = altitude - height;
+        double innovationVar = n00 + MEASUREMENT_STD * MEASUREMENT_STD;
+        double k0 = n00 / innovationVar;
+        double k1 = n01 / innovationVar;
+        height += k0 * innovation;
+        rate += k1 * innovation;
+        p00 = n00 - k0 * n00;
+        p01 = n01 - k0 * n01;
+        p11 = n11 - k1 * n01;
+
+        return updateFloor();
+    }
+
+    /**
+     * Floor state machine, moves to the nearest floor only if the height is within the band of
+     * that floor shrunk by the hysteresis margin.
+     *
+     * @return  true if the floor changed, false otherwise.
+     */
+    private boolean updateFloor() {
+        if (floorHeight <= 0) return false;
+        float relative = getRelativeHeight();
+        int nearestFloor = Math.round(relative / floorHeight);
+        if (nearestFloor != currentFloor
+                && Math.abs(relative - nearestFloor * floorHeight) <= (0.5f - HYSTERESIS) * floorHeight) {
+            currentFloor = nearestFloor;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the floor height, eg. when entering a building with a known floor height.
+     *
+     * @param floorHeight   height of a floor in meters.
+     */
+    public void setFloorHeight(float floorHeight) {
+        this.floorHeight = floorHeight;
+    }
+
+    /**
+     * Get the floor height currently used by the state machine.
+     *
+     * @return  height of a floor in meters.
+     */
+    public float getFloorHeight() {
+        return floorHeight;
+    }
+
+    /**
+     * Get the filtered height relative to the reference height.
+     *
+     * @return  relative height in meters.
+     */
+    public float getRelativeHeight() {
+        return (float) (height - referenceHeight);
+    }
+
+    /**
+     * Get the filtered vertical rate.
+     *
+     * @return  vertical rate in meters per second, positive upwards.
+     */
+    public float getVerticalRate() {
+        return (float) rate;
+    }
+
+    /**
+     * Get the current floor.
+     *
+     * @return  floor number relative to the reference floor.
+     */
+    public int getCurrentFloor() {
+        return currentFloor;
+    }
+}
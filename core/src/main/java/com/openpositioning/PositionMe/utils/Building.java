@@ -0,0 +1,183 @@
+package com.openpositioning.PositionMe.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of a building: its outline and, if available, its indoor floor maps.
+ * <p>
+ * Floor maps are referenced by the name of the image resource of every floor, from the lowest
+ * floor up, and are stretched over a rectangle given by its south-west and north-east corners.
+ * The ground floor index gives the position of the ground floor in that list, so that floor
+ * estimates relative to the ground floor can be mapped to a floor map. Floors may also have a
+ * {@link WalkableGraph} of their corridors, indexed like the floor maps, for map matching.
+ *
+ * @see BuildingRegistry which loads and indexes the buildings.
+ */
+public final class Building {
+
+    //region Instance variables
+    private final String name;
+    // Outline of the building, in order, without repeating the first point
+    private final List<GeoPoint> outline;
+    // Bounding box of the outline in degrees
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final double minLongitude;
+    private final double maxLongitude;
+    // Names of the floor map images from the lowest floor, empty without indoor maps
+    private final List<String> floorMaps;
+    // Index of the ground floor in the floor maps
+    private final int groundFloor;
+    // Average height of a floor in meters
+    private final float floorHeight;
+    // Corners of the rectangle the floor maps are drawn over
+    private final GeoPoint mapSouthWest;
+    private final GeoPoint mapNorthEast;
+    // Walkable graphs from the lowest floor, null for floors without one
+    private final List<WalkableGraph> walkways;
+    //endregion
+
+    /**
+     * Public constructor of the building.
+     *
+     * @param name          name of the building.
+     * @param outline       outline of the building, at least three points, in order, without
+     *                      repeating the first point.
+     * @param floorMaps     names of the floor map images from the lowest floor, may be empty.
+     * @param groundFloor   index of the ground floor in the floor maps.
+     * @param floorHeight   average height of a floor in meters.
+     * @param mapSouthWest  south-west corner of the floor maps, null to use the outline bounds.
+     * @param mapNorthEast  north-east corner of the floor maps, null to use the outline bounds.
+     * @param walkways      walkable graphs from the lowest floor, with null entries for floors
+     *                      without one, may be empty.
+     */
+    public Building(String name, List<GeoPoint> outline, List<String> floorMaps, int groundFloor,
+                    float floorHeight, GeoPoint mapSouthWest, GeoPoint mapNorthEast,
+                    List<WalkableGraph> walkways) {
+        if (outline.size() < 3) {
+            throw new IllegalArgumentException("Outline of " + name + " has less than 3 points");
+        }
+        this.name = name;
+        this.outline = Collections.unmodifiableList(new ArrayList<>(outline));
+        this.floorMaps = Collections.unmodifiableList(new ArrayList<>(floorMaps));
+        this.groundFloor = groundFloor;
+        this.floorHeight = floorHeight;
+        this.walkways = Collections.unmodifiableList(new ArrayList<>(walkways));
+
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (GeoPoint point : outline) {
+            minLat = Math.min(minLat, point.latitude);
+            maxLat = Math.max(maxLat, point.latitude);
+            minLng = Math.min(minLng, point.longitude);
+            maxLng = Math.max(maxLng, point.longitude);
+        }
+        this.minLatitude = minLat;
+        this.maxLatitude = maxLat;
+        this.minLongitude = minLng;
+        this.maxLongitude = maxLng;
+        this.mapSouthWest = mapSouthWest != null ? mapSouthWest : new GeoPoint(minLat, minLng);
+        this.mapNorthEast = mapNorthEast != null ? mapNorthEast : new GeoPoint(maxLat, maxLng);
+    }
+
+    /**
+     * Checks if a point is in the building, testing the bounding box before the outline.
+     *
+     * @param point point to check.
+     * @return      true if the point is inside the outline.
+     */
+    public boolean contains(GeoPoint point) {
+        return boundsContain(point.latitude, point.longitude)
+                && PointInPolygon.contains(point, outline);
+    }
+
+    /**
+     * Checks if a point is in the bounding box of the outline.
+     *
+     * @param latitude  latitude of the point in degrees.
+     * @param longitude longitude of the point in degrees.
+     * @return          true if the point is within the bounding box.
+     */
+    public boolean boundsContain(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+    /**
+     * Checks if indoor floor maps are available for the building.
+     *
+     * @return  true if the building has at least one floor map.
+     */
+    public boolean hasFloorMaps() {
+        return !floorMaps.isEmpty();
+    }
+
+    /**
+     * Get the walkable graph of a floor.
+     *
+     * @param floor index of the floor from the lowest floor, as for the floor maps.
+     * @return      the graph of the floor, null if the floor has none.
+     */
+    public WalkableGraph getWalkableGraph(int floor) {
+        return floor >= 0 && floor < walkways.size() ? walkways.get(floor) : null;
+    }
+
+    /**
+     * Get the number of floors listed in the walkways, including floors without a graph.
+     *
+     * @return  number of entries of the walkways, from the lowest floor.
+     */
+    public int getWalkwayFloorCount() {
+        return walkways.size();
+    }
+
+    //region Getters
+
+    public String getName() {
+        return name;
+    }
+
+    public List<GeoPoint> getOutline() {
+        return outline;
+    }
+
+    public List<String> getFloorMaps() {
+        return floorMaps;
+    }
+
+    public int getGroundFloor() {
+        return groundFloor;
+    }
+
+    public float getFloorHeight() {
+        return floorHeight;
+    }
+
+    public GeoPoint getMapSouthWest() {
+        return mapSouthWest;
+    }
+
+    public GeoPoint getMapNorthEast() {
+        return mapNorthEast;
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    //endregion
+}
@@ -0,0 +1,293 @@
+package com.openpositioning.PositionMe.utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the known buildings with a spatial index for locating points.
+ * <p>
+ * The bounding box of every building is registered in the cells of a uniform latitude-longitude
+ * grid it overlaps. Locating a point looks up the single cell containing it, tests the bounding
+ * boxes of the few buildings of that cell, and only runs the point in polygon test of
+ * {@link PointInPolygon} on the boxes containing the point. Lookup cost therefore depends on the
+ * number of buildings near the point rather than on the size of the registry.
+ * <p>
+ * Buildings are read from a JSON document of the form:
+ * <pre>
+ * {"buildings": [{
+ *     "name": "Nucleus",
+ *     "outline": [[55.9233, -3.1739], [55.9228, -3.1739], [55.9228, -3.1746]],
+ *     "floorHeight": 4.2,
+ *     "groundFloor": 1,
+ *     "floorMaps": {
+ *         "southWest": [55.9228, -3.1746],
+ *         "northEast": [55.9233, -3.1739],
+ *         "floors": ["nucleuslg", "nucleusg", "nucleus1"]
+ *     },
+ *     "walkways": [null, {
+ *         "nodes": [[55.92310, -3.17445], [55.92310, -3.17400], [55.92295, -3.17400]],
+ *         "edges": [[0, 1], [1, 2]]
+ *     }]
+ * }]}
+ * </pre>
+ * Points are [latitude, longitude] in degrees. Floor maps are optional, their corners default to
+ * the bounds of the outline. Walkways are optional, they list the {@link WalkableGraph} of every
+ * floor from the lowest floor, null for floors without one, with edges as pairs of node indices.
+ */
+public final class BuildingRegistry {
+
+    //region Static variables
+    // Size of a grid cell in degrees, about 100m in latitude
+    private static final double CELL_DEGREES = 0.001;
+    //endregion
+
+    //region Instance variables
+    private final List<Building> buildings;
+    // Buildings overlapping every non-empty cell, by cell key
+    private final Map<Long, List<Building>> grid = new HashMap<>();
+    // Hash of the data that positions matched to the walkways depend on
+    private final long walkwayHash;
+    //endregion
+
+    /**
+     * Creates a registry and indexes the buildings.
+     *
+     * @param buildings buildings of the registry.
+     */
+    public BuildingRegistry(List<Building> buildings) {
+        this.buildings = Collections.unmodifiableList(new ArrayList<>(buildings));
+        for (Building building : this.buildings) {
+            int minRow = cell(building.getMinLatitude());
+            int maxRow = cell(building.getMaxLatitude());
+            int minColumn = cell(building.getMinLongitude());
+            int maxColumn = cell(building.getMaxLongitude());
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    List<Building> cellBuildings = grid.get(key(row, column));
+                    if (cellBuildings == null) {
+                        cellBuildings = new ArrayList<>(1);
+                        grid.put(key(row, column), cellBuildings);
+                    }
+                    cellBuildings.add(building);
+                }
+            }
+        }
+        this.walkwayHash = hashWalkways(this.buildings);
+    }
+
+    /**
+     * Hashes the outlines, floor heights and walkways of buildings, which decide the building, the
+     * floor and the walkway a position is matched to.
+     *
+     * @param buildings buildings to hash.
+     * @return          hash of the buildings.
+     */
+    private static long hashWalkways(List<Building> buildings) {
+        long hash = 1;
+        for (Building building : buildings) {
+            for (GeoPoint point : building.getOutline()) {
+                hash = 31 * hash + Double.doubleToLongBits(point.latitude);
+                hash = 31 * hash + Double.doubleToLongBits(point.longitude);
+            }
+            hash = 31 * hash + Float.floatToIntBits(building.getFloorHeight());
+            for (int floor = 0; floor < building.getWalkwayFloorCount(); floor++) {
+                WalkableGraph graph = building.getWalkableGraph(floor);
+                hash = 31 * hash + (graph != null ? graph.contentHash() : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the building containing a point.
+     *
+     * @param point point to locate.
+     * @return      the first registered building containing the point, null if there is none.
+     */
+    public Building find(GeoPoint point) {
+        List<Building> candidates = grid.get(key(cell(point.latitude), cell(point.longitude)));
+        if (candidates == null) return null;
+        for (int i = 0; i < candidates.size(); i++) {
+            Building building = candidates.get(i);
+            if (building.contains(point)) return building;
+        }
+        return null;
+    }
+
+    /**
+     * Get a building by name.
+     *
+     * @param name  name of the building.
+     * @return      the building, null if there is no building with that name.
+     */
+    public Building getBuilding(String name) {
+        for (Building building : buildings) {
+            if (building.getName().equals(name)) return building;
+        }
+        return null;
+    }
+
+    /**
+     * Get every building of the registry.
+     *
+     * @return  unmodifiable list of the buildings, in the order they were registered.
+     */
+    public List<Building> getBuildings() {
+        return buildings;
+    }
+
+    /**
+     * Get a hash of the outlines, floor heights and walkways of the buildings, to tell if positions
+     * matched to the walkways of another registry are still valid, eg. in a cache.
+     *
+     * @return  hash that changes when any of them changes.
+     */
+    public long getWalkwayHash() {
+        return walkwayHash;
+    }
+
+    /**
+     * Reads a registry from a JSON document in the format described in the class documentation.
+     *
+     * @param reader    reader positioned at the start of the JSON document.
+     * @return          the registry of the buildings in the document.
+     * @throws IOException if the document cannot be read or is malformed.
+     */
+    public static BuildingRegistry read(Reader reader) throws IOException {
+        List<Building> buildings = new ArrayList<>();
+        JsonReader json = new JsonReader(reader);
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("buildings")) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    buildings.add(readBuilding(json));
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return new BuildingRegistry(buildings);
+    }
+
+    /** Reads a building object. */
+    private static Building readBuilding(JsonReader json) throws IOException {
+        String name = null;
+        List<GeoPoint> outline = new ArrayList<>();
+        List<String> floors = new ArrayList<>();
+        int groundFloor = 0;
+        float floorHeight = 0;
+        GeoPoint southWest = null;
+        GeoPoint northEast = null;
+        List<WalkableGraph> walkways = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name": name = json.nextString(); break;
+                case "floorHeight": floorHeight = (float) json.nextDouble(); break;
+                case "groundFloor": groundFloor = json.nextInt(); break;
+                case "outline":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        outline.add(readPoint(json));
+                    }
+                    json.endArray();
+                    break;
+                case "floorMaps":
+                    json.beginObject();
+                    while (json.hasNext()) {
+                        switch (json.nextName()) {
+                            case "southWest": southWest = readPoint(json); break;
+                            case "northEast": northEast = readPoint(json); break;
+                            case "floors":
+                                json.beginArray();
+                                while (json.hasNext()) {
+                                    floors.add(json.nextString());
+                                }
+                                json.endArray();
+                                break;
+                            default: json.skipValue();
+                        }
+                    }
+                    json.endObject();
+                    break;
+                case "walkways":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        walkways.add(readWalkableGraph(json));
+                    }
+                    json.endArray();
+                    break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        if (name == null) throw new IOException("Building without a name at " + json.getPath());
+        return new Building(name, outline, floors, groundFloor, floorHeight, southWest, northEast,
+                walkways);
+    }
+
+    /** Reads the walkable graph of a floor, which may be null. */
+    private static WalkableGraph readWalkableGraph(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        List<GeoPoint> nodes = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "nodes":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        nodes.add(readPoint(json));
+                    }
+                    json.endArray();
+                    break;
+                case "edges":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        json.beginArray();
+                        edges.add(new int[] {json.nextInt(), json.nextInt()});
+                        json.endArray();
+                    }
+                    json.endArray();
+                    break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        if (nodes.isEmpty()) return null;
+        return new WalkableGraph(nodes, edges);
+    }
+
+    /** Reads a [latitude, longitude] array. */
+    private static GeoPoint readPoint(JsonReader json) throws IOException {
+        json.beginArray();
+        double latitude = json.nextDouble();
+        double longitude = json.nextDouble();
+        json.endArray();
+        return new GeoPoint(latitude, longitude);
+    }
+
+    /** Get the grid row or column of a coordinate. */
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    /** Get the key of a grid cell. */
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
@@ -0,0 +1,31 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Source of time for the sensor processing pipeline.
+ * <p>
+ * Live processing reads the device clocks, replays of recorded sensor data use a
+ * {@link ManualClock} advanced to the recorded timestamps, so that replays are deterministic and
+ * can run faster than real time.
+ */
+public interface Clock {
+    /**
+     * Get the wall clock time.
+     *
+     * @return  milliseconds since the epoch.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Get the monotonic time, not counting deep sleep.
+     *
+     * @return  milliseconds since an arbitrary origin.
+     */
+    long uptimeMillis();
+
+    /**
+     * Get the monotonic time, including deep sleep.
+     *
+     * @return  milliseconds since an arbitrary origin.
+     */
+    long elapsedRealtime();
+}
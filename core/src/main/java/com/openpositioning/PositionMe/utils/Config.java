@@ -0,0 +1,44 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Key-value access to the user settings used by the positioning algorithms.
+ * <p>
+ * Decouples the algorithms from the Android preferences, so that they can run with fixed values
+ * in plain JVM tests and benchmarks. Keys and defaults are those of the settings screen.
+ */
+public interface Config {
+    /**
+     * Get a boolean setting.
+     *
+     * @param key           name of the setting.
+     * @param defaultValue  value returned if the setting is not set.
+     * @return              the value of the setting.
+     */
+    boolean getBoolean(String key, boolean defaultValue);
+
+    /**
+     * Get an integer setting.
+     *
+     * @param key           name of the setting.
+     * @param defaultValue  value returned if the setting is not set.
+     * @return              the value of the setting.
+     */
+    int getInt(String key, int defaultValue);
+
+    /**
+     * Get a string setting.
+     *
+     * @param key           name of the setting.
+     * @param defaultValue  value returned if the setting is not set.
+     * @return              the value of the setting.
+     */
+    String getString(String key, String defaultValue);
+
+    /**
+     * Stores an integer setting, eg. to reset an invalid value to its default.
+     *
+     * @param key   name of the setting.
+     * @param value new value of the setting.
+     */
+    void putInt(String key, int value);
+}
@@ -0,0 +1,186 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Projection between geographic coordinates and a local east-north-up (ENU) tangent plane
+ * anchored at a reference point, usually the start location of a recording.
+ * <p>
+ * The plane is the first order expansion of the WGS84 ellipsoid at the anchor: a degree of
+ * latitude spans the meridional radius of curvature and a degree of longitude the prime vertical
+ * radius scaled by the cosine of the anchor latitude. Both scales are computed once, so a
+ * conversion is a subtraction and a multiplication, allocates nothing and keeps double precision.
+ * The error grows with the square of the distance to the anchor: at the latitude of Edinburgh it
+ * is about 2 mm at 100 m north-east of the anchor and 6 cm at 500 m, well below positioning errors.
+ * <p>
+ * East and north are in meters, latitude and longitude in degrees. Batch conversions work on
+ * primitive arrays for replay and export, with float or double local coordinates.
+ */
+public final class EnuProjector {
+
+    //region Static variables
+    // WGS84 semi-major axis in meters
+    private static final double SEMI_MAJOR_AXIS = 6378137.0;
+    // WGS84 first eccentricity squared
+    private static final double ECCENTRICITY_SQUARED = 6.69437999014e-3;
+    //endregion
+
+    //region Instance variables
+    // Anchor of the plane in degrees
+    private final double anchorLatitude;
+    private final double anchorLongitude;
+    // Meters per degree along the meridian and the parallel of the anchor
+    private final double metersPerDegreeLatitude;
+    private final double metersPerDegreeLongitude;
+    //endregion
+
+    /**
+     * Creates a projector anchored at a point.
+     *
+     * @param anchorLatitude    latitude of the origin of the plane in degrees.
+     * @param anchorLongitude   longitude of the origin of the plane in degrees.
+     */
+    public EnuProjector(double anchorLatitude, double anchorLongitude) {
+        this.anchorLatitude = anchorLatitude;
+        this.anchorLongitude = anchorLongitude;
+        this.metersPerDegreeLatitude = metersPerDegreeLatitude(anchorLatitude);
+        this.metersPerDegreeLongitude = metersPerDegreeLongitude(anchorLatitude);
+    }
+
+    /**
+     * Get the length of a degree of latitude.
+     *
+     * @param latitude  latitude in degrees.
+     * @return          meters per degree along the meridian at the latitude.
+     */
+    public static double metersPerDegreeLatitude(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double w = 1 - ECCENTRICITY_SQUARED * sin * sin;
+        return Math.toRadians(SEMI_MAJOR_AXIS * (1 - ECCENTRICITY_SQUARED) / (w * Math.sqrt(w)));
+    }
+
+    /**
+     * Get the length of a degree of longitude.
+     *
+     * @param latitude  latitude in degrees.
+     * @return          meters per degree along the parallel at the latitude.
+     */
+    public static double metersPerDegreeLongitude(double latitude) {
+        double radians = Math.toRadians(latitude);
+        double sin = Math.sin(radians);
+        return Math.toRadians(SEMI_MAJOR_AXIS * Math.cos(radians)
+                / Math.sqrt(1 - ECCENTRICITY_SQUARED * sin * sin));
+    }
+
+    //region Single points
+
+    /**
+     * Projects a longitude to the plane.
+     *
+     * @param longitude longitude in degrees.
+     * @return          east coordinate in meters.
+     */
+    public double toEast(double longitude) {
+        return (longitude - anchorLongitude) * metersPerDegreeLongitude;
+    }
+
+    /**
+     * Projects a latitude to the plane.
+     *
+     * @param latitude  latitude in degrees.
+     * @return          north coordinate in meters.
+     */
+    public double toNorth(double latitude) {
+        return (latitude - anchorLatitude) * metersPerDegreeLatitude;
+    }
+
+    /**
+     * Get the longitude of a point of the plane.
+     *
+     * @param east  east coordinate in meters.
+     * @return      longitude in degrees.
+     */
+    public double toLongitude(double east) {
+        return anchorLongitude + east / metersPerDegreeLongitude;
+    }
+
+    /**
+     * Get the latitude of a point of the plane.
+     *
+     * @param north north coordinate in meters.
+     * @return      latitude in degrees.
+     */
+    public double toLatitude(double north) {
+        return anchorLatitude + north / metersPerDegreeLatitude;
+    }
+
+    //endregion
+
+    //region Batches
+
+    /**
+     * Projects geographic points to the plane.
+     *
+     * @param latitudes     latitudes in degrees.
+     * @param longitudes    longitudes in degrees.
+     * @param count         number of leading points to convert.
+     * @param east          output east coordinates in meters, may be one of the inputs.
+     * @param north         output north coordinates in meters, may be one of the inputs.
+     */
+    public void toEnu(double[] latitudes, double[] longitudes, int count,
+                      double[] east, double[] north) {
+        for (int i = 0; i < count; i++) {
+            double latitude = latitudes[i];
+            east[i] = (longitudes[i] - anchorLongitude) * metersPerDegreeLongitude;
+            north[i] = (latitude - anchorLatitude) * metersPerDegreeLatitude;
+        }
+    }
+
+    /**
+     * Converts points of the plane to geographic coordinates.
+     *
+     * @param east          east coordinates in meters.
+     * @param north         north coordinates in meters.
+     * @param count         number of leading points to convert.
+     * @param latitudes     output latitudes in degrees, may be one of the inputs.
+     * @param longitudes    output longitudes in degrees, may be one of the inputs.
+     */
+    public void toGeodetic(double[] east, double[] north, int count,
+                           double[] latitudes, double[] longitudes) {
+        for (int i = 0; i < count; i++) {
+            double n = north[i];
+            longitudes[i] = anchorLongitude + east[i] / metersPerDegreeLongitude;
+            latitudes[i] = anchorLatitude + n / metersPerDegreeLatitude;
+        }
+    }
+
+    /**
+     * Converts points of the plane stored as floats, eg. recorded PDR positions, to geographic
+     * coordinates.
+     *
+     * @param east          east coordinates in meters.
+     * @param north         north coordinates in meters.
+     * @param count         number of leading points to convert.
+     * @param latitudes     output latitudes in degrees.
+     * @param longitudes    output longitudes in degrees.
+     */
+    public void toGeodetic(float[] east, float[] north, int count,
+                           double[] latitudes, double[] longitudes) {
+        for (int i = 0; i < count; i++) {
+            longitudes[i] = anchorLongitude + east[i] / metersPerDegreeLongitude;
+            latitudes[i] = anchorLatitude + north[i] / metersPerDegreeLatitude;
+        }
+    }
+
+    //endregion
+
+    //region Getters
+
+    public double getAnchorLatitude() {
+        return anchorLatitude;
+    }
+
+    public double getAnchorLongitude() {
+        return anchorLongitude;
+    }
+
+    //endregion
+}
@@ -0,0 +1,316 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Lightweight Extended Kalman Filter estimating the 2D position and heading of the user.
+ * <p>
+ * The state vector is [x, y, theta] in a local frame centred on the start location, with x
+ * pointing east and y pointing north (meters), and theta the heading in radians with zero pointing
+ * east and increasing counter-clockwise, matching the convention used in {@link PdrProcessing}.
+ * <p>
+ * The filter is propagated at every step with the step length and heading change from PDR, and
+ * corrected with absolute heading (compass), GNSS fixes weighted by their reported accuracy,
+ * WiFi positioning fixes and positions matched to the walkways of the floor. The 3x3 covariance
+ * matrix is symmetric and kept as six scalar fields, so every prediction and update runs on
+ * fixed-size unrolled kernels without allocating memory, and can safely be called from the
+ * sensor thread.
+ *
+ * @see PdrProcessing the source of the step length and heading values.
+ */
+public class ExtendedKalmanFilter {
+
+    //region Static variables
+    // Standard deviation of the PDR step length estimate (m)
+    private static final double STEP_LENGTH_STD = 0.15;
+    // Standard deviation of the heading change between two steps (rad)
+    private static final double HEADING_CHANGE_STD = Math.toRadians(5);
+    // Standard deviation of the absolute compass heading (rad)
+    private static final double COMPASS_STD = Math.toRadians(15);
+    // Standard deviation of a WiFi positioning fix (m)
+    private static final double WIFI_STD = 8.0;
+    // Standard deviation of a position matched to a walkway, about half a corridor width (m)
+    private static final double MAP_MATCH_STD = 1.0;
+    // Lower bound for the GNSS accuracy, the reported value is optimistic indoors (m)
+    private static final double MIN_GNSS_STD = 3.0;
+    // Initial uncertainty of the start location set by the user (m)
+    private static final double INITIAL_POSITION_STD = 2.0;
+    // Chi-squared threshold (2 degrees of freedom, 99.9%) for rejecting outlier position fixes
+    private static final double POSITION_GATE = 13.8;
+    // Chi-squared threshold (2 degrees of freedom, 99%) for rejecting walkway matches, a match
+    // further than this is a snap to another corridor rather than a correction
+    private static final double MAP_MATCH_GATE = 9.21;
+    // Number of consecutive rejected fixes after which a fix is accepted regardless of the gate
+    private static final int MAX_REJECTED_FIXES = 3;
+    //endregion
+
+    //region Instance variables
+    // State vector
+    private double x;
+    private double y;
+    private double theta;
+
+    // Upper triangle of the symmetric 3x3 covariance matrix
+    private double p00, p01, p02;
+    private double p11, p12;
+    private double p22;
+
+    // Consecutive position fixes rejected by the gate
+    private int rejectedFixes;
+    // Set once the filter has been given an initial state
+    private boolean initialised;
+    //endregion
+
+    /**
+     * Public default constructor, the filter is unusable until {@link #reset(float, float, float)}
+     * is called.
+     */
+    public ExtendedKalmanFilter() {
+        this.initialised = false;
+    }
+
+    /**
+     * Resets the filter to a known position and heading.
+     * The position uncertainty is set to that of a user-selected start location and the heading
+     * uncertainty to that of the compass.
+     *
+     * @param startX    initial east coordinate in meters.
+     * @param startY    initial north coordinate in meters.
+     * @param heading   initial heading in radians, zero pointing east, counter-clockwise.
+     */
+    public void reset(float startX, float startY, float heading) {
+        this.x = startX;
+        this.y = startY;
+        this.theta = wrapAngle(heading);
+
+        this.p00 = INITIAL_POSITION_STD * INITIAL_POSITION_STD;
+        this.p11 = INITIAL_POSITION_STD * INITIAL_POSITION_STD;
+        this.p22 = COMPASS_STD * COMPASS_STD;
+        this.p01 = 0;
+        this.p02 = 0;
+        this.p12 = 0;
+
+        this.rejectedFixes = 0;
+        this.initialised = true;
+    }
+
+    /**
+     * Propagates the state by one step.
+     * The heading is rotated by the measured heading change, and the position is moved by the step
+     * length along the new heading. The covariance is propagated with the Jacobian of the motion
+     * model and the step length and heading change noise.
+     *
+     * @param stepLength    length of the step in meters.
+     * @param headingChange change in heading since the last step in radians.
+     */
+    public void predict(float stepLength, float headingChange) {
+        if (!initialised) return;
+
+        // Motion model
+        theta = wrapAngle(theta + headingChange);
+        double c = Math.cos(theta);
+        double s = Math.sin(theta);
+        x += stepLength * c;
+        y += stepLength * s;
+
+        // Non-trivial Jacobian entries of the motion model with respect to theta
+        double a = -stepLength * s;
+        double b = stepLength * c;
+
+        // P = F * P * F^T
+        double n00 = p00 + 2 * a * p02 + a * a * p22;
+        double n01 = p01 + a * p12 + b * p02 + a * b * p22;
+        double n02 = p02 + a * p22;
+        double n11 = p11 + 2 * b * p12 + b * b * p22;
+        double n12 = p12 + b * p22;
+
+        // P += G * Q * G^T, with G the Jacobian with respect to the step length and heading change
+        double qL = STEP_LENGTH_STD * STEP_LENGTH_STD;
+        double qH = HEADING_CHANGE_STD * HEADING_CHANGE_STD;
+        p00 = n00 + c * c * qL + a * a * qH;
+        p01 = n01 + c * s * qL + a * b * qH;
+        p02 = n02 + a * qH;
+        p11 = n11 + s * s * qL + b * b * qH;
+        p12 = n12 + b * qH;
+        p22 = p22 + qH;
+    }
+
+    /**
+     * Corrects the heading with an absolute heading measurement, eg. from the rotation vector.
+     *
+     * @param heading   measured heading in radians, zero pointing east, counter-clockwise.
+     */
+    public void updateHeading(float heading) {
+        if (!initialised) return;
+
+        double innovation = wrapAngle(heading - theta);
+        double innovationVar = p22 + COMPASS_STD * COMPASS_STD;
+        double k0 = p02 / innovationVar;
+        double k1 = p12 / innovationVar;
+        double k2 = p22 / innovationVar;
+
+        x += k0 * innovation;
+        y += k1 * innovation;
+        theta = wrapAngle(theta + k2 * innovation);
+
+        // P = (I - K * H) * P
+        double o02 = p02, o12 = p12, o22 = p22;
+        p00 -= k0 * o02;
+        p01 -= k0 * o12;
+        p02 -= k0 * o22;
+        p11 -= k1 * o12;
+        p12 -= k1 * o22;
+        p22 -= k2 * o22;
+    }
+
+    /**
+     * Corrects the position with a GNSS fix.
+     *
+     * @param fixX      east coordinate of the fix in meters.
+     * @param fixY      north coordinate of the fix in meters.
+     * @param accuracy  horizontal accuracy reported by the location provider in meters.
+     * @return          true if the fix was applied, false if it was rejected as an outlier.
+     */
+    public boolean updateGnss(double fixX, double fixY, float accuracy) {
+        double std = Math.max(accuracy, MIN_GNSS_STD);
+        return updatePosition(fixX, fixY, std * std, POSITION_GATE, true);
+    }
+
+    /**
+     * Corrects the position with a WiFi positioning fix.
+     *
+     * @param fixX  east coordinate of the fix in meters.
+     * @param fixY  north coordinate of the fix in meters.
+     * @return      true if the fix was applied, false if it was rejected as an outlier.
+     */
+    public boolean updateWifi(double fixX, double fixY) {
+        return updatePosition(fixX, fixY, WIFI_STD * WIFI_STD, POSITION_GATE, true);
+    }
+
+    /**
+     * Corrects the position with the estimate matched to a walkway. Matches further than the
+     * gate from the prediction are rejected, however many in a row: the estimate is then between
+     * corridors or on another one, and pulling it there would make the filter follow the matcher
+     * instead of the steps.
+     *
+     * @param matchedX  east coordinate of the matched position in meters.
+     * @param matchedY  north coordinate of the matched position in meters.
+     * @return          true if the position was applied, false if it was rejected by the gate.
+     */
+    public boolean updateMapMatch(double matchedX, double matchedY) {
+        return updatePosition(matchedX, matchedY, MAP_MATCH_STD * MAP_MATCH_STD, MAP_MATCH_GATE,
+                false);
+    }
+
+    /**
+     * Position measurement update with an isotropic measurement variance.
+     * Fixes further than the chi-squared gate from the prediction are rejected, unless they can
+     * persist and too many have been rejected in a row, in which case the filter is assumed to
+     * have drifted.
+     *
+     * @param fixX      east coordinate of the fix in meters.
+     * @param fixY      north coordinate of the fix in meters.
+     * @param variance  variance of the fix along each axis in square meters.
+     * @param gate      chi-squared threshold of the squared Mahalanobis distance.
+     * @param persists  true to accept the fix after {@link #MAX_REJECTED_FIXES} rejections.
+     * @return          true if the fix was applied, false otherwise.
+     */
+    private boolean updatePosition(double fixX, double fixY, double variance, double gate,
+                                   boolean persists) {
+        if (!initialised) return false;
+
+        double v0 = fixX - x;
+        double v1 = fixY - y;
+
+        // Innovation covariance S = H * P * H^T + R and its inverse
+        double s00 = p00 + variance;
+        double s01 = p01;
+        double s11 = p11 + variance;
+        double det = s00 * s11 - s01 * s01;
+        if (det <= 0) return false;
+        double i00 = s11 / det;
+        double i01 = -s01 / det;
+        double i11 = s00 / det;
+
+        // Mahalanobis distance gating
+        double distance = v0 * (i00 * v0 + i01 * v1) + v1 * (i01 * v0 + i11 * v1);
+        if (distance > gate && (!persists || rejectedFixes < MAX_REJECTED_FIXES)) {
+            if (persists) rejectedFixes++;
+            return false;
+        }
+        if (persists) rejectedFixes = 0;
+
+        // Kalman gain K = P * H^T * S^-1
+        double k00 = p00 * i00 + p01 * i01, k01 = p00 * i01 + p01 * i11;
+        double k10 = p01 * i00 + p11 * i01, k11 = p01 * i01 + p11 * i11;
+        double k20 = p02 * i00 + p12 * i01, k21 = p02 * i01 + p12 * i11;
+
+        x += k00 * v0 + k01 * v1;
+        y += k10 * v0 + k11 * v1;
+        theta = wrapAngle(theta + k20 * v0 + k21 * v1);
+
+        // P = (I - K * H) * P
+        double o00 = p00, o01 = p01, o02 = p02, o11 = p11, o12 = p12;
+        p00 = o00 - (k00 * o00 + k01 * o01);
+        p01 = o01 - (k00 * o01 + k01 * o11);
+        p02 = o02 - (k00 * o02 + k01 * o12);
+        p11 = o11 - (k10 * o01 + k11 * o11);
+        p12 = o12 - (k10 * o02 + k11 * o12);
+        p22 = p22 - (k20 * o02 + k21 * o12);
+        return true;
+    }
+
+    /**
+     * Checks if the filter has been initialised with a start state.
+     *
+     * @return  true if {@link #reset(float, float, float)} has been called, false otherwise.
+     */
+    public boolean isInitialised() {
+        return initialised;
+    }
+
+    /**
+     * Get the estimated east coordinate.
+     *
+     * @return  east coordinate in meters relative to the start location.
+     */
+    public float getX() {
+        return (float) x;
+    }
+
+    /**
+     * Get the estimated north coordinate.
+     *
+     * @return  north coordinate in meters relative to the start location.
+     */
+    public float getY() {
+        return (float) y;
+    }
+
+    /**
+     * Get the estimated heading.
+     *
+     * @return  heading in radians, zero pointing east, counter-clockwise.
+     */
+    public float getHeading() {
+        return (float) theta;
+    }
+
+    /**
+     * Get the standard deviation of the position estimate, the square root of the mean of the
+     * variances along the two axes.
+     *
+     * @return  position uncertainty in meters.
+     */
+    public float getPositionStd() {
+        return (float) Math.sqrt((p00 + p11) / 2);
+    }
+
+    /**
+     * Wraps an angle to the range [-pi, pi).
+     *
+     * @param angle angle in radians.
+     * @return      the equivalent angle in the range [-pi, pi).
+     */
+    public static double wrapAngle(double angle) {
+        return angle - 2 * Math.PI * Math.floor((angle + Math.PI) / (2 * Math.PI));
+    }
+}
@@ -0,0 +1,41 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Immutable geographic coordinate, the platform independent counterpart of the map coordinates
+ * used by the application.
+ */
+public final class GeoPoint {
+    // Coordinates in degrees
+    public final double latitude;
+    public final double longitude;
+
+    /**
+     * Public constructor of the point.
+     *
+     * @param latitude  latitude in degrees.
+     * @param longitude longitude in degrees.
+     */
+    public GeoPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GeoPoint)) return false;
+        GeoPoint other = (GeoPoint) o;
+        return Double.compare(latitude, other.latitude) == 0
+                && Double.compare(longitude, other.longitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @Override
+    public String toString() {
+        return "GeoPoint(" + latitude + ", " + longitude + ")";
+    }
+}
@@ -0,0 +1,53 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * {@link Clock} that only moves when it is set, used to replay recorded data deterministically.
+ * <p>
+ * The monotonic clocks start at zero and the wall clock at the given start time, all of them
+ * advance together.
+ */
+public class ManualClock implements Clock {
+
+    // Wall clock time at zero monotonic time, in milliseconds since the epoch
+    private final long startTimeMillis;
+    // Monotonic time in milliseconds
+    private long time;
+
+    /**
+     * Public constructor of the clock.
+     *
+     * @param startTimeMillis   wall clock time when the clock is created, in milliseconds.
+     */
+    public ManualClock(long startTimeMillis) {
+        this.startTimeMillis = startTimeMillis;
+        this.time = 0;
+    }
+
+    /**
+     * Moves the clock forward to the given time. The clock never goes back, earlier times are
+     * ignored.
+     *
+     * @param time  monotonic time in milliseconds since the creation of the clock.
+     */
+    public void setTime(long time) {
+        this.time = Math.max(this.time, time);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long currentTimeMillis() {
+        return startTimeMillis + time;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long uptimeMillis() {
+        return time;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long elapsedRealtime() {
+        return time;
+    }
+}
@@ -0,0 +1,256 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Snaps positions onto the edges of a {@link WalkableGraph}, so that drifting positions follow
+ * corridors instead of crossing walls.
+ * <p>
+ * Matching follows a hidden Markov model. The candidates of a position are the nearest edges
+ * within {@link #SEARCH_RADIUS}, found in the grid of the graph. Every candidate costs the
+ * squared distance to the edge scaled by the position noise, plus a transition cost from the
+ * edge of the previous position: nothing to stay on the same edge, a little to move onto a
+ * connected edge, and a large penalty to jump to an unconnected one.
+ * <ul>
+ *     <li>{@link #match(double, double, double[])} matches positions one at a time, as they
+ *     are estimated, keeping the cheapest candidate given the previous match. A step costs a few
+ *     grid cells and at most {@link #MAX_CANDIDATES} edges, and allocates nothing.</li>
+ *     <li>{@link #matchAll(double[], double[], int, double[], double[])} matches a whole
+ *     recording with the Viterbi algorithm, choosing the cheapest sequence of edges, so later
+ *     positions can correct earlier choices.</li>
+ * </ul>
+ * Positions with no edge within the search radius are left unchanged, and start a new sequence.
+ * <p>
+ * A matcher holds the state of one sequence of positions and must be used from a single thread.
+ */
+public final class MapMatcher {
+
+    //region Static variables
+    // Largest distance of a position from a matched edge in meters
+    public static final double SEARCH_RADIUS = 6.0;
+    // Standard deviation of the position error in meters
+    private static final double POSITION_SIGMA = 2.0;
+    // Transition costs to a connected edge and to an unconnected edge
+    private static final double ADJACENT_COST = 0.5;
+    private static final double JUMP_COST = 8.0;
+    // Number of nearest edges kept as candidates of a position
+    public static final int MAX_CANDIDATES = 8;
+    //endregion
+
+    //region Instance variables
+    private final WalkableGraph graph;
+    private final EnuProjector projector;
+    // Edge of the previous live match, -1 if there is none
+    private int previousEdge = -1;
+    // Last query that visited every edge, to skip edges registered in several cells
+    private final int[] visited;
+    private int query;
+    // Candidates of the current position, sorted by distance
+    private final int[] candidateEdges = new int[MAX_CANDIDATES];
+    private final double[] candidateDistances = new double[MAX_CANDIDATES];
+    private int candidateCount;
+    private final double[] closest = new double[2];
+    //endregion
+
+    /**
+     * Creates a matcher on a graph.
+     *
+     * @param graph walkable graph to match positions to.
+     */
+    public MapMatcher(WalkableGraph graph) {
+        this.graph = graph;
+        this.projector = graph.getProjector();
+        this.visited = new int[graph.getEdgeCount()];
+    }
+
+    /**
+     * Matches the next position of the live sequence.
+     *
+     * @param latitude  latitude of the position in degrees.
+     * @param longitude longitude of the position in degrees.
+     * @param out       output latitude and longitude of the matched position, the position
+     *                  itself if no edge is near.
+     * @return          true if the position was snapped to an edge.
+     */
+    public boolean match(double latitude, double longitude, double[] out) {
+        double x = projector.toEast(longitude);
+        double y = projector.toNorth(latitude);
+        findCandidates(x, y);
+        if (candidateCount == 0) {
+            previousEdge = -1;
+            out[0] = latitude;
+            out[1] = longitude;
+            return false;
+        }
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < candidateCount; i++) {
+            double cost = emissionCost(candidateDistances[i])
+                    + (previousEdge < 0 ? 0 : transitionCost(previousEdge, candidateEdges[i]));
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = candidateEdges[i];
+            }
+        }
+        previousEdge = best;
+        graph.distanceSquared(best, x, y, closest);
+        out[0] = projector.toLatitude(closest[1]);
+        out[1] = projector.toLongitude(closest[0]);
+        return true;
+    }
+
+    /**
+     * Forgets the previous live match, eg. when the user changes floor.
+     */
+    public void reset() {
+        previousEdge = -1;
+    }
+
+    /**
+     * Matches a whole sequence of positions, choosing the sequence of edges with the lowest total
+     * cost. The live state is not changed.
+     *
+     * @param latitudes     latitudes of the positions in degrees.
+     * @param longitudes    longitudes of the positions in degrees.
+     * @param count         number of leading positions to match.
+     * @param outLatitudes  output latitudes of the matched positions, may be the input.
+     * @param outLongitudes output longitudes of the matched positions, may be the input.
+     * @return              number of positions snapped to an edge.
+     */
+    public int matchAll(double[] latitudes, double[] longitudes, int count,
+                        double[] outLatitudes, double[] outLongitudes) {
+        // Candidates and accumulated costs of every position, MAX_CANDIDATES slots per position
+        int[] edges = new int[count * MAX_CANDIDATES];
+        double[] costs = new double[count * MAX_CANDIDATES];
+        int[] previous = new int[count * MAX_CANDIDATES];
+        int[] counts = new int[count];
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+
+        int matched = 0;
+        int sequenceStart = 0;
+        for (int i = 0; i < count; i++) {
+            xs[i] = projector.toEast(longitudes[i]);
+            ys[i] = projector.toNorth(latitudes[i]);
+            findCandidates(xs[i], ys[i]);
+            counts[i] = candidateCount;
+            if (candidateCount == 0) {
+                // The sequence is broken, keep its best path
+                matched += backtrack(sequenceStart, i, edges, costs, previous, counts, xs, ys,
+                        outLatitudes, outLongitudes);
+                outLatitudes[i] = latitudes[i];
+                outLongitudes[i] = longitudes[i];
+                sequenceStart = i + 1;
+                continue;
+            }
+            int base = i * MAX_CANDIDATES;
+            int previousBase = base - MAX_CANDIDATES;
+            for (int j = 0; j < candidateCount; j++) {
+                int edge = candidateEdges[j];
+                double best = 0;
+                int bestPrevious = -1;
+                if (i > sequenceStart) {
+                    best = Double.POSITIVE_INFINITY;
+                    for (int k = 0; k < counts[i - 1]; k++) {
+                        double cost = costs[previousBase + k]
+                                + transitionCost(edges[previousBase + k], edge);
+                        if (cost < best) {
+                            best = cost;
+                            bestPrevious = k;
+                        }
+                    }
+                }
+                edges[base + j] = edge;
+                costs[base + j] = best + emissionCost(candidateDistances[j]);
+                previous[base + j] = bestPrevious;
+            }
+        }
+        matched += backtrack(sequenceStart, count, edges, costs, previous, counts, xs, ys,
+                outLatitudes, outLongitudes);
+        return matched;
+    }
+
+    /**
+     * Writes the matched positions of a sequence, following the cheapest path backwards from its
+     * last position.
+     *
+     * @return  number of positions of the sequence.
+     */
+    private int backtrack(int start, int end, int[] edges, double[] costs, int[] previous,
+                          int[] counts, double[] xs, double[] ys,
+                          double[] outLatitudes, double[] outLongitudes) {
+        if (end <= start) return 0;
+        int last = end - 1;
+        int base = last * MAX_CANDIDATES;
+        int slot = 0;
+        for (int k = 1; k < counts[last]; k++) {
+            if (costs[base + k] < costs[base + slot]) slot = k;
+        }
+        for (int i = last; i >= start; i--) {
+            int index = i * MAX_CANDIDATES + slot;
+            graph.distanceSquared(edges[index], xs[i], ys[i], closest);
+            outLatitudes[i] = projector.toLatitude(closest[1]);
+            outLongitudes[i] = projector.toLongitude(closest[0]);
+            slot = previous[index];
+        }
+        return end - start;
+    }
+
+    /**
+     * Collects the nearest edges within the search radius of a point into the candidates.
+     *
+     * @param x east coordinate of the point in meters.
+     * @param y north coordinate of the point in meters.
+     */
+    private void findCandidates(double x, double y) {
+        candidateCount = 0;
+        query++;
+        double radiusSquared = SEARCH_RADIUS * SEARCH_RADIUS;
+        int maxRow = WalkableGraph.cell(y + SEARCH_RADIUS);
+        int maxColumn = WalkableGraph.cell(x + SEARCH_RADIUS);
+        for (int row = WalkableGraph.cell(y - SEARCH_RADIUS); row <= maxRow; row++) {
+            for (int column = WalkableGraph.cell(x - SEARCH_RADIUS); column <= maxColumn; column++) {
+                int[] cellEdges = graph.getCellEdges(row, column);
+                if (cellEdges == null) continue;
+                for (int edge : cellEdges) {
+                    if (visited[edge] == query) continue;
+                    visited[edge] = query;
+                    double distance = graph.distanceSquared(edge, x, y, null);
+                    if (distance <= radiusSquared) addCandidate(edge, distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts an edge in the candidates sorted by distance, dropping the furthest if full.
+     *
+     * @param edge      index of the edge.
+     * @param distance  squared distance of the point to the edge.
+     */
+    private void addCandidate(int edge, double distance) {
+        int i = candidateCount;
+        if (i == MAX_CANDIDATES) {
+            if (distance >= candidateDistances[i - 1]) return;
+            i--;
+        } else {
+            candidateCount++;
+        }
+        while (i > 0 && candidateDistances[i - 1] > distance) {
+            candidateEdges[i] = candidateEdges[i - 1];
+            candidateDistances[i] = candidateDistances[i - 1];
+            i--;
+        }
+        candidateEdges[i] = edge;
+        candidateDistances[i] = distance;
+    }
+
+    /** Cost of a position at a squared distance from an edge. */
+    private static double emissionCost(double distanceSquared) {
+        return distanceSquared / (2 * POSITION_SIGMA * POSITION_SIGMA);
+    }
+
+    /** Cost of moving from an edge to another. */
+    private double transitionCost(int from, int to) {
+        if (from == to) return 0;
+        return graph.adjacent(from, to) ? ADJACENT_COST : JUMP_COST;
+    }
+}
@@ -0,0 +1,11 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Enum of the motion modes of the user estimated by the {@link MotionModeClassifier}.
+ */
+public enum MotionMode {
+    STATIONARY,
+    WALKING,
+    STAIRS,
+    ELEVATOR;
+}
@@ -0,0 +1,282 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Windowed motion mode classifier distinguishing between standing still, walking, taking the
+ * stairs and taking an elevator.
+ * <p>
+ * Features are computed incrementally over a sliding window of acceleration samples: running sums
+ * of the linear acceleration magnitude and of the squared vertical and horizontal components are
+ * updated with each new sample, so adding a sample costs a constant number of operations. The
+ * step cadence is computed from the timestamps of recent steps and the vertical rate is provided
+ * by the barometric height filter.
+ * <p>
+ * Every {@link #HOP_SAMPLES} samples the features are classified with a compact decision tree.
+ * The current mode is returned for every sample and by {@link #getMotionMode()}, the owner reads
+ * it when it needs it.
+ *
+ * @see MotionMode the estimated modes.
+ * @see PdrProcessing the owner of the classifier.
+ * @see BarometricFloorTracker the source of the vertical rate.
+ */
+public class MotionModeClassifier {
+
+    //region Static variables
+    // Number of samples between two classifications (0.25 second at 100Hz)
+    private static final int HOP_SAMPLES = 25;
+    // Time span for computing the step cadence in milliseconds
+    private static final long CADENCE_WINDOW_MS = 3000;
+    // Maximum number of step timestamps kept for the cadence
+    private static final int MAX_STEPS = 32;
+    // Minimum cadence to consider the user walking (steps/s)
+    private static final float WALKING_CADENCE = 0.5f;
+    // Vertical rate above which walking is considered to be on stairs (m/s)
+    private static final float STAIRS_RATE = 0.12f;
+    // Vertical rate above which standing still is considered to be in an elevator (m/s)
+    private static final float ELEVATOR_RATE = 0.4f;
+    // Variance of the acceleration magnitude under which the device is considered still (m/s^2)^2
+    private static final float STATIONARY_VARIANCE = 0.05f;
+    // Vertical acceleration threshold for detecting elevator movement (m/s^2)
+    private static final float MOVEMENT_THRESHOLD = 0.3f;
+    // Number of samples after which the running sums are recomputed to avoid accumulating error
+    private static final int RESYNC_SAMPLES = 10000;
+    //endregion
+
+    //region Instance variables
+    // Sliding windows of features
+    private final int windowSize;
+    private final float[] magnitudeWindow;
+    private final float[] verticalWindow;
+    private final float[] horizontalWindow;
+    private int writeIndex;
+    private int sampleCount;
+    private int samplesSinceHop;
+    private int samplesSinceResync;
+
+    // Running sums over the window
+    private double magnitudeSum;
+    private double magnitudeSquareSum;
+    private double verticalSquareSum;
+    private double horizontalSquareSum;
+
+    // Ring of recent step timestamps
+    private final long[] stepTimestamps;
+    private int stepWriteIndex;
+    private int stepCount;
+    private long lastSampleTimestamp;
+
+    // Threshold under which horizontal movement is considered non-existent (m/s^2)
+    private final float epsilon;
+    // Latest vertical rate from the barometer (m/s)
+    private float verticalRate;
+
+    // Current classification
+    private MotionMode motionMode;
+    //endregion
+
+    /**
+     * Public constructor of the classifier.
+     *
+     * @param windowSize    number of acceleration samples in the sliding window.
+     * @param epsilon       horizontal acceleration threshold under which there is no horizontal
+     *                      movement, in m/s^2.
+     */
+    public MotionModeClassifier(int windowSize, float epsilon) {
+        this.windowSize = Math.max(windowSize, HOP_SAMPLES);
+        this.magnitudeWindow = new float[this.windowSize];
+        this.verticalWindow = new float[this.windowSize];
+        this.horizontalWindow = new float[this.windowSize];
+        this.stepTimestamps = new long[MAX_STEPS];
+        this.epsilon = epsilon;
+        this.motionMode = MotionMode.STATIONARY;
+    }
+
+    /**
+     * Clears the window, the step history and the vertical rate, returning to the stationary mode.
+     */
+    public void reset() {
+        writeIndex = 0;
+        sampleCount = 0;
+        samplesSinceHop = 0;
+        samplesSinceResync = 0;
+        magnitudeSum = 0;
+        magnitudeSquareSum = 0;
+        verticalSquareSum = 0;
+        horizontalSquareSum = 0;
+        stepWriteIndex = 0;
+        stepCount = 0;
+        verticalRate = 0;
+        motionMode = MotionMode.STATIONARY;
+    }
+
+    /**
+     * Adds a new acceleration sample to the window, and classifies the window if a hop has been
+     * completed.
+     *
+     * @param timestamp time of the sample in milliseconds.
+     * @param gravity   array of size three, strength of gravity along the phone's x-y-z axis.
+     * @param acc       array of size three, acceleration other than gravity detected by the phone.
+     * @return          the current motion mode.
+     */
+    public MotionMode addAccelerationSample(long timestamp, float[] gravity, float[] acc) {
+        this.lastSampleTimestamp = timestamp;
+
+        // Split the acceleration into components along and perpendicular to gravity
+        float gravityNorm = (float) Math.sqrt(
+                gravity[0] * gravity[0] + gravity[1] * gravity[1] + gravity[2] * gravity[2]);
+        float magnitudeSquare = acc[0] * acc[0] + acc[1] * acc[1] + acc[2] * acc[2];
+        float vertical = gravityNorm > 0
+                ? (acc[0] * gravity[0] + acc[1] * gravity[1] + acc[2] * gravity[2]) / gravityNorm
+                : 0;
+        float horizontalSquare = Math.max(magnitudeSquare - vertical * vertical, 0);
+        float magnitude = (float) Math.sqrt(magnitudeSquare);
+
+        // Remove the oldest sample from the running sums once the window is full
+        if (sampleCount == windowSize) {
+            float oldMagnitude = magnitudeWindow[writeIndex];
+            magnitudeSum -= oldMagnitude;
+            magnitudeSquareSum -= oldMagnitude * oldMagnitude;
+            verticalSquareSum -= verticalWindow[writeIndex] * verticalWindow[writeIndex];
+            horizontalSquareSum -= horizontalWindow[writeIndex];
+        } else {
+            sampleCount++;
+        }
+
+        magnitudeWindow[writeIndex] = magnitude;
+        verticalWindow[writeIndex] = vertical;
+        horizontalWindow[writeIndex] = horizontalSquare;
+        magnitudeSum += magnitude;
+        magnitudeSquareSum += magnitudeSquare;
+        verticalSquareSum += vertical * vertical;
+        horizontalSquareSum += horizontalSquare;
+        writeIndex = (writeIndex + 1) % windowSize;
+
+        if (++samplesSinceResync >= RESYNC_SAMPLES) {
+            resyncSums();
+        }
+
+        // Classify at a fixed hop once there is a full window
+        if (++samplesSinceHop >= HOP_SAMPLES && sampleCount == windowSize) {
+            samplesSinceHop = 0;
+            motionMode = classify();
+        }
+        return motionMode;
+    }
+
+    /**
+     * Registers a detected step for the cadence feature, at the time of the latest acceleration
+     * sample.
+     */
+    public void addStep() {
+        stepTimestamps[stepWriteIndex] = lastSampleTimestamp;
+        stepWriteIndex = (stepWriteIndex + 1) % MAX_STEPS;
+        if (stepCount < MAX_STEPS) stepCount++;
+    }
+
+    /**
+     * Sets the latest vertical rate estimated from the barometer.
+     *
+     * @param verticalRate  vertical rate in meters per second, positive upwards.
+     */
+    public void setVerticalRate(float verticalRate) {
+        this.verticalRate = verticalRate;
+    }
+
+    /**
+     * Decision tree classifying the current features into a motion mode.
+     *
+     * @return  the estimated motion mode.
+     */
+    private MotionMode classify() {
+        float cadence = getCadence();
+        float absoluteRate = Math.abs(verticalRate);
+        if (cadence >= WALKING_CADENCE) {
+            return absoluteRate >= STAIRS_RATE ? MotionMode.STAIRS : MotionMode.WALKING;
+        }
+        // No steps - check for vertical movement without horizontal movement
+        if (absoluteRate >= ELEVATOR_RATE
+                || (getHorizontalEnergy() < epsilon * epsilon
+                && getVerticalEnergy() > MOVEMENT_THRESHOLD * MOVEMENT_THRESHOLD
+                && getAccelerationVariance() >= STATIONARY_VARIANCE)) {
+            return MotionMode.ELEVATOR;
+        }
+        return MotionMode.STATIONARY;
+    }
+
+    /**
+     * Recomputes the running sums from the window contents to remove floating point drift.
+     * Runs every {@link #RESYNC_SAMPLES} samples, so the amortised cost per sample stays constant.
+     */
+    private void resyncSums() {
+        samplesSinceResync = 0;
+        magnitudeSum = 0;
+        magnitudeSquareSum = 0;
+        verticalSquareSum = 0;
+        horizontalSquareSum = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            magnitudeSum += magnitudeWindow[i];
+            magnitudeSquareSum += magnitudeWindow[i] * magnitudeWindow[i];
+            verticalSquareSum += verticalWindow[i] * verticalWindow[i];
+            horizontalSquareSum += horizontalWindow[i];
+        }
+    }
+
+    /**
+     * Get the variance of the linear acceleration magnitude over the window.
+     *
+     * @return  variance in (m/s^2)^2.
+     */
+    public float getAccelerationVariance() {
+        if (sampleCount == 0) return 0;
+        double mean = magnitudeSum / sampleCount;
+        return (float) Math.max(magnitudeSquareSum / sampleCount - mean * mean, 0);
+    }
+
+    /**
+     * Get the mean energy of the acceleration along gravity over the window.
+     *
+     * @return  mean squared vertical acceleration in (m/s^2)^2.
+     */
+    public float getVerticalEnergy() {
+        return sampleCount == 0 ? 0 : (float) (verticalSquareSum / sampleCount);
+    }
+
+    /**
+     * Get the mean energy of the acceleration perpendicular to gravity over the window.
+     *
+     * @return  mean squared horizontal acceleration in (m/s^2)^2.
+     */
+    public float getHorizontalEnergy() {
+        return sampleCount == 0 ? 0 : (float) (horizontalSquareSum / sampleCount);
+    }
+
+    /**
+     * Get the step cadence over the last {@link #CADENCE_WINDOW_MS} milliseconds.
+     *
+     * @return  cadence in steps per second.
+     */
+    public float getCadence() {
+        int recentSteps = 0;
+        for (int i = 0; i < stepCount; i++) {
+            if (lastSampleTimestamp - stepTimestamps[i] <= CADENCE_WINDOW_MS) recentSteps++;
+        }
+        return recentSteps * 1000f / CADENCE_WINDOW_MS;
+    }
+
+    /**
+     * Get the latest vertical rate used for classification.
+     *
+     * @return  vertical rate in meters per second, positive upwards.
+     */
+    public float getVerticalRate() {
+        return verticalRate;
+    }
+
+    /**
+     * Get the latest motion mode classification.
+     *
+     * @return  the current {@link MotionMode}.
+     */
+    public MotionMode getMotionMode() {
+        return motionMode;
+    }
+}
@@ -1,25 +1,16 @@
 package com.openpositioning.PositionMe.utils;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-import android.hardware.SensorManager;
-
-import androidx.preference.PreferenceManager;
-
-import com.openpositioning.PositionMe.sensors.SensorFusion;
-
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.OptionalDouble;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
- * Processes data recorded in the {@link SensorFusion} class and calculates live PDR estimates.
+ * Processes data recorded in the SensorFusion class and calculates live PDR estimates.
  * It calculates the position from the steps and directions detected, using either estimated values
  * (eg. stride length from the Weiberg algorithm) or provided constants, calculates the elevation
- * and attempts to estimate the current floor as well as elevators.
+ * and attempts to estimate the current floor as well as the motion mode (eg. elevators).
  *
  * @author Mate Stodulka
  * @author Michal Dvorak
@@ -33,16 +24,14 @@ public class PdrProcessing {
     private static final int elevationSeconds = 4;
     // Number of samples (0.01 seconds)
     private static final int accelSamples = 100;
-    // Threshold used to detect significant movement
-    private static final float movementThreshold = 0.3f; // m/s^2
-    // Threshold under which movement is considered non-existent
+    // Threshold under which horizontal movement is considered non-existent
     private static final float epsilon = 0.18f;
     private static final int MIN_REQUIRED_SAMPLES = 2;
     //endregion
 
     //region Instance variables
     // Settings for accessing shared variables
-    private SharedPreferences settings;
+    private final Config settings;
 
     // Step length
     private float stepLength;
@@ -58,15 +47,12 @@ public class PdrProcessing {
     private float startElevation;
     private int setupIndex = 0;
     private float elevation;
-    private int floorHeight;
-    private int currentFloor;
 
-    // Buffer of most recent elevations calculated
-    private CircularFloatBuffer elevationList;
+    // Incremental height filter and floor state machine
+    private BarometricFloorTracker floorTracker;
 
-    // Buffer for most recent directional acceleration magnitudes
-    private CircularFloatBuffer verticalAccel;
-    private CircularFloatBuffer horizontalAccel;
+    // Windowed classifier of the motion mode (stationary, walking, stairs, elevator)
+    private MotionModeClassifier motionClassifier;
 
     // Step sum and length aggregation variables
     private float sumStepLength = 0;
@@ -75,13 +61,13 @@ public class PdrProcessing {
 
     /**
      * Public constructor for the PDR class.
-     * Takes context for variable access. Sets initial values based on settings.
+     * Takes the settings for variable access. Sets initial values based on settings.
      *
-     * @param context   Application context for variable access.
+     * @param settings  user settings, eg. the shared preferences of the application.
      */
-    public PdrProcessing(Context context) {
+    public PdrProcessing(Config settings) {
         // Initialise settings
-        this.settings = PreferenceManager.getDefaultSharedPreferences(context);
+        this.settings = settings;
         // Check if estimate or manual values should be used
         this.useManualStep = this.settings.getBoolean("manual_step_values", false);
         if(useManualStep) {
@@ -91,7 +77,7 @@ public class PdrProcessing {
             } catch (Exception e) {
                 // Invalid values - reset to defaults
                 this.stepLength = 0.75f;
-                this.settings.edit().putInt("user_step_length", 75).apply();
+                this.settings.putInt("user_step_length", 75);
             }
         }
         else {
@@ -105,29 +91,29 @@ public class PdrProcessing {
         this.elevation = 0f;
 
 
+        // Distance between floors is building dependent, use manual value until a building is known
+        float floorHeight = settings.getInt("floor_height", 4);
         if(this.settings.getBoolean("overwrite_constants", false)) {
-            // Capacity - pressure is read with 1Hz - store values of past 10 seconds
-            this.elevationList = new CircularFloatBuffer(Integer.parseInt(settings.getString("elevation_seconds", "4")));
-
-            // Buffer for most recent acceleration values
-            this.verticalAccel = new CircularFloatBuffer(Integer.parseInt(settings.getString("accel_samples", "4")));
-            this.horizontalAccel = new CircularFloatBuffer(Integer.parseInt(settings.getString("accel_samples", "4")));
+            // Smoothing horizon of the height filter - pressure is read with 1Hz
+            this.floorTracker = new BarometricFloorTracker(
+                    Integer.parseInt(settings.getString("elevation_seconds", "4")), floorHeight);
+
+            // Window of most recent acceleration values for the motion mode
+            this.motionClassifier = new MotionModeClassifier(
+                    Integer.parseInt(settings.getString("accel_samples", "4")),
+                    Float.parseFloat(settings.getString("epsilon", "0.18")));
         }
         else {
-            // Capacity - pressure is read with 1Hz - store values of past 10 seconds
-            this.elevationList = new CircularFloatBuffer(elevationSeconds);
+            // Smoothing horizon of the height filter - pressure is read with 1Hz
+            this.floorTracker = new BarometricFloorTracker(elevationSeconds, floorHeight);
 
-            // Buffer for most recent acceleration values
-            this.verticalAccel = new CircularFloatBuffer(accelSamples);
-            this.horizontalAccel = new CircularFloatBuffer(accelSamples);
+            // Window of most recent acceleration values for the motion mode
+            this.motionClassifier = new MotionModeClassifier(accelSamples, epsilon);
         }
 
-        // Distance between floors is building dependent, use manual value
-        this.floorHeight = settings.getInt("floor_height", 4);
         // Array for holding initial values
         this.startElevationBuffer = new Float[3];
-        // Start floor - assumed to be zero
-        this.currentFloor = 0;
+        this.setupIndex = 0;
     }
 
     /**
@@ -140,6 +126,8 @@ public class PdrProcessing {
      * @param headingRad                heading relative to magnetic north in radians.
      */
     public float[] updatePdr(long currentStepEnd, List<Double> accelMagnitudeOvertime, float headingRad) {
+        // Every detected step counts towards the cadence, even if it cannot be used for PDR
+        this.motionClassifier.addStep();
         if (accelMagnitudeOvertime == null || accelMagnitudeOvertime.size() < MIN_REQUIRED_SAMPLES) {
             return new float[]{this.positionX, this.positionY};  // Return current position without update
                                                                 // - TODO - temporary solution of the empty list issue
@@ -182,12 +170,14 @@ public class PdrProcessing {
      * Calculates the relative elevation compared to the start position.
      * The start elevation is the median of the first three seconds of data to give the sensor time
      * to settle. The sea level is irrelevant as only values relative to the initial position are
-     * reported.
+     * reported. Subsequent values are smoothed incrementally by the {@link BarometricFloorTracker},
+     * which also updates the current floor.
      *
+     * @param timestamp         time of the measurement in milliseconds.
      * @param absoluteElevation absolute elevation in meters compared to sea level.
      * @return                  current elevation in meters relative to the start position.
      */
-    public float updateElevation(float absoluteElevation) {
+    public float updateElevation(long timestamp, float absoluteElevation) {
         // Set start to median of first three values
         if(setupIndex < 3) {
             // Add values to buffer until it's full
@@ -196,29 +186,16 @@ public class PdrProcessing {
             if(setupIndex == 2) {
                 Arrays.sort(startElevationBuffer);
                 startElevation = startElevationBuffer[1];
+                floorTracker.reset(startElevation);
             }
             this.setupIndex++;
         }
         else {
+            // Filter the elevation and check if there was floor movement
+            this.floorTracker.update(timestamp, absoluteElevation);
+            this.motionClassifier.setVerticalRate(floorTracker.getVerticalRate());
             // Get relative elevation in meters
-            this.elevation = absoluteElevation - startElevation;
-            // Add to buffer
-            this.elevationList.putNewest(absoluteElevation);
-
-            // Check if there was floor movement
-            // Check if there is enough data to evaluate
-            if(this.elevationList.isFull()) {
-                // Check average of elevation array
-                List<Float> elevationMemory = this.elevationList.getListCopy();
-                OptionalDouble currentAvg = elevationMemory.stream().mapToDouble(f -> f).average();
-                float finishAvg = currentAvg.isPresent() ? (float) currentAvg.getAsDouble() : 0;
-
-                // Check if we moved floor by comparing with start position
-                if(Math.abs(finishAvg - startElevation) > this.floorHeight) {
-                    // Change floors - 'floor' division
-                    this.currentFloor += (finishAvg - startElevation)/this.floorHeight;
-                }
-            }
+            this.elevation = floorTracker.getRelativeHeight();
             // Return current elevation
             return elevation;
         }
@@ -288,61 +265,60 @@ public class PdrProcessing {
      * @return current floor number, assuming start position is on level zero.
      */
     public int getCurrentFloor() {
-        return this.currentFloor;
+        return this.floorTracker.getCurrentFloor();
+    }
+
+    /**
+     * Get the filtered vertical rate from the barometer.
+     *
+     * @return vertical rate in meters per second, positive upwards.
+     */
+    public float getVerticalRate() {
+        return this.floorTracker.getVerticalRate();
+    }
+
+    /**
+     * Set the height of a floor of the building the user is in, eg.
+     * {@link Building#getFloorHeight()}, to be used for floor estimation.
+     *
+     * @param floorHeight   height of a floor in meters.
+     */
+    public void setFloorHeight(float floorHeight) {
+        this.floorTracker.setFloorHeight(floorHeight);
     }
 
     /**
-     * Estimates if the user is currently taking an elevator.
-     * From the gravity and gravity-removed acceleration values the magnitude of horizontal and
-     * vertical acceleration is calculated and stored over time. Averaging these values and
-     * comparing with the thresholds set for this class, it estimates if the current movement
-     * matches what is expected from an elevator ride.
+     * Adds an acceleration sample to the motion mode classifier.
+     * The gravity and gravity-removed acceleration values are split into vertical and horizontal
+     * components, which are accumulated over a sliding window together with the step cadence and
+     * the barometric vertical rate to classify the current motion mode.
+     * Should be called once for every linear acceleration event.
      *
+     * @param timestamp time of the sample in milliseconds.
      * @param gravity   array of size three, strength of gravity along the phone's x-y-z axis.
      * @param acc       array of size three, acceleration other than gravity detected by the phone.
-     * @return          boolean true if currently in an elevator, false otherwise.
+     * @return          the current {@link MotionMode}.
      */
-    public boolean estimateElevator(float[] gravity, float[] acc) {
-        // Standard gravity
-        float g = SensorManager.STANDARD_GRAVITY;
-        // get horizontal and vertical acceleration magnitude
-        float verticalAcc = (float) Math.sqrt(
-                Math.pow((acc[0] * gravity[0]/g),2) +
-                Math.pow((acc[1] * gravity[1]/g), 2) +
-                Math.pow((acc[2] * gravity[2]/g), 2));
-        float horizontalAcc = (float) Math.sqrt(
-                Math.pow((acc[0] * (1 - gravity[0]/g)), 2) +
-                Math.pow((acc[1] * (1 - gravity[1]/g)), 2) +
-                Math.pow((acc[2] * (1 - gravity[2]/g)), 2));
-        // Save into buffer to compare with past values
-        this.verticalAccel.putNewest(verticalAcc);
-        this.horizontalAccel.putNewest(horizontalAcc);
-        // Once buffer is full, evaluate data
-        if(this.verticalAccel.isFull() && this.horizontalAccel.isFull()) {
-
-            // calculate average vertical accel
-            List<Float> verticalMemory = this.verticalAccel.getListCopy();
-            OptionalDouble optVerticalAvg = verticalMemory.stream().mapToDouble(Math::abs).average();
-            float verticalAvg = optVerticalAvg.isPresent() ? (float) optVerticalAvg.getAsDouble() : 0;
-
-
-            // calculate average horizontal accel
-            List<Float> horizontalMemory = this.horizontalAccel.getListCopy();
-            OptionalDouble optHorizontalAvg = horizontalMemory.stream().mapToDouble(Math::abs).average();
-            float horizontalAvg = optHorizontalAvg.isPresent() ? (float) optHorizontalAvg.getAsDouble() : 0;
-
-            //System.err.println("LIFT: Vertical: " + verticalAvg);
-            //System.err.println("LIFT: Horizontal: " + horizontalAvg);
-
-            if(this.settings.getBoolean("overwrite_constants", false)) {
-                float eps = Float.parseFloat(settings.getString("epsilon", "0.18"));
-                return horizontalAvg < eps && verticalAvg > movementThreshold;
-            }
-            // Check if there is minimal horizontal and significant vertical movement
-            return horizontalAvg < epsilon && verticalAvg > movementThreshold;
-        }
-        return false;
+    public MotionMode updateMotionMode(long timestamp, float[] gravity, float[] acc) {
+        return this.motionClassifier.addAccelerationSample(timestamp, gravity, acc);
+    }
+
+    /**
+     * Get the latest motion mode estimated from the sensor data.
+     *
+     * @return  the current {@link MotionMode}.
+     */
+    public MotionMode getMotionMode() {
+        return this.motionClassifier.getMotionMode();
+    }
 
+    /**
+     * Get the motion mode classifier, eg. for registering observers of mode changes.
+     *
+     * @return  the {@link MotionModeClassifier} used by the PDR.
+     */
+    public MotionModeClassifier getMotionModeClassifier() {
+        return this.motionClassifier;
     }
 
     /**
@@ -359,7 +335,7 @@ public class PdrProcessing {
             } catch (Exception e) {
                 // Invalid values - reset to defaults
                 this.stepLength = 0.75f;
-                this.settings.edit().putInt("user_step_length", 75).apply();
+                this.settings.putInt("user_step_length", 75);
             }
         }
         else {
@@ -372,29 +348,24 @@ public class PdrProcessing {
         this.positionY = 0f;
         this.elevation = 0f;
 
+        // Keep the floor height of the current building, set with setFloorHeight
+        float floorHeight = floorTracker.getFloorHeight();
         if(this.settings.getBoolean("overwrite_constants", false)) {
-            // Capacity - pressure is read with 1Hz - store values of past 10 seconds
-            this.elevationList = new CircularFloatBuffer(Integer.parseInt(settings.getString("elevation_seconds", "4")));
-
-            // Buffer for most recent acceleration values
-            this.verticalAccel = new CircularFloatBuffer(Integer.parseInt(settings.getString("accel_samples", "4")));
-            this.horizontalAccel = new CircularFloatBuffer(Integer.parseInt(settings.getString("accel_samples", "4")));
+            // Smoothing horizon of the height filter - pressure is read with 1Hz
+            this.floorTracker = new BarometricFloorTracker(
+                    Integer.parseInt(settings.getString("elevation_seconds", "4")), floorHeight);
         }
         else {
-            // Capacity - pressure is read with 1Hz - store values of past 10 seconds
-            this.elevationList = new CircularFloatBuffer(elevationSeconds);
-
-            // Buffer for most recent acceleration values
-            this.verticalAccel = new CircularFloatBuffer(accelSamples);
-            this.horizontalAccel = new CircularFloatBuffer(accelSamples);
+            // Smoothing horizon of the height filter - pressure is read with 1Hz
+            this.floorTracker = new BarometricFloorTracker(elevationSeconds, floorHeight);
         }
 
-        // Distance between floors is building dependent, use manual value
-        this.floorHeight = settings.getInt("floor_height", 4);
+        // Clear the motion mode window, keeping registered observers
+        this.motionClassifier.reset();
+
         // Array for holding initial values
         this.startElevationBuffer = new Float[3];
-        // Start floor - assumed to be zero
-        this.currentFloor = 0;
+        this.setupIndex = 0;
     }
 
     /**
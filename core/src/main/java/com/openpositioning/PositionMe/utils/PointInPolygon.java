@@ -0,0 +1,84 @@
+package com.openpositioning.PositionMe.utils;
+
+import java.util.List;
+
+/**
+ * Point in polygon test on geographic coordinates (approximates earth to be flat).
+ * Ray casting algorithm https://en.wikipedia.org/wiki/Point_in_polygon
+ */
+public final class PointInPolygon {
+
+    private PointInPolygon() {}
+
+    /**
+     * Function to check if point in polygon
+     * @param point point to be checked if in polygon
+     * @param polygon Boundaries of the polygon, in order, without repeating the first point
+     * @return True if point in polygon
+     * False otherwise
+     */
+    public static boolean contains(GeoPoint point, List<GeoPoint> polygon) {
+        int numCrossings = 0;
+        // For each edge
+        for (int i=0; i < polygon.size(); i++) {
+            GeoPoint a = polygon.get(i);
+            int j = i + 1;
+            // Last edge (includes first point of Polygon)
+            if (j >= polygon.size()) {
+                j = 0;
+            }
+            GeoPoint b = polygon.get(j);
+            if (crossingSegment(point, a, b)) {
+                numCrossings++;
+            }
+        }
+
+        //if odd number of numCrossings return true (point is in polygon)
+        return (numCrossings % 2 == 1);
+    }
+
+    /**
+     * Ray Casting algorithm for a segment joining ab
+     * @param point the point we check
+     * @param a the line segment's starting point
+     * @param b the line segment's ending point
+     * @return True if the point is
+     *      1) To the left of the segment ab
+     *      2) Not above nor below the segment ab
+     *      Otherwise False
+     */
+    private static boolean crossingSegment(GeoPoint point, GeoPoint a, GeoPoint b) {
+        double pointLng = point.longitude,
+                pointLat = point.latitude,
+                aLng = a.longitude,
+                aLat = a.latitude,
+                bLng = b.longitude,
+                bLat = b.latitude;
+        if (aLat > bLat) {
+            aLng = b.longitude;
+            aLat = b.latitude;
+            bLng = a.longitude;
+            bLat = a.latitude;
+        }
+        // Alter longitude to correct for 180 degree crossings
+        if (pointLng < 0 || aLng <0 || bLng <0) { pointLng += 360; aLng+=360; bLng+=360; }
+        // If point has same latitude as a or b, increase slightly pointLat
+        if (pointLat == aLat || pointLat == bLat) pointLat += 0.00000001;
+
+        //If the point is above, below or to the right of the segment,return false
+        if ((pointLat > bLat || pointLat < aLat) || (pointLng > Math.max(aLng, bLng))){
+            return false;
+        }
+        // If the point is not above, below or to the right and is to the left, return true
+        else if (pointLng < Math.min(aLng, bLng)){
+            return true;
+        }
+        // Comparing the slope of segment [a,b] (slope1)
+        // and segment [a,point] (slope2) to check if to the left of segment [a,b] or not
+        else {
+            double slope1 = (aLng != bLng) ? ((bLat - aLat) / (bLng - aLng)) : Double.POSITIVE_INFINITY;
+            double slope2 = (aLng != pointLng) ? ((pointLat - aLat) / (pointLng - aLng)) : Double.POSITIVE_INFINITY;
+            return (slope2 >= slope1);
+        }
+    }
+}
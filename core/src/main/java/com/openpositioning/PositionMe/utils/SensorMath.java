@@ -0,0 +1,84 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Conversions of raw sensor values, with the same results as the helpers of the Android
+ * {@code SensorManager} so that the processing gives identical output on the device and on the
+ * host.
+ */
+public final class SensorMath {
+
+    //region Static variables
+    // Standard atmosphere at sea level in hPa
+    public static final float PRESSURE_STANDARD_ATMOSPHERE = 1013.25f;
+    //endregion
+
+    private SensorMath() {}
+
+    /**
+     * Computes the rotation matrix of a rotation vector sensor event.
+     *
+     * @param rotationMatrix    3x3 row-major matrix to fill.
+     * @param rotationVector    x, y, z and optionally w components of the rotation quaternion, the
+     *                          scalar component is derived from the others if it is missing.
+     */
+    public static void getRotationMatrixFromVector(float[] rotationMatrix, float[] rotationVector) {
+        float q1 = rotationVector[0];
+        float q2 = rotationVector[1];
+        float q3 = rotationVector[2];
+        float q0;
+        if (rotationVector.length >= 4) {
+            q0 = rotationVector[3];
+        }
+        else {
+            q0 = 1 - q1 * q1 - q2 * q2 - q3 * q3;
+            q0 = q0 > 0 ? (float) Math.sqrt(q0) : 0;
+        }
+
+        float sqQ1 = 2 * q1 * q1;
+        float sqQ2 = 2 * q2 * q2;
+        float sqQ3 = 2 * q3 * q3;
+        float q1q2 = 2 * q1 * q2;
+        float q3q0 = 2 * q3 * q0;
+        float q1q3 = 2 * q1 * q3;
+        float q2q0 = 2 * q2 * q0;
+        float q2q3 = 2 * q2 * q3;
+        float q1q0 = 2 * q1 * q0;
+
+        rotationMatrix[0] = 1 - sqQ2 - sqQ3;
+        rotationMatrix[1] = q1q2 - q3q0;
+        rotationMatrix[2] = q1q3 + q2q0;
+        rotationMatrix[3] = q1q2 + q3q0;
+        rotationMatrix[4] = 1 - sqQ1 - sqQ3;
+        rotationMatrix[5] = q2q3 - q1q0;
+        rotationMatrix[6] = q1q3 - q2q0;
+        rotationMatrix[7] = q2q3 + q1q0;
+        rotationMatrix[8] = 1 - sqQ1 - sqQ2;
+    }
+
+    /**
+     * Computes the orientation of the device from its rotation matrix.
+     *
+     * @param rotationMatrix    3x3 row-major rotation matrix.
+     * @param orientation       array to fill with the azimuth (clockwise from north), pitch and
+     *                          roll in radians.
+     * @return                  the orientation array.
+     */
+    public static float[] getOrientation(float[] rotationMatrix, float[] orientation) {
+        orientation[0] = (float) Math.atan2(rotationMatrix[1], rotationMatrix[4]);
+        orientation[1] = (float) Math.asin(-rotationMatrix[7]);
+        orientation[2] = (float) Math.atan2(-rotationMatrix[6], rotationMatrix[8]);
+        return orientation;
+    }
+
+    /**
+     * Computes the altitude from the atmospheric pressure with the international barometric
+     * formula.
+     *
+     * @param p0    pressure at sea level in hPa.
+     * @param p     measured pressure in hPa.
+     * @return      altitude in meters.
+     */
+    public static float getAltitude(float p0, float p) {
+        return (float) (44330.0 * (1.0 - Math.pow(p / p0, 1.0 / 5.255)));
+    }
+}
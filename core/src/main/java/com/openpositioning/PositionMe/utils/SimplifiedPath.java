@@ -0,0 +1,386 @@
+package com.openpositioning.PositionMe.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growing path of geographic points, simplified incrementally at several tolerances.
+ * <p>
+ * Every tier keeps a subset of the points such that no dropped point is further than the tier
+ * tolerance from the simplified line, the criterion of the Douglas-Peucker algorithm. The subset
+ * is maintained while appending with a sleeve: the last kept point is the anchor, and every point
+ * after it narrows the cone of directions from the anchor in which a segment passes within the
+ * tolerance of the point. The previous point is kept as soon as the newest point leaves the cone,
+ * or is closer to the anchor than a point in between. The cone is an interval of angles, so
+ * appending a point costs a constant number of operations per tier, independent of the length of
+ * the path, and a straight line keeps only its two ends.
+ * <p>
+ * A tier is read as the list of kept points followed by the newest point, so its end always
+ * follows the path. Because a point is kept based only on the points before it, the tier of any
+ * prefix of the path is the kept points of the prefix followed by its last point, which allows
+ * showing earlier states of the path, eg. when seeking in a replay, without simplifying again.
+ * <p>
+ * A tier never holds more than {@link #MAX_TIER_SIZE} kept points: when a tier exceeds it, its
+ * tolerance is doubled and the tier is simplified again from the whole path, as many times as
+ * needed. This costs one pass over the path per doubling, which only happens when the path has
+ * grown enough to fill the tier again, and a long winding path is drawn coarser than the initial
+ * tolerance instead of with a growing number of vertices. Tolerances only return to their initial
+ * values when the path is cleared.
+ * <p>
+ * Distances are computed in a local east-north plane around the first point, which is accurate
+ * for paths of a few kilometers.
+ */
+public class SimplifiedPath {
+
+    //region Static variables
+    // Default tolerances in meters, the finest tier first, for map zoom levels 21 to 12
+    public static final double[] DEFAULT_TOLERANCES = {0.05, 0.2, 0.8, 3.2, 12.8};
+    // Largest number of kept points of a tier before its tolerance is doubled
+    public static final int MAX_TIER_SIZE = 2048;
+    private static final int INITIAL_CAPACITY = 256;
+    //endregion
+
+    //region Instance variables
+    private final double[] initialTolerances;
+    // Current tolerance of every tier in meters, doubled when the tier is over budget
+    private final double[] tolerances;
+    // Coordinates in degrees
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    // Local east and north coordinates in meters, relative to the first point
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int size;
+    // Local plane anchored at the first point
+    private EnuProjector projector;
+    // Indices of the kept points of every tier, in ascending order
+    private final int[][] kept;
+    private final int[] keptCounts;
+    // Sleeve of every tier: directions from the anchor in radians, empty if low > high
+    private final double[] coneLow;
+    private final double[] coneHigh;
+    private final boolean[] coneSet;
+    // Largest distance from the anchor of the points after it, in meters
+    private final double[] reach;
+    //endregion
+
+    /**
+     * Creates an empty path with the {@link #DEFAULT_TOLERANCES}.
+     */
+    public SimplifiedPath() {
+        this(DEFAULT_TOLERANCES);
+    }
+
+    /**
+     * Creates an empty path.
+     *
+     * @param tolerances    tolerance of every tier in meters, in ascending order.
+     */
+    public SimplifiedPath(double[] tolerances) {
+        this.initialTolerances = tolerances.clone();
+        this.tolerances = tolerances.clone();
+        this.kept = new int[tolerances.length][INITIAL_CAPACITY];
+        this.keptCounts = new int[tolerances.length];
+        this.coneLow = new double[tolerances.length];
+        this.coneHigh = new double[tolerances.length];
+        this.coneSet = new boolean[tolerances.length];
+        this.reach = new double[tolerances.length];
+    }
+
+    /**
+     * Appends a point to the path and updates every tier.
+     *
+     * @param latitude  latitude in degrees.
+     * @param longitude longitude in degrees.
+     */
+    public void add(double latitude, double longitude) {
+        if (size == latitudes.length) {
+            int capacity = size * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        if (size == 0) {
+            projector = new EnuProjector(latitude, longitude);
+        }
+        int index = size++;
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        xs[index] = projector.toEast(longitude);
+        ys[index] = projector.toNorth(latitude);
+
+        for (int tier = 0; tier < kept.length; tier++) {
+            if (index == 0) {
+                keep(tier, 0);
+                continue;
+            }
+            advance(tier, index);
+            while (keptCounts[tier] > MAX_TIER_SIZE) {
+                tolerances[tier] *= 2;
+                simplify(tier);
+            }
+        }
+    }
+
+    /**
+     * Removes the points after the given number of leading points, restoring every tier to the
+     * state it had when the path had that size at the current tolerances.
+     *
+     * @param newSize   number of leading points to keep.
+     */
+    public void truncate(int newSize) {
+        if (newSize >= size) return;
+        size = Math.max(0, newSize);
+        for (int tier = 0; tier < kept.length; tier++) {
+            if (size == 0) {
+                keptCounts[tier] = 0;
+                tolerances[tier] = initialTolerances[tier];
+                continue;
+            }
+            // The first point is always kept
+            keptCounts[tier] = Math.max(1, keptBefore(tier, size - 1));
+            // Narrow the sleeve again with the points after the anchor
+            int anchor = kept[tier][keptCounts[tier] - 1];
+            resetSleeve(tier);
+            for (int index = anchor + 1; index < size; index++) {
+                narrow(tier, anchor, index);
+            }
+        }
+    }
+
+    /**
+     * Removes every point and restores the initial tolerances.
+     */
+    public void clear() {
+        truncate(0);
+    }
+
+    /**
+     * Selects the coarsest tier that does not lose detail at a map resolution.
+     *
+     * @param metersPerPixel    ground distance covered by a pixel in meters.
+     * @return                  the tier with the largest tolerance of at most one pixel, the tier
+     *                          with the smallest tolerance if there is none.
+     */
+    public int selectTier(double metersPerPixel) {
+        int selected = 0;
+        for (int tier = 1; tier < tolerances.length; tier++) {
+            boolean fits = tolerances[tier] <= metersPerPixel;
+            if (tolerances[selected] <= metersPerPixel
+                    ? fits && tolerances[tier] > tolerances[selected]
+                    : tolerances[tier] < tolerances[selected]) {
+                selected = tier;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Get the number of points of a tier for a prefix of the path.
+     *
+     * @param tier      index of the tier.
+     * @param limit     number of leading points of the path, at most {@link #size()}.
+     * @return          number of points of the simplified prefix.
+     */
+    public int getTierSize(int tier, int limit) {
+        if (limit <= 0) return 0;
+        return keptBefore(tier, limit - 1) + 1;
+    }
+
+    /**
+     * Get the index in the path of a point of a tier for a prefix of the path.
+     *
+     * @param tier      index of the tier.
+     * @param limit     number of leading points of the path, at most {@link #size()}.
+     * @param position  position in the simplified prefix, less than
+     *                  {@link #getTierSize(int, int)}.
+     * @return          index of the point in the path.
+     */
+    public int getTierIndex(int tier, int limit, int position) {
+        return position < keptBefore(tier, limit - 1) ? kept[tier][position] : limit - 1;
+    }
+
+    //region Getters
+
+    /**
+     * Get the number of points of the path.
+     *
+     * @return  number of points added and not truncated.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of tiers.
+     *
+     * @return  number of tolerances the path is simplified at.
+     */
+    public int getTierCount() {
+        return tolerances.length;
+    }
+
+    /**
+     * Get the current tolerance of a tier, larger than the initial one if the tier went over
+     * {@link #MAX_TIER_SIZE}.
+     *
+     * @param tier  index of the tier.
+     * @return      largest distance in meters of a dropped point from the simplified line.
+     */
+    public double getTolerance(int tier) {
+        return tolerances[tier];
+    }
+
+    /** Get the latitude of a point in degrees. */
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    /** Get the longitude of a point in degrees. */
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    //endregion
+
+    /**
+     * Updates a tier with a new point, keeping the previous point if the segment from the anchor
+     * to the new point would leave a point in between out of the tolerance.
+     *
+     * @param tier  index of the tier.
+     * @param index index of the new point in the path.
+     */
+    private void advance(int tier, int index) {
+        int anchor = kept[tier][keptCounts[tier] - 1];
+        if (!withinSleeve(tier, anchor, index)) {
+            keep(tier, index - 1);
+            anchor = index - 1;
+            resetSleeve(tier);
+        }
+        narrow(tier, anchor, index);
+    }
+
+    /**
+     * Simplifies a tier again from the first point of the path, eg. after its tolerance changed.
+     *
+     * @param tier  index of the tier.
+     */
+    private void simplify(int tier) {
+        keptCounts[tier] = 0;
+        keep(tier, 0);
+        resetSleeve(tier);
+        for (int index = 1; index < size; index++) {
+            advance(tier, index);
+        }
+    }
+
+    /**
+     * Checks if the segment from the anchor to a point passes within the tolerance of every point
+     * in between.
+     * <p>
+     * The direction of the segment must be in the sleeve of every point in between, and the
+     * segment must be at least as long as the distance of any of them to the anchor, so that each
+     * projects on the segment and not beyond its end. The check is conservative: a point closer
+     * to the anchor than one in between is kept even if it is within the tolerance.
+     * </p>
+     *
+     * @param tier      index of the tier.
+     * @param anchor    index of the last kept point.
+     * @param index     index of the new point.
+     * @return          true if no point in between is further than the tolerance.
+     */
+    private boolean withinSleeve(int tier, int anchor, int index) {
+        double dx = xs[index] - xs[anchor];
+        double dy = ys[index] - ys[anchor];
+        if (Math.hypot(dx, dy) < reach[tier]) return false;
+        if (!coneSet[tier]) return true;
+        double direction = unwrap(Math.atan2(dy, dx), coneCenter(tier));
+        return direction >= coneLow[tier] && direction <= coneHigh[tier];
+    }
+
+    /**
+     * Narrows the sleeve of a tier to the directions passing within the tolerance of a point.
+     * Points within the tolerance of the anchor do not constrain the direction.
+     *
+     * @param tier      index of the tier.
+     * @param anchor    index of the last kept point.
+     * @param index     index of the point after the anchor.
+     */
+    private void narrow(int tier, int anchor, int index) {
+        double dx = xs[index] - xs[anchor];
+        double dy = ys[index] - ys[anchor];
+        double distance = Math.hypot(dx, dy);
+        reach[tier] = Math.max(reach[tier], distance);
+        if (distance <= tolerances[tier]) return;
+        double halfWidth = Math.asin(tolerances[tier] / distance);
+        double direction = Math.atan2(dy, dx);
+        if (!coneSet[tier]) {
+            coneLow[tier] = direction - halfWidth;
+            coneHigh[tier] = direction + halfWidth;
+            coneSet[tier] = true;
+            return;
+        }
+        direction = unwrap(direction, coneCenter(tier));
+        coneLow[tier] = Math.max(coneLow[tier], direction - halfWidth);
+        coneHigh[tier] = Math.min(coneHigh[tier], direction + halfWidth);
+    }
+
+    /**
+     * Removes every constraint from the sleeve of a tier, eg. after a new anchor was kept.
+     *
+     * @param tier  index of the tier.
+     */
+    private void resetSleeve(int tier) {
+        coneSet[tier] = false;
+        reach[tier] = 0;
+    }
+
+    /** Get the direction in the middle of the sleeve of a tier in radians. */
+    private double coneCenter(int tier) {
+        return (coneLow[tier] + coneHigh[tier]) / 2;
+    }
+
+    /**
+     * Shifts an angle by whole turns to the turn starting half a turn before a reference.
+     *
+     * @param angle     angle in radians.
+     * @param reference reference angle in radians.
+     * @return          angle in [reference - pi, reference + pi).
+     */
+    private static double unwrap(double angle, double reference) {
+        return angle - 2 * Math.PI * Math.floor((angle - reference + Math.PI) / (2 * Math.PI));
+    }
+
+    /**
+     * Appends a point to the kept points of a tier.
+     *
+     * @param tier  index of the tier.
+     * @param index index of the point in the path.
+     */
+    private void keep(int tier, int index) {
+        int count = keptCounts[tier];
+        if (count == kept[tier].length) {
+            kept[tier] = Arrays.copyOf(kept[tier], count * 2);
+        }
+        kept[tier][count] = index;
+        keptCounts[tier] = count + 1;
+    }
+
+    /**
+     * Get the number of kept points of a tier with an index before the given one.
+     *
+     * @param tier  index of the tier.
+     * @param index index of a point in the path.
+     * @return      number of kept points before the index.
+     */
+    private int keptBefore(int tier, int index) {
+        int low = 0;
+        int high = keptCounts[tier];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (kept[tier][mid] < index) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
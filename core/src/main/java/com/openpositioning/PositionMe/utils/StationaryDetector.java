@@ -0,0 +1,109 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Zero-velocity detector deciding when the device has been still long enough to lower sensor rates.
+ * <p>
+ * The device is considered stationary once the {@link MotionModeClassifier} has reported
+ * {@link MotionMode#STATIONARY} with a low acceleration variance continuously for
+ * {@link #STATIONARY_HOLD_MS}. It wakes up immediately on a step or on a single linear
+ * acceleration sample above {@link #WAKE_THRESHOLD}, so that full sensor rates are restored within
+ * the first step of renewed movement, without waiting for a classification hop.
+ * <p>
+ * The class only holds the state machine, applying the power saving measures is left to the
+ * caller, the SensorFusion class.
+ */
+public class StationaryDetector {
+
+    //region Static variables
+    // Time the device has to be still before it is considered stationary (ms)
+    private static final long STATIONARY_HOLD_MS = 5000;
+    // Maximum variance of the acceleration magnitude of a stationary device (m/s^2)^2
+    private static final float MAX_VARIANCE = 0.05f;
+    // Linear acceleration magnitude that immediately ends the stationary state (m/s^2)
+    private static final float WAKE_THRESHOLD = 0.8f;
+    //endregion
+
+    //region Instance variables
+    // Start of the current still period in milliseconds, negative if the device is moving
+    private long stillSince;
+    private boolean stationary;
+    //endregion
+
+    /**
+     * Public default constructor, the device is assumed to be moving.
+     */
+    public StationaryDetector() {
+        reset();
+    }
+
+    /**
+     * Resets the detector to the moving state.
+     */
+    public void reset() {
+        this.stillSince = -1;
+        this.stationary = false;
+    }
+
+    /**
+     * Updates the detector with a new linear acceleration sample and the current classifier output.
+     *
+     * @param timestamp     time of the sample in milliseconds.
+     * @param mode          current motion mode from the classifier.
+     * @param variance      current acceleration variance from the classifier in (m/s^2)^2.
+     * @param acc           array of size three, acceleration other than gravity detected by the phone.
+     * @return              true if the stationary state changed with this sample, false otherwise.
+     */
+    public boolean update(long timestamp, MotionMode mode, float variance, float[] acc) {
+        float magnitudeSquare = acc[0] * acc[0] + acc[1] * acc[1] + acc[2] * acc[2];
+        if (magnitudeSquare > WAKE_THRESHOLD * WAKE_THRESHOLD) {
+            return wake();
+        }
+        if (stationary) return false;
+
+        if (mode == MotionMode.STATIONARY && variance < MAX_VARIANCE) {
+            if (stillSince < 0) {
+                stillSince = timestamp;
+            }
+            else if (timestamp - stillSince >= STATIONARY_HOLD_MS) {
+                stationary = true;
+                return true;
+            }
+        }
+        else {
+            stillSince = -1;
+        }
+        return false;
+    }
+
+    /**
+     * Ends the stationary state because a step was detected.
+     *
+     * @return  true if the device was considered stationary, false otherwise.
+     */
+    public boolean onStep() {
+        return wake();
+    }
+
+    /**
+     * Returns to the moving state and restarts the still period.
+     *
+     * @return  true if the state changed, false otherwise.
+     */
+    private boolean wake() {
+        stillSince = -1;
+        if (stationary) {
+            stationary = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the device is currently considered stationary.
+     *
+     * @return  true if stationary, false otherwise.
+     */
+    public boolean isStationary() {
+        return stationary;
+    }
+}
@@ -0,0 +1,207 @@
+package com.openpositioning.PositionMe.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Walkable network of a building floor: corridors and paths through rooms, as straight edges
+ * between nodes.
+ * <p>
+ * Nodes are given in geographic coordinates and stored on a local {@link EnuProjector} plane
+ * anchored at the first node. Every edge is registered in the cells of a uniform grid covering the
+ * graph that its bounding box overlaps, so the edges near a point are found by reading the few
+ * cells around it, independently of the size of the graph. The grid is a dense array, a floor
+ * being small, so reading a cell is an index computation and allocates nothing.
+ * <p>
+ * The graph is immutable and can be queried from several threads, the matching state is held by
+ * {@link MapMatcher}.
+ */
+public final class WalkableGraph {
+
+    //region Static variables
+    // Size of a grid cell in meters
+    private static final double CELL_SIZE = 4.0;
+    //endregion
+
+    //region Instance variables
+    private final EnuProjector projector;
+    // Node coordinates in meters on the local plane
+    private final double[] nodeX;
+    private final double[] nodeY;
+    // Nodes at the ends of every edge
+    private final int[] edgeStart;
+    private final int[] edgeEnd;
+    // Grid covering the graph: first row and column, size, and edges overlapping every cell by
+    // row then column, null for empty cells
+    private final int minRow;
+    private final int minColumn;
+    private final int rows;
+    private final int columns;
+    private final int[][] grid;
+    //endregion
+
+    /**
+     * Creates a graph and indexes its edges.
+     *
+     * @param nodes nodes of the graph in geographic coordinates, at least one.
+     * @param edges pairs of node indices joined by an edge.
+     */
+    public WalkableGraph(List<GeoPoint> nodes, List<int[]> edges) {
+        this.projector = new EnuProjector(nodes.get(0).latitude, nodes.get(0).longitude);
+        this.nodeX = new double[nodes.size()];
+        this.nodeY = new double[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeX[i] = projector.toEast(nodes.get(i).longitude);
+            nodeY[i] = projector.toNorth(nodes.get(i).latitude);
+        }
+        this.edgeStart = new int[edges.size()];
+        this.edgeEnd = new int[edges.size()];
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < nodeX.length; i++) {
+            minX = Math.min(minX, nodeX[i]);
+            maxX = Math.max(maxX, nodeX[i]);
+            minY = Math.min(minY, nodeY[i]);
+            maxY = Math.max(maxY, nodeY[i]);
+        }
+        this.minRow = cell(minY);
+        this.minColumn = cell(minX);
+        this.rows = cell(maxY) - minRow + 1;
+        this.columns = cell(maxX) - minColumn + 1;
+
+        List<List<Integer>> cells = new ArrayList<>(rows * columns);
+        for (int i = 0; i < rows * columns; i++) {
+            cells.add(null);
+        }
+        for (int edge = 0; edge < edges.size(); edge++) {
+            int start = edges.get(edge)[0];
+            int end = edges.get(edge)[1];
+            if (start < 0 || start >= nodes.size() || end < 0 || end >= nodes.size()) {
+                throw new IllegalArgumentException("Edge " + edge + " joins unknown nodes");
+            }
+            edgeStart[edge] = start;
+            edgeEnd[edge] = end;
+            for (int row = cell(Math.min(nodeY[start], nodeY[end]));
+                 row <= cell(Math.max(nodeY[start], nodeY[end])); row++) {
+                for (int column = cell(Math.min(nodeX[start], nodeX[end]));
+                     column <= cell(Math.max(nodeX[start], nodeX[end])); column++) {
+                    int index = (row - minRow) * columns + column - minColumn;
+                    if (cells.get(index) == null) cells.set(index, new ArrayList<>(2));
+                    cells.get(index).add(edge);
+                }
+            }
+        }
+        this.grid = new int[rows * columns][];
+        for (int i = 0; i < grid.length; i++) {
+            List<Integer> cellEdges = cells.get(i);
+            if (cellEdges == null) continue;
+            grid[i] = new int[cellEdges.size()];
+            for (int j = 0; j < grid[i].length; j++) {
+                grid[i][j] = cellEdges.get(j);
+            }
+        }
+    }
+
+    /**
+     * Get the edges registered in a grid cell.
+     *
+     * @param row       row of the cell.
+     * @param column    column of the cell.
+     * @return          indices of the edges overlapping the cell, null if there is none.
+     */
+    int[] getCellEdges(int row, int column) {
+        row -= minRow;
+        column -= minColumn;
+        if (row < 0 || row >= rows || column < 0 || column >= columns) return null;
+        return grid[row * columns + column];
+    }
+
+    /**
+     * Get the square of the distance from a point to an edge, and the closest point of the edge.
+     *
+     * @param edge      index of the edge.
+     * @param x         east coordinate of the point in meters.
+     * @param y         north coordinate of the point in meters.
+     * @param closest   output east and north coordinates of the closest point, may be null.
+     * @return          square of the distance in square meters.
+     */
+    public double distanceSquared(int edge, double x, double y, double[] closest) {
+        double ax = nodeX[edgeStart[edge]];
+        double ay = nodeY[edgeStart[edge]];
+        double dx = nodeX[edgeEnd[edge]] - ax;
+        double dy = nodeY[edgeEnd[edge]] - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        // Project on the edge, clamped to its ends
+        double t = lengthSquared > 0 ? ((x - ax) * dx + (y - ay) * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        double cx = ax + t * dx;
+        double cy = ay + t * dy;
+        if (closest != null) {
+            closest[0] = cx;
+            closest[1] = cy;
+        }
+        return (x - cx) * (x - cx) + (y - cy) * (y - cy);
+    }
+
+    /**
+     * Checks if two edges are connected.
+     *
+     * @param a index of an edge.
+     * @param b index of another edge.
+     * @return  true if the edges share a node.
+     */
+    public boolean adjacent(int a, int b) {
+        return edgeStart[a] == edgeStart[b] || edgeStart[a] == edgeEnd[b]
+                || edgeEnd[a] == edgeStart[b] || edgeEnd[a] == edgeEnd[b];
+    }
+
+    /**
+     * Get the grid row or column of a coordinate.
+     *
+     * @param meters    east or north coordinate in meters.
+     * @return          index of the cell along the axis.
+     */
+    static int cell(double meters) {
+        return (int) Math.floor(meters / CELL_SIZE);
+    }
+
+    /**
+     * Get a hash of the nodes and edges of the graph.
+     *
+     * @return  hash that changes if any node moves or any edge changes.
+     */
+    long contentHash() {
+        long hash = Double.doubleToLongBits(projector.getAnchorLatitude());
+        hash = 31 * hash + Double.doubleToLongBits(projector.getAnchorLongitude());
+        for (int i = 0; i < nodeX.length; i++) {
+            hash = 31 * hash + Double.doubleToLongBits(nodeX[i]);
+            hash = 31 * hash + Double.doubleToLongBits(nodeY[i]);
+        }
+        for (int i = 0; i < edgeStart.length; i++) {
+            hash = 31 * hash + edgeStart[i];
+            hash = 31 * hash + edgeEnd[i];
+        }
+        return hash;
+    }
+
+    //region Getters
+
+    /**
+     * Get the local plane of the graph.
+     *
+     * @return  projector anchored at the first node.
+     */
+    public EnuProjector getProjector() {
+        return projector;
+    }
+
+    public int getNodeCount() {
+        return nodeX.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeStart.length;
+    }
+
+    //endregion
+}
@@ -0,0 +1,115 @@
+package com.openpositioning.PositionMe.utils;
+
+/**
+ * Snaps positions inside the buildings of a {@link BuildingRegistry} onto the walkable graph of
+ * the floor they are on, with a {@link MapMatcher} per graph.
+ * <p>
+ * Floors are counted from the ground floor, as estimated by the barometer, and offset by the
+ * floors below the ground floor to find the graph of the building. Positions outside the known
+ * buildings, or on a floor without walkways, are left unchanged.
+ * <p>
+ * The live matcher follows one sequence of positions and must be used from a single thread.
+ */
+public final class WalkwayMatcher {
+
+    //region Instance variables
+    private final BuildingRegistry registry;
+    // Graph of the previous live position and its matcher, null if it had none
+    private WalkableGraph graph;
+    private MapMatcher matcher;
+    //endregion
+
+    /**
+     * Creates a matcher of the walkways of the buildings of a registry.
+     *
+     * @param registry  the known buildings.
+     */
+    public WalkwayMatcher(BuildingRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Matches the next position of the live sequence. The sequence restarts whenever the position
+     * moves to another building or floor.
+     *
+     * @param latitude  latitude of the position in degrees.
+     * @param longitude longitude of the position in degrees.
+     * @param floor     floor of the position, zero for the ground floor.
+     * @param out       output latitude and longitude of the matched position, the position
+     *                  itself if it was not snapped.
+     * @return          true if the position was snapped to a walkway.
+     */
+    public boolean match(double latitude, double longitude, int floor, double[] out) {
+        WalkableGraph floorGraph = findGraph(registry, latitude, longitude, floor);
+        if (floorGraph != graph) {
+            graph = floorGraph;
+            matcher = floorGraph == null ? null : new MapMatcher(floorGraph);
+        }
+        if (matcher == null) {
+            out[0] = latitude;
+            out[1] = longitude;
+            return false;
+        }
+        return matcher.match(latitude, longitude, out);
+    }
+
+    /**
+     * Forgets the live sequence, eg. at the start of a recording.
+     */
+    public void reset() {
+        this.graph = null;
+        this.matcher = null;
+    }
+
+    /**
+     * Matches a whole track in place. Every run of consecutive positions on the same walkable
+     * graph is matched as one sequence with {@link MapMatcher#matchAll}.
+     *
+     * @param registry      the known buildings.
+     * @param latitudes     latitudes of the positions in degrees, replaced by the matched ones.
+     * @param longitudes    longitudes of the positions in degrees, replaced by the matched ones.
+     * @param floors        floor of every position, zero for the ground floor.
+     * @param count         number of leading positions to match.
+     * @return              number of positions snapped to a walkway.
+     */
+    public static int matchAll(BuildingRegistry registry, double[] latitudes, double[] longitudes,
+                               int[] floors, int count) {
+        int matched = 0;
+        int start = 0;
+        while (start < count) {
+            WalkableGraph runGraph = findGraph(registry, latitudes[start], longitudes[start],
+                    floors[start]);
+            int end = start + 1;
+            while (end < count && findGraph(registry, latitudes[end], longitudes[end],
+                    floors[end]) == runGraph) {
+                end++;
+            }
+            if (runGraph != null) {
+                int length = end - start;
+                double[] runLatitudes = new double[length];
+                double[] runLongitudes = new double[length];
+                System.arraycopy(latitudes, start, runLatitudes, 0, length);
+                System.arraycopy(longitudes, start, runLongitudes, 0, length);
+                matched += new MapMatcher(runGraph).matchAll(runLatitudes, runLongitudes, length,
+                        runLatitudes, runLongitudes);
+                System.arraycopy(runLatitudes, 0, latitudes, start, length);
+                System.arraycopy(runLongitudes, 0, longitudes, start, length);
+            }
+            start = end;
+        }
+        return matched;
+    }
+
+    /**
+     * Finds the walkable graph under a position.
+     *
+     * @return  the graph of the floor of the building containing the position, null if there is
+     *          none.
+     */
+    private static WalkableGraph findGraph(BuildingRegistry registry, double latitude,
+                                           double longitude, int floor) {
+        Building building = registry.find(new GeoPoint(latitude, longitude));
+        if (building == null) return null;
+        return building.getWalkableGraph(building.getGroundFloor() + floor);
+    }
+}
@@ -0,0 +1,54 @@
+package com.openpositioning.PositionMe.data.local;
+
+import com.openpositioning.PositionMe.utils.SensorMath;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TrajectoryReaderTest {
+
+    @Test
+    public void readsThePressureStream() throws IOException {
+        TrajectoryColumns columns = TrajectoryReader.readColumns(new StringReader(
+                "{\"startTimestamp\": \"5\", \"pressureData\": ["
+                        + "{\"relativeTimestamp\": \"2000\", \"pressure\": 1012.5},"
+                        + "{\"relativeTimestamp\": \"1000\", \"pressure\": 1013.0}]}"));
+        assertEquals(2, columns.pressureSize);
+        columns.sortByTime();
+        assertEquals(1000, columns.pressureTimes[0]);
+        assertEquals(1013.0f, columns.pressures[0], 0);
+        assertEquals(1012.5f, columns.pressures[1], 0);
+    }
+
+    @Test
+    public void estimatesFloorsFromThePressure() {
+        // A minute on the start floor, then two floors of 4 m up, pressure at 1 Hz
+        TrajectoryColumns columns = new TrajectoryColumns();
+        for (int second = 0; second < 120; second++) {
+            float altitude = second < 60 ? 0 : 8;
+            columns.addPressure(second * 1000L, pressureAt(altitude));
+        }
+        columns.addPdr(30000, 0, 0);
+        columns.addPdr(119000, 0, 0);
+        assertArrayEquals(new int[] {0, 2}, TrajectoryReader.estimateFloors(columns, 4));
+    }
+
+    @Test
+    public void withoutPressureEveryPointIsOnTheStartFloor() {
+        TrajectoryColumns columns = new TrajectoryColumns();
+        columns.addPdr(0, 0, 0);
+        columns.addPdr(1000, 1, 0);
+        assertArrayEquals(new int[] {0, 0}, TrajectoryReader.estimateFloors(columns, 4));
+    }
+
+    /** Inverse of {@link SensorMath#getAltitude}. */
+    private static float pressureAt(float altitude) {
+        return (float) (SensorMath.PRESSURE_STANDARD_ATMOSPHERE
+                * Math.pow(1 - altitude / 44330.0, 5.255));
+    }
+}
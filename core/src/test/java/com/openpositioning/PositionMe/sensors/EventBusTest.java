@@ -0,0 +1,157 @@
+package com.openpositioning.PositionMe.sensors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Delivery semantics of the bus, with an executor that queues its tasks until the test runs them,
+ * like a busy main thread.
+ */
+public class EventBusTest {
+
+    private static final Topic<Integer> STATE = Topic.conflated("state");
+    private static final Topic<Integer> EVENTS = Topic.queued("events");
+
+    private EventBus bus;
+    private ManualExecutor executor;
+    private List<Integer> received;
+
+    @Before
+    public void setUp() {
+        bus = new EventBus();
+        executor = new ManualExecutor();
+        received = new ArrayList<>();
+    }
+
+    @Test
+    public void directSubscribersReceiveEventsAtOnce() {
+        bus.subscribe(EVENTS, EventBus.DIRECT, received::add);
+        bus.publish(EVENTS, 1);
+        bus.publish(EVENTS, 2);
+        assertEquals(Arrays.asList(1, 2), received);
+    }
+
+    @Test
+    public void conflatedTopicsDeliverOnlyTheLatestPendingEvent() {
+        bus.subscribe(STATE, executor, received::add);
+        bus.publish(STATE, 1);
+        bus.publish(STATE, 2);
+        bus.publish(STATE, 3);
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(Collections.singletonList(3), received);
+
+        bus.publish(STATE, 4);
+        executor.runAll();
+        assertEquals(Arrays.asList(3, 4), received);
+    }
+
+    @Test
+    public void queuedTopicsDeliverEveryEventInOrder() {
+        bus.subscribe(EVENTS, executor, received::add);
+        bus.publish(EVENTS, 1);
+        bus.publish(EVENTS, 2);
+        bus.publish(EVENTS, 3);
+        executor.runAll();
+        assertEquals(Arrays.asList(1, 2, 3), received);
+    }
+
+    @Test
+    public void unsubscribeCancelsQueuedDeliveries() {
+        EventBus.Subscription conflated = bus.subscribe(STATE, executor, received::add);
+        EventBus.Subscription queued = bus.subscribe(EVENTS, executor, received::add);
+        bus.publish(STATE, 1);
+        bus.publish(EVENTS, 2);
+        bus.publish(EVENTS, 3);
+        conflated.unsubscribe();
+        queued.unsubscribe();
+        executor.runAll();
+        assertTrue(received.isEmpty());
+
+        // Later events are not scheduled at all
+        bus.publish(STATE, 4);
+        bus.publish(EVENTS, 5);
+        assertEquals(0, executor.size());
+        queued.unsubscribe();
+    }
+
+    @Test
+    public void unsubscribeDuringADeliveryStopsTheOthers() {
+        List<EventBus.Subscription> subscription = new ArrayList<>();
+        subscription.add(bus.subscribe(EVENTS, executor, event -> {
+            received.add(event);
+            subscription.get(0).unsubscribe();
+        }));
+        bus.publish(EVENTS, 1);
+        bus.publish(EVENTS, 2);
+        executor.runAll();
+        assertEquals(Collections.singletonList(1), received);
+    }
+
+    @Test
+    public void newSubscribersReceiveTheLatestState() {
+        bus.publish(STATE, 1);
+        bus.publish(STATE, 2);
+        assertEquals(Integer.valueOf(2), bus.getLatest(STATE));
+
+        bus.subscribe(STATE, executor, received::add);
+        executor.runAll();
+        assertEquals(Collections.singletonList(2), received);
+    }
+
+    @Test
+    public void latestStateIsReplacedByEventsPublishedBeforeTheReplay() {
+        bus.publish(STATE, 1);
+        bus.subscribe(STATE, executor, received::add);
+        bus.publish(STATE, 2);
+        executor.runAll();
+        assertEquals(Collections.singletonList(2), received);
+    }
+
+    @Test
+    public void queuedTopicsKeepNoLatestEvent() {
+        bus.publish(EVENTS, 1);
+        assertNull(bus.getLatest(EVENTS));
+        bus.subscribe(EVENTS, executor, received::add);
+        executor.runAll();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullEvents() {
+        bus.publish(STATE, null);
+    }
+
+    /** Executor running its tasks when the test asks for it. */
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.openpositioning.PositionMe.Traj;
+import com.openpositioning.PositionMe.utils.FixedConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays the bundled recording {@code walk.traj} through the positioning pipeline and checks the
+ * trajectory it produces.
+ * <p>
+ * The recording is 20 s of walking with the sample rates of the app: 19 steps north, then 21
+ * steps east with the first two stored at the same timestamp, as happens when step
+ * events are batched. Its PDR stream holds the steps as they were recorded.
+ */
+public class SensorReplayTest {
+
+    //region Instance variables
+    private Traj.Trajectory recording;
+    private Traj.Trajectory replayed;
+    //endregion
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream in = SensorReplayTest.class.getResourceAsStream("/walk.traj")) {
+            assertNotNull("missing fixture walk.traj", in);
+            recording = Traj.Trajectory.parseFrom(in);
+        }
+        replayed = new SensorReplay(recording).replay(new FixedConfig());
+    }
+
+    @Test
+    public void everyRecordedStepIsReplayed() {
+        assertEquals(recording.getPdrDataCount(), replayed.getPdrDataCount());
+        for (int i = 0; i < recording.getPdrDataCount(); i++) {
+            assertEquals("step " + i, recording.getPdrData(i).getRelativeTimestamp(),
+                    replayed.getPdrData(i).getRelativeTimestamp());
+        }
+    }
+
+    @Test
+    public void stepsFollowTheRecordedHeading() {
+        // Last step north, then last step of the walk
+        Traj.Pdr_Sample corner = replayed.getPdrData(18);
+        Traj.Pdr_Sample end = replayed.getPdrData(replayed.getPdrDataCount() - 1);
+        assertTrue(corner.getY() > 5);
+        assertEquals(0, corner.getX(), 0.05 * corner.getY());
+        float east = end.getX() - corner.getX();
+        assertTrue(east > 5);
+        assertEquals(corner.getY(), end.getY(), 0.05 * east);
+    }
+
+    @Test
+    public void locationsAndScansAreRecorded() {
+        assertEquals(recording.getGnssDataCount(), replayed.getGnssDataCount());
+        assertEquals(recording.getWifiDataCount(), replayed.getWifiDataCount());
+        for (int i = 0; i < recording.getWifiDataCount(); i++) {
+            assertEquals(recording.getWifiData(i).getMacScansList(),
+                    replayed.getWifiData(i).getMacScansList());
+        }
+        assertEquals(recording.getStartTimestamp(), replayed.getStartTimestamp());
+    }
+
+    @Test
+    public void replaysAreDeterministic() throws IOException {
+        try (InputStream in = SensorReplayTest.class.getResourceAsStream("/walk.traj")) {
+            Traj.Trajectory again = SensorReplay.read(in).replay(new FixedConfig());
+            assertEquals(replayed, again);
+        }
+    }
+
+    @Test
+    public void fusedPositionFollowsTheWalk() throws IOException {
+        int[] steps = new int[1];
+        int[] fused = new int[1];
+        try (InputStream in = SensorReplayTest.class.getResourceAsStream("/walk.traj")) {
+            SensorReplay.read(in).replay(new FixedConfig(), new PositioningPipeline.Listener() {
+                @Override
+                public void onStep(float[] pdrPosition) {
+                    steps[0]++;
+                }
+
+                @Override
+                public void onFusedPosition() {
+                    fused[0]++;
+                }
+            });
+        }
+        assertEquals(recording.getPdrDataCount(), steps[0]);
+        // Start location, every step and every GNSS fix
+        assertTrue(fused[0] >= steps[0] + recording.getGnssDataCount());
+    }
+}
@@ -0,0 +1,170 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.openpositioning.PositionMe.utils.FixedConfig;
+import com.openpositioning.PositionMe.utils.ManualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the events and wakeups processed by the pipeline during a minute on a desk, with and
+ * without the stationary power saving mode.
+ * <p>
+ * A simulated device delivers the sensor schedule SensorFusion registers: accelerometer, gravity,
+ * gyroscope, magnetometer and linear acceleration every 10 ms unbatched, rotation vector,
+ * barometer, light and proximity every second. In the power saving mode the first four are
+ * sampled every 50 ms and delivered in batches every second, the linear acceleration every 50 ms
+ * unbatched. Events sampled at the same time are delivered in the same wakeup, as by a sensor hub,
+ * so the counts are a lower bound for a device delivering every sensor separately.
+ * <p>
+ * Measured with this schedule:
+ * <pre>
+ *                      events/min  wakeups/min
+ * full rate                 30240         6000
+ * power saving               6240         1200
+ * </pre>
+ */
+public class StationaryPowerTest {
+
+    //region Static variables
+    // Time for the classifier window to fill and the stationary hold to elapse (milliseconds)
+    private static final long SETTLE_MS = 10000;
+    private static final long MEASURE_MS = 60000;
+    //endregion
+
+    @Test
+    public void fullRateWhileStill() {
+        Device device = new Device(false);
+        device.run(SETTLE_MS);
+        device.pipeline.resetEventStatistics();
+        device.run(MEASURE_MS);
+        assertEquals(30240, device.pipeline.getEventsPerMinute(), 1);
+        assertEquals(6000, device.pipeline.getWakeupsPerMinute(), 1);
+    }
+
+    @Test
+    public void powerSavingWhileStill() {
+        Device device = new Device(true);
+        device.run(SETTLE_MS);
+        assertTrue(device.pipeline.isLowPowerMode());
+        device.pipeline.resetEventStatistics();
+        device.run(MEASURE_MS);
+        assertTrue(device.pipeline.isLowPowerMode());
+        assertEquals(6240, device.pipeline.getEventsPerMinute(), 1);
+        assertEquals(1200, device.pipeline.getWakeupsPerMinute(), 1);
+    }
+
+    @Test
+    public void movementRestoresTheFullRate() {
+        Device device = new Device(true);
+        device.run(SETTLE_MS);
+        assertTrue(device.pipeline.isLowPowerMode());
+        // A single linear acceleration sample of a picked up phone
+        device.linearNoise = 1.5;
+        device.run(50);
+        assertFalse(device.pipeline.isLowPowerMode());
+    }
+
+    @Test
+    public void aStepRestoresTheFullRate() {
+        Device device = new Device(true);
+        device.run(SETTLE_MS);
+        device.pipeline.processSensorValues(PositioningPipeline.TYPE_STEP_DETECTOR,
+                device.time * 1000000, new float[] {1});
+        assertFalse(device.pipeline.isLowPowerMode());
+    }
+
+    /**
+     * Device lying still, delivering sensor events to a pipeline at the rates of the current power
+     * mode.
+     */
+    private static final class Device implements PositioningPipeline.Listener {
+        private final ManualClock clock = new ManualClock(0);
+        private final PositioningPipeline pipeline = new PositioningPipeline(clock, new FixedConfig());
+        private final Random random = new Random(1);
+        // Whether the sensor rates follow the power saving mode of the pipeline
+        private final boolean powerSaving;
+        private boolean lowPower;
+        // Sample times of the batched sensors waiting for the next flush (milliseconds)
+        private final List<Long> batch = new ArrayList<>();
+        // Standard deviation of the linear acceleration (m/s^2)
+        private double linearNoise = 0.02;
+        private long time;
+
+        Device(boolean powerSaving) {
+            this.powerSaving = powerSaving;
+            pipeline.setListener(this);
+        }
+
+        @Override
+        public void onLowPowerMode(boolean enabled) {
+            if (!powerSaving) return;
+            // Re-registering the sensors flushes the batched samples
+            if (!enabled) flush();
+            this.lowPower = enabled;
+        }
+
+        /** Delivers the events of the next milliseconds. */
+        void run(long duration) {
+            long end = time + duration;
+            for (; time < end; time++) {
+                clock.setTime(time);
+                long period = lowPower ? 50 : 10;
+                if (time % period == 0) {
+                    if (lowPower) {
+                        batch.add(time);
+                    } else {
+                        deliverImu(time);
+                    }
+                    float[] linear = {noise(), noise(), noise()};
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_LINEAR_ACCELERATION,
+                            time * 1000000, linear);
+                }
+                if (time % 1000 == 0) {
+                    if (lowPower) flush();
+                    long ns = time * 1000000;
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_ROTATION_VECTOR, ns,
+                            new float[] {0, 0, 0, 1});
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_PRESSURE, ns,
+                            new float[] {1013.25f});
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_LIGHT, ns,
+                            new float[] {120});
+                    pipeline.processSensorValues(PositioningPipeline.TYPE_PROXIMITY, ns,
+                            new float[] {5});
+                }
+            }
+        }
+
+        /** Delivers the batched samples. */
+        private void flush() {
+            for (long sampleTime : batch) {
+                deliverImu(sampleTime);
+            }
+            batch.clear();
+        }
+
+        /** Delivers the samples of the batchable sensors taken at a time. */
+        private void deliverImu(long sampleTime) {
+            long ns = sampleTime * 1000000;
+            pipeline.processSensorValues(PositioningPipeline.TYPE_ACCELEROMETER, ns,
+                    new float[] {noise(), noise(), 9.81f + noise()});
+            pipeline.processSensorValues(PositioningPipeline.TYPE_GRAVITY, ns,
+                    new float[] {0, 0, 9.81f});
+            pipeline.processSensorValues(PositioningPipeline.TYPE_GYROSCOPE, ns,
+                    new float[] {noise() * 0.1f, noise() * 0.1f, noise() * 0.1f});
+            pipeline.processSensorValues(PositioningPipeline.TYPE_MAGNETIC_FIELD, ns,
+                    new float[] {0, 20, -40});
+        }
+
+        private float noise() {
+            return (float) (linearNoise * random.nextGaussian());
+        }
+    }
+}
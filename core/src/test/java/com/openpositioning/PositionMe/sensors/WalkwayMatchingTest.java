@@ -0,0 +1,114 @@
+package com.openpositioning.PositionMe.sensors;
+
+import com.openpositioning.PositionMe.utils.Building;
+import com.openpositioning.PositionMe.utils.BuildingRegistry;
+import com.openpositioning.PositionMe.utils.EnuProjector;
+import com.openpositioning.PositionMe.utils.FixedConfig;
+import com.openpositioning.PositionMe.utils.GeoPoint;
+import com.openpositioning.PositionMe.utils.ManualClock;
+import com.openpositioning.PositionMe.utils.WalkableGraph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Walks north from the start location through a building and checks that the fused position of
+ * the pipeline is pulled onto the walkways of the floor at every step.
+ */
+public class WalkwayMatchingTest {
+
+    //region Static variables
+    private static final double LAT = 55.9230;
+    private static final double LNG = -3.1742;
+    private static final EnuProjector PROJECTOR = new EnuProjector(LAT, LNG);
+    private static final int STEPS = 20;
+    //endregion
+
+    @Test
+    public void fusedPositionConvergesToTheCorridor() {
+        // Corridor running north 2 m east of the start location
+        double unmatched = walk(null);
+        double matched = walk(registry(2));
+        assertEquals(0, unmatched, 0.1);
+        assertEquals(2, matched, 0.3);
+    }
+
+    @Test
+    public void corridorsOutOfReachAreIgnored() {
+        assertEquals(0, walk(registry(30)), 0.1);
+    }
+
+    @Test
+    public void otherFloorsAreIgnored() {
+        // Walkways on the first floor only
+        BuildingRegistry registry = new BuildingRegistry(Collections.singletonList(
+                building(Arrays.asList(null, corridor(2)))));
+        assertEquals(0, walk(registry), 0.1);
+    }
+
+    /**
+     * Walks north with the pipeline.
+     *
+     * @param registry  known buildings, null for none.
+     * @return          east coordinate of the final fused position in meters.
+     */
+    private static double walk(BuildingRegistry registry) {
+        ManualClock clock = new ManualClock(0);
+        PositioningPipeline pipeline = new PositioningPipeline(clock, new FixedConfig());
+        pipeline.setStepDebounce(false);
+        pipeline.setBuildingRegistry(registry);
+        long time = 0;
+        // Facing north
+        pipeline.processSensorValues(PositioningPipeline.TYPE_ROTATION_VECTOR, 0,
+                new float[] {0, 0, 0, 1});
+        pipeline.startRecording();
+        pipeline.setStartLocation(LAT, LNG);
+        for (int step = 0; step < STEPS; step++) {
+            // Half a second of acceleration of a step at 100 Hz
+            for (int i = 0; i < 50; i++, time += 10) {
+                clock.setTime(time);
+                float vertical = (float) (2 * Math.sin(2 * Math.PI * i / 50));
+                pipeline.processSensorValues(PositioningPipeline.TYPE_GRAVITY, time * 1000000,
+                        new float[] {0, 0, 9.81f});
+                pipeline.processSensorValues(PositioningPipeline.TYPE_LINEAR_ACCELERATION,
+                        time * 1000000, new float[] {0, 0, vertical});
+            }
+            pipeline.processSensorValues(PositioningPipeline.TYPE_STEP_DETECTOR, time * 1000000,
+                    new float[] {1});
+        }
+        GeoPoint fused = pipeline.getFusedPosition();
+        assertTrue("walked north", PROJECTOR.toNorth(fused.latitude) > STEPS * 0.3);
+        return PROJECTOR.toEast(fused.longitude);
+    }
+
+    /** Registry of a building around the walk with a corridor on its ground floor. */
+    private static BuildingRegistry registry(double corridorEast) {
+        return new BuildingRegistry(Collections.singletonList(
+                building(Collections.singletonList(corridor(corridorEast)))));
+    }
+
+    /** Building of 100 m by 100 m around the start location, ground floor first. */
+    private static Building building(List<WalkableGraph> walkways) {
+        List<GeoPoint> outline = Arrays.asList(point(-50, -50), point(50, -50), point(50, 50),
+                point(-50, 50));
+        return new Building("Hall", outline, new ArrayList<>(), 0, 4, null, null, walkways);
+    }
+
+    /** Corridor running north through the building. */
+    private static WalkableGraph corridor(double east) {
+        List<int[]> edges = new ArrayList<>();
+        edges.add(new int[] {0, 1});
+        return new WalkableGraph(Arrays.asList(point(east, -45), point(east, 45)), edges);
+    }
+
+    private static GeoPoint point(double east, double north) {
+        return new GeoPoint(PROJECTOR.toLatitude(north), PROJECTOR.toLongitude(east));
+    }
+}
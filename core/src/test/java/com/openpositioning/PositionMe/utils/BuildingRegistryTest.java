@@ -0,0 +1,133 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BuildingRegistryTest {
+
+    // L-shaped building without its north-east quarter, with a walkway on its upper floor
+    private static final String JSON = "{\"version\": 1, \"buildings\": [{"
+            + "\"name\": \"Hall\","
+            + "\"outline\": [[55.9220, -3.1720], [55.9220, -3.1700], [55.9230, -3.1700],"
+            + "  [55.9230, -3.1710], [55.9240, -3.1710], [55.9240, -3.1720]],"
+            + "\"floorHeight\": 3.5,"
+            + "\"groundFloor\": 1,"
+            + "\"floorMaps\": {\"floors\": [\"hallb\", \"hallg\", \"hall1\"]},"
+            + "\"walkways\": [null, null, {"
+            + "  \"nodes\": [[55.9225, -3.1715], [55.9235, -3.1715], [55.9225, -3.1705]],"
+            + "  \"edges\": [[0, 1], [0, 2]]}]"
+            + "}, {"
+            + "\"name\": \"Annex\","
+            + "\"outline\": [[55.9250, -3.1720], [55.9250, -3.1710], [55.9255, -3.1710],"
+            + "  [55.9255, -3.1720]]"
+            + "}]}";
+
+    @Test
+    public void readsBuildings() throws IOException {
+        BuildingRegistry registry = BuildingRegistry.read(new StringReader(JSON));
+        assertEquals(2, registry.getBuildings().size());
+
+        Building hall = registry.getBuilding("Hall");
+        assertEquals(3.5f, hall.getFloorHeight(), 0);
+        assertEquals(1, hall.getGroundFloor());
+        assertEquals(Arrays.asList("hallb", "hallg", "hall1"), hall.getFloorMaps());
+        // Map corners default to the bounds of the outline
+        assertEquals(55.9220, hall.getMapSouthWest().latitude, 0);
+        assertEquals(-3.1700, hall.getMapNorthEast().longitude, 0);
+
+        Building annex = registry.getBuilding("Annex");
+        assertFalse(annex.hasFloorMaps());
+        assertNull(annex.getWalkableGraph(0));
+        assertNull(registry.getBuilding("Library"));
+    }
+
+    @Test
+    public void readsWalkwaysPerFloor() throws IOException {
+        Building hall = BuildingRegistry.read(new StringReader(JSON)).getBuilding("Hall");
+        assertNull(hall.getWalkableGraph(0));
+        assertNull(hall.getWalkableGraph(1));
+        WalkableGraph graph = hall.getWalkableGraph(2);
+        assertNotNull(graph);
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(2, graph.getEdgeCount());
+        assertNull(hall.getWalkableGraph(3));
+        assertNull(hall.getWalkableGraph(-1));
+    }
+
+    @Test
+    public void walkwayHashChangesWithTheWalkways() throws IOException {
+        long hash = BuildingRegistry.read(new StringReader(JSON)).getWalkwayHash();
+        assertEquals(hash, BuildingRegistry.read(new StringReader(JSON)).getWalkwayHash());
+
+        String moved = JSON.replace("[55.9235, -3.1715]", "[55.9236, -3.1715]");
+        assertNotEquals(hash, BuildingRegistry.read(new StringReader(moved)).getWalkwayHash());
+        String reconnected = JSON.replace("[[0, 1], [0, 2]]", "[[0, 1], [1, 2]]");
+        assertNotEquals(hash,
+                BuildingRegistry.read(new StringReader(reconnected)).getWalkwayHash());
+    }
+
+    @Test
+    public void findsTheBuildingContainingAPoint() throws IOException {
+        BuildingRegistry registry = BuildingRegistry.read(new StringReader(JSON));
+        assertEquals("Hall", registry.find(new GeoPoint(55.9225, -3.1705)).getName());
+        assertEquals("Hall", registry.find(new GeoPoint(55.9235, -3.1715)).getName());
+        assertEquals("Annex", registry.find(new GeoPoint(55.9252, -3.1715)).getName());
+        // Inside the bounding box of the hall, outside its outline
+        assertNull(registry.find(new GeoPoint(55.9235, -3.1705)));
+        assertNull(registry.find(new GeoPoint(55.9300, -3.1600)));
+    }
+
+    @Test
+    public void findsBuildingsAmongMany() {
+        List<Building> buildings = new ArrayList<>();
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                double latitude = 55.9 + row * 0.0005;
+                double longitude = -3.2 + column * 0.0005;
+                List<GeoPoint> outline = Arrays.asList(
+                        new GeoPoint(latitude, longitude),
+                        new GeoPoint(latitude, longitude + 0.0004),
+                        new GeoPoint(latitude + 0.0004, longitude + 0.0004),
+                        new GeoPoint(latitude + 0.0004, longitude));
+                buildings.add(new Building(row + "," + column, outline,
+                        new ArrayList<>(), 0, 4, null, null, new ArrayList<>()));
+            }
+        }
+        BuildingRegistry registry = new BuildingRegistry(buildings);
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                GeoPoint inside = new GeoPoint(55.9 + row * 0.0005 + 0.0002,
+                        -3.2 + column * 0.0005 + 0.0002);
+                assertSame(buildings.get(row * 20 + column), registry.find(inside));
+                GeoPoint between = new GeoPoint(55.9 + row * 0.0005 + 0.00045,
+                        -3.2 + column * 0.0005 + 0.0002);
+                assertNull(registry.find(between));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsBuildingsWithoutAName() {
+        try {
+            BuildingRegistry.read(new StringReader(
+                    "{\"buildings\": [{\"outline\": [[55.9, -3.1], [55.8, -3.1], [55.8, -3.2]]}]}"));
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("without a name"));
+            return;
+        }
+        throw new AssertionError("Expected an IOException");
+    }
+}
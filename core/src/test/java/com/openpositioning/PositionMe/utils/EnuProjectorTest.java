@@ -0,0 +1,54 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EnuProjectorTest {
+
+    // Anchor on the Nucleus building
+    private static final double LAT = 55.9230;
+    private static final double LNG = -3.1742;
+
+    private final EnuProjector projector = new EnuProjector(LAT, LNG);
+
+    @Test
+    public void anchorIsTheOrigin() {
+        assertEquals(0, projector.toEast(LNG), 1e-9);
+        assertEquals(0, projector.toNorth(LAT), 1e-9);
+    }
+
+    @Test
+    public void distancesMatchTheEarthRadius() {
+        // One thousandth of a degree is about 111 m north and 62 m east at this latitude
+        assertEquals(111.3, projector.toNorth(LAT + 0.001), 0.5);
+        assertEquals(62.6, projector.toEast(LNG + 0.001), 0.5);
+        assertEquals(-62.6, projector.toEast(LNG - 0.001), 0.5);
+    }
+
+    @Test
+    public void roundTripsCoordinates() {
+        double east = projector.toEast(LNG + 0.0023);
+        double north = projector.toNorth(LAT - 0.0017);
+        assertEquals(LNG + 0.0023, projector.toLongitude(east), 1e-9);
+        assertEquals(LAT - 0.0017, projector.toLatitude(north), 1e-9);
+    }
+
+    @Test
+    public void batchConversionsMatchSingleOnes() {
+        double[] latitudes = {LAT, LAT + 0.001, LAT - 0.0005};
+        double[] longitudes = {LNG, LNG - 0.002, LNG + 0.0007};
+        double[] east = new double[3];
+        double[] north = new double[3];
+        projector.toEnu(latitudes, longitudes, 3, east, north);
+        double[] outLat = new double[3];
+        double[] outLng = new double[3];
+        projector.toGeodetic(east, north, 3, outLat, outLng);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(projector.toEast(longitudes[i]), east[i], 1e-9);
+            assertEquals(projector.toNorth(latitudes[i]), north[i], 1e-9);
+            assertEquals(latitudes[i], outLat[i], 1e-9);
+            assertEquals(longitudes[i], outLng[i], 1e-9);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExtendedKalmanFilterTest {
+
+    private static final float DELTA = 1e-4f;
+
+    private ExtendedKalmanFilter filter;
+
+    @Before
+    public void setUp() {
+        filter = new ExtendedKalmanFilter();
+    }
+
+    @Test
+    public void ignoresInputsUntilReset() {
+        assertFalse(filter.isInitialised());
+        filter.predict(1, 0);
+        assertFalse(filter.updateGnss(5, 5, 5));
+        assertEquals(0, filter.getX(), DELTA);
+
+        filter.reset(1, 2, 0);
+        assertTrue(filter.isInitialised());
+        assertEquals(1, filter.getX(), DELTA);
+        assertEquals(2, filter.getY(), DELTA);
+    }
+
+    @Test
+    public void predictionMovesAlongTheHeading() {
+        filter.reset(0, 0, 0);
+        filter.predict(1, 0);
+        assertEquals(1, filter.getX(), DELTA);
+        assertEquals(0, filter.getY(), DELTA);
+
+        // Turn left to face north
+        filter.predict(2, (float) (Math.PI / 2));
+        assertEquals(1, filter.getX(), DELTA);
+        assertEquals(2, filter.getY(), DELTA);
+        assertEquals(Math.PI / 2, filter.getHeading(), DELTA);
+    }
+
+    @Test
+    public void uncertaintyGrowsWithStepsAndShrinksWithFixes() {
+        filter.reset(0, 0, 0);
+        float start = filter.getPositionStd();
+        for (int i = 0; i < 10; i++) {
+            filter.predict(0.7f, 0);
+        }
+        float walked = filter.getPositionStd();
+        assertTrue(walked > start);
+
+        assertTrue(filter.updateGnss(7, 0, 3));
+        assertTrue(filter.getPositionStd() < walked);
+    }
+
+    @Test
+    public void fixPullsThePositionByItsWeight() {
+        filter.reset(0, 0, 0);
+        assertTrue(filter.updateGnss(2, 0, 3));
+        float accurate = filter.getX();
+        assertTrue(accurate > 0 && accurate < 2);
+
+        ExtendedKalmanFilter other = new ExtendedKalmanFilter();
+        other.reset(0, 0, 0);
+        assertTrue(other.updateGnss(2, 0, 20));
+        // A less accurate fix moves the estimate less
+        assertTrue(other.getX() < accurate);
+    }
+
+    @Test
+    public void outliersAreRejectedUntilTheyPersist() {
+        filter.reset(0, 0, 0);
+        assertFalse(filter.updateGnss(100, 100, 3));
+        assertFalse(filter.updateGnss(100, 100, 3));
+        assertFalse(filter.updateGnss(100, 100, 3));
+        assertEquals(0, filter.getX(), DELTA);
+
+        // After consecutive rejections the filter is assumed to have drifted
+        assertTrue(filter.updateGnss(100, 100, 3));
+        assertTrue(filter.getX() > 20 && filter.getY() > 20);
+    }
+
+    @Test
+    public void distantMapMatchesAreAlwaysRejected() {
+        filter.reset(0, 0, 0);
+        assertTrue(filter.updateMapMatch(0.5, 0));
+        float matched = filter.getX();
+
+        // A corridor 10 m away is another corridor, however often it is matched
+        for (int i = 0; i < 5; i++) {
+            assertFalse(filter.updateMapMatch(0, 10));
+        }
+        assertEquals(matched, filter.getX(), DELTA);
+        assertEquals(0, filter.getY(), DELTA);
+    }
+
+    @Test
+    public void headingUpdateTurnsTowardsTheCompass() {
+        filter.reset(0, 0, 0);
+        filter.updateHeading(0.5f);
+        assertTrue(filter.getHeading() > 0 && filter.getHeading() < 0.5f);
+    }
+
+    @Test
+    public void wrapsAngles() {
+        assertEquals(0, ExtendedKalmanFilter.wrapAngle(2 * Math.PI), 1e-9);
+        assertEquals(-Math.PI, ExtendedKalmanFilter.wrapAngle(Math.PI), 1e-9);
+        assertEquals(-Math.PI / 2, ExtendedKalmanFilter.wrapAngle(3 * Math.PI / 2), 1e-9);
+        assertEquals(0.1, ExtendedKalmanFilter.wrapAngle(0.1 - 4 * Math.PI), 1e-9);
+    }
+}
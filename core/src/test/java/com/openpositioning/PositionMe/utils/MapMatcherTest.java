@@ -0,0 +1,141 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Matching on synthetic corridors: a straight corridor along the x axis, and a T-junction where a
+ * corridor leaves it northwards at x = 20 m.
+ */
+public class MapMatcherTest {
+
+    private static final double LAT = 55.9230;
+    private static final double LNG = -3.1742;
+    private static final EnuProjector PROJECTOR = new EnuProjector(LAT, LNG);
+
+    @Test
+    public void snapsOntoAStraightCorridor() {
+        MapMatcher matcher = new MapMatcher(graph(new double[][] {{0, 0}, {40, 0}},
+                new int[][] {{0, 1}}));
+        double[] out = new double[2];
+        for (int i = 0; i <= 40; i++) {
+            // Drifting up to 2 m off the corridor
+            double y = 2 * Math.sin(i * 0.4);
+            assertTrue(matcher.match(latitude(y), longitude(i), out));
+            assertEquals(0, north(out), 0.01);
+            assertEquals(i, east(out), 0.01);
+        }
+    }
+
+    @Test
+    public void followsTheBranchOfATJunction() {
+        MapMatcher matcher = new MapMatcher(tJunction());
+        double[] out = new double[2];
+        // Walk east along the corridor, then turn north into the branch
+        for (int x = 0; x <= 20; x++) {
+            matcher.match(latitude(0.5), longitude(x), out);
+        }
+        assertEquals(20, east(out), 0.01);
+        for (int y = 1; y <= 15; y++) {
+            assertTrue(matcher.match(latitude(y), longitude(21.5), out));
+            // Near the junction the corridor is as close as the branch and is kept
+            if (y < 3) continue;
+            assertEquals(20, east(out), 0.01);
+            assertEquals(y, north(out), 0.01);
+        }
+    }
+
+    @Test
+    public void staysOnTheCorridorPastTheJunction() {
+        MapMatcher matcher = new MapMatcher(tJunction());
+        double[] out = new double[2];
+        for (int x = 0; x <= 40; x++) {
+            // Drifting north near the junction must not switch to the branch
+            double y = x >= 18 && x <= 24 ? 1.5 : 0.3;
+            matcher.match(latitude(y), longitude(x), out);
+            assertEquals(0, north(out), 0.01);
+        }
+    }
+
+    @Test
+    public void leavesPositionsFarFromTheGraphUnchanged() {
+        MapMatcher matcher = new MapMatcher(tJunction());
+        double[] out = new double[2];
+        matcher.match(latitude(0.5), longitude(5), out);
+        // GNSS jump 30 m away from every corridor
+        assertFalse(matcher.match(latitude(-30), longitude(6), out));
+        assertEquals(latitude(-30), out[0], 1e-12);
+        assertEquals(longitude(6), out[1], 1e-12);
+        // Back near the corridor, matching resumes
+        assertTrue(matcher.match(latitude(0.5), longitude(7), out));
+        assertEquals(0, north(out), 0.01);
+    }
+
+    @Test
+    public void batchMatchingCorrectsEarlyChoices() {
+        MapMatcher matcher = new MapMatcher(tJunction());
+        // Positions between the corridor and the branch, then clearly in the branch
+        int count = 12;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = latitude(2 + i);
+            longitudes[i] = longitude(i < 2 ? 22.5 : 21);
+        }
+        double[] outLat = new double[count];
+        double[] outLng = new double[count];
+        assertEquals(count, matcher.matchAll(latitudes, longitudes, count, outLat, outLng));
+        for (int i = 0; i < count; i++) {
+            assertEquals("position " + i, 20, PROJECTOR.toEast(outLng[i]), 0.01);
+        }
+    }
+
+    @Test
+    public void batchMatchingSkipsOffGraphJumps() {
+        MapMatcher matcher = new MapMatcher(tJunction());
+        double[] latitudes = {latitude(0.5), latitude(40), latitude(0.5)};
+        double[] longitudes = {longitude(2), longitude(3), longitude(4)};
+        double[] outLat = new double[3];
+        double[] outLng = new double[3];
+        assertEquals(2, matcher.matchAll(latitudes, longitudes, 3, outLat, outLng));
+        assertEquals(latitude(40), outLat[1], 1e-12);
+        assertEquals(0, PROJECTOR.toNorth(outLat[2]), 0.01);
+    }
+
+    /** Corridor from (0, 0) to (40, 0) with a branch from (20, 0) to (20, 20). */
+    private static WalkableGraph tJunction() {
+        return graph(new double[][] {{0, 0}, {20, 0}, {40, 0}, {20, 20}},
+                new int[][] {{0, 1}, {1, 2}, {1, 3}});
+    }
+
+    private static WalkableGraph graph(double[][] nodes, int[][] edges) {
+        GeoPoint[] points = new GeoPoint[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            points[i] = new GeoPoint(latitude(nodes[i][1]), longitude(nodes[i][0]));
+        }
+        List<int[]> edgeList = Arrays.asList(edges);
+        return new WalkableGraph(Arrays.asList(points), edgeList);
+    }
+
+    private static double latitude(double north) {
+        return PROJECTOR.toLatitude(north);
+    }
+
+    private static double longitude(double east) {
+        return PROJECTOR.toLongitude(east);
+    }
+
+    private static double north(double[] point) {
+        return PROJECTOR.toNorth(point[0]);
+    }
+
+    private static double east(double[] point) {
+        return PROJECTOR.toEast(point[1]);
+    }
+}
@@ -0,0 +1,136 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimplifiedPathTest {
+
+    private static final double LAT = 55.9230;
+    private static final double LNG = -3.1742;
+    private static final EnuProjector PROJECTOR = new EnuProjector(LAT, LNG);
+
+    @Test
+    public void straightLineKeepsFewPoints() {
+        SimplifiedPath path = new SimplifiedPath();
+        for (int i = 0; i < 1000; i++) {
+            path.add(PROJECTOR.toLatitude(i * 0.5), LNG);
+        }
+        // Only the ends are kept, however long the line
+        for (int tier = 0; tier < path.getTierCount(); tier++) {
+            assertEquals(2, path.getTierSize(tier, path.size()));
+            assertEquals(0, path.getTierIndex(tier, path.size(), 0));
+            assertEquals(999, path.getTierIndex(tier, path.size(), 1));
+        }
+    }
+
+    @Test
+    public void droppedPointsStayWithinTheTolerance() {
+        SimplifiedPath path = new SimplifiedPath();
+        double[][] walk = randomWalk(2000, 1);
+        for (int i = 0; i < walk[0].length; i++) {
+            path.add(PROJECTOR.toLatitude(walk[1][i]), PROJECTOR.toLongitude(walk[0][i]));
+        }
+
+        for (int tier = 0; tier < path.getTierCount(); tier++) {
+            assertEquals(SimplifiedPath.DEFAULT_TOLERANCES[tier], path.getTolerance(tier), 0);
+            assertWithinTolerance(path, tier, walk[0], walk[1]);
+        }
+    }
+
+    @Test
+    public void tiersStayWithinTheVertexBudget() {
+        SimplifiedPath path = new SimplifiedPath();
+        double[][] walk = randomWalk(20000, 3);
+        for (int i = 0; i < walk[0].length; i++) {
+            path.add(PROJECTOR.toLatitude(walk[1][i]), PROJECTOR.toLongitude(walk[0][i]));
+        }
+
+        // The finest tier is coarsened, the others keep their tolerance
+        assertTrue(path.getTolerance(0) > SimplifiedPath.DEFAULT_TOLERANCES[0]);
+        for (int tier = 0; tier < path.getTierCount(); tier++) {
+            assertTrue(path.getTierSize(tier, path.size()) <= SimplifiedPath.MAX_TIER_SIZE + 1);
+            assertWithinTolerance(path, tier, walk[0], walk[1]);
+        }
+
+        path.clear();
+        assertEquals(SimplifiedPath.DEFAULT_TOLERANCES[0], path.getTolerance(0), 0);
+    }
+
+    @Test
+    public void truncatedPathMatchesItsPrefix() {
+        SimplifiedPath full = new SimplifiedPath();
+        SimplifiedPath prefix = new SimplifiedPath();
+        Random random = new Random(2);
+        double x = 0, y = 0;
+        for (int i = 0; i < 500; i++) {
+            x += random.nextDouble();
+            y += random.nextDouble() - 0.5;
+            full.add(PROJECTOR.toLatitude(y), PROJECTOR.toLongitude(x));
+            if (i < 300) prefix.add(PROJECTOR.toLatitude(y), PROJECTOR.toLongitude(x));
+        }
+        for (int tier = 0; tier < full.getTierCount(); tier++) {
+            assertEquals(prefix.getTierSize(tier, 300), full.getTierSize(tier, 300));
+        }
+
+        full.truncate(300);
+        assertEquals(300, full.size());
+        for (int tier = 0; tier < full.getTierCount(); tier++) {
+            int size = prefix.getTierSize(tier, 300);
+            assertEquals(size, full.getTierSize(tier, 300));
+            for (int k = 0; k < size; k++) {
+                assertEquals(prefix.getTierIndex(tier, 300, k), full.getTierIndex(tier, 300, k));
+            }
+        }
+    }
+
+    @Test
+    public void selectsTheCoarsestTierFinerThanAPixel() {
+        SimplifiedPath path = new SimplifiedPath();
+        assertEquals(0, path.selectTier(0.01));
+        assertEquals(1, path.selectTier(0.5));
+        assertEquals(4, path.selectTier(100));
+    }
+
+    /** Walk of 0.7 m steps with a drifting heading, as east and north coordinates in meters. */
+    private static double[][] randomWalk(int size, long seed) {
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        Random random = new Random(seed);
+        double heading = 0;
+        for (int i = 1; i < size; i++) {
+            heading += 0.3 * random.nextGaussian();
+            xs[i] = xs[i - 1] + 0.7 * Math.cos(heading);
+            ys[i] = ys[i - 1] + 0.7 * Math.sin(heading);
+        }
+        return new double[][] {xs, ys};
+    }
+
+    /** Checks that every point dropped from a tier is within its tolerance of the tier. */
+    private static void assertWithinTolerance(SimplifiedPath path, int tier, double[] xs, double[] ys) {
+        double tolerance = path.getTolerance(tier);
+        int tierSize = path.getTierSize(tier, path.size());
+        for (int k = 1; k < tierSize; k++) {
+            int start = path.getTierIndex(tier, path.size(), k - 1);
+            int end = path.getTierIndex(tier, path.size(), k);
+            for (int i = start + 1; i < end; i++) {
+                double distance = segmentDistance(xs[i], ys[i], xs[start], ys[start], xs[end], ys[end]);
+                assertTrue("tier " + tier + " point " + i, distance <= tolerance + 1e-6);
+            }
+        }
+    }
+
+    /** Distance from a point to a segment in meters. */
+    private static double segmentDistance(double px, double py, double ax, double ay,
+                                          double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared > 0 ? ((px - ax) * dx + (py - ay) * dy) / lengthSquared : 0;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(px - ax - t * dx, py - ay - t * dy);
+    }
+}
@@ -0,0 +1,83 @@
+package com.openpositioning.PositionMe.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WalkwayMatcherTest {
+
+    private static final EnuProjector PROJECTOR = new EnuProjector(55.9230, -3.1742);
+
+    // Building of 100 m by 100 m with a basement and a corridor running north on its ground floor
+    private static final BuildingRegistry REGISTRY = new BuildingRegistry(Collections.singletonList(
+            new Building("Hall", Arrays.asList(point(-50, -50), point(50, -50), point(50, 50),
+                    point(-50, 50)), new ArrayList<>(), 1, 4, null, null,
+                    Arrays.asList(null, corridor()))));
+
+    @Test
+    public void matchesTheGroundFloor() {
+        WalkwayMatcher matcher = new WalkwayMatcher(REGISTRY);
+        double[] out = new double[2];
+        assertTrue(matcher.match(lat(0), lng(2), 0, out));
+        assertEquals(0, PROJECTOR.toEast(out[1]), 0.01);
+        assertEquals(0, PROJECTOR.toNorth(out[0]), 0.01);
+    }
+
+    @Test
+    public void otherFloorsAndOutsideAreUnchanged() {
+        WalkwayMatcher matcher = new WalkwayMatcher(REGISTRY);
+        double[] out = new double[2];
+        // First floor, basement and outside the building
+        assertFalse(matcher.match(lat(0), lng(2), 1, out));
+        assertEquals(lng(2), out[1], 0);
+        assertFalse(matcher.match(lat(0), lng(2), -1, out));
+        assertFalse(matcher.match(lat(80), lng(2), 0, out));
+        assertEquals(lat(80), out[0], 0);
+    }
+
+    @Test
+    public void matchesTheRunsOnAGraph() {
+        // Two points on the ground floor, one upstairs, two on the ground floor, one outside
+        double[] east = {2, 2, 2, -2, -2, 2};
+        double[] north = {-10, -8, -6, -4, -2, 70};
+        int[] floors = {0, 0, 1, 0, 0, 0};
+        double[] lats = new double[east.length];
+        double[] lngs = new double[east.length];
+        for (int i = 0; i < east.length; i++) {
+            lats[i] = lat(north[i]);
+            lngs[i] = lng(east[i]);
+        }
+        assertEquals(4, WalkwayMatcher.matchAll(REGISTRY, lats, lngs, floors, east.length));
+        for (int i = 0; i < east.length; i++) {
+            boolean onGraph = floors[i] == 0 && north[i] < 50;
+            assertEquals(onGraph ? 0 : east[i], PROJECTOR.toEast(lngs[i]), 0.01);
+            assertEquals(north[i], PROJECTOR.toNorth(lats[i]), 0.01);
+        }
+    }
+
+    /** Corridor running north through the building. */
+    private static WalkableGraph corridor() {
+        List<int[]> edges = new ArrayList<>();
+        edges.add(new int[] {0, 1});
+        return new WalkableGraph(Arrays.asList(point(0, -45), point(0, 45)), edges);
+    }
+
+    private static GeoPoint point(double east, double north) {
+        return new GeoPoint(lat(north), lng(east));
+    }
+
+    private static double lat(double north) {
+        return PROJECTOR.toLatitude(north);
+    }
+
+    private static double lng(double east) {
+        return PROJECTOR.toLongitude(east);
+    }
+}
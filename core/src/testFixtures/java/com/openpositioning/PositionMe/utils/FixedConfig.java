@@ -0,0 +1,37 @@
+package com.openpositioning.PositionMe.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory settings for the tests and the benchmarks, returning the defaults of the settings
+ * screen unless a value was put.
+ */
+public final class FixedConfig implements Config {
+
+    // Values put by the test or the code under test
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+}